@@ -34,8 +34,21 @@ public class DTOLauncher {
 	 * Constructor.
 	 */
 	public DTOLauncher() {
-		this.dtoGenerator = new DTOGeneratorImpl();
-		this.classFinder = new ClassFinderImpl();
+		this(new ClassFinderImpl(), new DTOGeneratorImpl());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param classFinder
+	 *            the class finder to use.
+	 * @param dtoGenerator
+	 *            the DTO generator to use.
+	 */
+	public DTOLauncher(final ClassFinder classFinder,
+			final DTOGenerator dtoGenerator) {
+		this.classFinder = classFinder;
+		this.dtoGenerator = dtoGenerator;
 	}
 
 	/**
@@ -52,20 +65,19 @@ public class DTOLauncher {
 	 *            patterns that classes to generate do not match.
 	 * @param generatedDirectory
 	 *            the directory where DTOs will be generated.
-	 * @throws ClassNotFoundException
-	 *             if the classes found in directories have not been found. This
-	 *             should not happened.
 	 * @throws IOException
-	 *             if DTOs can not be written.
+	 *             if classes can not be read, loaded or DTOs can not be
+	 *             written.
 	 */
 	public void execute(final ClassLoader classLoader,
 			final List<File> baseDirectories, final List<String> includes,
 			final List<String> excludes, final File generatedDirectory)
-			throws ClassNotFoundException, IOException {
-		List<Class<?>> classesToGenerate = this.classFinder
-				.getClassesToGenerate(classLoader, baseDirectories, includes,
-						excludes);
+			throws IOException {
+		// Only the names are scanned : each class is loaded by the generation.
+		final List<String> classNamesToGenerate = this.classFinder
+				.getClassNamesToGenerate(classLoader, baseDirectories,
+						includes, excludes);
 		this.dtoGenerator.setGeneratedDirectory(generatedDirectory);
-		this.dtoGenerator.generateDTOs(classesToGenerate);
+		this.dtoGenerator.generateDTOs(classLoader, classNamesToGenerate);
 	}
 }
@@ -0,0 +1,129 @@
+package fr.maven.dto;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+
+import fr.maven.dto.generator.impl.ShardMerger;
+
+/**
+ * Mojo to merge the DTO sources generated by the shards of a generation.
+ * 
+ * @goal merge
+ * @phase generate-sources
+ * @threadSafe
+ */
+public class DTOMergeMojo extends AbstractMojo {
+
+	/**
+	 * The project currently being built.
+	 * 
+	 * @parameter expression="${project}"
+	 * @required
+	 * @readonly
+	 */
+	private MavenProject project;
+
+	/**
+	 * The generated directories of the shards, as copied from the machines
+	 * that have generated them. Each one contains the manifest of its shard.
+	 * 
+	 * @parameter
+	 * @required
+	 */
+	private List<File> shardDirectories;
+
+	/**
+	 * Location of the merged DTO sources, added to the compiled sources.
+	 * 
+	 * @parameter expression="${generatedDirectory}"
+	 *            default-value="${project.build.directory}/generated-sources"
+	 * @required
+	 */
+	private File generatedDirectory;
+
+	/**
+	 * Force each merged DTO to the disk before it replaces the previous one.
+	 * 
+	 * @parameter expression="${syncOutput}" default-value="false"
+	 */
+	private boolean syncOutput;
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.apache.maven.plugin.AbstractMojo#execute()
+	 */
+	@Override
+	public void execute() throws MojoExecutionException {
+		this.getLog().info("dto-maven-plugin merge");
+		final ShardMerger shardMerger = new ShardMerger();
+		try {
+			for (final File shardDirectory : this.shardDirectories) {
+				shardMerger.addShard(shardDirectory);
+			}
+			final List<String> inconsistencies = shardMerger.check();
+			if (!inconsistencies.isEmpty()) {
+				for (final String inconsistency : inconsistencies) {
+					this.getLog().error(inconsistency);
+				}
+				throw new MojoExecutionException(
+						"Merge aborted due to previous errors.");
+			}
+			final int writtenCount = shardMerger.merge(
+					this.generatedDirectory, this.syncOutput);
+			this.getLog().info(
+					writtenCount + " DTO(s) merged from "
+							+ this.shardDirectories.size() + " shard(s).");
+		} catch (final IOException e) {
+			this.getLog().error("The merge has failed.", e);
+			throw new MojoExecutionException("The merge has failed.", e);
+		}
+		this.project.addCompileSourceRoot(this.generatedDirectory
+				.getAbsolutePath());
+	}
+
+	/**
+	 * Set the project currently being built.
+	 * 
+	 * @param project
+	 *            the project to set
+	 */
+	public void setProject(final MavenProject project) {
+		this.project = project;
+	}
+
+	/**
+	 * Set the generated directories of the shards.
+	 * 
+	 * @param shardDirectories
+	 *            the shardDirectories to set
+	 */
+	public void setShardDirectories(final List<File> shardDirectories) {
+		this.shardDirectories = shardDirectories;
+	}
+
+	/**
+	 * Set the directory where the DTO sources are merged.
+	 * 
+	 * @param generatedDirectory
+	 *            the generatedDirectory to set
+	 */
+	public void setGeneratedDirectory(final File generatedDirectory) {
+		this.generatedDirectory = generatedDirectory;
+	}
+
+	/**
+	 * Set if the merged DTOs are forced to the disk.
+	 * 
+	 * @param syncOutput
+	 *            the syncOutput to set
+	 */
+	public void setSyncOutput(final boolean syncOutput) {
+		this.syncOutput = syncOutput;
+	}
+}
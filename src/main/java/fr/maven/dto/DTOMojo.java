@@ -1,19 +1,32 @@
 package fr.maven.dto;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.AccessController;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 
+import fr.maven.dto.generator.ClassFinder;
 import fr.maven.dto.generator.ClassLoaderProvider;
+import fr.maven.dto.generator.DTOCompiler;
+import fr.maven.dto.generator.DTOGenerator;
+import fr.maven.dto.generator.impl.BuildStamp;
+import fr.maven.dto.generator.impl.ClassFinderImpl;
+import fr.maven.dto.generator.impl.ClassLoaderCache;
 import fr.maven.dto.generator.impl.ClassLoaderProviderImpl;
+import fr.maven.dto.generator.impl.DTOCompilerImpl;
+import fr.maven.dto.generator.impl.DTOGeneratorImpl;
+import fr.maven.dto.generator.impl.GenerationState;
 
 /**
  * Mojo to generate DTO classes.
@@ -25,6 +38,13 @@ import fr.maven.dto.generator.impl.ClassLoaderProviderImpl;
  */
 public class DTOMojo extends AbstractMojo {
 
+	/**
+	 * The class loaders of the archives shared by the executions of the
+	 * reactor running at the same time. A class loader is closed as soon as
+	 * no execution uses it, so that the cache never outlives the build.
+	 */
+	private static final ClassLoaderCache CLASS_LOADER_CACHE = new ClassLoaderCache();
+
 	/**
 	 * The project currently being built.
 	 * 
@@ -43,6 +63,51 @@ public class DTOMojo extends AbstractMojo {
 	 */
 	private File generatedDirectory;
 
+	/**
+	 * Emit the DTOs directly as class files in the classes directory, so that
+	 * they are not compiled. The DTO sources, if generated, are then kept for
+	 * the IDEs and are not added to the compiled sources.
+	 * 
+	 * @parameter expression="${generateClasses}" default-value="false"
+	 */
+	private boolean generateClasses;
+
+	/**
+	 * Location of the DTO class files, when the DTOs are emitted as class
+	 * files.
+	 * 
+	 * @parameter expression="${classesDirectory}"
+	 *            default-value="${project.build.outputDirectory}"
+	 */
+	private File classesDirectory;
+
+	/**
+	 * Write the DTO sources in the generated directory.
+	 * 
+	 * @parameter expression="${generateSources}" default-value="true"
+	 */
+	private boolean generateSources;
+
+	/**
+	 * Compile the DTO sources in the classes directory during the generation,
+	 * with the classpath already used to load the classes to generate. Only
+	 * the DTOs changed are compiled, the classes of the DTOs no longer
+	 * generated are removed, and the DTO sources are not added to the
+	 * compiled sources. Maven must run on a JDK.
+	 * 
+	 * @parameter expression="${compileSources}" default-value="false"
+	 */
+	private boolean compileSources;
+
+	/**
+	 * The Java version the DTOs are compiled for, when the DTO sources are
+	 * compiled during the generation.
+	 * 
+	 * @parameter expression="${compilerTarget}"
+	 *            default-value="${maven.compiler.target}"
+	 */
+	private String compilerTarget;
+
 	/**
 	 * List of pattern classes we want to generate DTO for match.
 	 * 
@@ -57,6 +122,161 @@ public class DTOMojo extends AbstractMojo {
 	 */
 	private List<String> excludes;
 
+	/**
+	 * List of annotations classes we want to generate DTO for are annotated
+	 * with (one of). Interfaces, enums, annotations, anonymous and synthetic
+	 * classes are never generated.
+	 * 
+	 * @parameter
+	 */
+	private List<String> annotations;
+
+	/**
+	 * List of classes that classes we want to generate DTO for extend (one
+	 * of).
+	 * 
+	 * @parameter
+	 */
+	private List<String> superClasses;
+
+	/**
+	 * List of interfaces that classes we want to generate DTO for implement
+	 * (one of).
+	 * 
+	 * @parameter
+	 */
+	private List<String> interfaces;
+
+	/**
+	 * Number of threads scanning the classpath elements. Use 0 for one thread
+	 * per available processor. The classes found are the same whatever the
+	 * number of threads.
+	 * 
+	 * @parameter expression="${scanThreads}" default-value="1"
+	 */
+	private int scanThreads;
+
+	/**
+	 * Index of the classes found in each classpath element. Classpath elements
+	 * unchanged since the previous build are not scanned again. Delete this
+	 * file to force a full scan.
+	 * 
+	 * @parameter expression="${scanIndexFile}"
+	 *            default-value="${project.build.directory}/dto-maven-plugin/scan-index.bin"
+	 */
+	private File scanIndexFile;
+
+	/**
+	 * Scan the project output directory for classes to generate DTO for.
+	 * 
+	 * @parameter expression="${scanOutputDirectory}" default-value="true"
+	 */
+	private boolean scanOutputDirectory;
+
+	/**
+	 * Scan the dependencies of the project for classes to generate DTO for.
+	 * When false, only the project output directory is scanned.
+	 * 
+	 * @parameter expression="${scanDependencies}" default-value="true"
+	 */
+	private boolean scanDependencies;
+
+	/**
+	 * List of dependencies scanned for classes to generate DTO for, as
+	 * groupId:artifactId. When not set, all the dependencies are scanned. The
+	 * dependencies that are not scanned are still in the classpath used to
+	 * load the classes.
+	 * 
+	 * @parameter
+	 */
+	private List<String> scannedArtifacts;
+
+	/**
+	 * State of the generation kept between two builds. The DTOs of the classes
+	 * unchanged since the previous build are not generated again. Delete this
+	 * file to force a full generation.
+	 * 
+	 * @parameter expression="${generationStateFile}"
+	 *            default-value="${project.build.directory}/dto-maven-plugin/generation-state.bin"
+	 */
+	private File generationStateFile;
+
+	/**
+	 * Encoding of the generated DTO classes. The platform encoding is used
+	 * when not set.
+	 * 
+	 * @parameter expression="${encoding}"
+	 *            default-value="${project.build.sourceEncoding}"
+	 */
+	private String encoding;
+
+	/**
+	 * Number of threads generating the DTOs. Use 0 for one thread per
+	 * available processor. The DTOs generated are the same whatever the
+	 * number of threads.
+	 * 
+	 * @parameter expression="${generationThreads}" default-value="1"
+	 */
+	private int generationThreads;
+
+	/**
+	 * Number of classes loaded waiting for their generation, when the DTOs are
+	 * generated by several threads. It bounds the classes kept in memory.
+	 * 
+	 * @parameter expression="${generationQueueSize}" default-value="64"
+	 */
+	private int generationQueueSize;
+
+	/**
+	 * Force each generated DTO and the generation state to the disk before it
+	 * replaces the previous one. Slower, but a crash of the machine never
+	 * leaves an empty DTO.
+	 * 
+	 * @parameter expression="${syncOutput}" default-value="false"
+	 */
+	private boolean syncOutput;
+
+	/**
+	 * Stamp of the plugin version, of the configuration and of the classpath
+	 * of the last successful execution. When none has changed since, the
+	 * execution is skipped : no classloader is created and no classpath
+	 * element is scanned. Delete this file to force the execution.
+	 * 
+	 * @parameter expression="${stampFile}"
+	 *            default-value="${project.build.directory}/dto-maven-plugin/build-stamp.bin"
+	 */
+	private File stampFile;
+
+	/**
+	 * Share the class loader of the dependency archives between the modules
+	 * of the reactor having the same dependencies and generated at the same
+	 * time, in a parallel build : the archives are opened and their classes
+	 * are loaded once for all these modules. The classes of the project
+	 * directories are still looked up before the classes of the archives. A
+	 * sequential build shares nothing, as a class loader is closed once no
+	 * module uses it.
+	 * 
+	 * @parameter expression="${shareClassLoaders}" default-value="false"
+	 */
+	private boolean shareClassLoaders;
+
+	/**
+	 * Number of shards the classes to generate are split into, so that
+	 * several machines share a huge generation : each machine generates the
+	 * DTOs of its shard only, and the merge goal assembles them. The DTO
+	 * sources of a shard are not compiled. Use 1 to generate all the DTOs.
+	 * 
+	 * @parameter expression="${shardCount}" default-value="1"
+	 */
+	private int shardCount;
+
+	/**
+	 * Index of the shard generated, from 0 to shardCount - 1.
+	 * 
+	 * @parameter expression="${shardIndex}" default-value="0"
+	 */
+	private int shardIndex;
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -71,30 +291,256 @@ public class DTOMojo extends AbstractMojo {
 			throw new MojoExecutionException(
 					"Generation aborted due to previous errors.");
 		}
+		ClassLoaderProvider classLoaderProvider = null;
 		try {
+			final GenerationState previousState = GenerationState
+					.load(this.generationStateFile);
+			final BuildStamp buildStamp = this.createBuildStamp(previousState);
+			if (this.isUpToDate(buildStamp, previousState)) {
+				this.getLog().info(
+						"The DTOs are up to date, the generation is skipped.");
+				this.addCompileSourceRoot();
+				return;
+			}
+			// A failed generation must not be skipped by the next build.
+			BuildStamp.clear(this.stampFile);
 			this.getLog().debug("dto-maven-plugin launch the generation.");
-			final DTOLauncher dtoLauncher = new DTOLauncher();
-			dtoLauncher.execute(this.getClassLoader(),
+			classLoaderProvider = this.createClassLoaderProvider();
+			final DTOGenerator dtoGenerator = this.createDTOGenerator();
+			final DTOLauncher dtoLauncher = new DTOLauncher(
+					this.createClassFinder(), dtoGenerator);
+			dtoLauncher.execute(classLoaderProvider.getClassLoader(),
 					this.getBaseDirectories(), this.includes, this.excludes,
 					this.generatedDirectory);
 			this.getLog().debug("dto-maven-plugin finished the generation.");
-			this.project.addCompileSourceRoot(this.generatedDirectory
-					.getAbsolutePath());
+			if (this.compileSources) {
+				this.compile(classLoaderProvider,
+						dtoGenerator.getDTOSourceFiles(),
+						dtoGenerator.getRemovedDTOSourceFiles());
+			}
+			this.addCompileSourceRoot();
+			if (this.stampFile != null) {
+				buildStamp.record(this.stampFile, this.syncOutput);
+			}
 		} catch (final Exception e) {
 			this.getLog().error("The generation has failed.", e);
 			throw new MojoExecutionException("The generation has failed.", e);
+		} finally {
+			this.close(classLoaderProvider);
+		}
+	}
+
+	/**
+	 * Add the generated directory to the compile source roots of the project,
+	 * when the DTO sources are left to the compilation of the project. The
+	 * DTO sources of a shard reference the DTOs of the other shards : they
+	 * are only compiled once merged.
+	 */
+	private void addCompileSourceRoot() {
+		if (this.generateSources && !this.generateClasses
+				&& !this.compileSources && this.shardCount <= 1) {
+			this.project.addCompileSourceRoot(this.generatedDirectory
+					.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Create the stamp of this execution, from the version of the generator,
+	 * the parameters the DTOs depend on and the compile classpath, without
+	 * the DTO classes of the previous generation.
+	 * 
+	 * @param previousState
+	 *            the state of the previous generation.
+	 * @return the stamp of the execution.
+	 * @throws DependencyResolutionRequiredException
+	 */
+	protected BuildStamp createBuildStamp(final GenerationState previousState)
+			throws DependencyResolutionRequiredException {
+		final BuildStamp buildStamp = new BuildStamp();
+		buildStamp.addParameter("includes", this.includes)
+				.addParameter("excludes", this.excludes)
+				.addParameter("annotations", this.annotations)
+				.addParameter("superClasses", this.superClasses)
+				.addParameter("interfaces", this.interfaces)
+				.addParameter("generatedDirectory", this.generatedDirectory)
+				.addParameter("generateSources", this.generateSources)
+				.addParameter("generateClasses", this.generateClasses)
+				.addParameter("classesDirectory", this.classesDirectory)
+				.addParameter("compileSources", this.compileSources)
+				.addParameter("compilerTarget", this.compilerTarget)
+				.addParameter("encoding", this.encoding)
+				.addParameter("generationStateFile", this.generationStateFile)
+				.addParameter("shareClassLoaders", this.shareClassLoaders)
+				.addParameter("scanOutputDirectory", this.scanOutputDirectory)
+				.addParameter("scanDependencies", this.scanDependencies)
+				.addParameter("scannedArtifacts", this.scannedArtifacts)
+				.addParameter("shardCount", this.shardCount)
+				.addParameter("shardIndex", this.shardIndex);
+		buildStamp.excludeClasses(this.getDTOClassPaths(previousState));
+		for (final Object filePath : this.project.getCompileClasspathElements()) {
+			buildStamp.addClasspathElement(new File((String) filePath));
 		}
+		return buildStamp;
 	}
 
 	/**
-	 * Create the classloader that contains classes to generate.
+	 * Return the paths of the DTO classes of a generation, relative to the
+	 * classes directory and without extension.
 	 * 
-	 * @return the classloader result.
+	 * @param state
+	 *            the state of the generation.
+	 * @return the paths of the DTO classes.
+	 */
+	private List<String> getDTOClassPaths(final GenerationState state) {
+		final List<String> classPaths = new ArrayList<String>();
+		for (final String output : state.getOutputs()) {
+			classPaths.add(output.substring(0, output.lastIndexOf('.')));
+		}
+		return classPaths;
+	}
+
+	/**
+	 * Check the stamp of this execution is the stamp of the last successful
+	 * execution, and its DTOs are still there.
+	 * 
+	 * @param buildStamp
+	 *            the stamp of this execution.
+	 * @param previousState
+	 *            the state of the previous generation.
+	 * @return <code>true</code> if the execution can be skipped.
+	 */
+	protected boolean isUpToDate(final BuildStamp buildStamp,
+			final GenerationState previousState) {
+		if (this.generateSources && !this.generatedDirectory.isDirectory()) {
+			return false;
+		}
+		if (this.generationStateFile != null
+				&& !this.generationStateFile.isFile()) {
+			return false;
+		}
+		final boolean classesWritten = this.generateClasses
+				|| this.compileSources;
+		for (final String classPath : this.getDTOClassPaths(previousState)) {
+			if (this.generateSources
+					&& !new File(this.generatedDirectory, classPath + ".java")
+							.isFile()
+					|| classesWritten
+					&& !new File(this.classesDirectory, classPath + ".class")
+							.isFile()) {
+				return false;
+			}
+		}
+		return buildStamp.isRecorded(this.stampFile);
+	}
+
+	/**
+	 * Compile the DTO sources changed in the classes directory, and remove
+	 * the classes of the DTO sources removed.
+	 * 
+	 * @param classLoaderProvider
+	 *            the provider of the classloader of the generation, whose
+	 *            classpath is used by the compilation.
+	 * @param sourceFiles
+	 *            the DTO sources.
+	 * @param removedSourceFiles
+	 *            the DTO sources removed by the generation.
+	 * @throws IOException
+	 *             if the DTOs can not be compiled.
+	 */
+	private void compile(final ClassLoaderProvider classLoaderProvider,
+			final List<File> sourceFiles, final List<File> removedSourceFiles)
+			throws IOException {
+		final DTOCompiler dtoCompiler = this.createDTOCompiler();
+		try {
+			dtoCompiler.removeClasses(removedSourceFiles);
+			dtoCompiler.setClasspath(classLoaderProvider.getClasspath());
+			final int compiledCount = dtoCompiler.compile(sourceFiles);
+			this.getLog().info(
+					compiledCount + " DTO(s) compiled, "
+							+ (sourceFiles.size() - compiledCount)
+							+ " up to date.");
+		} finally {
+			dtoCompiler.close();
+		}
+	}
+
+	/**
+	 * Create the compiler of the DTO sources.
+	 * 
+	 * @return the DTO compiler.
+	 */
+	protected DTOCompiler createDTOCompiler() {
+		final DTOCompiler dtoCompiler = new DTOCompilerImpl();
+		dtoCompiler.setSourceDirectory(this.generatedDirectory);
+		dtoCompiler.setClassesDirectory(this.classesDirectory);
+		dtoCompiler.setEncoding(this.encoding);
+		dtoCompiler.setTargetVersion(this.compilerTarget);
+		return dtoCompiler;
+	}
+
+	/**
+	 * Release the classloader used by the generation.
+	 * 
+	 * @param classLoaderProvider
+	 *            the provider of the classloader, <code>null</code> if it has
+	 *            not been created.
+	 */
+	private void close(final ClassLoaderProvider classLoaderProvider) {
+		if (classLoaderProvider != null) {
+			try {
+				classLoaderProvider.close();
+			} catch (final IOException e) {
+				this.getLog().warn("The classloader can not be closed.", e);
+			}
+		}
+	}
+
+	/**
+	 * Create the class finder used to find classes to generate.
+	 * 
+	 * @return the class finder configured.
+	 */
+	protected ClassFinder createClassFinder() {
+		final ClassFinder classFinder = new ClassFinderImpl();
+		classFinder.setAnnotations(this.annotations);
+		classFinder.setSuperClasses(this.superClasses);
+		classFinder.setInterfaces(this.interfaces);
+		classFinder.setScanThreads(this.scanThreads);
+		classFinder.setScanIndexFile(this.scanIndexFile);
+		return classFinder;
+	}
+
+	/**
+	 * Create the generator of the DTOs.
+	 * 
+	 * @return the DTO generator configured.
+	 */
+	protected DTOGenerator createDTOGenerator() {
+		final DTOGenerator dtoGenerator = new DTOGeneratorImpl();
+		dtoGenerator.setStateFile(this.generationStateFile);
+		dtoGenerator.setEncoding(this.encoding);
+		dtoGenerator.setGenerationThreads(this.generationThreads);
+		dtoGenerator.setQueueSize(this.generationQueueSize);
+		dtoGenerator.setSyncOutput(this.syncOutput);
+		dtoGenerator.setGenerateSources(this.generateSources);
+		dtoGenerator.setShard(this.shardCount, this.shardIndex);
+		if (this.generateClasses) {
+			dtoGenerator.setClassesDirectory(this.classesDirectory);
+		}
+		return dtoGenerator;
+	}
+
+	/**
+	 * Create the provider of the classloader that contains classes to
+	 * generate. The classloader is built from the whole compile classpath.
+	 * 
+	 * @return the provider of the classloader built.
 	 * @throws MalformedURLException
 	 *             if the creation of url for files found failed
 	 * @throws DependencyResolutionRequiredException
 	 */
-	protected ClassLoader getClassLoader() throws MalformedURLException,
+	protected ClassLoaderProvider createClassLoaderProvider()
+			throws MalformedURLException,
 			DependencyResolutionRequiredException {
 		this.getLog().debug("Begin classloader creation");
 
@@ -107,17 +553,22 @@ public class DTOMojo extends AbstractMojo {
 			}
 		}
 
+		ClassLoaderCache classLoaderCache = null;
+		if (this.shareClassLoaders) {
+			classLoaderCache = CLASS_LOADER_CACHE;
+		}
 		final ClassLoaderProvider classLoaderProvider = new ClassLoaderProviderImpl(
-				urlList.toArray(new URL[0]));
+				urlList.toArray(new URL[0]), classLoaderCache);
 		AccessController.doPrivileged(classLoaderProvider);
-		final ClassLoader urlClassLoader = classLoaderProvider.getClassLoader();
 
 		this.getLog().debug("End classloader creation");
-		return urlClassLoader;
+		return classLoaderProvider;
 	}
 
 	/**
-	 * Return all base directories or archive where classes can been found.
+	 * Return the base directories or archives where classes to generate are
+	 * searched : the project output directory if it is scanned, and the
+	 * dependencies scanned, in the classpath order.
 	 * 
 	 * @return the list of directories and archive found.
 	 * @throws DependencyResolutionRequiredException
@@ -125,17 +576,81 @@ public class DTOMojo extends AbstractMojo {
 	protected List<File> getBaseDirectories()
 			throws DependencyResolutionRequiredException {
 		this.getLog().debug("Begin classes containers listing");
+		final File outputDirectory = new File(this.project.getBuild()
+				.getOutputDirectory()).getAbsoluteFile();
+		final Map<File, Artifact> artifactsByFile = this.getArtifactsByFile();
 		final List<File> directoriesOrArchive = new ArrayList<File>();
 		for (final Object filePath : this.project.getCompileClasspathElements()) {
-			final File classpathElement = new File((String) filePath);
-			if (classpathElement.exists()) {
+			final File classpathElement = new File((String) filePath)
+					.getAbsoluteFile();
+			boolean scanned;
+			if (classpathElement.equals(outputDirectory)) {
+				scanned = this.scanOutputDirectory;
+			} else {
+				scanned = this.isScannedDependency(artifactsByFile
+						.get(classpathElement));
+			}
+			if (!classpathElement.exists()) {
+				this.getLog().debug(
+						"Classpath element not found : " + classpathElement);
+			} else if (scanned) {
 				directoriesOrArchive.add(classpathElement);
+			} else {
+				this.getLog().debug(
+						"Classpath element not scanned : " + classpathElement);
 			}
 		}
 		this.getLog().debug("End classes containers listing");
 		return directoriesOrArchive;
 	}
 
+	/**
+	 * Return the artifacts of the project by file.
+	 * 
+	 * @return the artifacts resolved.
+	 */
+	private Map<File, Artifact> getArtifactsByFile() {
+		final Map<File, Artifact> artifactsByFile = new HashMap<File, Artifact>();
+		if (this.project.getArtifacts() != null) {
+			for (final Object artifactObject : this.project.getArtifacts()) {
+				final Artifact artifact = (Artifact) artifactObject;
+				if (artifact.getFile() != null) {
+					artifactsByFile.put(artifact.getFile().getAbsoluteFile(),
+							artifact);
+				}
+			}
+		}
+		return artifactsByFile;
+	}
+
+	/**
+	 * Check a dependency has to be scanned.
+	 * 
+	 * @param artifact
+	 *            the artifact of the dependency, <code>null</code> if the
+	 *            classpath element is not an artifact of the project.
+	 * @return <code>true</code> if the dependency is scanned.
+	 */
+	protected boolean isScannedDependency(final Artifact artifact) {
+		if (!this.scanDependencies) {
+			return false;
+		}
+		if (this.scannedArtifacts == null || this.scannedArtifacts.isEmpty()) {
+			return true;
+		}
+		if (artifact == null) {
+			return false;
+		}
+		final String key = artifact.getGroupId() + ":"
+				+ artifact.getArtifactId();
+		for (final String scannedArtifact : this.scannedArtifacts) {
+			if (key.equals(scannedArtifact.trim())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Check configuration is valid.
 	 * 
@@ -150,6 +665,35 @@ public class DTOMojo extends AbstractMojo {
 					.warn("No classes to generate. Please check the plugin configuration.");
 			argsValid = false;
 		}
+		// Check there are DTO files to generate.
+		if (!this.generateSources && !this.generateClasses) {
+			this.getLog()
+					.warn("Neither the DTO sources nor the DTO classes are generated. Please check the plugin configuration.");
+			argsValid = false;
+		}
+		// Check the DTOs compiled are generated as sources.
+		if (this.compileSources
+				&& (!this.generateSources || this.generateClasses)) {
+			this.getLog()
+					.warn("Only the DTO sources can be compiled, without the DTO classes generation. Please check the plugin configuration.");
+			argsValid = false;
+		}
+		// Check the shard generated and its DTOs.
+		if (this.shardCount > 1) {
+			if (this.shardIndex < 0 || this.shardIndex >= this.shardCount) {
+				this.getLog().warn(
+						"The shard index must be between 0 and "
+								+ (this.shardCount - 1)
+								+ ". Please check the plugin configuration.");
+				argsValid = false;
+			}
+			if (!this.generateSources || this.generateClasses
+					|| this.compileSources) {
+				this.getLog()
+						.warn("A shard only generates the DTO sources, compiled once merged. Please check the plugin configuration.");
+				argsValid = false;
+			}
+		}
 		return argsValid;
 	}
 
@@ -173,6 +717,56 @@ public class DTOMojo extends AbstractMojo {
 		this.generatedDirectory = generatedDirectory;
 	}
 
+	/**
+	 * Set if the DTOs are emitted as class files.
+	 * 
+	 * @param generateClasses
+	 *            the generateClasses to set
+	 */
+	public void setGenerateClasses(final boolean generateClasses) {
+		this.generateClasses = generateClasses;
+	}
+
+	/**
+	 * Set the directory where the DTO class files will be written.
+	 * 
+	 * @param classesDirectory
+	 *            the classesDirectory to set
+	 */
+	public void setClassesDirectory(final File classesDirectory) {
+		this.classesDirectory = classesDirectory;
+	}
+
+	/**
+	 * Set if the DTO sources are written.
+	 * 
+	 * @param generateSources
+	 *            the generateSources to set
+	 */
+	public void setGenerateSources(final boolean generateSources) {
+		this.generateSources = generateSources;
+	}
+
+	/**
+	 * Set if the DTO sources are compiled during the generation.
+	 * 
+	 * @param compileSources
+	 *            the compileSources to set
+	 */
+	public void setCompileSources(final boolean compileSources) {
+		this.compileSources = compileSources;
+	}
+
+	/**
+	 * Set the Java version the DTOs are compiled for.
+	 * 
+	 * @param compilerTarget
+	 *            the compilerTarget to set
+	 */
+	public void setCompilerTarget(final String compilerTarget) {
+		this.compilerTarget = compilerTarget;
+	}
+
 	/**
 	 * Set includes patterns.
 	 * 
@@ -192,4 +786,175 @@ public class DTOMojo extends AbstractMojo {
 	public void setExcludes(final List<String> excludes) {
 		this.excludes = excludes;
 	}
+
+	/**
+	 * Set annotations classes to generate are annotated with.
+	 * 
+	 * @param annotations
+	 *            the annotations to set
+	 */
+	public void setAnnotations(final List<String> annotations) {
+		this.annotations = annotations;
+	}
+
+	/**
+	 * Set classes that classes to generate extend.
+	 * 
+	 * @param superClasses
+	 *            the superClasses to set
+	 */
+	public void setSuperClasses(final List<String> superClasses) {
+		this.superClasses = superClasses;
+	}
+
+	/**
+	 * Set interfaces that classes to generate implement.
+	 * 
+	 * @param interfaces
+	 *            the interfaces to set
+	 */
+	public void setInterfaces(final List<String> interfaces) {
+		this.interfaces = interfaces;
+	}
+
+	/**
+	 * Set the number of threads scanning the classpath elements.
+	 * 
+	 * @param scanThreads
+	 *            the scanThreads to set
+	 */
+	public void setScanThreads(final int scanThreads) {
+		this.scanThreads = scanThreads;
+	}
+
+	/**
+	 * Set the file of the index of the classes found.
+	 * 
+	 * @param scanIndexFile
+	 *            the scanIndexFile to set
+	 */
+	public void setScanIndexFile(final File scanIndexFile) {
+		this.scanIndexFile = scanIndexFile;
+	}
+
+	/**
+	 * Set if the project output directory is scanned.
+	 * 
+	 * @param scanOutputDirectory
+	 *            the scanOutputDirectory to set
+	 */
+	public void setScanOutputDirectory(final boolean scanOutputDirectory) {
+		this.scanOutputDirectory = scanOutputDirectory;
+	}
+
+	/**
+	 * Set if the dependencies are scanned.
+	 * 
+	 * @param scanDependencies
+	 *            the scanDependencies to set
+	 */
+	public void setScanDependencies(final boolean scanDependencies) {
+		this.scanDependencies = scanDependencies;
+	}
+
+	/**
+	 * Set the dependencies scanned, as groupId:artifactId.
+	 * 
+	 * @param scannedArtifacts
+	 *            the scannedArtifacts to set
+	 */
+	public void setScannedArtifacts(final List<String> scannedArtifacts) {
+		this.scannedArtifacts = scannedArtifacts;
+	}
+
+	/**
+	 * Set the file of the state of the generation.
+	 * 
+	 * @param generationStateFile
+	 *            the generationStateFile to set
+	 */
+	public void setGenerationStateFile(final File generationStateFile) {
+		this.generationStateFile = generationStateFile;
+	}
+
+	/**
+	 * Set the encoding of the generated DTO classes.
+	 * 
+	 * @param encoding
+	 *            the encoding to set
+	 */
+	public void setEncoding(final String encoding) {
+		this.encoding = encoding;
+	}
+
+	/**
+	 * Set the number of threads generating the DTOs.
+	 * 
+	 * @param generationThreads
+	 *            the generationThreads to set
+	 */
+	public void setGenerationThreads(final int generationThreads) {
+		this.generationThreads = generationThreads;
+	}
+
+	/**
+	 * Set the number of classes loaded waiting for their generation.
+	 * 
+	 * @param generationQueueSize
+	 *            the generationQueueSize to set
+	 */
+	public void setGenerationQueueSize(final int generationQueueSize) {
+		this.generationQueueSize = generationQueueSize;
+	}
+
+	/**
+	 * Set if the generated files are forced to the disk.
+	 * 
+	 * @param syncOutput
+	 *            the syncOutput to set
+	 */
+	public void setSyncOutput(final boolean syncOutput) {
+		this.syncOutput = syncOutput;
+	}
+
+	/**
+	 * Set the stamp of the last successful execution.
+	 * 
+	 * @param stampFile
+	 *            the stampFile to set
+	 */
+	public void setStampFile(final File stampFile) {
+		this.stampFile = stampFile;
+	}
+
+	/**
+	 * Set if the class loader of the dependency archives is shared between
+	 * the modules of the reactor.
+	 * 
+	 * @param shareClassLoaders
+	 *            the shareClassLoaders to set
+	 */
+	public void setShareClassLoaders(final boolean shareClassLoaders) {
+		this.shareClassLoaders = shareClassLoaders;
+	}
+
+	/**
+	 * Set the number of shards the classes to generate are split into.
+	 * 
+	 * @param shardCount
+	 *            the shardCount to set
+	 */
+	public void setShardCount(final int shardCount) {
+		this.shardCount = shardCount;
+	}
+
+	/**
+	 * Set the index of the shard generated.
+	 * 
+	 * @param shardIndex
+	 *            the shardIndex to set
+	 */
+	public void setShardIndex(final int shardIndex) {
+		this.shardIndex = shardIndex;
+	}
 }
@@ -4,6 +4,7 @@
 package fr.maven.dto.generator;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -30,8 +31,84 @@ public interface ClassFinder {
 	 * @throws ClassNotFoundException
 	 *             if the classes found in directories have not been found. This
 	 *             should not happened.
+	 * @throws IOException
+	 *             if a class file or an archive can not be read.
 	 */
 	List<Class<?>> getClassesToGenerate(ClassLoader classLoader,
 			List<File> baseDirectories, List<String> includePatterns,
-			List<String> excludePatterns) throws ClassNotFoundException;
+			List<String> excludePatterns) throws ClassNotFoundException,
+			IOException;
+
+	/**
+	 * Return the binary names of the classes in base directories that match the
+	 * includePatterns and do not math the excludePatterns, without loading
+	 * them.
+	 * 
+	 * @param classLoader
+	 *            the ClassLoader that contains classes to generate.
+	 * @param baseDirectories
+	 *            the list of directories where classes are.
+	 * @param includePatterns
+	 *            patterns that canonical name classes must match.
+	 * @param excludePatterns
+	 *            patterns that canonical name classes must not match.
+	 * @return the class names got, in the order of the base directories.
+	 * @throws IOException
+	 *             if a class file or an archive can not be read.
+	 */
+	List<String> getClassNamesToGenerate(ClassLoader classLoader,
+			List<File> baseDirectories, List<String> includePatterns,
+			List<String> excludePatterns) throws IOException;
+
+	/**
+	 * Restrict the classes found to the classes annotated with one of the
+	 * annotations given.
+	 * 
+	 * @param annotations
+	 *            the canonical names of the annotations, <code>null</code> or
+	 *            empty for no restriction.
+	 */
+	void setAnnotations(List<String> annotations);
+
+	/**
+	 * Restrict the classes found to the classes extending one of the classes
+	 * given.
+	 * 
+	 * @param superClasses
+	 *            the canonical names of the super classes, <code>null</code>
+	 *            or empty for no restriction.
+	 */
+	void setSuperClasses(List<String> superClasses);
+
+	/**
+	 * Restrict the classes found to the classes implementing one of the
+	 * interfaces given.
+	 * 
+	 * @param interfaces
+	 *            the canonical names of the interfaces, <code>null</code> or
+	 *            empty for no restriction.
+	 */
+	void setInterfaces(List<String> interfaces);
+
+	/**
+	 * Set the number of threads scanning the directories and archives. With
+	 * more than one thread, the directories and archives are scanned
+	 * concurrently but the classes are still returned in the order of the
+	 * directories and archives given.
+	 * 
+	 * @param scanThreads
+	 *            the number of threads, 0 or less for one thread per available
+	 *            processor.
+	 */
+	void setScanThreads(int scanThreads);
+
+	/**
+	 * Set the file where the classes found in each directory and archive are
+	 * recorded, so that the directories and archives unchanged since the
+	 * previous search are not scanned again.
+	 * 
+	 * @param scanIndexFile
+	 *            the index file, <code>null</code> to always scan.
+	 */
+	void setScanIndexFile(File scanIndexFile);
 }
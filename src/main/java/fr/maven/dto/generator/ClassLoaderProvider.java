@@ -3,7 +3,10 @@
  */
 package fr.maven.dto.generator;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.PrivilegedAction;
+import java.util.List;
 
 /**
  * Interface that describes a ClassLoaderProvider in a security way.
@@ -28,4 +31,21 @@ public interface ClassLoaderProvider extends PrivilegedAction<ClassLoader> {
 	 */
 	ClassLoader getClassLoader();
 
+	/**
+	 * Return the classpath the ClassLoader is built from, so that other tools
+	 * can use the same classpath without resolving it again.
+	 * 
+	 * @return the directories and archives of the classpath.
+	 */
+	List<File> getClasspath();
+
+	/**
+	 * Release the resources of the ClassLoader built, e.g. the archives it
+	 * has opened. The classes already loaded stay usable.
+	 * 
+	 * @throws IOException
+	 *             if the resources can not be released.
+	 */
+	void close() throws IOException;
+
 }
\ No newline at end of file
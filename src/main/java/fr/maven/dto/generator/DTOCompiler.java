@@ -0,0 +1,91 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Interface that describes a compiler of the generated DTO sources.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public interface DTOCompiler {
+
+	/**
+	 * Compile the DTO sources whose class file is missing or older than the
+	 * source. The DTOs are compiled in the classes directory.
+	 * 
+	 * @param sourceFiles
+	 *            the DTO sources.
+	 * @return the number of DTO sources compiled.
+	 * @throws IOException
+	 *             if the DTOs can not be compiled.
+	 */
+	int compile(List<File> sourceFiles) throws IOException;
+
+	/**
+	 * Remove the class files compiled from DTO sources that are no longer
+	 * generated, with the class files of their nested classes.
+	 * 
+	 * @param sourceFiles
+	 *            the DTO sources removed.
+	 * @return the number of class files removed.
+	 * @throws IOException
+	 *             if a class file can not be removed.
+	 */
+	int removeClasses(List<File> sourceFiles) throws IOException;
+
+	/**
+	 * Set the classpath of the compilation : the classpath of the classes to
+	 * generate.
+	 * 
+	 * @param classpath
+	 *            the directories and archives of the classpath.
+	 */
+	void setClasspath(List<File> classpath);
+
+	/**
+	 * Set the directory of the DTO sources.
+	 * 
+	 * @param sourceDirectory
+	 *            the generated directory.
+	 */
+	void setSourceDirectory(File sourceDirectory);
+
+	/**
+	 * Set the directory the DTO class files are written to.
+	 * 
+	 * @param classesDirectory
+	 *            the classes directory.
+	 */
+	void setClassesDirectory(File classesDirectory);
+
+	/**
+	 * Set the encoding of the DTO sources.
+	 * 
+	 * @param encoding
+	 *            the encoding, <code>null</code> for the platform encoding.
+	 */
+	void setEncoding(String encoding);
+
+	/**
+	 * Set the Java version the DTOs are compiled for.
+	 * 
+	 * @param targetVersion
+	 *            the Java version, e.g. "1.6", <code>null</code> for the
+	 *            version of the compiler.
+	 */
+	void setTargetVersion(String targetVersion);
+
+	/**
+	 * Release the resources of the compiler.
+	 * 
+	 * @throws IOException
+	 *             if the resources can not be released.
+	 */
+	void close() throws IOException;
+}
@@ -0,0 +1,68 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Failure of the generation of some DTOs. The generation of the other DTOs
+ * goes on, and the errors of all the classes that have failed are reported
+ * together.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class DTOGenerationException extends IOException {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The errors by name of the class whose DTO generation has failed.
+	 */
+	private final Map<String, Throwable> errors;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param errors
+	 *            the errors by name of the class whose DTO generation has
+	 *            failed, not empty.
+	 */
+	public DTOGenerationException(final Map<String, Throwable> errors) {
+		super(getMessage(errors), errors.values().iterator().next());
+		this.errors = Collections
+				.unmodifiableMap(new LinkedHashMap<String, Throwable>(errors));
+	}
+
+	/**
+	 * Build the message listing the classes whose DTO generation has failed.
+	 * 
+	 * @param errors
+	 *            the errors by class name.
+	 * @return the message.
+	 */
+	private static String getMessage(final Map<String, Throwable> errors) {
+		final StringBuilder message = new StringBuilder();
+		message.append("The generation of ").append(errors.size())
+				.append(" DTO(s) has failed :");
+		for (final Map.Entry<String, Throwable> error : errors.entrySet()) {
+			message.append("\n - ").append(error.getKey()).append(" : ")
+					.append(error.getValue());
+		}
+		return message.toString();
+	}
+
+	/**
+	 * @return the errors by name of the class whose DTO generation has failed.
+	 */
+	public Map<String, Throwable> getErrors() {
+		return this.errors;
+	}
+}
@@ -16,7 +16,10 @@ import java.util.List;
 public interface DTOGenerator {
 
 	/**
-	 * Generate DTOs for the classes given in parameter.
+	 * Generate DTOs for the classes given in parameter. A class whose DTO
+	 * generation fails does not stop the generation of the others : the
+	 * failures are reported together at the end in a
+	 * {@link DTOGenerationException}.
 	 * 
 	 * @param classes
 	 *            the classes that we want to generate DTO for.
@@ -25,6 +28,23 @@ public interface DTOGenerator {
 	 */
 	void generateDTOs(List<Class<?>> classes) throws IOException;
 
+	/**
+	 * Generate DTOs for the classes named in parameter. The classes are loaded
+	 * one by one while the DTOs are generated, and no class is referenced once
+	 * its DTO is generated. A class that can not be loaded is reported like a
+	 * failed generation in a {@link DTOGenerationException}.
+	 * 
+	 * @param classLoader
+	 *            the ClassLoader that contains classes to generate.
+	 * @param classNames
+	 *            the binary names of the classes that we want to generate DTO
+	 *            for.
+	 * @throws IOException
+	 *             if the creation of dtos failed.
+	 */
+	void generateDTOs(ClassLoader classLoader, List<String> classNames)
+			throws IOException;
+
 	/**
 	 * Generate DTOs for the class given in parameter.
 	 * 
@@ -42,4 +62,105 @@ public interface DTOGenerator {
 	 *            the directory.
 	 */
 	void setGeneratedDirectory(File generatedDirectory);
+
+	/**
+	 * The file where the state of the generation is kept between two builds.
+	 * The DTOs of the classes unchanged since the previous generation are not
+	 * generated again.
+	 * 
+	 * @param stateFile
+	 *            the state file, <code>null</code> to generate all the DTOs.
+	 */
+	void setStateFile(File stateFile);
+
+	/**
+	 * The encoding of the generated DTO classes.
+	 * 
+	 * @param encoding
+	 *            the encoding, <code>null</code> for the platform encoding.
+	 */
+	void setEncoding(String encoding);
+
+	/**
+	 * Set the number of threads generating the DTOs. With more than one
+	 * thread, the DTOs with the most fields are generated first, and the DTOs
+	 * generated are the same as with one thread.
+	 * 
+	 * @param generationThreads
+	 *            the number of threads, 0 or less for one thread per available
+	 *            processor.
+	 */
+	void setGenerationThreads(int generationThreads);
+
+	/**
+	 * Set the number of classes loaded waiting for their generation, when the
+	 * DTOs are generated by several threads. The loading of the classes waits
+	 * when the queue is full.
+	 * 
+	 * @param queueSize
+	 *            the size of the queue, ignored if not positive.
+	 */
+	void setQueueSize(int queueSize);
+
+	/**
+	 * Set the durability of the generated files. Each DTO file and the
+	 * generation state are always written to a temporary file renamed at the
+	 * end ; with the synchronization, the temporary file is also forced to
+	 * the disk before the rename, so that a crash of the machine never leaves
+	 * an empty file.
+	 * 
+	 * @param syncOutput
+	 *            <code>true</code> to force the files to the disk.
+	 */
+	void setSyncOutput(boolean syncOutput);
+
+	/**
+	 * Set the directory the DTO class files are written to. The DTOs are then
+	 * emitted as bytecode, and do not need to be compiled.
+	 * 
+	 * @param classesDirectory
+	 *            the classes directory, <code>null</code> to generate the DTO
+	 *            sources only.
+	 */
+	void setClassesDirectory(File classesDirectory);
+
+	/**
+	 * Set if the DTO sources are written in the generated directory. Without
+	 * sources, the DTOs are only generated as class files.
+	 * 
+	 * @param generateSources
+	 *            <code>true</code> to write the DTO sources.
+	 */
+	void setGenerateSources(boolean generateSources);
+
+	/**
+	 * Set the shard of the classes generated, so that several machines share
+	 * the generation of the same classes. The DTOs of the other shards are
+	 * not generated, but the fields referencing their classes still get
+	 * their DTO types, and a manifest of the shard is written in the
+	 * generated directory.
+	 * 
+	 * @param shardCount
+	 *            the number of shards, 1 or less to generate all the DTOs.
+	 * @param shardIndex
+	 *            the index of the shard generated, from 0 to shardCount - 1.
+	 */
+	void setShard(int shardCount, int shardIndex);
+
+	/**
+	 * Return the DTO sources of the last generation, written or already up to
+	 * date.
+	 * 
+	 * @return the DTO sources, empty if the sources are not generated.
+	 */
+	List<File> getDTOSourceFiles();
+
+	/**
+	 * Return the DTO sources removed by the last generation, as their classes
+	 * are no longer generated. The sources have been deleted, but not the
+	 * classes compiled from them.
+	 * 
+	 * @return the DTO sources removed.
+	 */
+	List<File> getRemovedDTOSourceFiles();
 }
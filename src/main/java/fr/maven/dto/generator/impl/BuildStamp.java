@@ -0,0 +1,252 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Stamp of a build : the fingerprint of the configuration of the generation
+ * and of a snapshot of its classpath, recorded after each successful
+ * generation. When the stamp of a build is the one recorded, nothing the
+ * generation depends on has changed and the generation can be skipped.
+ * 
+ * The snapshot of the classpath is cheap : the archives are described by
+ * their size and last modification date, the directories by the paths, sizes
+ * and last modification dates of their class files. No class file is read.
+ * 
+ * The class files of the DTOs are excluded from the snapshot of the
+ * directories : the generation, or the compilation following it, writes them
+ * after the stamp is computed, and they would change the stamp of every next
+ * build.
+ * 
+ * The stamp also holds the version of the generator : a stamp recorded by
+ * another version of the plugin is never the stamp of a build.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class BuildStamp {
+
+	/**
+	 * Version of the stamp, changed when the content of the stamp changes.
+	 */
+	private static final int FORMAT_VERSION = 2;
+
+	/**
+	 * The fingerprint of the values added, <code>null</code> once the stamp
+	 * is computed.
+	 */
+	private Fingerprint fingerprint;
+
+	/**
+	 * The stamp, <code>null</code> until it is computed.
+	 */
+	private String value;
+
+	/**
+	 * The paths of the classes excluded from the directories.
+	 */
+	private Set<String> excludedClasses;
+
+	/**
+	 * Constructor of an empty stamp of the current generator.
+	 */
+	public BuildStamp() {
+		this(DTOGeneratorImpl.GENERATOR_VERSION);
+	}
+
+	/**
+	 * Constructor of an empty stamp.
+	 * 
+	 * @param generatorVersion
+	 *            the version of the generated code.
+	 */
+	public BuildStamp(final String generatorVersion) {
+		this.fingerprint = new Fingerprint().add(FORMAT_VERSION).add(
+				generatorVersion);
+		this.excludedClasses = Collections.emptySet();
+	}
+
+	/**
+	 * Exclude classes from the class files of the classpath directories added
+	 * next, with their nested classes.
+	 * 
+	 * @param classPaths
+	 *            the paths of the classes, relative to the classpath
+	 *            directories and without extension, e.g.
+	 *            <code>fr/maven/dto/BeanDTO</code>.
+	 * @return this stamp.
+	 */
+	public BuildStamp excludeClasses(final Collection<String> classPaths) {
+		this.getFingerprint();
+		this.excludedClasses = new HashSet<String>(classPaths);
+		return this;
+	}
+
+	/**
+	 * Add a parameter of the generation to the stamp.
+	 * 
+	 * @param name
+	 *            the parameter name.
+	 * @param parameter
+	 *            the parameter value, may be <code>null</code>.
+	 * @return this stamp.
+	 */
+	public BuildStamp addParameter(final String name, final Object parameter) {
+		this.getFingerprint().add(name);
+		if (parameter instanceof Collection<?>) {
+			final Collection<?> values = (Collection<?>) parameter;
+			this.fingerprint.add(values.size());
+			for (final Object element : values) {
+				this.fingerprint.add(String.valueOf(element));
+			}
+		} else if (parameter instanceof File) {
+			this.fingerprint.add(((File) parameter).getAbsolutePath());
+		} else {
+			this.fingerprint.add(String.valueOf(parameter));
+		}
+		return this;
+	}
+
+	/**
+	 * Add a classpath element of the generation to the stamp.
+	 * 
+	 * @param directoryOrArchive
+	 *            the classpath element.
+	 * @return this stamp.
+	 */
+	public BuildStamp addClasspathElement(final File directoryOrArchive) {
+		this.getFingerprint().add(directoryOrArchive.getAbsolutePath());
+		if (directoryOrArchive.isDirectory()) {
+			this.fingerprint.add("directory").addClassFiles(
+					directoryOrArchive, this.excludedClasses);
+		} else if (directoryOrArchive.isFile()) {
+			this.fingerprint.add("archive")
+					.add(directoryOrArchive.length())
+					.add(directoryOrArchive.lastModified());
+		} else {
+			this.fingerprint.add("missing");
+		}
+		return this;
+	}
+
+	/**
+	 * Return the stamp. No value can be added to the stamp anymore.
+	 * 
+	 * @return the stamp, as an hexadecimal string.
+	 */
+	public String getValue() {
+		if (this.value == null) {
+			this.value = this.fingerprint.toHexString();
+			this.fingerprint = null;
+		}
+		return this.value;
+	}
+
+	/**
+	 * Check the stamp is the one recorded in the file given.
+	 * 
+	 * @param stampFile
+	 *            the stamp file, may be <code>null</code>.
+	 * @return <code>true</code> if the file records this stamp.
+	 */
+	public boolean isRecorded(final File stampFile) {
+		if (stampFile == null || !stampFile.isFile()) {
+			return false;
+		}
+		try {
+			final RandomAccessFile input = new RandomAccessFile(stampFile, "r");
+			try {
+				return this.getValue().equals(input.readUTF());
+			} finally {
+				input.close();
+			}
+		} catch (final IOException e) {
+			// An unreadable stamp only means a generation.
+			return false;
+		}
+	}
+
+	/**
+	 * Record the stamp in the file given. The stamp is written to a temporary
+	 * file renamed at the end, so that an interrupted build never leaves a
+	 * partial stamp.
+	 * 
+	 * @param stampFile
+	 *            the stamp file.
+	 * @param sync
+	 *            <code>true</code> to force the stamp to the disk before it
+	 *            replaces the previous one.
+	 * @throws IOException
+	 *             if the stamp can not be written.
+	 */
+	public void record(final File stampFile, final boolean sync)
+			throws IOException {
+		final File stampDirectory = stampFile.getAbsoluteFile().getParentFile();
+		if (!stampDirectory.mkdirs() && !stampDirectory.isDirectory()) {
+			throw new IOException("The directory " + stampDirectory
+					+ " can not be created.");
+		}
+		// Each record has its own temporary file, as the stamp file may be
+		// shared by executions running concurrently.
+		final File temporaryFile = File.createTempFile(stampFile.getName(),
+				".tmp", stampDirectory);
+		boolean renamed = false;
+		try {
+			final RandomAccessFile output = new RandomAccessFile(temporaryFile,
+					"rw");
+			try {
+				output.writeUTF(this.getValue());
+				if (sync) {
+					output.getFD().sync();
+				}
+			} finally {
+				output.close();
+			}
+			renamed = DTOSourceWriter.rename(temporaryFile, stampFile);
+			if (!renamed) {
+				throw new IOException("The stamp " + stampFile
+						+ " can not be written.");
+			}
+		} finally {
+			if (!renamed) {
+				temporaryFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Remove the stamp recorded in the file given, so that the next build
+	 * runs the generation.
+	 * 
+	 * @param stampFile
+	 *            the stamp file, may be <code>null</code>.
+	 */
+	public static void clear(final File stampFile) {
+		if (stampFile != null) {
+			stampFile.delete();
+		}
+	}
+
+	/**
+	 * Return the fingerprint of the values added.
+	 * 
+	 * @return the fingerprint.
+	 * @throws IllegalStateException
+	 *             if the stamp has already been computed.
+	 */
+	private Fingerprint getFingerprint() {
+		if (this.fingerprint == null) {
+			throw new IllegalStateException(
+					"The stamp has already been computed.");
+		}
+		return this.fingerprint;
+	}
+}
@@ -4,24 +4,148 @@
 package fr.maven.dto.generator.impl;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-
-import org.apache.tools.ant.DirectoryScanner;
-import org.apache.tools.ant.types.ZipScanner;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import fr.maven.dto.generator.ClassFinder;
 
 /**
  * {@link ClassFinder} implementation.
  * 
- * It searches classes in the classpath.
+ * It searches classes in the classpath. The header of each class file matching
+ * the patterns is read first, and only the classes selected by a
+ * {@link ClassSelector} are loaded.
+ * 
+ * The include and exclude patterns are compiled once in a
+ * {@link ClassNameMatcher} : the directories that can not contain classes to
+ * include are not walked, and the entries of the archives are matched by name
+ * without extracting them. Archives are read through a {@link ZipArchive} :
+ * only the central directory and the class files matching the patterns are
+ * read.
+ * 
+ * When more than one scan thread is configured, the directories and archives
+ * are scanned concurrently, one task per classpath element, and the results
+ * are merged in the classpath order.
+ * 
+ * The classes found in each directory and archive are recorded in a
+ * {@link ScanIndex} : unchanged directories and archives are not scanned again
+ * by the other modules of the reactor nor by the next builds in the same JVM.
+ * When a scan index file is set, the index is saved, and unchanged directories
+ * and archives are not scanned again by the next builds. When super classes or
+ * interfaces are required, the selection of a class also depends on the class
+ * files of its super types, found anywhere in the classpath : the classes
+ * recorded are then only reused for the same classpath.
  * 
  * @author Wilfried Petit
  * 
  */
 public class ClassFinderImpl implements ClassFinder {
 
+	/**
+	 * The reader of class headers.
+	 */
+	private final ClassHeaderReader classHeaderReader;
+
+	/**
+	 * Annotations the classes found must be annotated with (one of).
+	 */
+	private List<String> annotations;
+
+	/**
+	 * Classes the classes found must extend (one of).
+	 */
+	private List<String> superClasses;
+
+	/**
+	 * Interfaces the classes found must implement (one of).
+	 */
+	private List<String> interfaces;
+
+	/**
+	 * The number of threads scanning classpath elements.
+	 */
+	private int scanThreads;
+
+	/**
+	 * The file of the scan index, <code>null</code> to always scan.
+	 */
+	private File scanIndexFile;
+
+	/**
+	 * Constructor.
+	 */
+	public ClassFinderImpl() {
+		this.classHeaderReader = new ClassHeaderReader();
+		this.scanThreads = 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.ClassFinder#setScanThreads(int)
+	 */
+	@Override
+	public void setScanThreads(final int scanThreads) {
+		if (scanThreads > 0) {
+			this.scanThreads = scanThreads;
+		} else {
+			this.scanThreads = Runtime.getRuntime().availableProcessors();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.ClassFinder#setAnnotations(java.util.List)
+	 */
+	@Override
+	public void setAnnotations(final List<String> annotations) {
+		this.annotations = annotations;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.ClassFinder#setSuperClasses(java.util.List)
+	 */
+	@Override
+	public void setSuperClasses(final List<String> superClasses) {
+		this.superClasses = superClasses;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.ClassFinder#setInterfaces(java.util.List)
+	 */
+	@Override
+	public void setInterfaces(final List<String> interfaces) {
+		this.interfaces = interfaces;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.ClassFinder#setScanIndexFile(java.io.File)
+	 */
+	@Override
+	public void setScanIndexFile(final File scanIndexFile) {
+		this.scanIndexFile = scanIndexFile;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -32,163 +156,579 @@ public class ClassFinderImpl implements ClassFinder {
 	public List<Class<?>> getClassesToGenerate(final ClassLoader classLoader,
 			final List<File> baseDirectories,
 			final List<String> includePatterns,
-			final List<String> excludePatterns) throws ClassNotFoundException {
-
-		final List<Class<?>> classes = new ArrayList<Class<?>>();
-		final String[] includesPath = this
-				.convertClassPatternsToPathPatterns(includePatterns);
-		final String[] excludesPath = this
-				.convertClassPatternsToPathPatterns(excludePatterns);
-
-		for (final File directoryOrArchive : baseDirectories) {
-			if (directoryOrArchive != null) {
-				classes.addAll(this.scanDirectoryOrArchive(classLoader,
-						directoryOrArchive, includesPath, excludesPath));
+			final List<String> excludePatterns) throws ClassNotFoundException,
+			IOException {
+		return this.loadClasses(classLoader, this.getClassNamesToGenerate(
+				classLoader, baseDirectories, includePatterns, excludePatterns));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.ClassFinder#getClassNamesToGenerate(java.lang.ClassLoader,
+	 *      java.util.List, java.util.List, java.util.List)
+	 */
+	@Override
+	public List<String> getClassNamesToGenerate(final ClassLoader classLoader,
+			final List<File> baseDirectories,
+			final List<String> includePatterns,
+			final List<String> excludePatterns) throws IOException {
+		final List<String> classNames = new ArrayList<String>();
+		final ClassSelector classSelector = this.createClassSelector(classLoader);
+		final ClassNameMatcher classNameMatcher = new ClassNameMatcher(
+				includePatterns, excludePatterns);
+		final String scanKey = this.getScanKey(classNameMatcher, classLoader);
+		final ScanIndex scanIndex;
+		if (this.scanIndexFile != null) {
+			scanIndex = ScanIndex.load(this.scanIndexFile);
+		} else {
+			scanIndex = new ScanIndex();
+		}
+
+		if (this.scanThreads > 1 && baseDirectories.size() > 1) {
+			classNames.addAll(this.scanInParallel(classLoader, classSelector,
+					baseDirectories, classNameMatcher, scanKey, scanIndex));
+		} else {
+			for (final File directoryOrArchive : baseDirectories) {
+				if (directoryOrArchive != null) {
+					classNames.addAll(this.findClassNamesInDirectoryOrArchive(
+							classLoader, classSelector, directoryOrArchive,
+							classNameMatcher, scanKey, scanIndex));
+				}
 			}
 		}
-		return classes;
+		if (this.scanIndexFile != null) {
+			scanIndex.save(this.scanIndexFile);
+		}
+		return classNames;
 	}
 
 	/**
-	 * Scan the directory or the archive given to find classes that match
-	 * includes path, and do not match excludes path. Classes found are load to
-	 * the class loader given and returned.
+	 * Scan the directories and archives given concurrently. Each directory or
+	 * archive is scanned by its own task and the names of the classes found
+	 * are returned in the order of the directories and archives given, as a
+	 * sequential scan does.
 	 * 
 	 * @param classLoader
 	 *            the class loader to load classes found.
+	 * @param classSelector
+	 *            the selector of the classes to load.
+	 * @param baseDirectories
+	 *            the directories and archives to scan.
+	 * @param classNameMatcher
+	 *            the matcher of the class names to include.
+	 * @param scanKey
+	 *            the key of the patterns and criteria in the scan index.
+	 * @param scanIndex
+	 *            the index of the classes already found, <code>null</code> to
+	 *            always scan.
+	 * @return the names of the classes found.
+	 * @throws IOException
+	 *             if a class file can not be read.
+	 */
+	protected List<String> scanInParallel(final ClassLoader classLoader,
+			final ClassSelector classSelector,
+			final List<File> baseDirectories,
+			final ClassNameMatcher classNameMatcher, final String scanKey,
+			final ScanIndex scanIndex) throws IOException {
+		final List<String> classNames = new ArrayList<String>();
+		final ExecutorService executor = Executors.newFixedThreadPool(Math
+				.min(this.scanThreads, baseDirectories.size()));
+		try {
+			final List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+			for (final File directoryOrArchive : baseDirectories) {
+				if (directoryOrArchive != null) {
+					results.add(executor.submit(new Callable<List<String>>() {
+						@Override
+						public List<String> call() throws IOException {
+							return ClassFinderImpl.this
+									.findClassNamesInDirectoryOrArchive(
+											classLoader, classSelector,
+											directoryOrArchive,
+											classNameMatcher, scanKey,
+											scanIndex);
+						}
+					}));
+				}
+			}
+			for (final Future<List<String>> result : results) {
+				classNames.addAll(this.getScanResult(result));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return classNames;
+	}
+
+	/**
+	 * Wait for the result of a scan task and rethrow its failure.
+	 * 
+	 * @param result
+	 *            the result of the scan task.
+	 * @return the names of the classes found by the task.
+	 * @throws IOException
+	 *             if the task failed to read a class file or if it has been
+	 *             interrupted.
+	 */
+	private List<String> getScanResult(final Future<List<String>> result)
+			throws IOException {
+		try {
+			return result.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			final IOException interrupted = new IOException(
+					"The scan has been interrupted.");
+			interrupted.initCause(e);
+			throw interrupted;
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			final IOException failure = new IOException("The scan has failed.");
+			failure.initCause(cause);
+			throw failure;
+		}
+	}
+
+	/**
+	 * Create the selector of the classes to load.
+	 * 
+	 * @param classLoader
+	 *            the class loader used to read super types class files.
+	 * @return the selector.
+	 */
+	protected ClassSelector createClassSelector(final ClassLoader classLoader) {
+		return new ClassSelector(classLoader, this.annotations,
+				this.superClasses, this.interfaces);
+	}
+
+	/**
+	 * Scan the directory or the archive given to find the names of the classes
+	 * that match includes patterns, and do not match excludes patterns. No
+	 * class is loaded. When a scan index is given and the directory or the
+	 * archive has not changed since the classes were recorded, the class names
+	 * recorded are returned without scanning. An archive whose packages
+	 * recorded can not match the patterns is not opened.
+	 * 
+	 * @param classLoader
+	 *            the class loader to load classes found.
+	 * @param classSelector
+	 *            the selector of the classes to load.
 	 * @param directoryOrArchive
 	 *            the directory or the archive to scan.
-	 * @param includesPath
-	 *            the list of includes path patterns that classes must match.
-	 * @param excludesPath
-	 *            the list of excludes path patterns that classes must not
-	 *            match.
-	 * @return the list of classes found.
-	 * @throws ClassNotFoundException
-	 *             if the class found in the package has not been found after
-	 *             loading in the class loader.
+	 * @param classNameMatcher
+	 *            the matcher of the class names to include.
+	 * @param scanKey
+	 *            the key of the patterns and criteria in the scan index.
+	 * @param scanIndex
+	 *            the index of the classes already found, <code>null</code> to
+	 *            always scan.
+	 * @return the names of the classes found.
+	 * @throws IOException
+	 *             if a class file can not be read.
 	 */
-	protected List<Class<?>> scanDirectoryOrArchive(
-			final ClassLoader classLoader, final File directoryOrArchive,
-			final String[] includesPath, final String[] excludesPath)
-			throws ClassNotFoundException {
-		final List<Class<?>> classes = new ArrayList<Class<?>>();
-		if (directoryOrArchive.isDirectory()) {
-			classes.addAll(this.scanDirectory(classLoader, directoryOrArchive,
-					includesPath, excludesPath));
-		} else {
-			classes.addAll(this.scanArchive(classLoader, directoryOrArchive,
-					includesPath, excludesPath));
+	protected List<String> findClassNamesInDirectoryOrArchive(
+			final ClassLoader classLoader, final ClassSelector classSelector,
+			final File directoryOrArchive,
+			final ClassNameMatcher classNameMatcher, final String scanKey,
+			final ScanIndex scanIndex) throws IOException {
+		final boolean directory = directoryOrArchive.isDirectory();
+		ZipArchive zipArchive = null;
+		boolean opened = false;
+		if (!directory) {
+			zipArchive = this.getOpenedArchive(classLoader, directoryOrArchive);
+			// An archive the index does not know is opened once, for its
+			// fingerprint and for its classes.
+			if (zipArchive == null
+					&& (scanIndex == null || !scanIndex
+							.isRecorded(directoryOrArchive))) {
+				zipArchive = new ZipArchive(directoryOrArchive);
+				opened = true;
+			}
+		}
+		try {
+			ScanIndex.Entry indexEntry = null;
+			List<String> classNames = null;
+			if (scanIndex != null) {
+				indexEntry = scanIndex.getEntry(directoryOrArchive, zipArchive);
+				classNames = indexEntry.getClassNames(scanKey);
+			}
+			if (classNames == null) {
+				final Set<String> packages = indexEntry == null ? null
+						: indexEntry.getPackages();
+				if (directory) {
+					classNames = this.findClassNamesInDirectory(classSelector,
+							directoryOrArchive, classNameMatcher);
+				} else if (packages != null
+						&& !classNameMatcher.canMatchAnyPackage(packages)) {
+					classNames = new ArrayList<String>();
+				} else if (zipArchive != null) {
+					classNames = this.findClassNamesInArchive(classSelector,
+							zipArchive, classNameMatcher);
+				} else {
+					classNames = this.findClassNamesInArchive(classLoader,
+							classSelector, directoryOrArchive,
+							classNameMatcher);
+				}
+				if (indexEntry != null) {
+					indexEntry.putClassNames(scanKey, classNames);
+				}
+			}
+			return classNames;
+		} finally {
+			if (opened) {
+				zipArchive.close();
+			}
 		}
-		return classes;
 	}
 
 	/**
-	 * Scan the directory given to find classes that match includes path, and do
-	 * not match excludes path. Classes found are load to the class loader given
+	 * Scan the directory given to find classes that match includes patterns,
+	 * and do not match excludes patterns. Classes found are load to the class loader given
 	 * and returned.
 	 * 
 	 * @param classLoader
 	 *            the class loader to load classes found.
+	 * @param classSelector
+	 *            the selector of the classes to load.
 	 * @param directory
 	 *            the directory to scan.
-	 * @param includesPath
-	 *            the list of includes path patterns that classes must match.
-	 * @param excludesPath
-	 *            the list of excludes path patterns that classes must not
-	 *            match.
+	 * @param classNameMatcher
+	 *            the matcher of the class names to include.
 	 * @return the list of classes found.
 	 * @throws ClassNotFoundException
 	 *             if the class found in the package has not been found after
 	 *             loading in the class loader.
+	 * @throws IOException
+	 *             if a class file can not be read.
 	 */
 	protected List<Class<?>> scanDirectory(final ClassLoader classLoader,
-			final File directory, final String[] includesPath,
-			final String[] excludesPath) throws ClassNotFoundException {
-		final List<Class<?>> classes = new ArrayList<Class<?>>();
-		final DirectoryScanner ds = new DirectoryScanner();
-		ds.setBasedir(directory);
-		ds.setIncludes(includesPath);
-		ds.setExcludes(excludesPath);
-		ds.setCaseSensitive(true);
-		ds.scan();
-		for (final String fileFound : ds.getIncludedFiles()) {
-			final String classString = this
-					.convertPathToCanonicalClassName(fileFound);
-			final Class<?> clazz = classLoader.loadClass(classString);
-			classes.add(clazz);
-		}
-		return classes;
+			final ClassSelector classSelector, final File directory,
+			final ClassNameMatcher classNameMatcher)
+			throws ClassNotFoundException, IOException {
+		return this.loadClasses(classLoader, this.findClassNamesInDirectory(
+				classSelector, directory, classNameMatcher));
 	}
 
 	/**
-	 * Scan the archive given to find classes that match includes path, and do
-	 * not match excludes path. Classes found are load to the class loader given
+	 * Scan the archive given to find classes that match includes patterns, and
+	 * do not match excludes patterns. Classes found are load to the class loader given
 	 * and returned.
 	 * 
 	 * @param classLoader
 	 *            the class loader to load classes found.
+	 * @param classSelector
+	 *            the selector of the classes to load.
 	 * @param archive
 	 *            the archive to scan.
-	 * @param includesPath
-	 *            the list of includes path patterns that classes must match.
-	 * @param excludesPath
-	 *            the list of excludes path patterns that classes must not
-	 *            match.
+	 * @param classNameMatcher
+	 *            the matcher of the class names to include.
 	 * @return the list of classes found.
 	 * @throws ClassNotFoundException
 	 *             if the class found in the package has not been found after
 	 *             loading in the class loader.
+	 * @throws IOException
+	 *             if a class file can not be read.
 	 */
 	protected List<Class<?>> scanArchive(final ClassLoader classLoader,
-			final File archive, final String[] includesPath,
-			final String[] excludesPath) throws ClassNotFoundException {
-		final List<Class<?>> classes = new ArrayList<Class<?>>();
-		final ZipScanner ds = new ZipScanner();
-		ds.setSrc(archive);
-		ds.setIncludes(includesPath);
-		ds.setExcludes(excludesPath);
-		ds.setCaseSensitive(true);
-		for (final String fileFound : ds.getIncludedFiles()) {
-			final String classString = this
-					.convertPathToCanonicalClassName(fileFound);
-			final Class<?> clazz = classLoader.loadClass(classString);
-			classes.add(clazz);
+			final ClassSelector classSelector, final File archive,
+			final ClassNameMatcher classNameMatcher)
+			throws ClassNotFoundException, IOException {
+		return this.loadClasses(classLoader, this.findClassNamesInArchive(
+				classLoader, classSelector, archive, classNameMatcher));
+	}
+
+	/**
+	 * Find the names of the classes of the directory given that match includes
+	 * patterns, do not match excludes patterns and are selected.
+	 * 
+	 * @param classSelector
+	 *            the selector of the classes to load.
+	 * @param directory
+	 *            the directory to scan.
+	 * @param classNameMatcher
+	 *            the matcher of the class names to include.
+	 * @return the names of the classes found.
+	 * @throws IOException
+	 *             if a class file can not be read.
+	 */
+	protected List<String> findClassNamesInDirectory(
+			final ClassSelector classSelector, final File directory,
+			final ClassNameMatcher classNameMatcher) throws IOException {
+		final List<String> classNames = new ArrayList<String>();
+		if (classNameMatcher.canMatchPackage("")) {
+			this.findClassNamesInPackage(classSelector, directory, "",
+					classNameMatcher, classNames);
+		}
+		return classNames;
+	}
+
+	/**
+	 * Find the names of the classes of a package directory and of its sub
+	 * packages. The sub packages that can not contain classes to include are
+	 * not walked.
+	 * 
+	 * @param classSelector
+	 *            the selector of the classes to load.
+	 * @param packageDirectory
+	 *            the directory of the package.
+	 * @param packagePath
+	 *            the path of the package, e.g. <code>fr/maven/</code>, empty
+	 *            for the default package.
+	 * @param classNameMatcher
+	 *            the matcher of the class names to include.
+	 * @param classNames
+	 *            the list where the names of the classes found are added.
+	 * @throws IOException
+	 *             if a class file can not be read.
+	 */
+	private void findClassNamesInPackage(final ClassSelector classSelector,
+			final File packageDirectory, final String packagePath,
+			final ClassNameMatcher classNameMatcher,
+			final List<String> classNames) throws IOException {
+		final String[] children = packageDirectory.list();
+		if (children == null) {
+			return;
+		}
+		Arrays.sort(children);
+		for (final String child : children) {
+			final File file = new File(packageDirectory, child);
+			if (child.endsWith(".class")) {
+				if (classNameMatcher.matches(packagePath + child)
+						&& file.isFile()) {
+					final InputStream classFile = new FileInputStream(file);
+					try {
+						this.addSelectedClassName(classSelector,
+								this.classHeaderReader.read(classFile),
+								classNames);
+					} finally {
+						classFile.close();
+					}
+				}
+			} else if (classNameMatcher.canMatchPackage(packagePath + child)
+					&& file.isDirectory()) {
+				this.findClassNamesInPackage(classSelector, file, packagePath
+						+ child + "/", classNameMatcher, classNames);
+			}
+		}
+	}
+
+	/**
+	 * Find the names of the classes of the archive given that match includes
+	 * patterns, do not match excludes patterns and are selected. When the class
+	 * loader is an {@link IndexedClassLoader}, the archive it has opened is
+	 * read instead of opening it again.
+	 * 
+	 * @param classLoader
+	 *            the class loader of the classes.
+	 * @param classSelector
+	 *            the selector of the classes to load.
+	 * @param archive
+	 *            the archive to scan.
+	 * @param classNameMatcher
+	 *            the matcher of the class names to include.
+	 * @return the names of the classes found.
+	 * @throws IOException
+	 *             if a class file can not be read.
+	 */
+	protected List<String> findClassNamesInArchive(
+			final ClassLoader classLoader, final ClassSelector classSelector,
+			final File archive, final ClassNameMatcher classNameMatcher)
+			throws IOException {
+		final ZipArchive sharedArchive = this.getOpenedArchive(classLoader,
+				archive);
+		ZipArchive zipArchive = sharedArchive;
+		if (zipArchive == null) {
+			zipArchive = new ZipArchive(archive);
+		}
+		try {
+			return this.findClassNamesInArchive(classSelector, zipArchive,
+					classNameMatcher);
+		} finally {
+			if (sharedArchive == null) {
+				zipArchive.close();
+			}
+		}
+	}
+
+	/**
+	 * Find the names of the classes of the archive opened that match
+	 * includes patterns, do not match excludes patterns and are selected.
+	 * 
+	 * @param classSelector
+	 *            the selector of the classes to load.
+	 * @param zipArchive
+	 *            the archive opened.
+	 * @param classNameMatcher
+	 *            the matcher of the class names to include.
+	 * @return the names of the classes found.
+	 * @throws IOException
+	 *             if a class file can not be read.
+	 */
+	private List<String> findClassNamesInArchive(
+			final ClassSelector classSelector, final ZipArchive zipArchive,
+			final ClassNameMatcher classNameMatcher) throws IOException {
+		final List<String> classNames = new ArrayList<String>();
+		for (final ZipArchive.Entry entry : zipArchive.getEntries()) {
+			if (!entry.isDirectory() && entry.getName().endsWith(".class")
+					&& classNameMatcher.matches(entry.getName())) {
+				this.addSelectedClassName(classSelector, this.classHeaderReader
+						.read(zipArchive.readEntry(entry)), classNames);
+			}
+		}
+		return classNames;
+	}
+
+	/**
+	 * Return the archive opened by the class loader given, so that it is not
+	 * opened again.
+	 * 
+	 * @param classLoader
+	 *            the class loader of the classes.
+	 * @param archive
+	 *            the archive.
+	 * @return the archive opened, <code>null</code> if the class loader is
+	 *         not an {@link IndexedClassLoader} of the archive.
+	 */
+	private ZipArchive getOpenedArchive(final ClassLoader classLoader,
+			final File archive) {
+		if (classLoader instanceof IndexedClassLoader) {
+			return ((IndexedClassLoader) classLoader).getArchive(archive);
+		}
+		return null;
+	}
+
+	/**
+	 * Add the class name of the header given to the list given if the class is
+	 * selected.
+	 * 
+	 * @param classSelector
+	 *            the selector of the classes to load.
+	 * @param header
+	 *            the header of the class file.
+	 * @param classNames
+	 *            the list where the class name is added.
+	 */
+	protected void addSelectedClassName(final ClassSelector classSelector,
+			final ClassHeader header, final List<String> classNames) {
+		if (classSelector.isSelected(header)) {
+			classNames.add(header.getClassName());
+		}
+	}
+
+	/**
+	 * Load the classes given.
+	 * 
+	 * @param classLoader
+	 *            the class loader to load the classes.
+	 * @param classNames
+	 *            the binary names of the classes.
+	 * @return the classes loaded.
+	 * @throws ClassNotFoundException
+	 *             if a class can not be loaded.
+	 */
+	protected List<Class<?>> loadClasses(final ClassLoader classLoader,
+			final List<String> classNames) throws ClassNotFoundException {
+		final List<Class<?>> classes = new ArrayList<Class<?>>(
+				classNames.size());
+		for (final String className : classNames) {
+			classes.add(classLoader.loadClass(className));
 		}
 		return classes;
 	}
 
 	/**
-	 * Create path patterns from class patterns. E.g : For the class pattern :
-	 * **.Bean, the path pattern returned is **\Bean.class.
+	 * Return the key identifying the patterns and the selection criteria in
+	 * the scan index. When super classes or interfaces are required, the key
+	 * also identifies the classpath the super types are read from.
 	 * 
-	 * @param classPatterns
-	 *            the list of class patterns to convert.
-	 * @return the list of path patterns got.
+	 * @param classNameMatcher
+	 *            the matcher of the class names to include.
+	 * @param classLoader
+	 *            the class loader used to read super types class files.
+	 * @return the scan key.
 	 */
-	protected String[] convertClassPatternsToPathPatterns(
-			final List<String> classPatterns) {
-		final String[] pathPatterns = new String[classPatterns.size()];
-		for (int i = 0; i < classPatterns.size(); i++) {
-			pathPatterns[i] = classPatterns.get(i).replace(".", File.separator)
-					+ ".class";
+	protected String getScanKey(final ClassNameMatcher classNameMatcher,
+			final ClassLoader classLoader) {
+		final String scanKey = classNameMatcher + ";annotations="
+				+ this.annotations + ";superClasses=" + this.superClasses
+				+ ";interfaces=" + this.interfaces;
+		if (this.isEmpty(this.superClasses) && this.isEmpty(this.interfaces)) {
+			return scanKey;
 		}
-		return pathPatterns;
+		return scanKey + ";classpath="
+				+ this.getClasspathFingerprint(classLoader);
 	}
 
 	/**
-	 * Convert file path to canonical class name. E.g. : For the file
-	 * fr\maven\dto\Bean.class, the canonical class name returned is
-	 * fr.maven.dto.Bean.
+	 * Check a list of selection criteria is empty.
 	 * 
-	 * @param path
-	 *            the path to convert.
-	 * @return the canonical class name got.
+	 * @param criteria
+	 *            the criteria, may be <code>null</code>.
+	 * @return <code>true</code> if there is no criterion.
 	 */
-	protected String convertPathToCanonicalClassName(final String path) {
-		final String classString = path.replace(File.separator, ".")
-				.replace("/", ".").replace("\\", "").replace(".class", "");
-		return classString;
+	private boolean isEmpty(final List<String> criteria) {
+		return criteria == null || criteria.isEmpty();
+	}
+
+	/**
+	 * Compute the fingerprint of the classpath of a class loader and of its
+	 * parents, as the build stamp does : the archives by their sizes and last
+	 * modification dates, the directories by their class files. The class
+	 * loaders of the JVM, which are neither indexed nor URL class loaders,
+	 * are left out.
+	 * 
+	 * @param classLoader
+	 *            the class loader.
+	 * @return the fingerprint, as an hexadecimal string.
+	 */
+	protected String getClasspathFingerprint(final ClassLoader classLoader) {
+		final Fingerprint fingerprint = new Fingerprint();
+		for (ClassLoader loader = classLoader; loader != null; loader = loader
+				.getParent()) {
+			final List<File> classpath = new ArrayList<File>();
+			if (loader instanceof IndexedClassLoader) {
+				classpath.addAll(((IndexedClassLoader) loader).getClasspath());
+			} else if (loader instanceof URLClassLoader) {
+				for (final URL url : ((URLClassLoader) loader).getURLs()) {
+					if ("file".equals(url.getProtocol())) {
+						classpath.add(this.toFile(url));
+					}
+				}
+			} else {
+				break;
+			}
+			for (final File directoryOrArchive : classpath) {
+				fingerprint.add(directoryOrArchive.getAbsolutePath());
+				if (directoryOrArchive.isDirectory()) {
+					fingerprint.addClassFiles(directoryOrArchive);
+				} else {
+					fingerprint.add(directoryOrArchive.length()).add(
+							directoryOrArchive.lastModified());
+				}
+			}
+		}
+		return fingerprint.toHexString();
+	}
+
+	/**
+	 * Return the file of a file URL.
+	 * 
+	 * @param url
+	 *            the URL.
+	 * @return the file.
+	 */
+	private File toFile(final URL url) {
+		try {
+			return new File(url.toURI());
+		} catch (final URISyntaxException e) {
+			return new File(url.getPath());
+		}
 	}
 
 }
@@ -0,0 +1,207 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The header of a class file : its names, access flags, super types and class
+ * annotations. It is read from the class file bytes without loading the class.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ClassHeader {
+
+	/**
+	 * Access flag of an interface.
+	 */
+	public static final int ACC_INTERFACE = 0x0200;
+
+	/**
+	 * Access flag of a synthetic class.
+	 */
+	public static final int ACC_SYNTHETIC = 0x1000;
+
+	/**
+	 * Access flag of an annotation type.
+	 */
+	public static final int ACC_ANNOTATION = 0x2000;
+
+	/**
+	 * Access flag of an enum.
+	 */
+	public static final int ACC_ENUM = 0x4000;
+
+	/**
+	 * Access flag of a module descriptor.
+	 */
+	public static final int ACC_MODULE = 0x8000;
+
+	/**
+	 * The binary name of the class. E.g. : fr.maven.dto.Bean$Inner.
+	 */
+	private final String className;
+
+	/**
+	 * The access flags of the class.
+	 */
+	private final int accessFlags;
+
+	/**
+	 * The binary name of the super class, <code>null</code> for
+	 * java.lang.Object and module descriptors.
+	 */
+	private final String superClassName;
+
+	/**
+	 * The binary names of the interfaces directly implemented.
+	 */
+	private final List<String> interfaceNames;
+
+	/**
+	 * The binary names of the annotations present on the class.
+	 */
+	private final List<String> annotationNames;
+
+	/**
+	 * <code>true</code> if the class is an anonymous class.
+	 */
+	private final boolean anonymous;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param className
+	 *            the binary name of the class.
+	 * @param accessFlags
+	 *            the access flags of the class.
+	 * @param superClassName
+	 *            the binary name of the super class.
+	 * @param interfaceNames
+	 *            the binary names of the interfaces directly implemented.
+	 * @param annotationNames
+	 *            the binary names of the annotations present on the class.
+	 * @param anonymous
+	 *            <code>true</code> if the class is an anonymous class.
+	 */
+	public ClassHeader(final String className, final int accessFlags,
+			final String superClassName, final List<String> interfaceNames,
+			final List<String> annotationNames, final boolean anonymous) {
+		this.className = className;
+		this.accessFlags = accessFlags;
+		this.superClassName = superClassName;
+		this.interfaceNames = Collections.unmodifiableList(interfaceNames);
+		this.annotationNames = Collections.unmodifiableList(annotationNames);
+		this.anonymous = anonymous;
+	}
+
+	/**
+	 * @return the binary name of the class.
+	 */
+	public String getClassName() {
+		return this.className;
+	}
+
+	/**
+	 * @return the access flags of the class.
+	 */
+	public int getAccessFlags() {
+		return this.accessFlags;
+	}
+
+	/**
+	 * @return the binary name of the super class, <code>null</code> if there
+	 *         is none.
+	 */
+	public String getSuperClassName() {
+		return this.superClassName;
+	}
+
+	/**
+	 * @return the binary names of the interfaces directly implemented.
+	 */
+	public List<String> getInterfaceNames() {
+		return this.interfaceNames;
+	}
+
+	/**
+	 * @return the binary names of the annotations present on the class.
+	 */
+	public List<String> getAnnotationNames() {
+		return this.annotationNames;
+	}
+
+	/**
+	 * @return <code>true</code> if the class is an interface or an annotation
+	 *         type.
+	 */
+	public boolean isInterface() {
+		return (this.accessFlags & ACC_INTERFACE) != 0;
+	}
+
+	/**
+	 * @return <code>true</code> if the class is an enum.
+	 */
+	public boolean isEnum() {
+		return (this.accessFlags & ACC_ENUM) != 0;
+	}
+
+	/**
+	 * @return <code>true</code> if the class is an annotation type.
+	 */
+	public boolean isAnnotation() {
+		return (this.accessFlags & ACC_ANNOTATION) != 0;
+	}
+
+	/**
+	 * @return <code>true</code> if the class has been generated by the
+	 *         compiler.
+	 */
+	public boolean isSynthetic() {
+		return (this.accessFlags & ACC_SYNTHETIC) != 0;
+	}
+
+	/**
+	 * @return <code>true</code> if the class is an anonymous class.
+	 */
+	public boolean isAnonymous() {
+		return this.anonymous;
+	}
+
+	/**
+	 * @return <code>true</code> if the class is a package-info class.
+	 */
+	public boolean isPackageInfo() {
+		return "package-info".equals(this.getSimpleBinaryName());
+	}
+
+	/**
+	 * @return <code>true</code> if the class is a module-info class.
+	 */
+	public boolean isModuleInfo() {
+		return (this.accessFlags & ACC_MODULE) != 0
+				|| "module-info".equals(this.className);
+	}
+
+	/**
+	 * Return the class name without its package.
+	 * 
+	 * @return the simple binary name.
+	 */
+	protected String getSimpleBinaryName() {
+		return this.className.substring(this.className.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.className;
+	}
+}
@@ -0,0 +1,440 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the {@link ClassHeader} of a class file. Only the constant pool, the
+ * access flags, the super types and the class attributes are parsed : fields
+ * and methods are skipped and no class is defined in any class loader.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ClassHeaderReader {
+
+	/**
+	 * The magic number every class file starts with.
+	 */
+	private static final int MAGIC = 0xCAFEBABE;
+
+	/**
+	 * Read the header of the class file given.
+	 * 
+	 * @param classFile
+	 *            the stream on the class file. It is not closed.
+	 * @return the header read.
+	 * @throws IOException
+	 *             if the stream can not be read or is not a class file.
+	 */
+	public ClassHeader read(final InputStream classFile) throws IOException {
+		final ByteArrayOutputStream content = new ByteArrayOutputStream(4096);
+		final byte[] buffer = new byte[4096];
+		int read;
+		while ((read = classFile.read(buffer)) != -1) {
+			content.write(buffer, 0, read);
+		}
+		return this.read(content.toByteArray());
+	}
+
+	/**
+	 * Read the header of the class file given.
+	 * 
+	 * @param classFile
+	 *            the class file bytes.
+	 * @return the header read.
+	 * @throws IOException
+	 *             if the bytes are not a valid class file.
+	 */
+	public ClassHeader read(final byte[] classFile) throws IOException {
+		try {
+			return new Parser(classFile).parse();
+		} catch (final ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Truncated class file.");
+		}
+	}
+
+	/**
+	 * Parser state on one class file.
+	 */
+	private static final class Parser {
+
+		/**
+		 * The class file bytes.
+		 */
+		private final byte[] bytes;
+
+		/**
+		 * The offset of each constant pool entry, 0 for unusable entries.
+		 */
+		private int[] constantOffsets;
+
+		/**
+		 * The current offset in the class file.
+		 */
+		private int offset;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param bytes
+		 *            the class file bytes.
+		 */
+		Parser(final byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Parse the class file.
+		 * 
+		 * @return the header got.
+		 * @throws IOException
+		 *             if the class file is not valid.
+		 */
+		ClassHeader parse() throws IOException {
+			if (this.readInt() != MAGIC) {
+				throw new IOException("Not a class file.");
+			}
+			// minor and major versions
+			this.offset += 4;
+			this.readConstantPool();
+			final int accessFlags = this.readUnsignedShort();
+			final int thisClass = this.readUnsignedShort();
+			final String className = this.getClassConstant(thisClass);
+			final int superClass = this.readUnsignedShort();
+			final String superClassName = superClass == 0 ? null : this
+					.getClassConstant(superClass);
+			final int interfacesCount = this.readUnsignedShort();
+			final List<String> interfaceNames = new ArrayList<String>(
+					interfacesCount);
+			for (int i = 0; i < interfacesCount; i++) {
+				interfaceNames.add(this.getClassConstant(this
+						.readUnsignedShort()));
+			}
+			// fields then methods
+			this.skipMembers();
+			this.skipMembers();
+
+			final List<String> annotationNames = new ArrayList<String>();
+			boolean anonymous = false;
+			final int attributesCount = this.readUnsignedShort();
+			for (int i = 0; i < attributesCount; i++) {
+				final String attributeName = this.getUtf8Constant(this
+						.readUnsignedShort());
+				final int attributeLength = this.readInt();
+				final int attributeEnd = this.offset + attributeLength;
+				if ("RuntimeVisibleAnnotations".equals(attributeName)
+						|| "RuntimeInvisibleAnnotations".equals(attributeName)) {
+					this.readAnnotations(annotationNames);
+				} else if ("InnerClasses".equals(attributeName)) {
+					anonymous = this.isAnonymous(thisClass);
+				}
+				this.offset = attributeEnd;
+			}
+			return new ClassHeader(className, accessFlags, superClassName,
+					interfaceNames, annotationNames, anonymous);
+		}
+
+		/**
+		 * Register the offset of each constant pool entry and move after the
+		 * constant pool.
+		 * 
+		 * @throws IOException
+		 *             if a constant tag is unknown.
+		 */
+		private void readConstantPool() throws IOException {
+			final int constantPoolCount = this.readUnsignedShort();
+			this.constantOffsets = new int[constantPoolCount];
+			for (int i = 1; i < constantPoolCount; i++) {
+				this.constantOffsets[i] = this.offset;
+				final int tag = this.bytes[this.offset++] & 0xFF;
+				switch (tag) {
+				case 1:
+					// Utf8
+					this.offset += 2 + this.readUnsignedShortAt(this.offset);
+					break;
+				case 7:
+				case 8:
+				case 16:
+				case 19:
+				case 20:
+					// Class, String, MethodType, Module, Package
+					this.offset += 2;
+					break;
+				case 15:
+					// MethodHandle
+					this.offset += 3;
+					break;
+				case 3:
+				case 4:
+				case 9:
+				case 10:
+				case 11:
+				case 12:
+				case 17:
+				case 18:
+					// Integer, Float, refs, NameAndType, (Invoke)Dynamic
+					this.offset += 4;
+					break;
+				case 5:
+				case 6:
+					// Long and Double use two entries
+					this.offset += 8;
+					i++;
+					break;
+				default:
+					throw new IOException("Unknown constant pool tag " + tag
+							+ ".");
+				}
+			}
+		}
+
+		/**
+		 * Skip the fields or the methods of the class.
+		 */
+		private void skipMembers() {
+			final int membersCount = this.readUnsignedShort();
+			for (int i = 0; i < membersCount; i++) {
+				// access flags, name and descriptor
+				this.offset += 6;
+				this.skipAttributes();
+			}
+		}
+
+		/**
+		 * Skip a list of attributes.
+		 */
+		private void skipAttributes() {
+			final int attributesCount = this.readUnsignedShort();
+			for (int i = 0; i < attributesCount; i++) {
+				this.offset += 2;
+				final int attributeLength = this.readInt();
+				this.offset += attributeLength;
+			}
+		}
+
+		/**
+		 * Read the annotation types of an annotations attribute.
+		 * 
+		 * @param annotationNames
+		 *            the list where annotation names are added.
+		 * @throws IOException
+		 *             if an annotation is not valid.
+		 */
+		private void readAnnotations(final List<String> annotationNames)
+				throws IOException {
+			final int annotationsCount = this.readUnsignedShort();
+			for (int i = 0; i < annotationsCount; i++) {
+				annotationNames.add(this.readAnnotation());
+			}
+		}
+
+		/**
+		 * Read an annotation and return its type.
+		 * 
+		 * @return the binary name of the annotation type.
+		 * @throws IOException
+		 *             if the annotation is not valid.
+		 */
+		private String readAnnotation() throws IOException {
+			final String descriptor = this.getUtf8Constant(this
+					.readUnsignedShort());
+			final int pairsCount = this.readUnsignedShort();
+			for (int i = 0; i < pairsCount; i++) {
+				this.offset += 2;
+				this.skipElementValue();
+			}
+			return descriptor.substring(1, descriptor.length() - 1).replace(
+					'/', '.');
+		}
+
+		/**
+		 * Skip an annotation element value.
+		 * 
+		 * @throws IOException
+		 *             if the element value tag is unknown.
+		 */
+		private void skipElementValue() throws IOException {
+			final char tag = (char) (this.bytes[this.offset++] & 0xFF);
+			switch (tag) {
+			case 'e':
+				this.offset += 4;
+				break;
+			case '@':
+				this.readAnnotation();
+				break;
+			case '[':
+				final int valuesCount = this.readUnsignedShort();
+				for (int i = 0; i < valuesCount; i++) {
+					this.skipElementValue();
+				}
+				break;
+			case 'B':
+			case 'C':
+			case 'D':
+			case 'F':
+			case 'I':
+			case 'J':
+			case 'S':
+			case 'Z':
+			case 's':
+			case 'c':
+				this.offset += 2;
+				break;
+			default:
+				throw new IOException("Unknown annotation element tag " + tag
+						+ ".");
+			}
+		}
+
+		/**
+		 * Check in the InnerClasses attribute if the class is anonymous.
+		 * 
+		 * @param thisClass
+		 *            the constant pool index of the class.
+		 * @return <code>true</code> if the class is anonymous.
+		 */
+		private boolean isAnonymous(final int thisClass) {
+			boolean anonymous = false;
+			final int classesCount = this.readUnsignedShort();
+			for (int i = 0; i < classesCount; i++) {
+				final int innerClass = this.readUnsignedShort();
+				// outer class
+				this.offset += 2;
+				final int innerName = this.readUnsignedShort();
+				// inner class access flags
+				this.offset += 2;
+				if (innerClass == thisClass && innerName == 0) {
+					anonymous = true;
+				}
+			}
+			return anonymous;
+		}
+
+		/**
+		 * Return the binary name referenced by a Class constant.
+		 * 
+		 * @param index
+		 *            the constant pool index.
+		 * @return the binary name.
+		 * @throws IOException
+		 *             if the constant is not valid.
+		 */
+		private String getClassConstant(final int index) throws IOException {
+			final int constantOffset = this.getConstantOffset(index);
+			return this.getUtf8Constant(
+					this.readUnsignedShortAt(constantOffset + 1)).replace('/',
+					'.');
+		}
+
+		/**
+		 * Return the string of an Utf8 constant.
+		 * 
+		 * @param index
+		 *            the constant pool index.
+		 * @return the string.
+		 * @throws IOException
+		 *             if the constant is not valid.
+		 */
+		private String getUtf8Constant(final int index) throws IOException {
+			final int constantOffset = this.getConstantOffset(index);
+			final int length = this.readUnsignedShortAt(constantOffset + 1);
+			return this.decodeUtf8(constantOffset + 3, length);
+		}
+
+		/**
+		 * Return the offset of a constant pool entry.
+		 * 
+		 * @param index
+		 *            the constant pool index.
+		 * @return the offset.
+		 * @throws IOException
+		 *             if the index is not valid.
+		 */
+		private int getConstantOffset(final int index) throws IOException {
+			if (index <= 0 || index >= this.constantOffsets.length
+					|| this.constantOffsets[index] == 0) {
+				throw new IOException("Invalid constant pool index " + index
+						+ ".");
+			}
+			return this.constantOffsets[index];
+		}
+
+		/**
+		 * Decode a modified UTF-8 string.
+		 * 
+		 * @param start
+		 *            the offset of the first byte.
+		 * @param length
+		 *            the number of bytes.
+		 * @return the string decoded.
+		 * @throws UTFDataFormatException
+		 *             if the bytes are not valid.
+		 */
+		private String decodeUtf8(final int start, final int length)
+				throws UTFDataFormatException {
+			final char[] chars = new char[length];
+			int charsCount = 0;
+			int i = start;
+			final int end = start + length;
+			while (i < end) {
+				final int c = this.bytes[i++] & 0xFF;
+				if (c < 0x80) {
+					chars[charsCount++] = (char) c;
+				} else if ((c & 0xE0) == 0xC0 && i < end) {
+					chars[charsCount++] = (char) (((c & 0x1F) << 6) | (this.bytes[i++] & 0x3F));
+				} else if ((c & 0xF0) == 0xE0 && i + 1 < end) {
+					chars[charsCount++] = (char) (((c & 0x0F) << 12)
+							| ((this.bytes[i++] & 0x3F) << 6) | (this.bytes[i++] & 0x3F));
+				} else {
+					throw new UTFDataFormatException(
+							"Malformed constant pool string.");
+				}
+			}
+			return new String(chars, 0, charsCount);
+		}
+
+		/**
+		 * Read an unsigned short and move after it.
+		 * 
+		 * @return the value.
+		 */
+		private int readUnsignedShort() {
+			final int value = this.readUnsignedShortAt(this.offset);
+			this.offset += 2;
+			return value;
+		}
+
+		/**
+		 * Read an unsigned short at the offset given.
+		 * 
+		 * @param at
+		 *            the offset.
+		 * @return the value.
+		 */
+		private int readUnsignedShortAt(final int at) {
+			return ((this.bytes[at] & 0xFF) << 8) | (this.bytes[at + 1] & 0xFF);
+		}
+
+		/**
+		 * Read an int and move after it.
+		 * 
+		 * @return the value.
+		 */
+		private int readInt() {
+			final int value = ((this.bytes[this.offset] & 0xFF) << 24)
+					| ((this.bytes[this.offset + 1] & 0xFF) << 16)
+					| ((this.bytes[this.offset + 2] & 0xFF) << 8)
+					| (this.bytes[this.offset + 3] & 0xFF);
+			this.offset += 4;
+			return value;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the class loaders of the archives of the classpath, shared by the
+ * generations of a reactor running at the same time.
+ * 
+ * The modules of a reactor mostly depend on the same archives : the class
+ * loader of a list of archives is created once, the archives are opened once
+ * and their classes are defined once, whatever the number of modules using
+ * them. The class loader of the archives is the parent of the class loader of
+ * the directories of each module, which change during the build.
+ * 
+ * A class loader is used from {@link #acquire(URL[])} to
+ * {@link #release(IndexedClassLoader)}, and is closed when its last user
+ * releases it : the cache never keeps a class loader nobody uses, whatever
+ * the order the modules of the reactor are built in. {@link #close()} stops
+ * sharing the class loaders still used, which are closed when released.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ClassLoaderCache {
+
+	/**
+	 * The class loaders by key of their archives.
+	 */
+	private final Map<List<String>, Layer> layersByKey;
+
+	/**
+	 * The class loaders given by the cache.
+	 */
+	private final Map<IndexedClassLoader, Layer> layersByClassLoader;
+
+	/**
+	 * Constructor of an empty cache.
+	 */
+	public ClassLoaderCache() {
+		this.layersByKey = new HashMap<List<String>, Layer>();
+		this.layersByClassLoader = new IdentityHashMap<IndexedClassLoader, Layer>();
+	}
+
+	/**
+	 * Return the class loader of the archives given, created if the cache has
+	 * none yet. The class loader has to be released when the generation ends.
+	 * 
+	 * @param urls
+	 *            the URLs of the archives, in the classpath order.
+	 * @return the class loader of the archives.
+	 */
+	public synchronized IndexedClassLoader acquire(final URL[] urls) {
+		final List<String> key = this.getKey(urls);
+		Layer layer = this.layersByKey.get(key);
+		if (layer == null) {
+			layer = new Layer(key, new IndexedClassLoader(urls,
+					ClassLoader.class.getClassLoader()));
+			this.layersByKey.put(key, layer);
+			this.layersByClassLoader.put(layer.classLoader, layer);
+		}
+		layer.users++;
+		return layer.classLoader;
+	}
+
+	/**
+	 * Release a class loader given by the cache. It is removed from the cache
+	 * and closed if no other generation uses it.
+	 * 
+	 * @param classLoader
+	 *            the class loader.
+	 * @throws IOException
+	 *             if the class loader can not be closed.
+	 */
+	public synchronized void release(final IndexedClassLoader classLoader)
+			throws IOException {
+		final Layer layer = this.layersByClassLoader.get(classLoader);
+		if (layer == null) {
+			throw new IllegalArgumentException(
+					"The class loader has not been given by the cache.");
+		}
+		layer.users--;
+		if (layer.users == 0) {
+			this.layersByClassLoader.remove(classLoader);
+			if (!layer.evicted) {
+				this.layersByKey.remove(layer.key);
+			}
+			classLoader.close();
+		}
+	}
+
+	/**
+	 * Close the cache : the class loaders still used are not given anymore,
+	 * and will be closed when they are released. The cache is then empty.
+	 */
+	public synchronized void close() {
+		for (final Layer layer : this.layersByKey.values()) {
+			layer.evicted = true;
+		}
+		this.layersByKey.clear();
+	}
+
+	/**
+	 * Return the number of class loaders created by the cache and not closed
+	 * yet.
+	 * 
+	 * @return the number of class loaders used.
+	 */
+	public synchronized int size() {
+		return this.layersByClassLoader.size();
+	}
+
+	/**
+	 * Return the key of archives : their paths, sizes and last modification
+	 * dates, so that an archive replaced between two builds in the same JVM
+	 * is not read from a class loader created before.
+	 * 
+	 * @param urls
+	 *            the URLs of the archives.
+	 * @return the key.
+	 */
+	private List<String> getKey(final URL[] urls) {
+		final List<String> key = new ArrayList<String>(urls.length);
+		for (final URL url : urls) {
+			File file;
+			try {
+				file = new File(url.toURI());
+			} catch (final URISyntaxException e) {
+				file = new File(url.getPath());
+			}
+			key.add(file.getAbsolutePath() + "|" + file.length() + "|"
+					+ file.lastModified());
+		}
+		return key;
+	}
+
+	/**
+	 * A class loader of the cache.
+	 */
+	private static final class Layer {
+
+		/**
+		 * The key of the archives of the class loader.
+		 */
+		private final List<String> key;
+
+		/**
+		 * The class loader.
+		 */
+		private final IndexedClassLoader classLoader;
+
+		/**
+		 * The number of generations using the class loader.
+		 */
+		private int users;
+
+		/**
+		 * <code>true</code> once the class loader is not given anymore.
+		 */
+		private boolean evicted;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param key
+		 *            the key of the archives.
+		 * @param classLoader
+		 *            the class loader.
+		 */
+		private Layer(final List<String> key,
+				final IndexedClassLoader classLoader) {
+			this.key = key;
+			this.classLoader = classLoader;
+		}
+	}
+}
@@ -3,14 +3,29 @@
  */
 package fr.maven.dto.generator.impl;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
 
 import fr.maven.dto.generator.ClassLoaderProvider;
 
 /**
  * ClassLoaderProvider provides ClassLoader from URLs in a security way.
  * 
+ * The ClassLoader provided is an {@link IndexedClassLoader} : it indexes the
+ * packages of the classpath elements once, and it has to be closed when the
+ * generation ends.
+ * 
+ * When a {@link ClassLoaderCache} is given, the archives of the classpath are
+ * loaded by a class loader of the cache, shared with the other generations of
+ * the reactor using the same archives. Only the directories of the classpath
+ * are loaded by the class loader provided, whose parent is the shared one :
+ * it looks up its directories before the archives, like the classpath order
+ * of a project puts its output directory before its dependencies.
+ * 
  * @author Wilfried Petit
  * 
  */
@@ -21,10 +36,22 @@ public class ClassLoaderProviderImpl implements ClassLoaderProvider {
 	 */
 	private final URL[] urls;
 
+	/**
+	 * The cache of the class loaders of the archives, <code>null</code> if
+	 * the class loader is not shared.
+	 */
+	private final ClassLoaderCache classLoaderCache;
+
 	/**
 	 * The ClassLoader provided to callers.
 	 */
-	private ClassLoader classLoader;
+	private IndexedClassLoader classLoader;
+
+	/**
+	 * The class loader of the archives acquired from the cache,
+	 * <code>null</code> if none has been acquired.
+	 */
+	private IndexedClassLoader sharedClassLoader;
 
 	/**
 	 * Constructor.
@@ -34,7 +61,23 @@ public class ClassLoaderProviderImpl implements ClassLoaderProvider {
 	 *            ClassLoader.
 	 */
 	public ClassLoaderProviderImpl(final URL[] urls) {
+		this(urls, null);
+	}
+
+	/**
+	 * Constructor of a provider sharing the class loader of the archives.
+	 * 
+	 * @param urls
+	 *            The URL List containing classes and archives to load in the
+	 *            ClassLoader.
+	 * @param classLoaderCache
+	 *            the cache of the class loaders of the archives,
+	 *            <code>null</code> if the class loader is not shared.
+	 */
+	public ClassLoaderProviderImpl(final URL[] urls,
+			final ClassLoaderCache classLoaderCache) {
 		this.urls = urls.clone();
+		this.classLoaderCache = classLoaderCache;
 	}
 
 	/**
@@ -44,8 +87,25 @@ public class ClassLoaderProviderImpl implements ClassLoaderProvider {
 	 */
 	@Override
 	public ClassLoader run() {
-		this.classLoader = new URLClassLoader(this.urls,
-				ClassLoader.class.getClassLoader());
+		if (this.classLoaderCache == null) {
+			this.classLoader = new IndexedClassLoader(this.urls,
+					ClassLoader.class.getClassLoader());
+			return this.classLoader;
+		}
+		final List<URL> archiveURLs = new ArrayList<URL>();
+		final List<URL> directoryURLs = new ArrayList<URL>();
+		for (final URL url : this.urls) {
+			final File file = this.toFile(url);
+			if (file != null && file.isFile()) {
+				archiveURLs.add(url);
+			} else {
+				directoryURLs.add(url);
+			}
+		}
+		this.sharedClassLoader = this.classLoaderCache.acquire(archiveURLs
+				.toArray(new URL[0]));
+		this.classLoader = new IndexedClassLoader(
+				directoryURLs.toArray(new URL[0]), this.sharedClassLoader, true);
 		return this.classLoader;
 	}
 
@@ -59,4 +119,59 @@ public class ClassLoaderProviderImpl implements ClassLoaderProvider {
 		return this.classLoader;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.ClassLoaderProvider#getClasspath()
+	 */
+	@Override
+	public List<File> getClasspath() {
+		final List<File> classpath = new ArrayList<File>();
+		for (final URL url : this.urls) {
+			final File file = this.toFile(url);
+			if (file != null) {
+				classpath.add(file);
+			}
+		}
+		return classpath;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.ClassLoaderProvider#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (this.classLoader != null) {
+				this.classLoader.close();
+			}
+		} finally {
+			if (this.sharedClassLoader != null) {
+				final IndexedClassLoader released = this.sharedClassLoader;
+				this.sharedClassLoader = null;
+				this.classLoaderCache.release(released);
+			}
+		}
+	}
+
+	/**
+	 * Return the file of a classpath URL.
+	 * 
+	 * @param url
+	 *            the URL.
+	 * @return the file, <code>null</code> if the URL is not a file URL.
+	 */
+	private File toFile(final URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			return null;
+		}
+		try {
+			return new File(url.toURI());
+		} catch (final URISyntaxException e) {
+			return new File(url.getPath());
+		}
+	}
+
 }
@@ -0,0 +1,592 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matcher of class names compiled once from include and exclude class
+ * patterns.
+ * 
+ * A class pattern is made of segments separated by dots. In a segment,
+ * <code>*</code> matches any characters and <code>?</code> matches one
+ * character. The <code>**</code> segment matches any number of packages, and
+ * when it is the last segment, any class of any sub package. E.g. :
+ * <code>fr.maven.**.Bean</code>, <code>fr.maven.*Bean</code>,
+ * <code>fr.maven.**</code>.
+ * 
+ * Patterns are stored in a tree indexed by their leading literal packages, so
+ * that a class name is only compared to the patterns sharing its packages, and
+ * so that packages that can not contain any class to include are known
+ * without listing them.
+ * 
+ * Class names are given as paths, as in class files directories and archives
+ * : <code>fr/maven/dto/Bean.class</code> or <code>fr/maven/dto/Bean</code>.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ClassNameMatcher {
+
+	/**
+	 * The segment matching any number of packages.
+	 */
+	private static final String ANY_PACKAGES = "**";
+
+	/**
+	 * The extension of class files.
+	 */
+	private static final String CLASS_EXTENSION = ".class";
+
+	/**
+	 * The tree of include patterns.
+	 */
+	private final Node includes;
+
+	/**
+	 * The tree of exclude patterns.
+	 */
+	private final Node excludes;
+
+	/**
+	 * The literal package paths every class to include starts with, empty if
+	 * a pattern starts with a wildcard.
+	 */
+	private final List<String> literalPrefixes;
+
+	/**
+	 * The normalized description of the patterns.
+	 */
+	private final String description;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param includePatterns
+	 *            patterns that class names must match, may be
+	 *            <code>null</code>.
+	 * @param excludePatterns
+	 *            patterns that class names must not match, may be
+	 *            <code>null</code>.
+	 */
+	public ClassNameMatcher(final List<String> includePatterns,
+			final List<String> excludePatterns) {
+		this.includes = new Node();
+		this.excludes = new Node();
+		final Set<String> prefixes = new LinkedHashSet<String>();
+		boolean anyPrefix = false;
+		final StringBuilder descriptionBuilder = new StringBuilder("includes=");
+		if (includePatterns != null) {
+			for (final String includePattern : includePatterns) {
+				final String[] segments = this.toSegments(includePattern);
+				final String prefix = this.addPattern(this.includes, segments);
+				if (prefix.length() == 0) {
+					anyPrefix = true;
+				}
+				prefixes.add(prefix);
+				descriptionBuilder.append(this.join(segments, '.')).append(',');
+			}
+		}
+		descriptionBuilder.append(";excludes=");
+		if (excludePatterns != null) {
+			for (final String excludePattern : excludePatterns) {
+				final String[] segments = this.toSegments(excludePattern);
+				this.addPattern(this.excludes, segments);
+				descriptionBuilder.append(this.join(segments, '.')).append(',');
+			}
+		}
+		if (anyPrefix) {
+			prefixes.clear();
+		}
+		this.literalPrefixes = Collections
+				.unmodifiableList(new ArrayList<String>(prefixes));
+		this.description = descriptionBuilder.toString();
+	}
+
+	/**
+	 * Check if the class given matches an include pattern and no exclude
+	 * pattern.
+	 * 
+	 * @param classPath
+	 *            the class path, e.g. <code>fr/maven/dto/Bean.class</code>.
+	 * @return <code>true</code> if the class has to be included.
+	 */
+	public boolean matches(final String classPath) {
+		if (!this.hasLiteralPrefix(classPath)) {
+			return false;
+		}
+		final String[] segments = this.toPathSegments(classPath);
+		return this.matchesClass(this.includes, segments)
+				&& !this.matchesClass(this.excludes, segments);
+	}
+
+	/**
+	 * Check if the package given or one of its sub packages may contain a
+	 * class to include. A package whose classes are all excluded can not.
+	 * 
+	 * @param packagePath
+	 *            the package path, e.g. <code>fr/maven</code>, empty for the
+	 *            default package.
+	 * @return <code>false</code> if no class of the package and of its sub
+	 *         packages can be included.
+	 */
+	public boolean canMatchPackage(final String packagePath) {
+		final String[] segments = this.toPathSegments(packagePath);
+		return this.canMatchPackage(this.includes, segments)
+				&& !this.excludesPackage(this.excludes, segments);
+	}
+
+	/**
+	 * Check if one of the packages given or their sub packages may contain a
+	 * class to include.
+	 * 
+	 * @param packagePaths
+	 *            the package paths.
+	 * @return <code>false</code> if none of the packages can contain a class
+	 *         to include.
+	 */
+	public boolean canMatchAnyPackage(final Collection<String> packagePaths) {
+		for (final String packagePath : packagePaths) {
+			if (this.canMatchPackage(packagePath)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the literal package paths every class to include starts with.
+	 * E.g. : for <code>com.acme.**</code>, it returns <code>com/acme/</code>.
+	 * 
+	 * @return the literal prefixes, empty if any package may contain classes
+	 *         to include.
+	 */
+	public List<String> getLiteralPrefixes() {
+		return this.literalPrefixes;
+	}
+
+	/**
+	 * Convert a class path to a binary class name. E.g. : for
+	 * <code>fr/maven/dto/Bean.class</code>, it returns
+	 * <code>fr.maven.dto.Bean</code>.
+	 * 
+	 * @param classPath
+	 *            the class path.
+	 * @return the class name.
+	 */
+	public String toClassName(final String classPath) {
+		String className = classPath;
+		if (className.endsWith(CLASS_EXTENSION)) {
+			className = className.substring(0, className.length()
+					- CLASS_EXTENSION.length());
+		}
+		return className.replace('/', '.');
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.description;
+	}
+
+	/**
+	 * Quickly check the class path starts with a literal prefix of the
+	 * includes.
+	 * 
+	 * @param classPath
+	 *            the class path.
+	 * @return <code>true</code> if the class path may be included.
+	 */
+	private boolean hasLiteralPrefix(final String classPath) {
+		if (this.literalPrefixes.isEmpty()) {
+			return true;
+		}
+		for (final String literalPrefix : this.literalPrefixes) {
+			if (classPath.startsWith(literalPrefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Add a pattern to a tree.
+	 * 
+	 * @param root
+	 *            the root of the tree.
+	 * @param segments
+	 *            the pattern segments.
+	 * @return the literal package path of the pattern.
+	 */
+	private String addPattern(final Node root, final String[] segments) {
+		Node node = root;
+		final StringBuilder prefix = new StringBuilder();
+		int literalSegments = 0;
+		while (literalSegments < segments.length - 1
+				&& !this.hasWildcard(segments[literalSegments])) {
+			node = node.getOrCreateChild(segments[literalSegments]);
+			prefix.append(segments[literalSegments]).append('/');
+			literalSegments++;
+		}
+		final String[] remainder = new String[segments.length
+				- literalSegments];
+		System.arraycopy(segments, literalSegments, remainder, 0,
+				remainder.length);
+		node.patterns.add(remainder);
+		return prefix.toString();
+	}
+
+	/**
+	 * Check a class matches a pattern of a tree.
+	 * 
+	 * @param root
+	 *            the root of the tree.
+	 * @param segments
+	 *            the class path segments.
+	 * @return <code>true</code> if a pattern matches.
+	 */
+	private boolean matchesClass(final Node root, final String[] segments) {
+		Node node = root;
+		int depth = 0;
+		while (node != null) {
+			for (final String[] pattern : node.patterns) {
+				if (this.matchSegments(pattern, 0, segments, depth)) {
+					return true;
+				}
+			}
+			if (depth >= segments.length - 1) {
+				return false;
+			}
+			node = node.children.get(segments[depth]);
+			depth++;
+		}
+		return false;
+	}
+
+	/**
+	 * Check a package or its sub packages may match a pattern of a tree.
+	 * 
+	 * @param root
+	 *            the root of the tree.
+	 * @param segments
+	 *            the package path segments.
+	 * @return <code>true</code> if a pattern may match.
+	 */
+	private boolean canMatchPackage(final Node root, final String[] segments) {
+		Node node = root;
+		int depth = 0;
+		while (node != null) {
+			for (final String[] pattern : node.patterns) {
+				if (this.matchPackage(pattern, 0, segments, depth)) {
+					return true;
+				}
+			}
+			if (depth == segments.length) {
+				return !node.children.isEmpty();
+			}
+			node = node.children.get(segments[depth]);
+			depth++;
+		}
+		return false;
+	}
+
+	/**
+	 * Check all the classes of a package and of its sub packages match a
+	 * pattern of a tree.
+	 * 
+	 * @param root
+	 *            the root of the tree.
+	 * @param segments
+	 *            the package path segments.
+	 * @return <code>true</code> if a pattern matches the whole package.
+	 */
+	private boolean excludesPackage(final Node root, final String[] segments) {
+		Node node = root;
+		int depth = 0;
+		while (node != null) {
+			for (final String[] pattern : node.patterns) {
+				if (this.matchWholePackage(pattern, 0, segments, depth)) {
+					return true;
+				}
+			}
+			if (depth == segments.length) {
+				return false;
+			}
+			node = node.children.get(segments[depth]);
+			depth++;
+		}
+		return false;
+	}
+
+	/**
+	 * Match class path segments against pattern segments.
+	 * 
+	 * @param pattern
+	 *            the pattern segments.
+	 * @param patternIndex
+	 *            the first pattern segment to match.
+	 * @param segments
+	 *            the class path segments.
+	 * @param index
+	 *            the first class path segment to match.
+	 * @return <code>true</code> if the segments match.
+	 */
+	private boolean matchSegments(final String[] pattern,
+			final int patternIndex, final String[] segments, final int index) {
+		if (patternIndex == pattern.length) {
+			return index == segments.length;
+		}
+		if (ANY_PACKAGES.equals(pattern[patternIndex])) {
+			if (patternIndex == pattern.length - 1) {
+				return index < segments.length;
+			}
+			for (int next = index; next < segments.length; next++) {
+				if (this.matchSegments(pattern, patternIndex + 1, segments,
+						next)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return index < segments.length
+				&& this.matchSegment(pattern[patternIndex], segments[index])
+				&& this.matchSegments(pattern, patternIndex + 1, segments,
+						index + 1);
+	}
+
+	/**
+	 * Check a package path can be the beginning of a class path matching the
+	 * pattern.
+	 * 
+	 * @param pattern
+	 *            the pattern segments.
+	 * @param patternIndex
+	 *            the first pattern segment to match.
+	 * @param segments
+	 *            the package path segments.
+	 * @param index
+	 *            the first package path segment to match.
+	 * @return <code>true</code> if the package may contain a class matching.
+	 */
+	private boolean matchPackage(final String[] pattern,
+			final int patternIndex, final String[] segments, final int index) {
+		if (index == segments.length) {
+			return patternIndex < pattern.length;
+		}
+		if (patternIndex >= pattern.length - 1) {
+			// Only the class name is left, or the pattern ends with **.
+			return patternIndex == pattern.length - 1
+					&& ANY_PACKAGES.equals(pattern[patternIndex]);
+		}
+		if (ANY_PACKAGES.equals(pattern[patternIndex])) {
+			return true;
+		}
+		return this.matchSegment(pattern[patternIndex], segments[index])
+				&& this.matchPackage(pattern, patternIndex + 1, segments,
+						index + 1);
+	}
+
+	/**
+	 * Check all the class paths beginning with a package path match the
+	 * pattern.
+	 * 
+	 * @param pattern
+	 *            the pattern segments.
+	 * @param patternIndex
+	 *            the first pattern segment to match.
+	 * @param segments
+	 *            the package path segments.
+	 * @param index
+	 *            the first package path segment to match.
+	 * @return <code>true</code> if all the classes of the package match.
+	 */
+	private boolean matchWholePackage(final String[] pattern,
+			final int patternIndex, final String[] segments, final int index) {
+		if (patternIndex == pattern.length - 1) {
+			return ANY_PACKAGES.equals(pattern[patternIndex]);
+		}
+		if (ANY_PACKAGES.equals(pattern[patternIndex])) {
+			for (int next = index; next <= segments.length; next++) {
+				if (this.matchWholePackage(pattern, patternIndex + 1, segments,
+						next)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return index < segments.length
+				&& this.matchSegment(pattern[patternIndex], segments[index])
+				&& this.matchWholePackage(pattern, patternIndex + 1, segments,
+						index + 1);
+	}
+
+	/**
+	 * Match a name against a segment pattern with <code>*</code> and
+	 * <code>?</code> wildcards.
+	 * 
+	 * @param pattern
+	 *            the segment pattern.
+	 * @param name
+	 *            the name.
+	 * @return <code>true</code> if the name matches.
+	 */
+	private boolean matchSegment(final String pattern, final String name) {
+		if (!this.hasWildcard(pattern)) {
+			return pattern.equals(name);
+		}
+		int patternIndex = 0;
+		int nameIndex = 0;
+		int starIndex = -1;
+		int starNameIndex = 0;
+		while (nameIndex < name.length()) {
+			if (patternIndex < pattern.length()
+					&& (pattern.charAt(patternIndex) == '?' || pattern
+							.charAt(patternIndex) == name.charAt(nameIndex))) {
+				patternIndex++;
+				nameIndex++;
+			} else if (patternIndex < pattern.length()
+					&& pattern.charAt(patternIndex) == '*') {
+				starIndex = patternIndex++;
+				starNameIndex = nameIndex;
+			} else if (starIndex != -1) {
+				patternIndex = starIndex + 1;
+				nameIndex = ++starNameIndex;
+			} else {
+				return false;
+			}
+		}
+		while (patternIndex < pattern.length()
+				&& pattern.charAt(patternIndex) == '*') {
+			patternIndex++;
+		}
+		return patternIndex == pattern.length();
+	}
+
+	/**
+	 * Check a segment pattern contains a wildcard.
+	 * 
+	 * @param segment
+	 *            the segment pattern.
+	 * @return <code>true</code> if the segment has a wildcard.
+	 */
+	private boolean hasWildcard(final String segment) {
+		return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0;
+	}
+
+	/**
+	 * Split a class pattern in segments.
+	 * 
+	 * @param classPattern
+	 *            the class pattern.
+	 * @return the segments.
+	 */
+	private String[] toSegments(final String classPattern) {
+		return this.split(classPattern.trim(), '.');
+	}
+
+	/**
+	 * Split a class or package path in segments.
+	 * 
+	 * @param path
+	 *            the path, with or without the class extension.
+	 * @return the segments.
+	 */
+	private String[] toPathSegments(final String path) {
+		String withoutExtension = path;
+		if (withoutExtension.endsWith(CLASS_EXTENSION)) {
+			withoutExtension = withoutExtension.substring(0,
+					withoutExtension.length() - CLASS_EXTENSION.length());
+		}
+		return this.split(withoutExtension, '/');
+	}
+
+	/**
+	 * Split a string, ignoring empty parts.
+	 * 
+	 * @param value
+	 *            the string.
+	 * @param separator
+	 *            the separator.
+	 * @return the parts.
+	 */
+	private String[] split(final String value, final char separator) {
+		final List<String> parts = new ArrayList<String>();
+		int start = 0;
+		while (start <= value.length()) {
+			int end = value.indexOf(separator, start);
+			if (end < 0) {
+				end = value.length();
+			}
+			if (end > start) {
+				parts.add(value.substring(start, end));
+			}
+			start = end + 1;
+		}
+		return parts.toArray(new String[parts.size()]);
+	}
+
+	/**
+	 * Join segments.
+	 * 
+	 * @param segments
+	 *            the segments.
+	 * @param separator
+	 *            the separator.
+	 * @return the string joined.
+	 */
+	private String join(final String[] segments, final char separator) {
+		final StringBuilder joined = new StringBuilder();
+		for (int i = 0; i < segments.length; i++) {
+			if (i > 0) {
+				joined.append(separator);
+			}
+			joined.append(segments[i]);
+		}
+		return joined.toString();
+	}
+
+	/**
+	 * A node of a patterns tree. A node is reached by a literal package and
+	 * holds the remaining segments of the patterns starting with this package.
+	 */
+	private static final class Node {
+
+		/**
+		 * The child nodes by literal package segment.
+		 */
+		private final Map<String, Node> children = new HashMap<String, Node>();
+
+		/**
+		 * The remaining segments of the patterns.
+		 */
+		private final List<String[]> patterns = new ArrayList<String[]>();
+
+		/**
+		 * Return the child node of a segment, creating it if needed.
+		 * 
+		 * @param segment
+		 *            the literal segment.
+		 * @return the child node.
+		 */
+		Node getOrCreateChild(final String segment) {
+			Node child = this.children.get(segment);
+			if (child == null) {
+				child = new Node();
+				this.children.put(segment, child);
+			}
+			return child;
+		}
+	}
+}
@@ -0,0 +1,269 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Selects the classes we want to generate DTO for from their
+ * {@link ClassHeader}, so that only selected classes are loaded.
+ * 
+ * Interfaces, enums, annotation types, synthetic and anonymous classes,
+ * package-info and module-info are never selected. When annotations, super
+ * classes or interfaces are required, the class must match one of each
+ * required list. Super classes and interfaces are looked up in the whole
+ * hierarchy by reading the class files of the super types as resources.
+ * 
+ * A selector can be shared by threads scanning different classpath elements.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ClassSelector {
+
+	/**
+	 * Header registered for the super types whose class file can not be read.
+	 */
+	private static final ClassHeader MISSING_HEADER = new ClassHeader("", 0,
+			null, Collections.<String> emptyList(),
+			Collections.<String> emptyList(), false);
+
+	/**
+	 * The class loader used to read super types class files.
+	 */
+	private final ClassLoader classLoader;
+
+	/**
+	 * Annotations the selected classes must be annotated with (one of).
+	 */
+	private final Set<String> annotations;
+
+	/**
+	 * Classes the selected classes must extend (one of).
+	 */
+	private final Set<String> superClasses;
+
+	/**
+	 * Interfaces the selected classes must implement (one of).
+	 */
+	private final Set<String> interfaces;
+
+	/**
+	 * The reader of class headers.
+	 */
+	private final ClassHeaderReader classHeaderReader;
+
+	/**
+	 * Headers of super types already read, by binary name.
+	 */
+	private final ConcurrentMap<String, ClassHeader> superTypeHeaders;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param classLoader
+	 *            the class loader used to read super types class files.
+	 * @param annotations
+	 *            annotations the selected classes must be annotated with (one
+	 *            of). <code>null</code> or empty for no constraint.
+	 * @param superClasses
+	 *            classes the selected classes must extend (one of).
+	 *            <code>null</code> or empty for no constraint.
+	 * @param interfaces
+	 *            interfaces the selected classes must implement (one of).
+	 *            <code>null</code> or empty for no constraint.
+	 */
+	public ClassSelector(final ClassLoader classLoader,
+			final List<String> annotations, final List<String> superClasses,
+			final List<String> interfaces) {
+		this.classLoader = classLoader;
+		this.annotations = this.toSet(annotations);
+		this.superClasses = this.toSet(superClasses);
+		this.interfaces = this.toSet(interfaces);
+		this.classHeaderReader = new ClassHeaderReader();
+		this.superTypeHeaders = new ConcurrentHashMap<String, ClassHeader>();
+	}
+
+	/**
+	 * Check if the class described by the header given has to be loaded.
+	 * 
+	 * @param header
+	 *            the class header.
+	 * @return <code>true</code> if the class is selected.
+	 */
+	public boolean isSelected(final ClassHeader header) {
+		return this.isBean(header) && this.isAnnotated(header)
+				&& this.isSubClass(header) && this.isImplementation(header);
+	}
+
+	/**
+	 * Check the kind of the class : only concrete classes or abstract classes
+	 * written by a developer can be beans.
+	 * 
+	 * @param header
+	 *            the class header.
+	 * @return <code>true</code> if the class can be a bean.
+	 */
+	protected boolean isBean(final ClassHeader header) {
+		return !header.isInterface() && !header.isEnum()
+				&& !header.isAnnotation() && !header.isSynthetic()
+				&& !header.isAnonymous() && !header.isPackageInfo()
+				&& !header.isModuleInfo();
+	}
+
+	/**
+	 * Check the class is annotated with one of the required annotations.
+	 * 
+	 * @param header
+	 *            the class header.
+	 * @return <code>true</code> if no annotation is required or if the class
+	 *         has one of them.
+	 */
+	protected boolean isAnnotated(final ClassHeader header) {
+		if (this.annotations.isEmpty()) {
+			return true;
+		}
+		for (final String annotationName : header.getAnnotationNames()) {
+			if (this.annotations.contains(annotationName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check the class extends one of the required super classes.
+	 * 
+	 * @param header
+	 *            the class header.
+	 * @return <code>true</code> if no super class is required or if the class
+	 *         extends one of them.
+	 */
+	protected boolean isSubClass(final ClassHeader header) {
+		if (this.superClasses.isEmpty()) {
+			return true;
+		}
+		String superClassName = header.getSuperClassName();
+		while (superClassName != null) {
+			if (this.superClasses.contains(superClassName)) {
+				return true;
+			}
+			final ClassHeader superClassHeader = this
+					.getSuperTypeHeader(superClassName);
+			superClassName = superClassHeader == null ? null
+					: superClassHeader.getSuperClassName();
+		}
+		return false;
+	}
+
+	/**
+	 * Check the class implements one of the required interfaces.
+	 * 
+	 * @param header
+	 *            the class header.
+	 * @return <code>true</code> if no interface is required or if the class
+	 *         implements one of them.
+	 */
+	protected boolean isImplementation(final ClassHeader header) {
+		if (this.interfaces.isEmpty()) {
+			return true;
+		}
+		return this.implementsInterface(header, new HashSet<String>());
+	}
+
+	/**
+	 * Look for a required interface in the super types of the class given.
+	 * 
+	 * @param header
+	 *            the class header.
+	 * @param visited
+	 *            the super types already visited.
+	 * @return <code>true</code> if one of the required interfaces has been
+	 *         found.
+	 */
+	private boolean implementsInterface(final ClassHeader header,
+			final Set<String> visited) {
+		for (final String interfaceName : header.getInterfaceNames()) {
+			if (this.interfaces.contains(interfaceName)) {
+				return true;
+			}
+		}
+		for (final String interfaceName : header.getInterfaceNames()) {
+			if (visited.add(interfaceName)) {
+				final ClassHeader interfaceHeader = this
+						.getSuperTypeHeader(interfaceName);
+				if (interfaceHeader != null
+						&& this.implementsInterface(interfaceHeader, visited)) {
+					return true;
+				}
+			}
+		}
+		final String superClassName = header.getSuperClassName();
+		if (superClassName != null && visited.add(superClassName)) {
+			final ClassHeader superClassHeader = this
+					.getSuperTypeHeader(superClassName);
+			return superClassHeader != null
+					&& this.implementsInterface(superClassHeader, visited);
+		}
+		return false;
+	}
+
+	/**
+	 * Return the header of a super type, reading its class file from the class
+	 * loader resources.
+	 * 
+	 * @param className
+	 *            the binary name of the super type.
+	 * @return the header, <code>null</code> if the class file can not be read.
+	 */
+	protected ClassHeader getSuperTypeHeader(final String className) {
+		final ClassHeader knownHeader = this.superTypeHeaders.get(className);
+		if (knownHeader != null) {
+			return knownHeader == MISSING_HEADER ? null : knownHeader;
+		}
+		ClassHeader header = null;
+		final InputStream classFile = this.classLoader
+				.getResourceAsStream(className.replace('.', '/') + ".class");
+		if (classFile != null) {
+			try {
+				header = this.classHeaderReader.read(classFile);
+			} catch (final IOException e) {
+				header = null;
+			} finally {
+				try {
+					classFile.close();
+				} catch (final IOException e) {
+					// Nothing to do, the header has been read.
+				}
+			}
+		}
+		this.superTypeHeaders.put(className, header == null ? MISSING_HEADER
+				: header);
+		return header;
+	}
+
+	/**
+	 * Convert a list of class names to a set.
+	 * 
+	 * @param classNames
+	 *            the class names, may be <code>null</code>.
+	 * @return the set of class names.
+	 */
+	private Set<String> toSet(final List<String> classNames) {
+		final Set<String> set = new HashSet<String>();
+		if (classNames != null) {
+			for (final String className : classNames) {
+				set.add(className.trim());
+			}
+		}
+		return set;
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import net.sf.cglib.core.ClassEmitter;
+import net.sf.cglib.core.CodeEmitter;
+import net.sf.cglib.core.Signature;
+
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ByteVector;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Constants;
+import org.objectweb.asm.Type;
+
+/**
+ * Emitter of the bytecode of a DTO from its model. The class emitted is the
+ * class compiled from the source of the DTO : the same fields, with their
+ * generic signatures, the same accessors and the same serial version, so that
+ * the DTOs do not need to be compiled.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class DTOBytecodeRenderer {
+
+	/**
+	 * The superclass of the DTOs.
+	 */
+	private static final Type OBJECT_TYPE = Type.getType(Object.class);
+
+	/**
+	 * The interfaces implemented by the DTOs.
+	 */
+	private static final Type[] DTO_INTERFACES = new Type[] { Type
+			.getType(java.io.Serializable.class) };
+
+	/**
+	 * The signature of the DTO constructor.
+	 */
+	private static final Signature CONSTRUCTOR = new Signature("<init>", "()V");
+
+	/**
+	 * Return the JVM descriptor of a class, e.g. "I" for int.
+	 * 
+	 * @param clazz
+	 *            the class.
+	 * @return the descriptor.
+	 */
+	public static String getDescriptor(final Class<?> clazz) {
+		return Type.getDescriptor(clazz);
+	}
+
+	/**
+	 * Emit the bytecode of a DTO.
+	 * 
+	 * @param model
+	 *            the DTO model.
+	 * @return the content of the class file of the DTO.
+	 */
+	public byte[] renderClass(final DTOModel model) {
+		final ClassWriter classWriter = new ClassWriter(true);
+		final ClassEmitter emitter = new ClassEmitter(classWriter);
+		emitter.begin_class(Constants.V1_5, Constants.ACC_PUBLIC
+				| Constants.ACC_SUPER, model.getDTOPackage() + "."
+				+ model.getDTOSimpleName(), OBJECT_TYPE, DTO_INTERFACES,
+				model.getDTOSimpleName() + ".java");
+		emitter.declare_field(Constants.ACC_PRIVATE | Constants.ACC_STATIC
+				| Constants.ACC_FINAL, "serialVersionUID", Type.LONG_TYPE,
+				Long.valueOf(1L), null);
+		for (final DTOFieldModel field : model.getFields()) {
+			emitter.declare_field(Constants.ACC_PRIVATE, field.getName(),
+					Type.getType(field.getDescriptor()), null,
+					this.createSignatureAttribute(field.getSignature()));
+		}
+		this.renderConstructor(emitter);
+		for (final DTOFieldModel field : model.getFields()) {
+			this.renderGetter(emitter, field);
+			this.renderSetter(emitter, field);
+		}
+		emitter.end_class();
+		return classWriter.toByteArray();
+	}
+
+	/**
+	 * Emit the default constructor of a DTO.
+	 * 
+	 * @param emitter
+	 *            the emitter of the DTO.
+	 */
+	public void renderConstructor(final ClassEmitter emitter) {
+		final CodeEmitter code = emitter.begin_method(Constants.ACC_PUBLIC,
+				CONSTRUCTOR, null, null);
+		code.load_this();
+		code.super_invoke_constructor();
+		code.return_value();
+		code.end_method();
+	}
+
+	/**
+	 * Emit the getter of a DTO field.
+	 * 
+	 * @param emitter
+	 *            the emitter of the DTO.
+	 * @param field
+	 *            the field model.
+	 */
+	public void renderGetter(final ClassEmitter emitter,
+			final DTOFieldModel field) {
+		String signature = null;
+		if (field.getSignature() != null) {
+			signature = "()" + field.getSignature();
+		}
+		final CodeEmitter code = emitter.begin_method(Constants.ACC_PUBLIC,
+				new Signature(field.getGetterName(), "()"
+						+ field.getDescriptor()), null,
+				this.createSignatureAttribute(signature));
+		code.load_this();
+		code.getfield(field.getName());
+		code.return_value();
+		code.end_method();
+	}
+
+	/**
+	 * Emit the setter of a DTO field.
+	 * 
+	 * @param emitter
+	 *            the emitter of the DTO.
+	 * @param field
+	 *            the field model.
+	 */
+	public void renderSetter(final ClassEmitter emitter,
+			final DTOFieldModel field) {
+		String signature = null;
+		if (field.getSignature() != null) {
+			signature = "(" + field.getSignature() + ")V";
+		}
+		final CodeEmitter code = emitter.begin_method(Constants.ACC_PUBLIC,
+				new Signature(field.getSetterName(), "("
+						+ field.getDescriptor() + ")V"), null,
+				this.createSignatureAttribute(signature));
+		code.load_this();
+		code.load_arg(0);
+		code.putfield(field.getName());
+		code.return_value();
+		code.end_method();
+	}
+
+	/**
+	 * Create the attribute holding a generic signature.
+	 * 
+	 * @param signature
+	 *            the generic signature, may be <code>null</code>.
+	 * @return the attribute, <code>null</code> if there is no signature.
+	 */
+	private Attribute createSignatureAttribute(final String signature) {
+		if (signature == null) {
+			return null;
+		}
+		return new SignatureAttribute(signature);
+	}
+
+	/**
+	 * The Signature attribute of a field or a method, that keeps the generic
+	 * types of the DTO for the compilers and the IDEs.
+	 */
+	private static final class SignatureAttribute extends Attribute {
+
+		/**
+		 * The generic signature.
+		 */
+		private final String signature;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param signature
+		 *            the generic signature.
+		 */
+		private SignatureAttribute(final String signature) {
+			super("Signature");
+			this.signature = signature;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see org.objectweb.asm.Attribute#write(org.objectweb.asm.ClassWriter,
+		 *      byte[], int, int, int)
+		 */
+		@Override
+		protected ByteVector write(final ClassWriter classWriter,
+				final byte[] code, final int len, final int maxStack,
+				final int maxLocals) {
+			return new ByteVector().putShort(classWriter
+					.newUTF8(this.signature));
+		}
+	}
+}
@@ -0,0 +1,526 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import fr.maven.dto.generator.DTOCompiler;
+
+/**
+ * Compiler of the generated DTO sources in the build process, with the
+ * compiler of the JDK running Maven.
+ * 
+ * Only the DTO sources changed since their last compilation are compiled : the
+ * other DTOs are found in the classes directory. The classes are compiled in
+ * memory, then written to the classes directory like the DTO sources, through
+ * a temporary file. The file manager of the compiler, and the archives of the
+ * classpath it has opened, are shared by the compilations until the compiler
+ * is closed.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class DTOCompilerImpl implements DTOCompiler {
+
+	/**
+	 * The compiler options always used.
+	 */
+	private static final List<String> COMPILER_OPTIONS = Arrays.asList("-g",
+			"-implicit:none", "-proc:none");
+
+	/**
+	 * The Java compiler, <code>null</code> if Maven does not run on a JDK.
+	 */
+	private final JavaCompiler compiler;
+
+	/**
+	 * The writer of the class files.
+	 */
+	private final DTOSourceWriter classWriter;
+
+	/**
+	 * The classpath of the compilation.
+	 */
+	private List<File> classpath;
+
+	/**
+	 * The directory of the DTO sources.
+	 */
+	private File sourceDirectory;
+
+	/**
+	 * The directory the DTO class files are written to.
+	 */
+	private File classesDirectory;
+
+	/**
+	 * The charset of the DTO sources.
+	 */
+	private Charset charset;
+
+	/**
+	 * The Java version the DTOs are compiled for, <code>null</code> for the
+	 * version of the compiler.
+	 */
+	private String targetVersion;
+
+	/**
+	 * The file manager shared by the compilations, <code>null</code> until
+	 * the first compilation.
+	 */
+	private StandardJavaFileManager fileManager;
+
+	/**
+	 * Constructor, with the compiler of the JDK running Maven.
+	 */
+	public DTOCompilerImpl() {
+		this(ToolProvider.getSystemJavaCompiler());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param compiler
+	 *            the Java compiler, <code>null</code> if none is available.
+	 */
+	public DTOCompilerImpl(final JavaCompiler compiler) {
+		this.compiler = compiler;
+		this.classWriter = new DTOSourceWriter(Charset.defaultCharset());
+		this.classpath = Collections.emptyList();
+		this.charset = Charset.defaultCharset();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOCompiler#setClasspath(java.util.List)
+	 */
+	@Override
+	public void setClasspath(final List<File> classpath) {
+		this.classpath = new ArrayList<File>(classpath);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOCompiler#setSourceDirectory(java.io.File)
+	 */
+	@Override
+	public void setSourceDirectory(final File sourceDirectory) {
+		this.sourceDirectory = sourceDirectory;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOCompiler#setClassesDirectory(java.io.File)
+	 */
+	@Override
+	public void setClassesDirectory(final File classesDirectory) {
+		this.classesDirectory = classesDirectory;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOCompiler#setEncoding(java.lang.String)
+	 */
+	@Override
+	public void setEncoding(final String encoding) {
+		Charset newCharset = Charset.defaultCharset();
+		if (encoding != null) {
+			newCharset = Charset.forName(encoding);
+		}
+		if (!newCharset.equals(this.charset)) {
+			this.charset = newCharset;
+			// The sources are decoded by the file manager.
+			this.closeFileManager();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOCompiler#setTargetVersion(java.lang.String)
+	 */
+	@Override
+	public void setTargetVersion(final String targetVersion) {
+		this.targetVersion = targetVersion;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOCompiler#compile(java.util.List)
+	 */
+	@Override
+	public int compile(final List<File> sourceFiles) throws IOException {
+		final List<File> staleSourceFiles = this.getStaleSourceFiles(sourceFiles);
+		if (staleSourceFiles.isEmpty()) {
+			return 0;
+		}
+		if (this.compiler == null) {
+			throw new IOException(
+					"No Java compiler is available : the DTOs can only be compiled when Maven runs on a JDK.");
+		}
+		final StandardJavaFileManager standardFileManager = this
+				.getFileManager();
+		final ClassOutputFileManager classOutputFileManager = new ClassOutputFileManager(
+				standardFileManager);
+		final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		final Boolean compiled = this.compiler.getTask(null,
+				classOutputFileManager, diagnostics, this.getOptions(), null,
+				standardFileManager.getJavaFileObjectsFromFiles(staleSourceFiles))
+				.call();
+		if (!compiled.booleanValue()) {
+			throw new IOException(this.getErrorMessage(diagnostics));
+		}
+		this.writeClasses(classOutputFileManager.getClassOutputs());
+		return staleSourceFiles.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOCompiler#removeClasses(java.util.List)
+	 */
+	@Override
+	public int removeClasses(final List<File> sourceFiles) throws IOException {
+		int removedCount = 0;
+		for (final File sourceFile : sourceFiles) {
+			final File classFile = this.getClassFile(sourceFile);
+			if (classFile == null) {
+				continue;
+			}
+			final File packageDirectory = classFile.getParentFile();
+			final String className = classFile.getName().substring(0,
+					classFile.getName().length() - ".class".length());
+			final File[] classFiles = packageDirectory.listFiles();
+			if (classFiles == null) {
+				continue;
+			}
+			for (final File file : classFiles) {
+				final String fileName = file.getName();
+				if (fileName.equals(classFile.getName())
+						|| fileName.startsWith(className + "$")
+						&& fileName.endsWith(".class")) {
+					if (!file.delete()) {
+						throw new IOException("The class file " + file
+								+ " can not be deleted.");
+					}
+					removedCount++;
+				}
+			}
+			this.removeEmptyDirectories(packageDirectory);
+		}
+		return removedCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOCompiler#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.fileManager != null) {
+			try {
+				this.fileManager.close();
+			} finally {
+				this.fileManager = null;
+			}
+		}
+	}
+
+	/**
+	 * Return the DTO sources whose class file is missing or older than the
+	 * source.
+	 * 
+	 * @param sourceFiles
+	 *            the DTO sources.
+	 * @return the DTO sources to compile.
+	 */
+	protected List<File> getStaleSourceFiles(final List<File> sourceFiles) {
+		final List<File> staleSourceFiles = new ArrayList<File>();
+		for (final File sourceFile : sourceFiles) {
+			final File classFile = this.getClassFile(sourceFile);
+			if (classFile == null || !classFile.isFile()
+					|| classFile.lastModified() < sourceFile.lastModified()) {
+				staleSourceFiles.add(sourceFile);
+			}
+		}
+		return staleSourceFiles;
+	}
+
+	/**
+	 * Return the class file compiled from a DTO source.
+	 * 
+	 * @param sourceFile
+	 *            the DTO source.
+	 * @return the class file, <code>null</code> if the source is not in the
+	 *         source directory.
+	 */
+	protected File getClassFile(final File sourceFile) {
+		if (this.sourceDirectory == null) {
+			return null;
+		}
+		final String sourceRoot = this.sourceDirectory.getAbsolutePath()
+				+ File.separator;
+		final String sourcePath = sourceFile.getAbsolutePath();
+		if (!sourcePath.startsWith(sourceRoot) || !sourcePath.endsWith(".java")) {
+			return null;
+		}
+		return new File(this.classesDirectory, sourcePath.substring(
+				sourceRoot.length(), sourcePath.length() - ".java".length())
+				+ ".class");
+	}
+
+	/**
+	 * Remove a package directory if it is empty, and its parents up to the
+	 * classes directory.
+	 * 
+	 * @param directory
+	 *            the package directory.
+	 */
+	private void removeEmptyDirectories(final File directory) {
+		final File root = this.classesDirectory.getAbsoluteFile();
+		File emptyDirectory = directory.getAbsoluteFile();
+		while (emptyDirectory != null && !emptyDirectory.equals(root)
+				&& emptyDirectory.delete()) {
+			emptyDirectory = emptyDirectory.getParentFile();
+		}
+	}
+
+	/**
+	 * Return the file manager shared by the compilations, with the locations
+	 * of this compilation.
+	 * 
+	 * @return the file manager.
+	 * @throws IOException
+	 *             if a location is not valid.
+	 */
+	private StandardJavaFileManager getFileManager() throws IOException {
+		if (this.fileManager == null) {
+			this.fileManager = this.compiler.getStandardFileManager(null, null,
+					this.charset);
+		}
+		final List<File> compilationClasspath = new ArrayList<File>(
+				this.classpath);
+		compilationClasspath.add(this.classesDirectory);
+		this.fileManager.setLocation(StandardLocation.CLASS_PATH,
+				compilationClasspath);
+		if (this.sourceDirectory != null) {
+			this.fileManager.setLocation(StandardLocation.SOURCE_PATH,
+					Collections.singletonList(this.sourceDirectory));
+		}
+		return this.fileManager;
+	}
+
+	/**
+	 * Close the file manager, so that the next compilation creates a new one.
+	 */
+	private void closeFileManager() {
+		try {
+			this.close();
+		} catch (final IOException e) {
+			// The file manager is not used anymore.
+		}
+	}
+
+	/**
+	 * Return the compiler options.
+	 * 
+	 * @return the options.
+	 */
+	private List<String> getOptions() {
+		final List<String> options = new ArrayList<String>(COMPILER_OPTIONS);
+		if (this.targetVersion != null) {
+			options.add("-source");
+			options.add(this.targetVersion);
+			options.add("-target");
+			options.add(this.targetVersion);
+		}
+		return options;
+	}
+
+	/**
+	 * Return the message of a failed compilation.
+	 * 
+	 * @param diagnostics
+	 *            the diagnostics of the compilation.
+	 * @return the message, with the compilation errors.
+	 */
+	private String getErrorMessage(
+			final DiagnosticCollector<JavaFileObject> diagnostics) {
+		final StringBuilder message = new StringBuilder(
+				"The DTOs can not be compiled :");
+		for (final Diagnostic<? extends JavaFileObject> diagnostic : diagnostics
+				.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+				message.append('\n').append(diagnostic);
+			}
+		}
+		return message.toString();
+	}
+
+	/**
+	 * Write the classes compiled to the classes directory.
+	 * 
+	 * @param classOutputs
+	 *            the classes compiled.
+	 * @throws IOException
+	 *             if a class file can not be written.
+	 */
+	private void writeClasses(final List<ClassOutput> classOutputs)
+			throws IOException {
+		final DTOPackageDirectories packageDirectories = new DTOPackageDirectories(
+				this.classesDirectory);
+		for (final ClassOutput classOutput : classOutputs) {
+			final String className = classOutput.getClassName();
+			final int packageEnd = className.lastIndexOf('.');
+			final File classFile = new File(
+					packageDirectories.makeDirectory(className.substring(0,
+							Math.max(packageEnd, 0))),
+					className.substring(packageEnd + 1) + ".class");
+			if (!this.classWriter.write(classFile, classOutput.getBytes())) {
+				// The class file is up to date with its source.
+				classFile.setLastModified(System.currentTimeMillis());
+			}
+		}
+	}
+
+	/**
+	 * File manager keeping the classes compiled in memory.
+	 */
+	private static final class ClassOutputFileManager extends
+			ForwardingJavaFileManager<StandardJavaFileManager> {
+
+		/**
+		 * The classes compiled.
+		 */
+		private final List<ClassOutput> classOutputs;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param fileManager
+		 *            the file manager shared by the compilations.
+		 */
+		private ClassOutputFileManager(final StandardJavaFileManager fileManager) {
+			super(fileManager);
+			this.classOutputs = new ArrayList<ClassOutput>();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see javax.tools.ForwardingJavaFileManager#getJavaFileForOutput(javax.tools.JavaFileManager.Location,
+		 *      java.lang.String, javax.tools.JavaFileObject.Kind,
+		 *      javax.tools.FileObject)
+		 */
+		@Override
+		public JavaFileObject getJavaFileForOutput(final Location location,
+				final String className, final Kind kind,
+				final FileObject sibling) throws IOException {
+			if (kind == Kind.CLASS) {
+				final ClassOutput classOutput = new ClassOutput(className);
+				this.classOutputs.add(classOutput);
+				return classOutput;
+			}
+			return super.getJavaFileForOutput(location, className, kind,
+					sibling);
+		}
+
+		/**
+		 * {@inheritDoc} The shared file manager is not closed.
+		 * 
+		 * @see javax.tools.ForwardingJavaFileManager#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			this.flush();
+		}
+
+		/**
+		 * @return the classes compiled.
+		 */
+		private List<ClassOutput> getClassOutputs() {
+			return this.classOutputs;
+		}
+	}
+
+	/**
+	 * A class compiled in memory.
+	 */
+	private static final class ClassOutput extends SimpleJavaFileObject {
+
+		/**
+		 * The binary name of the class.
+		 */
+		private final String className;
+
+		/**
+		 * The bytecode of the class.
+		 */
+		private final ByteArrayOutputStream bytecode;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param className
+		 *            the binary name of the class.
+		 */
+		private ClassOutput(final String className) {
+			super(URI.create("bytes:///" + className.replace('.', '/')
+					+ Kind.CLASS.extension), Kind.CLASS);
+			this.className = className;
+			this.bytecode = new ByteArrayOutputStream();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see javax.tools.SimpleJavaFileObject#openOutputStream()
+		 */
+		@Override
+		public OutputStream openOutputStream() {
+			return this.bytecode;
+		}
+
+		/**
+		 * @return the binary name of the class.
+		 */
+		private String getClassName() {
+			return this.className;
+		}
+
+		/**
+		 * @return the bytecode of the class.
+		 */
+		private byte[] getBytes() {
+			return this.bytecode.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+/**
+ * Immutable description of a DTO field : its type resolved and the name of
+ * its accessors.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public final class DTOFieldModel {
+
+	/**
+	 * The field name.
+	 */
+	private final String name;
+
+	/**
+	 * The simple name of the type of the field in the source class.
+	 */
+	private final String sourceTypeSimpleName;
+
+	/**
+	 * The type of the field in the DTO.
+	 */
+	private final String dtoType;
+
+	/**
+	 * The JVM descriptor of the type of the field in the DTO.
+	 */
+	private final String descriptor;
+
+	/**
+	 * The JVM generic signature of the type of the field in the DTO,
+	 * <code>null</code> if the type is not generic.
+	 */
+	private final String signature;
+
+	/**
+	 * The getter name.
+	 */
+	private final String getterName;
+
+	/**
+	 * The setter name.
+	 */
+	private final String setterName;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param name
+	 *            the field name.
+	 * @param sourceTypeSimpleName
+	 *            the simple name of the type of the field in the source class.
+	 * @param dtoType
+	 *            the type of the field in the DTO.
+	 * @param descriptor
+	 *            the JVM descriptor of the type of the field in the DTO.
+	 * @param signature
+	 *            the JVM generic signature of the type of the field in the
+	 *            DTO, <code>null</code> if the type is not generic.
+	 * @param getterName
+	 *            the getter name.
+	 * @param setterName
+	 *            the setter name.
+	 */
+	public DTOFieldModel(final String name, final String sourceTypeSimpleName,
+			final String dtoType, final String descriptor,
+			final String signature, final String getterName,
+			final String setterName) {
+		this.name = name;
+		this.sourceTypeSimpleName = sourceTypeSimpleName;
+		this.dtoType = dtoType;
+		this.descriptor = descriptor;
+		this.signature = signature;
+		this.getterName = getterName;
+		this.setterName = setterName;
+	}
+
+	/**
+	 * @return the field name.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @return the simple name of the type of the field in the source class.
+	 */
+	public String getSourceTypeSimpleName() {
+		return this.sourceTypeSimpleName;
+	}
+
+	/**
+	 * @return the type of the field in the DTO.
+	 */
+	public String getDTOType() {
+		return this.dtoType;
+	}
+
+	/**
+	 * @return the JVM descriptor of the type of the field in the DTO.
+	 */
+	public String getDescriptor() {
+		return this.descriptor;
+	}
+
+	/**
+	 * @return the JVM generic signature of the type of the field in the DTO,
+	 *         <code>null</code> if the type is not generic.
+	 */
+	public String getSignature() {
+		return this.signature;
+	}
+
+	/**
+	 * @return the getter name.
+	 */
+	public String getGetterName() {
+		return this.getterName;
+	}
+
+	/**
+	 * @return the setter name.
+	 */
+	public String getSetterName() {
+		return this.setterName;
+	}
+}
@@ -4,19 +4,33 @@
 package fr.maven.dto.generator.impl;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.text.SimpleDateFormat;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
 
+import fr.maven.dto.generator.DTOGenerationException;
 import fr.maven.dto.generator.DTOGenerator;
 
 /**
@@ -28,14 +42,49 @@ import fr.maven.dto.generator.DTOGenerator;
 public class DTOGeneratorImpl implements DTOGenerator {
 
 	/**
-	 * File writes associated to classes.
+	 * Version of the generated code. Change it when the generated code changes
+	 * so that all the DTOs are generated again.
 	 */
-	protected final Map<Class<?>, FileWriter> fileWriters;
+	static final String GENERATOR_VERSION = "3";
 
 	/**
-	 * The classes list we want to generate for.
+	 * Default number of classes loaded waiting for their generation.
 	 */
-	protected List<Class<?>> classesToGenerate;
+	private static final int DEFAULT_QUEUE_SIZE = 64;
+
+	/**
+	 * The maximum number of DTO models kept by the JVM.
+	 */
+	private static final int RESIDENT_CAPACITY = 4096;
+
+	/**
+	 * The DTO models kept by the JVM, by key of the generator, of the class
+	 * and of the DTO types of its fields, so that the modules of a reactor and
+	 * the next builds of a Maven daemon do not build them again.
+	 */
+	private static final ResidentCache<String, DTOModel> RESIDENT_MODELS = new ResidentCache<String, DTOModel>(
+			RESIDENT_CAPACITY);
+
+	/**
+	 * The classes imported by the DTOs.
+	 */
+	private static final List<String> DTO_IMPORTS = Collections
+			.singletonList("java.io.Serializable");
+
+	/**
+	 * The emitter of the DTO sources.
+	 */
+	protected final DTOSourceRenderer sourceRenderer;
+
+	/**
+	 * The emitter of the DTO class files.
+	 */
+	protected final DTOBytecodeRenderer bytecodeRenderer;
+
+	/**
+	 * The index of the classes we want to generate for.
+	 */
+	protected DTOTypeIndex classesToGenerate;
 
 	/**
 	 * The directory where DTOs will be generated.
@@ -43,51 +92,764 @@ public class DTOGeneratorImpl implements DTOGenerator {
 	protected File generatedDirectory;
 
 	/**
-	 * Constructor.
+	 * The directory the DTO class files are written to, <code>null</code> to
+	 * generate the DTO sources only.
+	 */
+	protected File classesDirectory;
+
+	/**
+	 * <code>true</code> to write the DTO sources in the generated directory.
+	 */
+	protected boolean generateSources;
+
+	/**
+	 * The file where the state of the generation is kept between two builds,
+	 * <code>null</code> to generate all the DTOs.
+	 */
+	protected File stateFile;
+
+	/**
+	 * The charset of the generated DTOs.
+	 */
+	protected Charset charset;
+
+	/**
+	 * The number of threads generating the DTOs.
+	 */
+	protected int generationThreads;
+
+	/**
+	 * The number of classes loaded waiting for their generation, when the DTOs
+	 * are generated in parallel.
+	 */
+	protected int queueSize;
+
+	/**
+	 * <code>true</code> to force the DTO files and the generation state to the
+	 * disk before they replace the previous ones.
+	 */
+	protected boolean syncOutput;
+
+	/**
+	 * The shard of the classes generated, <code>null</code> to generate all
+	 * the DTOs.
+	 */
+	protected Shard shard;
+
+	/**
+	 * The manifest of the shard being generated, <code>null</code> when the
+	 * DTOs are not sharded.
+	 */
+	private ShardManifest shardManifest;
+
+	/**
+	 * The output of the DTOs, <code>null</code> until the first DTO is
+	 * generated.
+	 */
+	private DTOOutputSession outputSession;
+
+	/**
+	 * The package directories of the DTOs, <code>null</code> until a DTO
+	 * package is used. Each generation resolves and creates them again.
+	 */
+	private DTOPackageDirectories packageDirectories;
+
+	/**
+	 * The package directories of the DTO class files, <code>null</code> until
+	 * a DTO class file is written. Each generation resolves and creates them
+	 * again.
+	 */
+	private DTOPackageDirectories classPackageDirectories;
+
+	/**
+	 * The DTO sources of the last generation.
+	 */
+	private List<File> dtoSourceFiles;
+
+	/**
+	 * The DTO sources removed by the last generation.
+	 */
+	private List<File> removedDTOSourceFiles;
+
+	/**
+	 * The output session of the DTO being generated by the current thread,
+	 * when the DTOs are generated in parallel.
+	 */
+	private final ThreadLocal<DTOOutputSession> threadOutputSession;
+
+	/**
+	 * The analysis of the class being generated by the current thread.
+	 */
+	private final ThreadLocal<ClassAnalysis> classAnalysis;
+
+	/**
+	 * Constructor.
+	 */
+	public DTOGeneratorImpl() {
+		this.classesToGenerate = new DTOTypeIndex();
+		this.charset = Charset.defaultCharset();
+		this.sourceRenderer = new DTOSourceRenderer();
+		this.bytecodeRenderer = new DTOBytecodeRenderer();
+		this.generateSources = true;
+		this.dtoSourceFiles = Collections.emptyList();
+		this.removedDTOSourceFiles = Collections.emptyList();
+		this.generationThreads = 1;
+		this.queueSize = DEFAULT_QUEUE_SIZE;
+		this.threadOutputSession = new ThreadLocal<DTOOutputSession>();
+		this.classAnalysis = new ThreadLocal<ClassAnalysis>();
+	}
+
+	/**
+	 * Set the DTOs generated directory.
+	 * 
+	 * @param generatedDirectory
+	 *            the DTOs generated directory to set
+	 */
+	@Override
+	public void setGeneratedDirectory(final File generatedDirectory) {
+		this.generatedDirectory = generatedDirectory;
+		this.packageDirectories = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOGenerator#setClassesDirectory(java.io.File)
+	 */
+	@Override
+	public void setClassesDirectory(final File classesDirectory) {
+		this.classesDirectory = classesDirectory;
+		this.classPackageDirectories = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOGenerator#setGenerateSources(boolean)
+	 */
+	@Override
+	public void setGenerateSources(final boolean generateSources) {
+		this.generateSources = generateSources;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOGenerator#setStateFile(java.io.File)
+	 */
+	@Override
+	public void setStateFile(final File stateFile) {
+		this.stateFile = stateFile;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOGenerator#setEncoding(java.lang.String)
+	 */
+	@Override
+	public void setEncoding(final String encoding) {
+		if (encoding == null) {
+			this.charset = Charset.defaultCharset();
+		} else {
+			this.charset = Charset.forName(encoding);
+		}
+		this.outputSession = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOGenerator#setGenerationThreads(int)
+	 */
+	@Override
+	public void setGenerationThreads(final int generationThreads) {
+		if (generationThreads > 0) {
+			this.generationThreads = generationThreads;
+		} else {
+			this.generationThreads = Runtime.getRuntime()
+					.availableProcessors();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOGenerator#setSyncOutput(boolean)
+	 */
+	@Override
+	public void setSyncOutput(final boolean syncOutput) {
+		this.syncOutput = syncOutput;
+		this.outputSession = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOGenerator#setQueueSize(int)
+	 */
+	@Override
+	public void setQueueSize(final int queueSize) {
+		if (queueSize > 0) {
+			this.queueSize = queueSize;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOGenerator#setShard(int, int)
+	 */
+	@Override
+	public void setShard(final int shardCount, final int shardIndex) {
+		if (shardCount > 1) {
+			this.shard = new Shard(shardCount, shardIndex);
+		} else {
+			this.shard = null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOGenerator#generateDTOs(java.util.List)
+	 */
+	@Override
+	public void generateDTOs(final List<Class<?>> classes) throws IOException {
+		final Map<String, Class<?>> classesByName = new LinkedHashMap<String, Class<?>>();
+		for (final Class<?> clazz : classes) {
+			classesByName.put(clazz.getName(), clazz);
+		}
+		this.generateDTOs(new ArrayList<String>(classesByName.keySet()),
+				new ClassSource() {
+					@Override
+					public Class<?> load(final String className) {
+						return classesByName.get(className);
+					}
+				});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOGenerator#generateDTOs(java.lang.ClassLoader,
+	 *      java.util.List)
+	 */
+	@Override
+	public void generateDTOs(final ClassLoader classLoader,
+			final List<String> classNames) throws IOException {
+		this.generateDTOs(new ArrayList<String>(new LinkedHashSet<String>(
+				classNames)), new ClassSource() {
+			@Override
+			public Class<?> load(final String className)
+					throws ClassNotFoundException {
+				return classLoader.loadClass(className);
+			}
+		});
+	}
+
+	/**
+	 * Generate the DTOs of the classes given. The DTO types depend on the
+	 * names of all the classes to generate, known before any class is loaded
+	 * : then each class is loaded, fingerprinted and generated if outdated,
+	 * one after the other or by a pool of threads fed through a bounded queue.
+	 * A class is no longer referenced once its DTO is generated.
+	 * 
+	 * The generation owns its output directories and its state file until it
+	 * ends : another generation of the JVM using one of them waits.
+	 * 
+	 * With a shard, all the classes are indexed but only the classes of the
+	 * shard are loaded and generated, then the manifest of the shard is
+	 * written.
+	 * 
+	 * @param classNames
+	 *            the names of the classes to generate, without duplicates.
+	 * @param classSource
+	 *            the source of the classes.
+	 * @throws IOException
+	 *             if the creation of dtos failed.
+	 */
+	private void generateDTOs(final List<String> classNames,
+			final ClassSource classSource) throws IOException {
+		final OutputLocks outputLocks = OutputLocks.lock(
+				this.generatedDirectory, this.classesDirectory, this.stateFile);
+		try {
+			this.classesToGenerate = new DTOTypeIndex(classNames);
+			List<String> shardClassNames = classNames;
+			if (this.shard != null) {
+				shardClassNames = this.shard.filter(classNames);
+				this.shardManifest = new ShardManifest(this.shard, classNames);
+			}
+			this.packageDirectories = new DTOPackageDirectories(
+					this.generatedDirectory);
+			if (this.classesDirectory != null) {
+				this.classPackageDirectories = new DTOPackageDirectories(
+						this.classesDirectory);
+			}
+			final GenerationState previousState = GenerationState
+					.load(this.stateFile);
+			final GenerationState state = new GenerationState();
+			state.setSettings(this.getOutputSettings());
+			final Set<String> changedClassNames = this.getChangedClassNames(
+					previousState, shardClassNames);
+			final Pipeline pipeline = new Pipeline(previousState, state,
+					changedClassNames);
+			if (this.generationThreads > 1 && shardClassNames.size() > 1) {
+				pipeline.runInParallel(shardClassNames, classSource);
+			} else {
+				pipeline.run(shardClassNames, classSource);
+			}
+			final Map<String, Throwable> errors = pipeline
+					.getErrors(shardClassNames);
+			if (!errors.isEmpty()) {
+				throw new DTOGenerationException(errors);
+			}
+			this.removedDTOSourceFiles = this.removeStaleDTOs(previousState,
+					state);
+			this.dtoSourceFiles = this.getDTOSourceFiles(state);
+			final File manifestFile = new File(this.generatedDirectory,
+					ShardManifest.FILE_NAME);
+			if (this.shardManifest != null) {
+				this.shardManifest.save(manifestFile, this.syncOutput);
+			} else if (manifestFile.isFile() && !manifestFile.delete()) {
+				throw new IOException("The shard manifest " + manifestFile
+						+ " can not be deleted.");
+			}
+			if (this.stateFile != null) {
+				state.save(this.stateFile, this.syncOutput);
+			}
+		} finally {
+			// The generator must not keep the classes, nor their classloader.
+			this.classesToGenerate = new DTOTypeIndex();
+			// The directories may be removed before the next generation.
+			this.packageDirectories = null;
+			this.classPackageDirectories = null;
+			this.shardManifest = null;
+			outputLocks.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOGenerator#getDTOSourceFiles()
+	 */
+	@Override
+	public List<File> getDTOSourceFiles() {
+		return this.dtoSourceFiles;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.maven.dto.generator.DTOGenerator#getRemovedDTOSourceFiles()
+	 */
+	@Override
+	public List<File> getRemovedDTOSourceFiles() {
+		return this.removedDTOSourceFiles;
+	}
+
+	/**
+	 * Return the DTO sources of the classes of a generation.
+	 * 
+	 * @param state
+	 *            the state of the generation.
+	 * @return the DTO sources, empty if the sources are not generated.
+	 */
+	private List<File> getDTOSourceFiles(final GenerationState state) {
+		final List<File> sourceFiles = new ArrayList<File>();
+		if (this.generateSources) {
+			final File root = this.generatedDirectory.getAbsoluteFile();
+			for (final String className : state.getClassNames()) {
+				sourceFiles.add(new File(root, state.getOutput(className)));
+			}
+		}
+		return Collections.unmodifiableList(sourceFiles);
+	}
+
+	/**
+	 * Record a class in the state of the generation, and generate its DTO if
+	 * it is outdated.
+	 * 
+	 * The state of a shard does not know the classes of the other shards : the
+	 * fingerprint recorded is then the key of the DTO model, which changes
+	 * when a referenced class enters or leaves the classes to generate.
+	 * 
+	 * The fingerprint, the referenced classes and the DTO model of the class
+	 * are computed once, whatever the number of times the generation of the
+	 * class needs them.
+	 * 
+	 * @param clazz
+	 *            the class to generate.
+	 * @param previousState
+	 *            the state of the previous generation.
+	 * @param state
+	 *            the state of the current generation.
+	 * @param changedClassNames
+	 *            the names of the classes that entered or left the classes to
+	 *            generate.
+	 * @throws IOException
+	 *             if the creation of the DTO failed.
+	 */
+	protected void generateIfOutdated(final Class<?> clazz,
+			final GenerationState previousState, final GenerationState state,
+			final Set<String> changedClassNames) throws IOException {
+		final String className = clazz.getName();
+		final ClassAnalysis analysis = new ClassAnalysis(clazz);
+		this.classAnalysis.set(analysis);
+		try {
+			if (this.shardManifest == null) {
+				state.putFingerprint(className, analysis.getFingerprint());
+			} else {
+				state.putFingerprint(className, analysis.getModelKey());
+				this.recordInShardManifest(clazz);
+			}
+			state.putReferences(className, this.getReferencedClassNames(clazz));
+			state.putOutput(className, this.getDTOPath(clazz));
+			if (this.isOutdated(clazz, previousState, state, changedClassNames)) {
+				this.generateDTO(clazz);
+			}
+		} finally {
+			this.classAnalysis.remove();
+		}
+	}
+
+	/**
+	 * Return the analysis of a class : the analysis of the class being
+	 * generated by the current thread, or a new one.
+	 * 
+	 * @param clazz
+	 *            the class.
+	 * @return the analysis of the class.
+	 */
+	private ClassAnalysis getClassAnalysis(final Class<?> clazz) {
+		final ClassAnalysis analysis = this.classAnalysis.get();
+		if (analysis != null && analysis.clazz == clazz) {
+			return analysis;
+		}
+		return new ClassAnalysis(clazz);
+	}
+
+	/**
+	 * Record a class in the manifest of the shard : its DTO, and the DTO types
+	 * its fields got for the classes of the other shards.
+	 * 
+	 * @param clazz
+	 *            the class of the shard.
+	 */
+	protected void recordInShardManifest(final Class<?> clazz) {
+		final String className = clazz.getName();
+		String output = null;
+		if (this.generateSources) {
+			output = this.getDTOPath(clazz);
+		}
+		this.shardManifest.putClass(className, this.getDTOPackage(clazz) + "."
+				+ clazz.getSimpleName() + "DTO", output);
+		for (final Class<?> referencedClass : this.getClassAnalysis(clazz)
+				.getReferencedClasses()) {
+			if (this.isClassToGenerate(referencedClass)
+					&& !this.shard.contains(referencedClass.getName())) {
+				this.shardManifest.putReference(className, referencedClass
+						.getName(), this.getDTOPackage(referencedClass) + "."
+						+ this.classesToGenerate
+								.getDTOSimpleName(referencedClass));
+			}
+		}
+	}
+
+	/**
+	 * Return the names of the classes that entered or left the classes to
+	 * generate since the previous generation.
+	 * 
+	 * @param previousState
+	 *            the state of the previous generation.
+	 * @param classNames
+	 *            the names of the classes to generate.
+	 * @return the names of the classes added or removed.
+	 */
+	protected Set<String> getChangedClassNames(
+			final GenerationState previousState,
+			final Collection<String> classNames) {
+		final Set<String> changedClassNames = new HashSet<String>(classNames);
+		final Set<String> previousClassNames = previousState.getClassNames();
+		changedClassNames.removeAll(previousClassNames);
+		previousClassNames.removeAll(classNames);
+		changedClassNames.addAll(previousClassNames);
+		return changedClassNames;
+	}
+
+	/**
+	 * Return the settings of the generation the DTO files depend on, besides
+	 * the fingerprint of each class : the generator, the encoding of the DTO
+	 * sources and the DTO files generated.
+	 * 
+	 * @return the settings.
+	 */
+	protected String getOutputSettings() {
+		return "generator=" + this.getDTOModelScope() + ";charset="
+				+ this.charset.name() + ";sources=" + this.generateSources
+				+ ";classes=" + (this.classesDirectory != null);
+	}
+
+	/**
+	 * Check if the DTO of a class must be generated again : the settings of
+	 * the generation or its fingerprint have changed, one of its DTO files is
+	 * missing, or it references a class that entered or left the classes to
+	 * generate, as the DTO type of the field has changed.
+	 * 
+	 * @param clazz
+	 *            the class, recorded in the current state.
+	 * @param previousState
+	 *            the state of the previous generation.
+	 * @param state
+	 *            the state of the current generation.
+	 * @param changedClassNames
+	 *            the names of the classes that entered or left the classes to
+	 *            generate.
+	 * @return <code>true</code> if the DTO is outdated.
+	 */
+	protected boolean isOutdated(final Class<?> clazz,
+			final GenerationState previousState, final GenerationState state,
+			final Set<String> changedClassNames) {
+		final String className = clazz.getName();
+		return !state.getSettings().equals(previousState.getSettings())
+				|| !state.getFingerprint(className).equals(
+						previousState.getFingerprint(className))
+				|| !Collections.disjoint(state.getReferences(className),
+						changedClassNames)
+				|| this.isDTOMissing(clazz);
+	}
+
+	/**
+	 * Check if a DTO file of a class is missing : its source, or its class
+	 * file when the class files are generated.
+	 * 
+	 * @param clazz
+	 *            the class.
+	 * @return <code>true</code> if a DTO file must be written.
+	 */
+	protected boolean isDTOMissing(final Class<?> clazz) {
+		return this.generateSources && !this.getDTOFile(clazz).isFile()
+				|| this.classesDirectory != null
+				&& !this.getDTOClassFile(clazz).isFile();
+	}
+
+	/**
+	 * Remove the DTO files generated by the previous generation that are no
+	 * longer generated, and the package directories left empty.
+	 * 
+	 * @param previousState
+	 *            the state of the previous generation.
+	 * @param state
+	 *            the state of the current generation.
+	 * @return the DTO sources removed, so that the classes compiled from them
+	 *         can be removed too.
+	 * @throws IOException
+	 *             if a DTO file can not be removed.
+	 */
+	protected List<File> removeStaleDTOs(final GenerationState previousState,
+			final GenerationState state) throws IOException {
+		final Set<String> outputs = state.getOutputs();
+		final File root = this.generatedDirectory.getAbsoluteFile();
+		final List<File> removedSourceFiles = new ArrayList<File>();
+		for (final String className : previousState.getClassNames()) {
+			final String output = previousState.getOutput(className);
+			if (output != null && !outputs.contains(output)) {
+				this.removeStaleFile(this.generatedDirectory, output);
+				removedSourceFiles.add(new File(root, output));
+				if (this.classesDirectory != null) {
+					this.removeStaleFile(this.classesDirectory, output
+							.substring(0, output.lastIndexOf('.'))
+							+ ".class");
+				}
+			}
+		}
+		return Collections.unmodifiableList(removedSourceFiles);
+	}
+
+	/**
+	 * Remove a DTO file no longer generated, and its directories left empty.
+	 * 
+	 * @param directory
+	 *            the directory the DTO file is generated in.
+	 * @param path
+	 *            the path of the DTO file relative to the directory.
+	 * @throws IOException
+	 *             if the DTO file can not be removed.
+	 */
+	private void removeStaleFile(final File directory, final String path)
+			throws IOException {
+		final File root = directory.getAbsoluteFile();
+		final File staleFile = new File(root, path);
+		if (staleFile.isFile() && !staleFile.delete()) {
+			throw new IOException("The file " + staleFile
+					+ " can not be deleted.");
+		}
+		this.removeEmptyDirectories(root, staleFile.getParentFile());
+	}
+
+	/**
+	 * Remove a directory if it is empty, and its parents up to the root
+	 * directory.
+	 * 
+	 * @param root
+	 *            the root directory, never removed.
+	 * @param directory
+	 *            the directory.
+	 */
+	private void removeEmptyDirectories(final File root, final File directory) {
+		File emptyDirectory = directory;
+		while (emptyDirectory != null && !emptyDirectory.equals(root)
+				&& emptyDirectory.delete()) {
+			emptyDirectory = emptyDirectory.getParentFile();
+		}
+	}
+
+	/**
+	 * Compute the structural fingerprint of a class : the class name, and the
+	 * name and generic type of its fields. The classes to generate among the
+	 * classes referenced by the fields are tracked by the dependency graph of
+	 * the generation state.
+	 * 
+	 * @param clazz
+	 *            the class we want to generate DTO for.
+	 * @return the fingerprint.
+	 */
+	protected String computeFingerprint(final Class<?> clazz) {
+		final Fingerprint fingerprint = new Fingerprint();
+		fingerprint.add(GENERATOR_VERSION).add(clazz.getName());
+		for (final Field field : clazz.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				fingerprint.add(field.getName()).add(
+						field.getGenericType().toString());
+			}
+		}
+		return fingerprint.toHexString();
+	}
+
+	/**
+	 * Return the names of the classes referenced by the fields of a class :
+	 * the field types, their type arguments and their array component types.
+	 * 
+	 * @param clazz
+	 *            the class we want to generate DTO for.
+	 * @return the referenced class names.
+	 */
+	protected Set<String> getReferencedClassNames(final Class<?> clazz) {
+		final Set<String> referencedClassNames = new LinkedHashSet<String>();
+		for (final Class<?> referencedClass : this.getClassAnalysis(clazz)
+				.getReferencedClasses()) {
+			referencedClassNames.add(referencedClass.getName());
+		}
+		return referencedClassNames;
+	}
+
+	/**
+	 * Return the classes referenced by the fields of a class : the field
+	 * types, their type arguments and their array component types.
+	 * 
+	 * @param clazz
+	 *            the class we want to generate DTO for.
+	 * @return the referenced classes, primitive types excluded.
+	 */
+	protected Set<Class<?>> getReferencedClasses(final Class<?> clazz) {
+		final Set<Class<?>> referencedClasses = new LinkedHashSet<Class<?>>();
+		for (final Field field : clazz.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				this.addReferencedClasses(referencedClasses,
+						field.getGenericType());
+			}
+		}
+		return referencedClasses;
+	}
+
+	/**
+	 * Add the classes referenced by a type.
+	 * 
+	 * @param referencedClasses
+	 *            the referenced classes.
+	 * @param type
+	 *            the type.
 	 */
-	public DTOGeneratorImpl() {
-		this.classesToGenerate = new ArrayList<Class<?>>();
-		this.fileWriters = new HashMap<Class<?>, FileWriter>();
+	private void addReferencedClasses(final Set<Class<?>> referencedClasses,
+			final Type type) {
+		if (type instanceof ParameterizedType) {
+			final ParameterizedType parameterizedType = (ParameterizedType) type;
+			this.addReferencedClasses(referencedClasses,
+					parameterizedType.getRawType());
+			for (final Type typeArgument : parameterizedType
+					.getActualTypeArguments()) {
+				this.addReferencedClasses(referencedClasses, typeArgument);
+			}
+		} else if (type instanceof Class<?>) {
+			final Class<?> referencedClass = this
+					.getArrayComponentType((Class<?>) type);
+			if (!referencedClass.isPrimitive()) {
+				referencedClasses.add(referencedClass);
+			}
+		}
 	}
 
 	/**
-	 * Set the DTOs generated directory.
+	 * {@inheritDoc}
 	 * 
-	 * @param generatedDirectory
-	 *            the DTOs generated directory to set
+	 * @see fr.maven.dto.generator.DTOGenerator#generateDTO(java.lang.Class)
 	 */
 	@Override
-	public void setGeneratedDirectory(final File generatedDirectory) {
-		this.generatedDirectory = generatedDirectory;
+	public void generateDTO(final Class<?> clazz) throws IOException {
+		if (this.generateSources) {
+			this.makeDTOPackage(clazz);
+			final DTOOutputSession session = this.getOutputSession();
+			session.open(clazz, this.getDTOFile(clazz));
+			try {
+				this.makeDTOClass(clazz);
+				session.close();
+			} finally {
+				session.release();
+			}
+		}
+		if (this.classesDirectory != null) {
+			this.makeDTOClassFile(clazz);
+		}
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Write the class file of the DTO of a class, so that the DTO does not
+	 * need to be compiled.
 	 * 
-	 * @see fr.maven.dto.generator.DTOGenerator#generateDTOs(java.util.List)
+	 * @param clazz
+	 *            the clazz we want a DTO for.
+	 * @throws IOException
+	 *             if the class file is not writable.
 	 */
-	@Override
-	public void generateDTOs(final List<Class<?>> classes) throws IOException {
-		this.classesToGenerate = classes;
-		for (final Class<?> clazz : classes) {
-			this.generateDTO(clazz);
-		}
+	protected void makeDTOClassFile(final Class<?> clazz) throws IOException {
+		this.getClassPackageDirectories().makeDirectory(
+				this.getDTOPackage(clazz));
+		this.getOutputSession().writeClass(this.getDTOClassFile(clazz),
+				this.bytecodeRenderer.renderClass(this.getDTOModel(clazz)));
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Return the output of the DTOs : the session of the current thread when
+	 * the DTOs are generated in parallel, the session of the generator
+	 * otherwise.
 	 * 
-	 * @see fr.maven.dto.generator.DTOGenerator#generateDTO(java.lang.Class)
+	 * @return the output session.
 	 */
-	@Override
-	public void generateDTO(final Class<?> clazz) throws IOException {
-		this.makeDTOPackage(clazz);
-		this.makeDTOClass(clazz);
-		this.getDTOClassFileWriter(clazz).close();
+	private DTOOutputSession getOutputSession() {
+		final DTOOutputSession session = this.threadOutputSession.get();
+		if (session != null) {
+			return session;
+		}
+		if (this.outputSession == null) {
+			this.outputSession = new DTOOutputSession(this.charset,
+					this.syncOutput);
+		}
+		return this.outputSession;
 	}
 
 	/**
-	 * Create the directory of the class package.
+	 * Create the directory of the class package, once per generation.
 	 * 
 	 * @param clazz
 	 *            the class we want to create the package directory for.
@@ -95,18 +857,33 @@ public class DTOGeneratorImpl implements DTOGenerator {
 	 *             if the directory creation failed.
 	 */
 	protected void makeDTOPackage(final Class<?> clazz) throws IOException {
-		final File packageDirectory = new File(
-				this.generatedDirectory.getAbsolutePath()
-						+ File.separator
-						+ this.getDTOPackage(clazz).replace('.',
-								File.separatorChar));
-		if (!packageDirectory.exists()) {
-			final boolean directoryCreated = packageDirectory.mkdirs();
-			if (!directoryCreated) {
-				throw new IOException(
-						"The generated directory can not be created.");
-			}
+		this.getPackageDirectories().makeDirectory(this.getDTOPackage(clazz));
+	}
+
+	/**
+	 * Return the package directories of the DTOs.
+	 * 
+	 * @return the package directories.
+	 */
+	private DTOPackageDirectories getPackageDirectories() {
+		if (this.packageDirectories == null) {
+			this.packageDirectories = new DTOPackageDirectories(
+					this.generatedDirectory);
+		}
+		return this.packageDirectories;
+	}
+
+	/**
+	 * Return the package directories of the DTO class files.
+	 * 
+	 * @return the package directories.
+	 */
+	private DTOPackageDirectories getClassPackageDirectories() {
+		if (this.classPackageDirectories == null) {
+			this.classPackageDirectories = new DTOPackageDirectories(
+					this.classesDirectory);
 		}
+		return this.classPackageDirectories;
 	}
 
 	/**
@@ -125,7 +902,7 @@ public class DTOGeneratorImpl implements DTOGenerator {
 	 * 
 	 * @param clazz
 	 *            the class to check.
-	 * @return <code>true</code> if the classes list contains the class.
+	 * @return <code>true</code> if the classes index contains the class.
 	 */
 	protected boolean isClassToGenerate(final Class<?> clazz) {
 		return this.classesToGenerate.contains(clazz);
@@ -145,7 +922,8 @@ public class DTOGeneratorImpl implements DTOGenerator {
 	}
 
 	/**
-	 * Return the type canonical name for the field type given.
+	 * Return the type canonical name for the field type given. The type is
+	 * rendered once per package of DTO.
 	 * 
 	 * @param clazz
 	 *            the class that contains the field.
@@ -154,12 +932,32 @@ public class DTOGeneratorImpl implements DTOGenerator {
 	 * @return the type canonical name.
 	 */
 	protected String getDTOType(final Class<?> clazz, final Type type) {
-		final StringBuffer typeSimpleName = new StringBuffer();
+		final String packageName = clazz.getPackage().getName();
+		String dtoType = this.classesToGenerate.getDTOType(packageName, type);
+		if (dtoType == null) {
+			dtoType = this.renderDTOType(clazz, type);
+			this.classesToGenerate.putDTOType(packageName, type, dtoType);
+		}
+		return dtoType;
+	}
+
+	/**
+	 * Render the type canonical name for the field type given.
+	 * 
+	 * @param clazz
+	 *            the class that contains the field.
+	 * @param type
+	 *            the field type.
+	 * @return the type canonical name.
+	 */
+	protected String renderDTOType(final Class<?> clazz, final Type type) {
+		final StringBuilder typeSimpleName = new StringBuilder();
 		typeSimpleName.append(this.getDTOFieldPackage(clazz, type));
 		if (type instanceof ParameterizedType) {
 			final ParameterizedType parameterizedType = (ParameterizedType) type;
-			typeSimpleName.append(((Class<?>) parameterizedType.getRawType())
-					.getSimpleName() + "<");
+			typeSimpleName.append(
+					((Class<?>) parameterizedType.getRawType()).getSimpleName())
+					.append('<');
 			final Type[] typeArguments = parameterizedType
 					.getActualTypeArguments();
 			for (int i = 0; i < typeArguments.length; i++) {
@@ -171,17 +969,17 @@ public class DTOGeneratorImpl implements DTOGenerator {
 			typeSimpleName.append(">");
 		} else {
 			final Class<?> clazzType = ((Class<?>) type);
-			if (clazzType.isArray()) {
-				typeSimpleName.append(this.getArrayComponentType(clazzType)
-						.getSimpleName());
-				for (int i = 0; i < this.getArrayDimension(clazzType); i++) {
-					typeSimpleName.append("[]");
-				}
+			final Class<?> componentType = this
+					.getArrayComponentType(clazzType);
+			final String dtoSimpleName = this.classesToGenerate
+					.getDTOSimpleName(componentType);
+			if (dtoSimpleName != null) {
+				typeSimpleName.append(dtoSimpleName);
 			} else {
-				typeSimpleName.append(((Class<?>) type).getSimpleName());
-				if (this.isClassToGenerate(clazzType)) {
-					typeSimpleName.append("DTO");
-				}
+				typeSimpleName.append(componentType.getSimpleName());
+			}
+			for (int i = 0; i < this.getArrayDimension(clazzType); i++) {
+				typeSimpleName.append("[]");
 			}
 		}
 		return typeSimpleName.toString();
@@ -258,38 +1056,240 @@ public class DTOGeneratorImpl implements DTOGenerator {
 	}
 
 	/**
-	 * Return the file writer used to write the DTO for the class given.
+	 * Return the file the DTO for the class given is written to.
+	 * 
+	 * @param clazz
+	 *            the class we want to generate a DTO for.
+	 * @return the DTO file.
+	 */
+	protected File getDTOFile(final Class<?> clazz) {
+		return new File(this.getPackageDirectories().getDirectory(
+				this.getDTOPackage(clazz)), this.getDTOFileName(clazz));
+	}
+
+	/**
+	 * Return the class file the DTO for the class given is written to.
+	 * 
+	 * @param clazz
+	 *            the class we want to generate a DTO for.
+	 * @return the DTO class file.
+	 */
+	protected File getDTOClassFile(final Class<?> clazz) {
+		return new File(this.getClassPackageDirectories().getDirectory(
+				this.getDTOPackage(clazz)), clazz.getSimpleName() + "DTO.class");
+	}
+
+	/**
+	 * Return the path of the DTO file for the class given, relative to the
+	 * generated directory.
+	 * 
+	 * @param clazz
+	 *            the class we want to generate a DTO for.
+	 * @return the DTO file path, with '/' as separator.
+	 */
+	protected String getDTOPath(final Class<?> clazz) {
+		return this.getDTOPackage(clazz).replace('.', '/') + "/"
+				+ this.getDTOFileName(clazz);
+	}
+
+	/**
+	 * Return the name of the DTO file for the class given.
+	 * 
+	 * @param clazz
+	 *            the class we want to generate a DTO for.
+	 * @return the DTO file name.
+	 */
+	protected String getDTOFileName(final Class<?> clazz) {
+		return clazz.getSimpleName() + "DTO.java";
+	}
+
+	/**
+	 * Return the writer used to write the DTO for the class given, opening the
+	 * output of the DTO if needed. The DTO file is written when the writer is
+	 * closed, only if its content has changed.
 	 * 
 	 * @param clazz
 	 *            the class we want to generate a DTO for.
-	 * @return the file write associated to the DTO.
+	 * @return the writer associated to the DTO.
 	 * @throws IOException
-	 *             if the file is not writable.
+	 *             if the DTO of another class is being written.
 	 */
-	protected FileWriter getDTOClassFileWriter(final Class<?> clazz)
+	protected Writer getDTOClassFileWriter(final Class<?> clazz)
 			throws IOException {
-		if (!this.fileWriters.containsKey(clazz)) {
-			final String directory = this.generatedDirectory.getAbsolutePath()
-					+ File.separator
-					+ this.getDTOPackage(clazz).replace(".", File.separator);
-			final File classFile = new File(directory.concat(File.separator)
-					.concat(clazz.getSimpleName()).concat("DTO.java"));
-			if (classFile.exists()) {
-				final boolean fileDeleted = classFile.delete();
-				if (fileDeleted) {
-					final boolean fileCreated = classFile.createNewFile();
-					if (!fileCreated) {
-						throw new IOException("The file " + classFile
-								+ " can not be created.");
-					}
+		final DTOOutputSession session = this.getOutputSession();
+		if (!session.isOpen(clazz)) {
+			return session.open(clazz, this.getDTOFile(clazz));
+		}
+		return session.getWriter();
+	}
+
+	/**
+	 * Return the model of the DTO of a class, built if the JVM does not keep
+	 * it already.
+	 * 
+	 * @param clazz
+	 *            the clazz we want a DTO for.
+	 * @return the DTO model.
+	 */
+	protected DTOModel getDTOModel(final Class<?> clazz) {
+		return this.getClassAnalysis(clazz).getModel();
+	}
+
+	/**
+	 * Return the key of the DTO model of a class : the scope of the DTO
+	 * models, the structural fingerprint of the class, and the classes to
+	 * generate among the classes referenced by its fields, as they give the
+	 * DTO types of the fields.
+	 * 
+	 * @param clazz
+	 *            the clazz we want a DTO for.
+	 * @return the key of the DTO model.
+	 * @see #getDTOModelScope()
+	 */
+	protected String getDTOModelKey(final Class<?> clazz) {
+		return this.getClassAnalysis(clazz).getModelKey();
+	}
+
+	/**
+	 * Return the scope of the DTO models kept by the JVM : the models built
+	 * by a generator are only reused by the generators of the same scope. The
+	 * scope is the generator class, as a subclass may override the DTO
+	 * packages and types ; a subclass whose overrides depend on its
+	 * configuration must add that configuration to the scope.
+	 * 
+	 * @return the scope of the DTO models.
+	 */
+	protected String getDTOModelScope() {
+		return this.getClass().getName();
+	}
+
+	/**
+	 * Build the model of the DTO of a class : the DTO name and package, its
+	 * imports, and for each instance field of the class its DTO type and
+	 * accessors.
+	 * 
+	 * @param clazz
+	 *            the clazz we want a DTO for.
+	 * @return the DTO model.
+	 */
+	protected DTOModel createDTOModel(final Class<?> clazz) {
+		final List<DTOFieldModel> fields = new ArrayList<DTOFieldModel>();
+		for (final Field field : clazz.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				fields.add(this.createDTOFieldModel(clazz, field));
+			}
+		}
+		return new DTOModel(clazz.getCanonicalName(),
+				this.getDTOPackage(clazz), clazz.getSimpleName() + "DTO",
+				DTO_IMPORTS, fields);
+	}
+
+	/**
+	 * Build the model of a DTO field.
+	 * 
+	 * @param clazz
+	 *            the clazz we want a DTO for.
+	 * @param field
+	 *            the field.
+	 * @return the DTO field model.
+	 */
+	protected DTOFieldModel createDTOFieldModel(final Class<?> clazz,
+			final Field field) {
+		final String fieldName = field.getName();
+		final String capitalizedName = Character.toUpperCase(fieldName
+				.charAt(0)) + fieldName.substring(1);
+		String getterName;
+		if (field.getType().equals(boolean.class)) {
+			getterName = "is" + capitalizedName;
+		} else {
+			getterName = "get" + capitalizedName;
+		}
+		final Type fieldType = field.getGenericType();
+		String signature = null;
+		if (fieldType instanceof ParameterizedType) {
+			signature = this.getDTOTypeSignature(fieldType, true);
+		}
+		return new DTOFieldModel(fieldName, field.getType().getSimpleName(),
+				this.getDTOFieldType(clazz, field), this.getDTOTypeSignature(
+						fieldType, false), signature, getterName, "set"
+						+ capitalizedName);
+	}
+
+	/**
+	 * Return the JVM descriptor or generic signature of a DTO field type : the
+	 * classes to generate are replaced by their DTO.
+	 * 
+	 * @param type
+	 *            the field type.
+	 * @param generic
+	 *            <code>true</code> for the generic signature,
+	 *            <code>false</code> for the erased descriptor.
+	 * @return the descriptor or signature.
+	 */
+	protected String getDTOTypeSignature(final Type type, final boolean generic) {
+		final StringBuilder signature = new StringBuilder();
+		this.appendDTOTypeSignature(signature, type, generic);
+		return signature.toString();
+	}
+
+	/**
+	 * Append the JVM descriptor or generic signature of a DTO field type.
+	 * 
+	 * @param signature
+	 *            the signature being built.
+	 * @param type
+	 *            the field type.
+	 * @param generic
+	 *            <code>true</code> for the generic signature,
+	 *            <code>false</code> for the erased descriptor.
+	 */
+	private void appendDTOTypeSignature(final StringBuilder signature,
+			final Type type, final boolean generic) {
+		if (type instanceof ParameterizedType) {
+			final ParameterizedType parameterizedType = (ParameterizedType) type;
+			final Class<?> rawType = (Class<?>) parameterizedType.getRawType();
+			if (generic) {
+				signature.append('L').append(this.getDTOInternalName(rawType))
+						.append('<');
+				for (final Type typeArgument : parameterizedType
+						.getActualTypeArguments()) {
+					this.appendDTOTypeSignature(signature, typeArgument, true);
 				}
+				signature.append(">;");
+			} else {
+				this.appendDTOTypeSignature(signature, rawType, false);
 			}
-			final FileWriter fw = new FileWriter(classFile);
-			this.fileWriters.put(clazz, fw);
-			return fw;
 		} else {
-			return this.fileWriters.get(clazz);
+			final Class<?> clazzType = (Class<?>) type;
+			if (clazzType.isArray()) {
+				signature.append('[');
+				this.appendDTOTypeSignature(signature,
+						clazzType.getComponentType(), generic);
+			} else if (clazzType.isPrimitive()) {
+				signature.append(DTOBytecodeRenderer.getDescriptor(clazzType));
+			} else {
+				signature.append('L')
+						.append(this.getDTOInternalName(clazzType)).append(';');
+			}
+		}
+	}
+
+	/**
+	 * Return the JVM internal name of a DTO field class : the name of its DTO
+	 * for a class to generate.
+	 * 
+	 * @param clazz
+	 *            the class.
+	 * @return the internal name.
+	 */
+	protected String getDTOInternalName(final Class<?> clazz) {
+		final String dtoSimpleName = this.classesToGenerate
+				.getDTOSimpleName(clazz);
+		if (dtoSimpleName == null) {
+			return clazz.getName().replace('.', '/');
 		}
+		return this.getDTOPackage(clazz).replace('.', '/') + "/"
+				+ dtoSimpleName;
 	}
 
 	/**
@@ -301,31 +1301,8 @@ public class DTOGeneratorImpl implements DTOGenerator {
 	 *             if the file is not writable.
 	 */
 	protected void makeDTOClass(final Class<?> clazz) throws IOException {
-		final FileWriter fw = this.getDTOClassFileWriter(clazz);
-		fw.write("package " + this.getDTOPackage(clazz) + ";" + "\n\n");
-		fw.write("import java.io.Serializable;\n\n");
-
-		fw.write("/**\n");
-		fw.write(" * This class was generated by the DTO Maven Plugin.\n");
-		fw.write(" * "
-				+ new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date())
-				+ "\n");
-		fw.write(" */\n");
-		fw.write("public class " + clazz.getSimpleName()
-				+ "DTO implements Serializable {\n\n");
-		fw.write("\tprivate static final long serialVersionUID = 1L;\n\n");
-		for (final Field field : clazz.getDeclaredFields()) {
-			if (!Modifier.isStatic(field.getModifiers())) {
-				this.makeDTOField(clazz, field);
-			}
-		}
-		for (final Field field : clazz.getDeclaredFields()) {
-			if (!Modifier.isStatic(field.getModifiers())) {
-				this.makeDTOFieldGetter(clazz, field);
-				this.makeDTOFieldSetter(clazz, field);
-			}
-		}
-		fw.write("}");
+		this.sourceRenderer.renderClass(this.getDTOClassFileWriter(clazz),
+				this.getDTOModel(clazz));
 	}
 
 	/**
@@ -340,14 +1317,8 @@ public class DTOGeneratorImpl implements DTOGenerator {
 	 */
 	protected void makeDTOField(final Class<?> clazz, final Field field)
 			throws IOException {
-		final FileWriter fw = this.getDTOClassFileWriter(clazz);
-		final String fieldType = this.getDTOFieldType(clazz, field);
-		fw.write("\t/**\n");
-		fw.write("\t * @see " + clazz.getCanonicalName() + "#"
-				+ field.getName() + "\n");
-		fw.write("\t */\n");
-		fw.write("\tprivate " + fieldType + " " + field.getName() + ";\n\n");
-
+		this.sourceRenderer.renderField(this.getDTOClassFileWriter(clazz),
+				clazz.getCanonicalName(), this.createDTOFieldModel(clazz, field));
 	}
 
 	/**
@@ -362,30 +1333,8 @@ public class DTOGeneratorImpl implements DTOGenerator {
 	 */
 	protected void makeDTOFieldGetter(final Class<?> clazz, final Field field)
 			throws IOException {
-		final FileWriter fw = this.getDTOClassFileWriter(clazz);
-		String methodSignature;
-		final char firstFieldNameCharacterUpper = Character.toUpperCase(field
-				.getName().charAt(0));
-		String fieldNameWithoutFirstCharacter = "";
-		if (field.getName().length() > 1) {
-			fieldNameWithoutFirstCharacter = field.getName().substring(1);
-		}
-		if (field.getType().equals(boolean.class)) {
-			methodSignature = "is" + firstFieldNameCharacterUpper
-					+ fieldNameWithoutFirstCharacter;
-		} else {
-
-			methodSignature = "get" + firstFieldNameCharacterUpper
-					+ fieldNameWithoutFirstCharacter;
-		}
-		fw.write("\t/**\n");
-		fw.write("\t * @see " + clazz.getCanonicalName() + "#"
-				+ methodSignature + "()\n");
-		fw.write("\t */\n");
-		fw.write("\tpublic " + this.getDTOFieldType(clazz, field) + " "
-				+ methodSignature + "() {\n");
-		fw.write("\t\treturn this." + field.getName() + ";\n");
-		fw.write("\t}\n\n");
+		this.sourceRenderer.renderGetter(this.getDTOClassFileWriter(clazz),
+				clazz.getCanonicalName(), this.createDTOFieldModel(clazz, field));
 	}
 
 	/**
@@ -400,26 +1349,409 @@ public class DTOGeneratorImpl implements DTOGenerator {
 	 */
 	protected void makeDTOFieldSetter(final Class<?> clazz, final Field field)
 			throws IOException {
-		final FileWriter fw = this.getDTOClassFileWriter(clazz);
-
-		final char firstFieldNameCharacterUpper = Character.toUpperCase(field
-				.getName().charAt(0));
-		String fieldNameWithoutFirstCharacter = "";
-		if (field.getName().length() > 1) {
-			fieldNameWithoutFirstCharacter = field.getName().substring(1);
-		}
-		final String methodSignature = "set" + firstFieldNameCharacterUpper
-				+ fieldNameWithoutFirstCharacter;
-		fw.write("\t/**\n");
-		fw.write("\t * @see " + clazz.getCanonicalName() + "#"
-				+ methodSignature + "(" + field.getType().getSimpleName()
-				+ ")\n");
-		fw.write("\t */\n");
-		fw.write("\tpublic void " + methodSignature + "("
-				+ this.getDTOFieldType(clazz, field) + " " + field.getName()
-				+ ") {\n");
-		fw.write("\t\tthis." + field.getName() + " = " + field.getName()
-				+ ";\n");
-		fw.write("\t}\n\n");
+		this.sourceRenderer.renderSetter(this.getDTOClassFileWriter(clazz),
+				clazz.getCanonicalName(), this.createDTOFieldModel(clazz, field));
+	}
+
+	/**
+	 * Source of the classes to generate.
+	 */
+	private interface ClassSource {
+
+		/**
+		 * Load a class to generate.
+		 * 
+		 * @param className
+		 *            the binary name of the class.
+		 * @return the class.
+		 * @throws ClassNotFoundException
+		 *             if the class can not be loaded.
+		 */
+		Class<?> load(String className) throws ClassNotFoundException;
+	}
+
+	/**
+	 * A class loaded waiting for its generation. The classes with the most
+	 * fields are generated first.
+	 */
+	private static final class GenerationTask implements
+			Comparable<GenerationTask> {
+
+		/**
+		 * The task ending a generation thread, after all the classes.
+		 */
+		private static final GenerationTask END = new GenerationTask(null, -1);
+
+		/**
+		 * The class to generate, <code>null</code> for the end task.
+		 */
+		private final Class<?> clazz;
+
+		/**
+		 * The number of fields of the class.
+		 */
+		private final int size;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param clazz
+		 *            the class to generate.
+		 * @param size
+		 *            the number of fields of the class.
+		 */
+		private GenerationTask(final Class<?> clazz, final int size) {
+			this.clazz = clazz;
+			this.size = size;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		@Override
+		public int compareTo(final GenerationTask other) {
+			return Integer.valueOf(other.size).compareTo(
+					Integer.valueOf(this.size));
+		}
+	}
+
+	/**
+	 * The values computed from a class during its generation : they are
+	 * computed the first time they are needed.
+	 */
+	private final class ClassAnalysis {
+
+		/**
+		 * The class.
+		 */
+		private final Class<?> clazz;
+
+		/**
+		 * The structural fingerprint of the class, <code>null</code> until
+		 * computed.
+		 */
+		private String fingerprint;
+
+		/**
+		 * The classes referenced by the fields of the class, <code>null</code>
+		 * until computed.
+		 */
+		private Set<Class<?>> referencedClasses;
+
+		/**
+		 * The key of the DTO model, <code>null</code> until computed.
+		 */
+		private String modelKey;
+
+		/**
+		 * The DTO model, <code>null</code> until built or found.
+		 */
+		private DTOModel model;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param clazz
+		 *            the class.
+		 */
+		private ClassAnalysis(final Class<?> clazz) {
+			this.clazz = clazz;
+		}
+
+		/**
+		 * Return the structural fingerprint of the class.
+		 * 
+		 * @return the fingerprint.
+		 * @see DTOGeneratorImpl#computeFingerprint(Class)
+		 */
+		private String getFingerprint() {
+			if (this.fingerprint == null) {
+				this.fingerprint = DTOGeneratorImpl.this
+						.computeFingerprint(this.clazz);
+			}
+			return this.fingerprint;
+		}
+
+		/**
+		 * Return the classes referenced by the fields of the class.
+		 * 
+		 * @return the referenced classes.
+		 * @see DTOGeneratorImpl#getReferencedClasses(Class)
+		 */
+		private Set<Class<?>> getReferencedClasses() {
+			if (this.referencedClasses == null) {
+				this.referencedClasses = DTOGeneratorImpl.this
+						.getReferencedClasses(this.clazz);
+			}
+			return this.referencedClasses;
+		}
+
+		/**
+		 * Return the key of the DTO model of the class : the scope of the DTO
+		 * models, the structural fingerprint of the class, and the classes to
+		 * generate among the classes referenced by its fields.
+		 * 
+		 * @return the key of the DTO model.
+		 */
+		private String getModelKey() {
+			if (this.modelKey == null) {
+				final Fingerprint keyFingerprint = new Fingerprint();
+				keyFingerprint.add(DTOGeneratorImpl.this.getDTOModelScope());
+				keyFingerprint.add(this.getFingerprint());
+				for (final Class<?> referencedClass : this
+						.getReferencedClasses()) {
+					if (DTOGeneratorImpl.this.classesToGenerate
+							.contains(referencedClass.getName())) {
+						keyFingerprint.add(referencedClass.getName());
+					}
+				}
+				this.modelKey = keyFingerprint.toHexString();
+			}
+			return this.modelKey;
+		}
+
+		/**
+		 * Return the DTO model of the class, built if the JVM does not keep
+		 * it already.
+		 * 
+		 * @return the DTO model.
+		 */
+		private DTOModel getModel() {
+			if (this.model == null) {
+				final String key = DTOGeneratorImpl.this
+						.getDTOModelKey(this.clazz);
+				this.model = RESIDENT_MODELS.get(key);
+				if (this.model == null) {
+					this.model = DTOGeneratorImpl.this
+							.createDTOModel(this.clazz);
+					RESIDENT_MODELS.put(key, this.model);
+				}
+			}
+			return this.model;
+		}
+	}
+
+	/**
+	 * The generation of a set of classes : load, fingerprint, model, render
+	 * and write each class, collecting the errors by class.
+	 */
+	private final class Pipeline {
+
+		/**
+		 * The state of the previous generation.
+		 */
+		private final GenerationState previousState;
+
+		/**
+		 * The state of the current generation.
+		 */
+		private final GenerationState state;
+
+		/**
+		 * The names of the classes that entered or left the classes to
+		 * generate.
+		 */
+		private final Set<String> changedClassNames;
+
+		/**
+		 * The errors by name of the class whose DTO generation has failed.
+		 */
+		private final Map<String, Throwable> errors;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param previousState
+		 *            the state of the previous generation.
+		 * @param state
+		 *            the state of the current generation.
+		 * @param changedClassNames
+		 *            the names of the classes that entered or left the
+		 *            classes to generate.
+		 */
+		private Pipeline(final GenerationState previousState,
+				final GenerationState state, final Set<String> changedClassNames) {
+			this.previousState = previousState;
+			this.state = state;
+			this.changedClassNames = changedClassNames;
+			this.errors = new ConcurrentHashMap<String, Throwable>();
+		}
+
+		/**
+		 * Generate the classes one after the other in the current thread.
+		 * 
+		 * @param classNames
+		 *            the names of the classes to generate.
+		 * @param classSource
+		 *            the source of the classes.
+		 */
+		private void run(final List<String> classNames,
+				final ClassSource classSource) {
+			for (final String className : classNames) {
+				final Class<?> clazz = this.load(classSource, className);
+				if (clazz != null) {
+					this.generate(clazz);
+				}
+			}
+		}
+
+		/**
+		 * Generate the classes with a pool of threads. The current thread
+		 * loads the classes and waits when the queue of the classes loaded is
+		 * full : the number of classes loaded but not generated never exceeds
+		 * the queue size plus the number of threads.
+		 * 
+		 * @param classNames
+		 *            the names of the classes to generate.
+		 * @param classSource
+		 *            the source of the classes.
+		 * @throws IOException
+		 *             if the generation has been interrupted or a thread has
+		 *             failed.
+		 */
+		private void runInParallel(final List<String> classNames,
+				final ClassSource classSource) throws IOException {
+			final int threads = Math.min(
+					DTOGeneratorImpl.this.generationThreads, classNames.size());
+			final int slotsCount = DTOGeneratorImpl.this.queueSize;
+			final BlockingQueue<GenerationTask> queue = new PriorityBlockingQueue<GenerationTask>();
+			final Semaphore slots = new Semaphore(slotsCount);
+			final ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				final List<Future<Void>> workers = new ArrayList<Future<Void>>();
+				for (int i = 0; i < threads; i++) {
+					workers.add(executor.submit(new Callable<Void>() {
+						@Override
+						public Void call() throws InterruptedException {
+							Pipeline.this.work(queue, slots, slotsCount);
+							return null;
+						}
+					}));
+				}
+				for (final String className : classNames) {
+					slots.acquire();
+					final Class<?> clazz = this.load(classSource, className);
+					if (clazz == null) {
+						slots.release();
+					} else {
+						queue.put(new GenerationTask(clazz, clazz
+								.getDeclaredFields().length));
+					}
+				}
+				for (int i = 0; i < threads; i++) {
+					queue.put(GenerationTask.END);
+				}
+				for (final Future<Void> worker : workers) {
+					worker.get();
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				final IOException interrupted = new IOException(
+						"The generation has been interrupted.");
+				interrupted.initCause(e);
+				throw interrupted;
+			} catch (final ExecutionException e) {
+				final IOException failure = new IOException(
+						"The generation has failed.");
+				failure.initCause(e.getCause());
+				throw failure;
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+
+		/**
+		 * Generate the classes of the queue until the end task, with the
+		 * output session of the current thread.
+		 * 
+		 * @param queue
+		 *            the queue of the classes loaded.
+		 * @param slots
+		 *            the free places in the queue.
+		 * @param slotsCount
+		 *            the size of the queue.
+		 * @throws InterruptedException
+		 *             if the thread is interrupted.
+		 */
+		private void work(final BlockingQueue<GenerationTask> queue,
+				final Semaphore slots, final int slotsCount)
+				throws InterruptedException {
+			DTOGeneratorImpl.this.threadOutputSession
+					.set(new DTOOutputSession(DTOGeneratorImpl.this.charset,
+							DTOGeneratorImpl.this.syncOutput));
+			try {
+				GenerationTask task = queue.take();
+				while (task.clazz != null) {
+					slots.release();
+					this.generate(task.clazz);
+					task = queue.take();
+				}
+			} finally {
+				DTOGeneratorImpl.this.threadOutputSession.remove();
+				// Never let the loading thread wait for a thread that ended.
+				slots.release(slotsCount);
+			}
+		}
+
+		/**
+		 * Load a class, recording the error if it can not be loaded.
+		 * 
+		 * @param classSource
+		 *            the source of the classes.
+		 * @param className
+		 *            the class name.
+		 * @return the class, <code>null</code> if it can not be loaded.
+		 */
+		private Class<?> load(final ClassSource classSource,
+				final String className) {
+			try {
+				return classSource.load(className);
+			} catch (final ClassNotFoundException e) {
+				this.errors.put(className, e);
+			} catch (final LinkageError e) {
+				this.errors.put(className, e);
+			}
+			return null;
+		}
+
+		/**
+		 * Generate a class if it is outdated, recording the error if its
+		 * generation fails.
+		 * 
+		 * @param clazz
+		 *            the class.
+		 */
+		private void generate(final Class<?> clazz) {
+			try {
+				DTOGeneratorImpl.this.generateIfOutdated(clazz,
+						this.previousState, this.state, this.changedClassNames);
+			} catch (final IOException e) {
+				this.errors.put(clazz.getName(), e);
+			} catch (final RuntimeException e) {
+				this.errors.put(clazz.getName(), e);
+			} catch (final LinkageError e) {
+				this.errors.put(clazz.getName(), e);
+			}
+		}
+
+		/**
+		 * Return the errors of the generation.
+		 * 
+		 * @param classNames
+		 *            the names of the classes to generate.
+		 * @return the errors by class name, in the order of the classes.
+		 */
+		private Map<String, Throwable> getErrors(final List<String> classNames) {
+			final Map<String, Throwable> orderedErrors = new LinkedHashMap<String, Throwable>();
+			for (final String className : classNames) {
+				final Throwable error = this.errors.get(className);
+				if (error != null) {
+					orderedErrors.put(className, error);
+				}
+			}
+			return orderedErrors;
+		}
 	}
 }
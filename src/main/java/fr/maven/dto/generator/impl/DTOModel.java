@@ -0,0 +1,104 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable description of the DTO of a class, built once from reflection
+ * and rendered by the emitters of the generator.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public final class DTOModel {
+
+	/**
+	 * The canonical name of the source class.
+	 */
+	private final String sourceClassName;
+
+	/**
+	 * The DTO package.
+	 */
+	private final String dtoPackage;
+
+	/**
+	 * The DTO simple name.
+	 */
+	private final String dtoSimpleName;
+
+	/**
+	 * The classes imported by the DTO.
+	 */
+	private final List<String> imports;
+
+	/**
+	 * The DTO fields.
+	 */
+	private final List<DTOFieldModel> fields;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param sourceClassName
+	 *            the canonical name of the source class.
+	 * @param dtoPackage
+	 *            the DTO package.
+	 * @param dtoSimpleName
+	 *            the DTO simple name.
+	 * @param imports
+	 *            the classes imported by the DTO.
+	 * @param fields
+	 *            the DTO fields.
+	 */
+	public DTOModel(final String sourceClassName, final String dtoPackage,
+			final String dtoSimpleName, final List<String> imports,
+			final List<DTOFieldModel> fields) {
+		this.sourceClassName = sourceClassName;
+		this.dtoPackage = dtoPackage;
+		this.dtoSimpleName = dtoSimpleName;
+		this.imports = Collections.unmodifiableList(new ArrayList<String>(
+				imports));
+		this.fields = Collections.unmodifiableList(new ArrayList<DTOFieldModel>(
+				fields));
+	}
+
+	/**
+	 * @return the canonical name of the source class.
+	 */
+	public String getSourceClassName() {
+		return this.sourceClassName;
+	}
+
+	/**
+	 * @return the DTO package.
+	 */
+	public String getDTOPackage() {
+		return this.dtoPackage;
+	}
+
+	/**
+	 * @return the DTO simple name.
+	 */
+	public String getDTOSimpleName() {
+		return this.dtoSimpleName;
+	}
+
+	/**
+	 * @return the classes imported by the DTO.
+	 */
+	public List<String> getImports() {
+		return this.imports;
+	}
+
+	/**
+	 * @return the DTO fields.
+	 */
+	public List<DTOFieldModel> getFields() {
+		return this.fields;
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Output of the DTOs of a generator. The session writes one DTO at a time :
+ * the output of a DTO is opened, written, then closed to flush the DTO file
+ * or released to discard it.
+ * 
+ * The session only keeps the name of the class whose DTO is opened, so that
+ * it never holds a reference to the classes generated nor to their
+ * classloader.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+class DTOOutputSession {
+
+	/**
+	 * The writer of the DTOs, reused from one DTO to the next.
+	 */
+	private final DTOSourceWriter writer;
+
+	/**
+	 * The name of the class whose DTO is opened, <code>null</code> if none.
+	 */
+	private String className;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param charset
+	 *            the charset of the generated DTOs.
+	 * @param sync
+	 *            <code>true</code> to force the DTO files to the disk before
+	 *            they replace the previous ones.
+	 */
+	public DTOOutputSession(final Charset charset, final boolean sync) {
+		this.writer = new DTOSourceWriter(charset, sync);
+	}
+
+	/**
+	 * Check if the DTO of the class given is opened.
+	 * 
+	 * @param clazz
+	 *            the class we want to generate a DTO for.
+	 * @return <code>true</code> if the DTO of the class is opened.
+	 */
+	public boolean isOpen(final Class<?> clazz) {
+		return this.writer.isOpen() && clazz.getName().equals(this.className);
+	}
+
+	/**
+	 * Open the output of the DTO of a class.
+	 * 
+	 * @param clazz
+	 *            the class we want to generate a DTO for.
+	 * @param dtoFile
+	 *            the DTO file.
+	 * @return the writer of the DTO, closing it writes the DTO file.
+	 * @throws IOException
+	 *             if the DTO of another class is opened.
+	 */
+	public Writer open(final Class<?> clazz, final File dtoFile)
+			throws IOException {
+		if (this.writer.isOpen()) {
+			throw new IOException("The DTO of " + this.className
+					+ " is not closed.");
+		}
+		this.className = clazz.getName();
+		this.writer.open(dtoFile);
+		return this.writer;
+	}
+
+	/**
+	 * Return the writer of the DTO opened.
+	 * 
+	 * @return the writer of the DTO, closing it writes the DTO file.
+	 * @throws IOException
+	 *             if no DTO is opened.
+	 */
+	public Writer getWriter() throws IOException {
+		if (!this.writer.isOpen()) {
+			throw new IOException("No DTO is opened.");
+		}
+		return this.writer;
+	}
+
+	/**
+	 * Close the output of the DTO opened : the DTO file is written if its
+	 * content has changed.
+	 * 
+	 * @throws IOException
+	 *             if the DTO file can not be written.
+	 */
+	public void close() throws IOException {
+		try {
+			this.writer.close();
+		} finally {
+			this.className = null;
+		}
+	}
+
+	/**
+	 * Release the output of the DTO opened without writing the DTO file.
+	 */
+	public void release() {
+		this.writer.discard();
+		this.className = null;
+	}
+
+	/**
+	 * Write the class file of a DTO, if its content has changed. No DTO
+	 * source must be opened.
+	 * 
+	 * @param classFile
+	 *            the class file of the DTO.
+	 * @param bytecode
+	 *            the content of the class file.
+	 * @throws IOException
+	 *             if the DTO of a class is opened or the class file can not be
+	 *             written.
+	 */
+	public void writeClass(final File classFile, final byte[] bytecode)
+			throws IOException {
+		if (this.writer.isOpen()) {
+			throw new IOException("The DTO of " + this.className
+					+ " is not closed.");
+		}
+		this.writer.write(classFile, bytecode);
+	}
+}
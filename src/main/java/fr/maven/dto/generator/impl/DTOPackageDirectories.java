@@ -0,0 +1,95 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The package directories of the DTOs of a generation. The directory of each
+ * package is resolved once, and created once : the DTOs of a package are then
+ * written without any other access to the file system.
+ * 
+ * The directories can be resolved and created concurrently.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+class DTOPackageDirectories {
+
+	/**
+	 * The directory where the DTOs are generated.
+	 */
+	private final File generatedDirectory;
+
+	/**
+	 * The directory by package name.
+	 */
+	private final ConcurrentMap<String, File> directories;
+
+	/**
+	 * The names of the packages whose directory has been created.
+	 */
+	private final Set<String> createdPackages;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param generatedDirectory
+	 *            the directory where the DTOs are generated.
+	 */
+	public DTOPackageDirectories(final File generatedDirectory) {
+		this.generatedDirectory = generatedDirectory.getAbsoluteFile();
+		this.directories = new ConcurrentHashMap<String, File>();
+		this.createdPackages = Collections
+				.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	}
+
+	/**
+	 * Return the directory of a package, without creating it.
+	 * 
+	 * @param packageName
+	 *            the package name.
+	 * @return the package directory.
+	 */
+	public File getDirectory(final String packageName) {
+		File directory = this.directories.get(packageName);
+		if (directory == null) {
+			directory = new File(this.generatedDirectory, packageName.replace(
+					'.', File.separatorChar));
+			final File previousDirectory = this.directories.putIfAbsent(
+					packageName, directory);
+			if (previousDirectory != null) {
+				directory = previousDirectory;
+			}
+		}
+		return directory;
+	}
+
+	/**
+	 * Create the directory of a package, if it has not been created yet by
+	 * this generation.
+	 * 
+	 * @param packageName
+	 *            the package name.
+	 * @return the package directory.
+	 * @throws IOException
+	 *             if the directory can not be created.
+	 */
+	public File makeDirectory(final String packageName) throws IOException {
+		final File directory = this.getDirectory(packageName);
+		if (!this.createdPackages.contains(packageName)) {
+			// Another thread may create the directory at the same time.
+			if (!directory.mkdirs() && !directory.isDirectory()) {
+				throw new IOException("The generated directory can not be created.");
+			}
+			this.createdPackages.add(packageName);
+		}
+		return directory;
+	}
+}
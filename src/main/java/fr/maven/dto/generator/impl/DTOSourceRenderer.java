@@ -0,0 +1,153 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Emitter of the Java source of a DTO from its model.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class DTOSourceRenderer {
+
+	/**
+	 * Write the source of a DTO.
+	 * 
+	 * @param fw
+	 *            the writer of the DTO.
+	 * @param model
+	 *            the DTO model.
+	 * @throws IOException
+	 *             if the DTO is not writable.
+	 */
+	public void renderClass(final Writer fw, final DTOModel model)
+			throws IOException {
+		fw.write("package ");
+		fw.write(model.getDTOPackage());
+		fw.write(";\n\n");
+		for (final String importedClass : model.getImports()) {
+			fw.write("import ");
+			fw.write(importedClass);
+			fw.write(";\n");
+		}
+		fw.write("\n");
+
+		fw.write("/**\n");
+		fw.write(" * This class was generated by the DTO Maven Plugin.\n");
+		fw.write(" */\n");
+		fw.write("public class ");
+		fw.write(model.getDTOSimpleName());
+		fw.write(" implements Serializable {\n\n");
+		fw.write("\tprivate static final long serialVersionUID = 1L;\n\n");
+		for (final DTOFieldModel field : model.getFields()) {
+			this.renderField(fw, model.getSourceClassName(), field);
+		}
+		for (final DTOFieldModel field : model.getFields()) {
+			this.renderGetter(fw, model.getSourceClassName(), field);
+			this.renderSetter(fw, model.getSourceClassName(), field);
+		}
+		fw.write("}");
+	}
+
+	/**
+	 * Write a DTO field.
+	 * 
+	 * @param fw
+	 *            the writer of the DTO.
+	 * @param sourceClassName
+	 *            the canonical name of the source class.
+	 * @param field
+	 *            the field model.
+	 * @throws IOException
+	 *             if the DTO is not writable.
+	 */
+	public void renderField(final Writer fw, final String sourceClassName,
+			final DTOFieldModel field) throws IOException {
+		fw.write("\t/**\n");
+		fw.write("\t * @see ");
+		fw.write(sourceClassName);
+		fw.write("#");
+		fw.write(field.getName());
+		fw.write("\n");
+		fw.write("\t */\n");
+		fw.write("\tprivate ");
+		fw.write(field.getDTOType());
+		fw.write(" ");
+		fw.write(field.getName());
+		fw.write(";\n\n");
+	}
+
+	/**
+	 * Write a DTO field getter.
+	 * 
+	 * @param fw
+	 *            the writer of the DTO.
+	 * @param sourceClassName
+	 *            the canonical name of the source class.
+	 * @param field
+	 *            the field model.
+	 * @throws IOException
+	 *             if the DTO is not writable.
+	 */
+	public void renderGetter(final Writer fw, final String sourceClassName,
+			final DTOFieldModel field) throws IOException {
+		fw.write("\t/**\n");
+		fw.write("\t * @see ");
+		fw.write(sourceClassName);
+		fw.write("#");
+		fw.write(field.getGetterName());
+		fw.write("()\n");
+		fw.write("\t */\n");
+		fw.write("\tpublic ");
+		fw.write(field.getDTOType());
+		fw.write(" ");
+		fw.write(field.getGetterName());
+		fw.write("() {\n");
+		fw.write("\t\treturn this.");
+		fw.write(field.getName());
+		fw.write(";\n");
+		fw.write("\t}\n\n");
+	}
+
+	/**
+	 * Write a DTO field setter.
+	 * 
+	 * @param fw
+	 *            the writer of the DTO.
+	 * @param sourceClassName
+	 *            the canonical name of the source class.
+	 * @param field
+	 *            the field model.
+	 * @throws IOException
+	 *             if the DTO is not writable.
+	 */
+	public void renderSetter(final Writer fw, final String sourceClassName,
+			final DTOFieldModel field) throws IOException {
+		fw.write("\t/**\n");
+		fw.write("\t * @see ");
+		fw.write(sourceClassName);
+		fw.write("#");
+		fw.write(field.getSetterName());
+		fw.write("(");
+		fw.write(field.getSourceTypeSimpleName());
+		fw.write(")\n");
+		fw.write("\t */\n");
+		fw.write("\tpublic void ");
+		fw.write(field.getSetterName());
+		fw.write("(");
+		fw.write(field.getDTOType());
+		fw.write(" ");
+		fw.write(field.getName());
+		fw.write(") {\n");
+		fw.write("\t\tthis.");
+		fw.write(field.getName());
+		fw.write(" = ");
+		fw.write(field.getName());
+		fw.write(";\n");
+		fw.write("\t}\n\n");
+	}
+}
@@ -0,0 +1,390 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writer of a DTO source file. The source is rendered in a memory buffer,
+ * encoded once with the charset of the generated sources and written to the
+ * file in a single call when the writer is closed, only if it differs from
+ * the content of the file : an unchanged DTO keeps its modification date and
+ * is not compiled again.
+ * 
+ * A changed DTO is written to a temporary file of the same directory, then
+ * renamed to the DTO file : a build interrupted, or another build reading the
+ * DTO at the same time, never sees a partially written DTO. The DTO file is
+ * never deleted before the rename : when the file system refuses to rename
+ * over it, the rename is retried a few times, then the DTO fails.
+ * 
+ * A DTO source that can not be encoded with the charset of the generated
+ * sources fails too, instead of being written with replacement characters.
+ * 
+ * The writer can be opened again for another file once closed : its buffers
+ * are reused from one DTO to the next. Once closed, it also writes the class
+ * files of the DTOs with the same rules.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+class DTOSourceWriter extends Writer {
+
+	/**
+	 * Initial size of the source buffer, enough for most DTOs.
+	 */
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+
+	/**
+	 * Number of attempts to rename a temporary file over a file.
+	 */
+	private static final int RENAME_ATTEMPTS = 5;
+
+	/**
+	 * Delay between two attempts to rename a temporary file, in milliseconds.
+	 */
+	private static final long RENAME_RETRY_DELAY = 50;
+
+	/**
+	 * The DTO source being rendered.
+	 */
+	private final StringBuilder source;
+
+	/**
+	 * The encoder of the charset of the generated sources.
+	 */
+	private final CharsetEncoder encoder;
+
+	/**
+	 * The charset of the generated sources.
+	 */
+	private final Charset charset;
+
+	/**
+	 * The encoded DTO source.
+	 */
+	private ByteBuffer content;
+
+	/**
+	 * The content of the existing DTO file.
+	 */
+	private ByteBuffer fileContent;
+
+	/**
+	 * The DTO source file, <code>null</code> when the writer is closed.
+	 */
+	private File file;
+
+	/**
+	 * <code>true</code> to force the DTO files to the disk before they replace
+	 * the previous ones.
+	 */
+	private final boolean sync;
+
+	/**
+	 * Constructor of a closed writer, that does not force the DTO files to the
+	 * disk.
+	 * 
+	 * @param charset
+	 *            the charset of the generated sources.
+	 */
+	public DTOSourceWriter(final Charset charset) {
+		this(charset, false);
+	}
+
+	/**
+	 * Constructor of a closed writer.
+	 * 
+	 * @param charset
+	 *            the charset of the generated sources.
+	 * @param sync
+	 *            <code>true</code> to force the DTO files to the disk before
+	 *            they replace the previous ones.
+	 */
+	public DTOSourceWriter(final Charset charset, final boolean sync) {
+		super();
+		this.sync = sync;
+		this.charset = charset;
+		this.source = new StringBuilder(INITIAL_BUFFER_SIZE);
+		this.encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+		this.content = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+		this.fileContent = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+	}
+
+	/**
+	 * Open the writer for a DTO source file.
+	 * 
+	 * @param dtoFile
+	 *            the DTO source file.
+	 */
+	public void open(final File dtoFile) {
+		this.file = dtoFile;
+		this.source.setLength(0);
+	}
+
+	/**
+	 * Check if the writer is opened.
+	 * 
+	 * @return <code>true</code> if the writer is opened for a file.
+	 */
+	public boolean isOpen() {
+		return this.file != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.io.Writer#write(char[], int, int)
+	 */
+	@Override
+	public void write(final char[] cbuf, final int off, final int len)
+			throws IOException {
+		this.ensureOpen();
+		this.source.append(cbuf, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.io.Writer#write(java.lang.String)
+	 */
+	@Override
+	public void write(final String str) throws IOException {
+		this.ensureOpen();
+		this.source.append(str);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.io.Writer#write(int)
+	 */
+	@Override
+	public void write(final int c) throws IOException {
+		this.ensureOpen();
+		this.source.append((char) c);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.io.Writer#flush()
+	 */
+	@Override
+	public void flush() {
+		// The source is written when the writer is closed.
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.io.Writer#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.file != null) {
+			try {
+				try {
+					this.encode();
+				} catch (final CharacterCodingException e) {
+					throw new IOException("The DTO " + this.file
+							+ " can not be encoded in " + this.charset + ".", e);
+				}
+				if (!this.hasContent(this.file)) {
+					this.replaceFile(this.file);
+				}
+			} finally {
+				this.file = null;
+			}
+		}
+	}
+
+	/**
+	 * Write a binary file, such as the class file of a DTO, only if it differs
+	 * from the content of the file. The writer must be closed.
+	 * 
+	 * @param binaryFile
+	 *            the file.
+	 * @param bytes
+	 *            the content of the file.
+	 * @return <code>true</code> if the file has been written,
+	 *         <code>false</code> if it already had the content.
+	 * @throws IOException
+	 *             if the writer is opened or the file can not be written.
+	 */
+	public boolean write(final File binaryFile, final byte[] bytes)
+			throws IOException {
+		if (this.file != null) {
+			throw new IOException("The writer is opened.");
+		}
+		if (this.content.capacity() < bytes.length) {
+			this.content = ByteBuffer.allocate(bytes.length);
+		}
+		this.content.clear();
+		this.content.put(bytes);
+		this.content.flip();
+		if (this.hasContent(binaryFile)) {
+			return false;
+		}
+		this.replaceFile(binaryFile);
+		return true;
+	}
+
+	/**
+	 * Close the writer without writing the file.
+	 */
+	public void discard() {
+		this.file = null;
+		this.source.setLength(0);
+	}
+
+	/**
+	 * Check the writer is opened.
+	 * 
+	 * @throws IOException
+	 *             if the writer is closed.
+	 */
+	private void ensureOpen() throws IOException {
+		if (this.file == null) {
+			throw new IOException("The writer is closed.");
+		}
+	}
+
+	/**
+	 * Encode the source in the content buffer, ready to be written.
+	 * 
+	 * @throws CharacterCodingException
+	 *             if the source can not be encoded.
+	 */
+	private void encode() throws CharacterCodingException {
+		final int maxLength = (int) Math.ceil(this.source.length()
+				* this.encoder.maxBytesPerChar());
+		if (this.content.capacity() < maxLength) {
+			this.content = ByteBuffer.allocate(maxLength);
+		}
+		this.content.clear();
+		this.encoder.reset();
+		CoderResult result = this.encoder.encode(
+				CharBuffer.wrap(this.source), this.content, true);
+		if (!result.isError()) {
+			result = this.encoder.flush(this.content);
+		}
+		if (result.isError()) {
+			result.throwException();
+		}
+		this.content.flip();
+	}
+
+	/**
+	 * Write the encoded content to a temporary file, then rename it to the
+	 * file.
+	 * 
+	 * @param targetFile
+	 *            the file written.
+	 * @throws IOException
+	 *             if the file can not be written.
+	 */
+	private void replaceFile(final File targetFile) throws IOException {
+		final File temporaryFile = File.createTempFile(targetFile.getName()
+				+ ".", ".tmp", targetFile.getParentFile());
+		boolean renamed = false;
+		try {
+			final FileChannel channel = new FileOutputStream(temporaryFile)
+					.getChannel();
+			try {
+				while (this.content.hasRemaining()) {
+					channel.write(this.content);
+				}
+				if (this.sync) {
+					channel.force(true);
+				}
+			} finally {
+				channel.close();
+			}
+			renamed = rename(temporaryFile, targetFile);
+			if (!renamed) {
+				throw new IOException("The DTO " + targetFile
+						+ " can not be written.");
+			}
+		} finally {
+			if (!renamed) {
+				temporaryFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Rename a temporary file over a file. The file is never deleted first,
+	 * so that it is always there, with its previous or its new content : if
+	 * the rename fails, for instance because another process reads the file
+	 * on a file system that locks the files opened, it is retried a few
+	 * times.
+	 * 
+	 * @param temporaryFile
+	 *            the temporary file.
+	 * @param targetFile
+	 *            the file replaced.
+	 * @return <code>true</code> if the temporary file has been renamed.
+	 */
+	static boolean rename(final File temporaryFile, final File targetFile) {
+		boolean renamed = temporaryFile.renameTo(targetFile);
+		for (int attempt = 1; !renamed && attempt < RENAME_ATTEMPTS; attempt++) {
+			try {
+				Thread.sleep(RENAME_RETRY_DELAY);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			renamed = temporaryFile.renameTo(targetFile);
+		}
+		return renamed;
+	}
+
+	/**
+	 * Check if a file already has the encoded content.
+	 * 
+	 * @param targetFile
+	 *            the file.
+	 * @return <code>true</code> if the file exists with the same content.
+	 * @throws IOException
+	 *             if the file can not be read.
+	 */
+	private boolean hasContent(final File targetFile) throws IOException {
+		boolean sameContent = false;
+		if (targetFile.isFile()
+				&& targetFile.length() == this.content.remaining()) {
+			if (this.fileContent.capacity() < this.content.remaining()) {
+				this.fileContent = ByteBuffer.allocate(this.content.capacity());
+			}
+			this.fileContent.clear();
+			this.fileContent.limit(this.content.remaining());
+			final FileChannel channel = new FileInputStream(targetFile)
+					.getChannel();
+			try {
+				int read = 0;
+				while (this.fileContent.hasRemaining() && read >= 0) {
+					read = channel.read(this.fileContent);
+				}
+			} finally {
+				channel.close();
+			}
+			this.fileContent.flip();
+			sameContent = this.fileContent.equals(this.content);
+		}
+		return sameContent;
+	}
+}
@@ -0,0 +1,174 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the classes to generate DTO for, used to resolve the DTO types of
+ * the fields : it maps each class to generate to the simple name of its DTO,
+ * and memoizes the DTO types rendered so that each distinct type is resolved
+ * once per generation.
+ * 
+ * The classes are indexed by name, so that the index can be built before any
+ * class is loaded. The DTO types can be rendered concurrently once the classes
+ * to generate are all added.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class DTOTypeIndex {
+
+	/**
+	 * The simple name of the DTO by name of class to generate.
+	 */
+	private final Map<String, String> dtoSimpleNames;
+
+	/**
+	 * The DTO types rendered, by type, by package of the DTO the type is used
+	 * in.
+	 */
+	private final ConcurrentMap<String, ConcurrentMap<Type, String>> dtoTypes;
+
+	/**
+	 * Constructor of an empty index.
+	 */
+	public DTOTypeIndex() {
+		this.dtoSimpleNames = new HashMap<String, String>();
+		this.dtoTypes = new ConcurrentHashMap<String, ConcurrentMap<Type, String>>();
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param classNames
+	 *            the binary names of the classes to generate DTO for.
+	 */
+	public DTOTypeIndex(final Collection<String> classNames) {
+		this();
+		for (final String className : classNames) {
+			this.add(className);
+		}
+	}
+
+	/**
+	 * Add a class to generate DTO for. The DTO types already rendered are
+	 * forgotten, as they may reference the class.
+	 * 
+	 * @param clazz
+	 *            the class.
+	 * @return <code>true</code> if the class was not in the index.
+	 */
+	public boolean add(final Class<?> clazz) {
+		return this.add(clazz.getName());
+	}
+
+	/**
+	 * Add a class to generate DTO for. The DTO types already rendered are
+	 * forgotten, as they may reference the class.
+	 * 
+	 * @param className
+	 *            the binary name of the class.
+	 * @return <code>true</code> if the class was not in the index.
+	 */
+	public boolean add(final String className) {
+		this.dtoTypes.clear();
+		final String simpleName = className.substring(className
+				.lastIndexOf('.') + 1);
+		return this.dtoSimpleNames.put(className,
+				simpleName.substring(simpleName.lastIndexOf('$') + 1) + "DTO") == null;
+	}
+
+	/**
+	 * Check if the index contains a class.
+	 * 
+	 * @param clazz
+	 *            the class.
+	 * @return <code>true</code> if the class is a class to generate DTO for.
+	 */
+	public boolean contains(final Class<?> clazz) {
+		return this.contains(clazz.getName());
+	}
+
+	/**
+	 * Check if the index contains a class.
+	 * 
+	 * @param className
+	 *            the binary name of the class.
+	 * @return <code>true</code> if the class is a class to generate DTO for.
+	 */
+	public boolean contains(final String className) {
+		return this.dtoSimpleNames.containsKey(className);
+	}
+
+	/**
+	 * Check if the index is empty.
+	 * 
+	 * @return <code>true</code> if there is no class to generate DTO for.
+	 */
+	public boolean isEmpty() {
+		return this.dtoSimpleNames.isEmpty();
+	}
+
+	/**
+	 * Return the simple name of the DTO of a class.
+	 * 
+	 * @param clazz
+	 *            the class.
+	 * @return the DTO simple name, <code>null</code> if the class is not a
+	 *         class to generate DTO for.
+	 */
+	public String getDTOSimpleName(final Class<?> clazz) {
+		return this.dtoSimpleNames.get(clazz.getName());
+	}
+
+	/**
+	 * Return a DTO type already rendered.
+	 * 
+	 * @param packageName
+	 *            the package of the DTO the type is used in.
+	 * @param type
+	 *            the type.
+	 * @return the DTO type rendered, <code>null</code> if it has not been
+	 *         rendered yet.
+	 */
+	public String getDTOType(final String packageName, final Type type) {
+		final Map<Type, String> packageDTOTypes = this.dtoTypes
+				.get(packageName);
+		if (packageDTOTypes == null) {
+			return null;
+		}
+		return packageDTOTypes.get(type);
+	}
+
+	/**
+	 * Record a DTO type rendered.
+	 * 
+	 * @param packageName
+	 *            the package of the DTO the type is used in.
+	 * @param type
+	 *            the type.
+	 * @param dtoType
+	 *            the DTO type rendered.
+	 */
+	public void putDTOType(final String packageName, final Type type,
+			final String dtoType) {
+		ConcurrentMap<Type, String> packageDTOTypes = this.dtoTypes
+				.get(packageName);
+		if (packageDTOTypes == null) {
+			final ConcurrentMap<Type, String> newPackageDTOTypes = new ConcurrentHashMap<Type, String>();
+			packageDTOTypes = this.dtoTypes.putIfAbsent(packageName,
+					newPackageDTOTypes);
+			if (packageDTOTypes == null) {
+				packageDTOTypes = newPackageDTOTypes;
+			}
+		}
+		packageDTOTypes.put(type, dtoType);
+	}
+}
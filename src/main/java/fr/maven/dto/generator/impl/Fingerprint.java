@@ -0,0 +1,155 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Builder of fingerprints : a MD5 digest of strings and numbers, given as an
+ * hexadecimal string.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class Fingerprint {
+
+	/**
+	 * The digest computing the fingerprint.
+	 */
+	private final MessageDigest digest;
+
+	/**
+	 * Constructor.
+	 */
+	public Fingerprint() {
+		try {
+			this.digest = MessageDigest.getInstance("MD5");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("MD5 is not supported.", e);
+		}
+	}
+
+	/**
+	 * Add a string to the fingerprint. The strings added are separated, so
+	 * that "ab" then "c" and "a" then "bc" give different fingerprints.
+	 * 
+	 * @param value
+	 *            the string.
+	 * @return this fingerprint.
+	 */
+	public Fingerprint add(final String value) {
+		try {
+			this.digest.update(value.getBytes("UTF-8"));
+		} catch (final UnsupportedEncodingException e) {
+			throw new IllegalStateException("UTF-8 is not supported.", e);
+		}
+		this.digest.update((byte) 0);
+		return this;
+	}
+
+	/**
+	 * Add a number to the fingerprint.
+	 * 
+	 * @param value
+	 *            the number.
+	 * @return this fingerprint.
+	 */
+	public Fingerprint add(final long value) {
+		for (int i = 0; i < 8; i++) {
+			this.digest.update((byte) (value >>> (i * 8)));
+		}
+		return this;
+	}
+
+	/**
+	 * Add the paths, sizes and last modification dates of the class files of a
+	 * directory and of its sub directories to the fingerprint. The class files
+	 * are not read.
+	 * 
+	 * @param directory
+	 *            the directory.
+	 * @return this fingerprint.
+	 */
+	public Fingerprint addClassFiles(final File directory) {
+		return this.addClassFiles(directory, Collections.<String> emptySet());
+	}
+
+	/**
+	 * Add the paths, sizes and last modification dates of the class files of a
+	 * directory and of its sub directories to the fingerprint, but the class
+	 * files of the classes excluded and of their nested classes.
+	 * 
+	 * @param directory
+	 *            the directory.
+	 * @param excludedClasses
+	 *            the paths of the classes excluded, relative to the directory
+	 *            and without extension, e.g. <code>fr/maven/dto/BeanDTO</code>.
+	 * @return this fingerprint.
+	 */
+	public Fingerprint addClassFiles(final File directory,
+			final Set<String> excludedClasses) {
+		this.addClassFiles(directory, "", excludedClasses);
+		return this;
+	}
+
+	/**
+	 * Add the class files of a directory and of its sub directories to the
+	 * fingerprint.
+	 * 
+	 * @param directory
+	 *            the directory.
+	 * @param relativePath
+	 *            the path of the directory relative to the first directory.
+	 * @param excludedClasses
+	 *            the paths of the classes excluded.
+	 */
+	private void addClassFiles(final File directory,
+			final String relativePath, final Set<String> excludedClasses) {
+		final String[] children = directory.list();
+		if (children == null) {
+			return;
+		}
+		Arrays.sort(children);
+		for (final String child : children) {
+			final File file = new File(directory, child);
+			if (child.endsWith(".class")) {
+				String className = child.substring(0, child.length()
+						- ".class".length());
+				final int nestedStart = className.indexOf('$');
+				if (nestedStart > 0) {
+					className = className.substring(0, nestedStart);
+				}
+				if (!excludedClasses.contains(relativePath + className)) {
+					this.add(relativePath + child).add(file.lastModified())
+							.add(file.length());
+				}
+			} else if (file.isDirectory()) {
+				this.addClassFiles(file, relativePath + child + "/",
+						excludedClasses);
+			}
+		}
+	}
+
+	/**
+	 * Return the fingerprint of the values added. The fingerprint can not be
+	 * used anymore.
+	 * 
+	 * @return the fingerprint, as an hexadecimal string.
+	 */
+	public String toHexString() {
+		final byte[] bytes = this.digest.digest();
+		final StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (final byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+			hex.append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+}
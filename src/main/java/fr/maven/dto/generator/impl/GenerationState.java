@@ -0,0 +1,374 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Persistent state of the DTO generation.
+ * 
+ * For each class a DTO has been generated for, the state records the
+ * structural fingerprint of the class, so that the next generation does not
+ * write again the DTOs of the classes whose fingerprint is unchanged.
+ * 
+ * The state also records the classes referenced by the fields of each class :
+ * the dependency graph between DTOs. When a class enters or leaves the classes
+ * to generate, the DTOs referencing it are generated again.
+ * 
+ * Finally the state is the manifest of the DTO files generated : the files
+ * that are no longer generated are removed.
+ * 
+ * The state also records the settings of the generation that change the DTO
+ * files of a class without changing its fingerprint, such as the encoding of
+ * the DTOs : when they change, all the DTOs are generated again.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class GenerationState {
+
+	/**
+	 * Version of the state file format.
+	 */
+	private static final int FORMAT_VERSION = 4;
+
+	/**
+	 * The settings of the generation the DTO files depend on.
+	 */
+	private String settings;
+
+	/**
+	 * The fingerprints by class name, sorted so that the state written does
+	 * not depend on the order the classes have been generated in.
+	 */
+	private final Map<String, String> fingerprints;
+
+	/**
+	 * The classes referenced by the fields of each class, by class name.
+	 */
+	private final Map<String, Set<String>> references;
+
+	/**
+	 * The DTO file generated for each class, relative to the generated
+	 * directory, by class name.
+	 */
+	private final Map<String, String> outputs;
+
+	/**
+	 * Constructor of an empty state.
+	 */
+	public GenerationState() {
+		this.settings = "";
+		this.fingerprints = new TreeMap<String, String>();
+		this.references = new HashMap<String, Set<String>>();
+		this.outputs = new HashMap<String, String>();
+	}
+
+	/**
+	 * Load the state from the file given. A missing or unreadable file gives
+	 * an empty state.
+	 * 
+	 * @param stateFile
+	 *            the state file, may be <code>null</code>.
+	 * @return the state loaded.
+	 */
+	public static GenerationState load(final File stateFile) {
+		final GenerationState state = new GenerationState();
+		if (stateFile != null && stateFile.isFile()) {
+			try {
+				final DataInputStream input = new DataInputStream(
+						new BufferedInputStream(new FileInputStream(stateFile)));
+				try {
+					state.read(input);
+				} finally {
+					input.close();
+				}
+			} catch (final IOException e) {
+				// A corrupted state only means a full generation.
+				state.clear();
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Save the state to the file given. The state is written to a temporary
+	 * file renamed at the end, so that an interrupted build never leaves a
+	 * partial state.
+	 * 
+	 * @param stateFile
+	 *            the state file.
+	 * @throws IOException
+	 *             if the state can not be written.
+	 */
+	public void save(final File stateFile) throws IOException {
+		this.save(stateFile, false);
+	}
+
+	/**
+	 * Save the state to the file given. The state is written to a temporary
+	 * file renamed at the end, so that an interrupted build never leaves a
+	 * partial state.
+	 * 
+	 * @param stateFile
+	 *            the state file.
+	 * @param sync
+	 *            <code>true</code> to force the state to the disk before it
+	 *            replaces the previous one.
+	 * @throws IOException
+	 *             if the state can not be written.
+	 */
+	public synchronized void save(final File stateFile, final boolean sync)
+			throws IOException {
+		final File stateDirectory = stateFile.getAbsoluteFile().getParentFile();
+		if (!stateDirectory.mkdirs() && !stateDirectory.isDirectory()) {
+			throw new IOException("The directory " + stateDirectory
+					+ " can not be created.");
+		}
+		// Each save has its own temporary file, as the state file may be
+		// shared by generations running concurrently.
+		final File temporaryFile = File.createTempFile(stateFile.getName(),
+				".tmp", stateDirectory);
+		boolean renamed = false;
+		try {
+			final FileOutputStream fileOutput = new FileOutputStream(
+					temporaryFile);
+			final DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(fileOutput));
+			try {
+				this.write(output);
+				if (sync) {
+					output.flush();
+					fileOutput.getFD().sync();
+				}
+			} finally {
+				output.close();
+			}
+			renamed = DTOSourceWriter.rename(temporaryFile, stateFile);
+			if (!renamed) {
+				throw new IOException("The state " + stateFile
+						+ " can not be written.");
+			}
+		} finally {
+			if (!renamed) {
+				temporaryFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Return the settings of the generation the DTO files depend on.
+	 * 
+	 * @return the settings, empty if none is recorded.
+	 */
+	public synchronized String getSettings() {
+		return this.settings;
+	}
+
+	/**
+	 * Record the settings of the generation the DTO files depend on.
+	 * 
+	 * @param settings
+	 *            the settings.
+	 */
+	public synchronized void setSettings(final String settings) {
+		this.settings = settings;
+	}
+
+	/**
+	 * Return the fingerprint recorded for a class.
+	 * 
+	 * @param className
+	 *            the class name.
+	 * @return the fingerprint, <code>null</code> if no DTO has been generated
+	 *         for the class.
+	 */
+	public synchronized String getFingerprint(final String className) {
+		return this.fingerprints.get(className);
+	}
+
+	/**
+	 * Check if the state contains a class.
+	 * 
+	 * @param className
+	 *            the class name.
+	 * @return <code>true</code> if the class is a class to generate in this
+	 *         state.
+	 */
+	public synchronized boolean contains(final String className) {
+		return this.fingerprints.containsKey(className);
+	}
+
+	/**
+	 * Return the names of the classes of the state.
+	 * 
+	 * @return the class names, sorted.
+	 */
+	public synchronized Set<String> getClassNames() {
+		return new TreeSet<String>(this.fingerprints.keySet());
+	}
+
+	/**
+	 * Record the fingerprint of a class whose DTO is generated.
+	 * 
+	 * @param className
+	 *            the class name.
+	 * @param fingerprint
+	 *            the fingerprint.
+	 */
+	public synchronized void putFingerprint(final String className,
+			final String fingerprint) {
+		this.fingerprints.put(className, fingerprint);
+	}
+
+	/**
+	 * Return the classes referenced by the fields of a class.
+	 * 
+	 * @param className
+	 *            the class name.
+	 * @return the referenced class names, empty if none is recorded.
+	 */
+	public synchronized Set<String> getReferences(final String className) {
+		final Set<String> referencedClassNames = this.references.get(className);
+		if (referencedClassNames == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(referencedClassNames);
+	}
+
+	/**
+	 * Record the classes referenced by the fields of a class.
+	 * 
+	 * @param className
+	 *            the class name.
+	 * @param referencedClassNames
+	 *            the referenced class names.
+	 */
+	public synchronized void putReferences(final String className,
+			final Collection<String> referencedClassNames) {
+		this.references.put(className, new LinkedHashSet<String>(
+				referencedClassNames));
+	}
+
+	/**
+	 * Return the DTO file generated for a class.
+	 * 
+	 * @param className
+	 *            the class name.
+	 * @return the path of the DTO file relative to the generated directory,
+	 *         <code>null</code> if none is recorded.
+	 */
+	public synchronized String getOutput(final String className) {
+		return this.outputs.get(className);
+	}
+
+	/**
+	 * Return the DTO files generated for all the classes of the state.
+	 * 
+	 * @return the paths of the DTO files relative to the generated directory.
+	 */
+	public synchronized Set<String> getOutputs() {
+		return new HashSet<String>(this.outputs.values());
+	}
+
+	/**
+	 * Record the DTO file generated for a class.
+	 * 
+	 * @param className
+	 *            the class name.
+	 * @param output
+	 *            the path of the DTO file relative to the generated
+	 *            directory.
+	 */
+	public synchronized void putOutput(final String className,
+			final String output) {
+		this.outputs.put(className, output);
+	}
+
+	/**
+	 * Remove all the classes of the state.
+	 */
+	private void clear() {
+		this.settings = "";
+		this.fingerprints.clear();
+		this.references.clear();
+		this.outputs.clear();
+	}
+
+	/**
+	 * Read the state.
+	 * 
+	 * @param input
+	 *            the state file content.
+	 * @throws IOException
+	 *             if the content is not a valid state.
+	 */
+	private void read(final DataInputStream input) throws IOException {
+		if (input.readInt() != FORMAT_VERSION) {
+			return;
+		}
+		this.settings = input.readUTF();
+		final int classesCount = input.readInt();
+		for (int i = 0; i < classesCount; i++) {
+			final String className = input.readUTF();
+			this.fingerprints.put(className, input.readUTF());
+			final String dtoFile = input.readUTF();
+			if (dtoFile.length() > 0) {
+				this.outputs.put(className, dtoFile);
+			}
+			final int referencesCount = input.readInt();
+			final Set<String> referencedClassNames = new LinkedHashSet<String>();
+			for (int j = 0; j < referencesCount; j++) {
+				referencedClassNames.add(input.readUTF());
+			}
+			this.putReferences(className, referencedClassNames);
+		}
+	}
+
+	/**
+	 * Write the state.
+	 * 
+	 * @param output
+	 *            the state file content.
+	 * @throws IOException
+	 *             if the content can not be written.
+	 */
+	private void write(final DataOutputStream output) throws IOException {
+		output.writeInt(FORMAT_VERSION);
+		output.writeUTF(this.settings);
+		output.writeInt(this.fingerprints.size());
+		for (final Map.Entry<String, String> fingerprint : this.fingerprints
+				.entrySet()) {
+			output.writeUTF(fingerprint.getKey());
+			output.writeUTF(fingerprint.getValue());
+			String dtoFile = this.outputs.get(fingerprint.getKey());
+			if (dtoFile == null) {
+				dtoFile = "";
+			}
+			output.writeUTF(dtoFile);
+			final Set<String> referencedClassNames = this
+					.getReferences(fingerprint.getKey());
+			output.writeInt(referencedClassNames.size());
+			for (final String referencedClassName : referencedClassNames) {
+				output.writeUTF(referencedClassName);
+			}
+		}
+	}
+}
@@ -0,0 +1,771 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Class loader of the classes of a classpath made of directories and
+ * archives.
+ * 
+ * When the class loader is created, it indexes the packages of each classpath
+ * element, so that a class or a resource is looked up only in the classpath
+ * elements containing its package, instead of in every classpath element. The
+ * archives are read through a {@link ZipArchive} opened once, and their
+ * resources are read from it too.
+ * 
+ * The class loader registers as parallel capable when the JVM supports it, so
+ * that classes can be loaded concurrently. It has to be closed to release the
+ * archives.
+ * 
+ * A class loader created parent last looks up a class in its own classpath
+ * before its parent : the directories of a module loaded above the shared
+ * class loader of its archives keep their precedence over the archives.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class IndexedClassLoader extends ClassLoader implements Closeable {
+
+	static {
+		IndexedClassLoader.registerAsParallelCapableIfSupported();
+	}
+
+	/**
+	 * The classpath elements by package path, in the classpath order.
+	 */
+	private final Map<String, List<Element>> elementsByPackage;
+
+	/**
+	 * The classpath elements, in the classpath order.
+	 */
+	private final List<Element> elements;
+
+	/**
+	 * The archives opened, by absolute file.
+	 */
+	private final Map<File, ZipArchive> archivesByFile;
+
+	/**
+	 * <code>true</code> if a class is looked up in the classpath of this
+	 * class loader before its parent.
+	 */
+	private final boolean parentLast;
+
+	/**
+	 * The locks of the classes loaded parent last, by class name.
+	 */
+	private final ConcurrentMap<String, Object> loadingLocks;
+
+	/**
+	 * <code>true</code> once the class loader is closed.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Constructor. The URLs that are not directories or archives are
+	 * ignored.
+	 * 
+	 * @param urls
+	 *            the URLs of the classpath elements.
+	 * @param parent
+	 *            the parent class loader, <code>null</code> for the bootstrap
+	 *            class loader.
+	 */
+	public IndexedClassLoader(final URL[] urls, final ClassLoader parent) {
+		this(urls, parent, false);
+	}
+
+	/**
+	 * Constructor. The URLs that are not directories or archives are
+	 * ignored.
+	 * 
+	 * @param urls
+	 *            the URLs of the classpath elements.
+	 * @param parent
+	 *            the parent class loader, <code>null</code> for the bootstrap
+	 *            class loader.
+	 * @param parentLast
+	 *            <code>true</code> to look up a class in the classpath of
+	 *            this class loader before its parent.
+	 */
+	public IndexedClassLoader(final URL[] urls, final ClassLoader parent,
+			final boolean parentLast) {
+		super(parent);
+		this.parentLast = parentLast;
+		this.loadingLocks = new ConcurrentHashMap<String, Object>();
+		this.elementsByPackage = new HashMap<String, List<Element>>();
+		this.elements = new ArrayList<Element>();
+		this.archivesByFile = new HashMap<File, ZipArchive>();
+		for (final URL url : urls) {
+			final Element element = this.createElement(url);
+			if (element != null) {
+				this.elements.add(element);
+				if (element instanceof ArchiveElement) {
+					final ZipArchive zipArchive = ((ArchiveElement) element).zipArchive;
+					this.archivesByFile.put(zipArchive.getFile()
+							.getAbsoluteFile(), zipArchive);
+				}
+				for (final String packagePath : element.getPackages()) {
+					List<Element> packageElements = this.elementsByPackage
+							.get(packagePath);
+					if (packageElements == null) {
+						packageElements = new ArrayList<Element>(1);
+						this.elementsByPackage.put(packagePath, packageElements);
+					}
+					packageElements.add(element);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Register this class loader class as parallel capable. The registration
+	 * is available since Java 7 only, so it is called by reflection.
+	 */
+	private static void registerAsParallelCapableIfSupported() {
+		try {
+			final Method registerAsParallelCapable = ClassLoader.class
+					.getDeclaredMethod("registerAsParallelCapable");
+			registerAsParallelCapable.invoke(null);
+		} catch (final Exception e) {
+			// Before Java 7, class loading is synchronized on the class
+			// loader.
+			return;
+		}
+	}
+
+	/**
+	 * {@inheritDoc} A class loader created parent last looks up the class in
+	 * its own classpath first.
+	 * 
+	 * @see java.lang.ClassLoader#loadClass(java.lang.String, boolean)
+	 */
+	@Override
+	protected Class<?> loadClass(final String name, final boolean resolve)
+			throws ClassNotFoundException {
+		if (!this.parentLast || name.startsWith("java.")) {
+			return super.loadClass(name, resolve);
+		}
+		Object lock = new Object();
+		final Object previousLock = this.loadingLocks.putIfAbsent(name, lock);
+		if (previousLock != null) {
+			lock = previousLock;
+		}
+		synchronized (lock) {
+			Class<?> clazz = this.findLoadedClass(name);
+			if (clazz == null
+					&& !this.getElements(name.replace('.', '/') + ".class")
+							.isEmpty()) {
+				try {
+					clazz = this.findClass(name);
+				} catch (final ClassNotFoundException e) {
+					// The package is shared with the parent.
+					clazz = null;
+				}
+			}
+			if (clazz == null) {
+				return super.loadClass(name, resolve);
+			}
+			if (resolve) {
+				this.resolveClass(clazz);
+			}
+			return clazz;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.ClassLoader#findClass(java.lang.String)
+	 */
+	@Override
+	protected Class<?> findClass(final String name)
+			throws ClassNotFoundException {
+		final String path = name.replace('.', '/') + ".class";
+		for (final Element element : this.getElements(path)) {
+			final byte[] classFile;
+			try {
+				classFile = element.read(path);
+			} catch (final IOException e) {
+				throw new ClassNotFoundException(name, e);
+			}
+			if (classFile != null) {
+				this.definePackageIfNeeded(name);
+				return this.defineClass(name, classFile, 0, classFile.length,
+						element.protectionDomain);
+			}
+		}
+		throw new ClassNotFoundException(name);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.ClassLoader#findResource(java.lang.String)
+	 */
+	@Override
+	protected URL findResource(final String name) {
+		for (final Element element : this.getElements(name)) {
+			final URL resource = element.getResource(name);
+			if (resource != null) {
+				return resource;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.ClassLoader#findResources(java.lang.String)
+	 */
+	@Override
+	protected Enumeration<URL> findResources(final String name)
+			throws IOException {
+		final List<URL> resources = new ArrayList<URL>();
+		for (final Element element : this.getElements(name)) {
+			final URL resource = element.getResource(name);
+			if (resource != null) {
+				resources.add(resource);
+			}
+		}
+		return Collections.enumeration(resources);
+	}
+
+	/**
+	 * Return the archive of the classpath opened by this class loader or by
+	 * its parent, so that it can be read without being opened again. The
+	 * archive must not be closed by the caller.
+	 * 
+	 * @param archive
+	 *            the archive file.
+	 * @return the archive opened, <code>null</code> if the archive is not in
+	 *         the classpath or if the class loader is closed.
+	 */
+	public ZipArchive getArchive(final File archive) {
+		if (this.closed) {
+			return null;
+		}
+		final ZipArchive zipArchive = this.archivesByFile.get(archive
+				.getAbsoluteFile());
+		if (zipArchive == null && this.getParent() instanceof IndexedClassLoader) {
+			return ((IndexedClassLoader) this.getParent()).getArchive(archive);
+		}
+		return zipArchive;
+	}
+
+	/**
+	 * Return the directories and archives of the classpath of this class
+	 * loader, without those of its parent.
+	 * 
+	 * @return the classpath elements, in the classpath order.
+	 */
+	public List<File> getClasspath() {
+		final List<File> classpath = new ArrayList<File>(this.elements.size());
+		for (final Element element : this.elements) {
+			classpath.add(element.getFile());
+		}
+		return classpath;
+	}
+
+	/**
+	 * Release the archives of the classpath. The classes already loaded stay
+	 * usable, but no class or resource can be found anymore.
+	 * 
+	 * @throws IOException
+	 *             if an archive can not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.closed = true;
+		IOException failure = null;
+		for (final Element element : this.elements) {
+			try {
+				element.close();
+			} catch (final IOException e) {
+				failure = e;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Return the classpath elements that may contain the resource given.
+	 * 
+	 * @param path
+	 *            the resource path.
+	 * @return the classpath elements containing the package of the resource.
+	 */
+	private List<Element> getElements(final String path) {
+		if (this.closed) {
+			return Collections.emptyList();
+		}
+		final List<Element> packageElements = this.elementsByPackage.get(this
+				.getPackagePath(path));
+		if (packageElements == null) {
+			return Collections.emptyList();
+		}
+		return packageElements;
+	}
+
+	/**
+	 * Define the package of the class given if it is not defined yet.
+	 * 
+	 * @param className
+	 *            the class name.
+	 */
+	private void definePackageIfNeeded(final String className) {
+		final int lastDot = className.lastIndexOf('.');
+		if (lastDot > 0) {
+			final String packageName = className.substring(0, lastDot);
+			if (this.getPackage(packageName) == null) {
+				try {
+					this.definePackage(packageName, null, null, null, null,
+							null, null, null);
+				} catch (final IllegalArgumentException e) {
+					// The package has been defined by another thread.
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the package path of a resource.
+	 * 
+	 * @param path
+	 *            the resource path, e.g. <code>fr/maven/dto/Bean.class</code>.
+	 * @return the package path, e.g. <code>fr/maven/dto</code>.
+	 */
+	private String getPackagePath(final String path) {
+		final int lastSlash = path.lastIndexOf('/');
+		if (lastSlash < 0) {
+			return "";
+		}
+		return path.substring(0, lastSlash);
+	}
+
+	/**
+	 * Create the classpath element of an URL.
+	 * 
+	 * @param url
+	 *            the URL.
+	 * @return the classpath element, <code>null</code> if the URL is not a
+	 *         directory or an archive.
+	 */
+	private Element createElement(final URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			return null;
+		}
+		File file;
+		try {
+			file = new File(url.toURI());
+		} catch (final URISyntaxException e) {
+			file = new File(url.getPath());
+		}
+		try {
+			if (file.isDirectory()) {
+				return new DirectoryElement(url, file);
+			} else if (file.isFile()) {
+				return new ArchiveElement(url, new ZipArchive(file));
+			}
+		} catch (final IOException e) {
+			// As with URLClassLoader, an invalid element contains nothing.
+			return null;
+		}
+		return null;
+	}
+
+	/**
+	 * A classpath element.
+	 */
+	private abstract static class Element {
+
+		/**
+		 * The protection domain of the classes of the element.
+		 */
+		private final ProtectionDomain protectionDomain;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param url
+		 *            the URL of the element.
+		 */
+		Element(final URL url) {
+			this.protectionDomain = new ProtectionDomain(new CodeSource(url,
+					(Certificate[]) null), null);
+		}
+
+		/**
+		 * Return the directory or the archive of the element.
+		 * 
+		 * @return the file of the element.
+		 */
+		abstract File getFile();
+
+		/**
+		 * Return the paths of the packages of the element.
+		 * 
+		 * @return the package paths, empty for the default package.
+		 */
+		abstract Set<String> getPackages();
+
+		/**
+		 * Read a resource of the element.
+		 * 
+		 * @param path
+		 *            the resource path.
+		 * @return the resource content, <code>null</code> if the element does
+		 *         not contain it.
+		 * @throws IOException
+		 *             if the resource can not be read.
+		 */
+		abstract byte[] read(String path) throws IOException;
+
+		/**
+		 * Return the URL of a resource of the element.
+		 * 
+		 * @param path
+		 *            the resource path.
+		 * @return the URL, <code>null</code> if the element does not contain
+		 *         it.
+		 */
+		abstract URL getResource(String path);
+
+		/**
+		 * Release the element.
+		 * 
+		 * @throws IOException
+		 *             if the element can not be released.
+		 */
+		abstract void close() throws IOException;
+	}
+
+	/**
+	 * A directory of the classpath.
+	 */
+	private static final class DirectoryElement extends Element {
+
+		/**
+		 * The directory.
+		 */
+		private final File directory;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param url
+		 *            the URL of the directory.
+		 * @param directory
+		 *            the directory.
+		 */
+		DirectoryElement(final URL url, final File directory) {
+			super(url);
+			this.directory = directory;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.maven.dto.generator.impl.IndexedClassLoader.Element#getFile()
+		 */
+		@Override
+		File getFile() {
+			return this.directory;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.maven.dto.generator.impl.IndexedClassLoader.Element#getPackages()
+		 */
+		@Override
+		Set<String> getPackages() {
+			final Set<String> packages = new LinkedHashSet<String>();
+			this.addPackages(this.directory, "", packages);
+			return packages;
+		}
+
+		/**
+		 * Add the package of a directory and of its sub directories.
+		 * 
+		 * @param packageDirectory
+		 *            the directory of the package.
+		 * @param packagePath
+		 *            the package path.
+		 * @param packages
+		 *            the list where the package paths are added.
+		 */
+		private void addPackages(final File packageDirectory,
+				final String packagePath, final Set<String> packages) {
+			final File[] children = packageDirectory.listFiles();
+			if (children == null) {
+				return;
+			}
+			boolean hasFile = false;
+			for (final File child : children) {
+				if (child.isDirectory()) {
+					String childPath = child.getName();
+					if (packagePath.length() > 0) {
+						childPath = packagePath + "/" + childPath;
+					}
+					this.addPackages(child, childPath, packages);
+				} else {
+					hasFile = true;
+				}
+			}
+			if (hasFile) {
+				packages.add(packagePath);
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.maven.dto.generator.impl.IndexedClassLoader.Element#read(java.lang.String)
+		 */
+		@Override
+		byte[] read(final String path) throws IOException {
+			final File file = new File(this.directory, path);
+			if (!file.isFile()) {
+				return null;
+			}
+			final InputStream input = new FileInputStream(file);
+			try {
+				final ByteArrayOutputStream content = new ByteArrayOutputStream(
+						(int) file.length());
+				final byte[] buffer = new byte[8192];
+				int length = input.read(buffer);
+				while (length >= 0) {
+					content.write(buffer, 0, length);
+					length = input.read(buffer);
+				}
+				return content.toByteArray();
+			} finally {
+				input.close();
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.maven.dto.generator.impl.IndexedClassLoader.Element#getResource(java.lang.String)
+		 */
+		@Override
+		URL getResource(final String path) {
+			final File file = new File(this.directory, path);
+			if (!file.isFile()) {
+				return null;
+			}
+			try {
+				return file.toURI().toURL();
+			} catch (final MalformedURLException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.maven.dto.generator.impl.IndexedClassLoader.Element#close()
+		 */
+		@Override
+		void close() {
+			// Nothing is kept opened.
+		}
+	}
+
+	/**
+	 * An archive of the classpath.
+	 */
+	private static final class ArchiveElement extends Element {
+
+		/**
+		 * The archive opened.
+		 */
+		private final ZipArchive zipArchive;
+
+		/**
+		 * The handler of the URLs of the resources, reading them from the
+		 * archive opened.
+		 */
+		private final URLStreamHandler handler;
+
+		/**
+		 * The URL of the archive.
+		 */
+		private final URL url;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param url
+		 *            the URL of the archive.
+		 * @param zipArchive
+		 *            the archive opened.
+		 */
+		ArchiveElement(final URL url, final ZipArchive zipArchive) {
+			super(url);
+			this.url = url;
+			this.zipArchive = zipArchive;
+			this.handler = new ArchiveURLStreamHandler(zipArchive);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.maven.dto.generator.impl.IndexedClassLoader.Element#getFile()
+		 */
+		@Override
+		File getFile() {
+			return this.zipArchive.getFile();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.maven.dto.generator.impl.IndexedClassLoader.Element#getPackages()
+		 */
+		@Override
+		Set<String> getPackages() {
+			final Set<String> packages = new LinkedHashSet<String>();
+			for (final ZipArchive.Entry entry : this.zipArchive.getEntries()) {
+				if (!entry.isDirectory()) {
+					final int lastSlash = entry.getName().lastIndexOf('/');
+					if (lastSlash >= 0) {
+						packages.add(entry.getName().substring(0, lastSlash));
+					} else {
+						packages.add("");
+					}
+				}
+			}
+			return packages;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.maven.dto.generator.impl.IndexedClassLoader.Element#read(java.lang.String)
+		 */
+		@Override
+		byte[] read(final String path) throws IOException {
+			final ZipArchive.Entry entry = this.zipArchive.getEntry(path);
+			if (entry == null) {
+				return null;
+			}
+			return this.zipArchive.readEntry(entry);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.maven.dto.generator.impl.IndexedClassLoader.Element#getResource(java.lang.String)
+		 */
+		@Override
+		URL getResource(final String path) {
+			if (this.zipArchive.getEntry(path) == null) {
+				return null;
+			}
+			try {
+				return new URL(null, "jar:" + this.url + "!/" + path,
+						this.handler);
+			} catch (final MalformedURLException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.maven.dto.generator.impl.IndexedClassLoader.Element#close()
+		 */
+		@Override
+		void close() throws IOException {
+			this.zipArchive.close();
+		}
+	}
+
+	/**
+	 * Handler of the URLs of the resources of an archive, reading them from
+	 * the archive opened instead of opening the archive again.
+	 */
+	private static final class ArchiveURLStreamHandler extends
+			URLStreamHandler {
+
+		/**
+		 * The archive opened.
+		 */
+		private final ZipArchive zipArchive;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param zipArchive
+		 *            the archive opened.
+		 */
+		ArchiveURLStreamHandler(final ZipArchive zipArchive) {
+			this.zipArchive = zipArchive;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.net.URLStreamHandler#openConnection(java.net.URL)
+		 */
+		@Override
+		protected URLConnection openConnection(final URL resourceURL)
+				throws IOException {
+			final String spec = resourceURL.toExternalForm();
+			final String path = spec.substring(spec.indexOf("!/") + 2);
+			return new URLConnection(resourceURL) {
+				@Override
+				public void connect() {
+					this.connected = true;
+				}
+
+				@Override
+				public InputStream getInputStream() throws IOException {
+					final ZipArchive.Entry entry = ArchiveURLStreamHandler.this.zipArchive
+							.getEntry(path);
+					if (entry == null) {
+						throw new IOException("The resource " + resourceURL
+								+ " does not exist.");
+					}
+					return new ByteArrayInputStream(
+							ArchiveURLStreamHandler.this.zipArchive
+									.readEntry(entry));
+				}
+			};
+		}
+	}
+}
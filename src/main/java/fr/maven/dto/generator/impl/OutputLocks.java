@@ -0,0 +1,143 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks of the outputs of the generations running in the JVM, e.g. the
+ * modules of a parallel reactor build. A generation owns its output
+ * directories and its state file until it ends : two generations writing to
+ * the same output run one after the other, the others run concurrently.
+ * 
+ * The outputs are locked in the order of their canonical paths, so that two
+ * generations locking the same outputs never deadlock. The lock of an output
+ * is only kept while a generation holds it or waits for it.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+final class OutputLocks {
+
+	/**
+	 * The lock of each output held or waited for, by canonical path.
+	 */
+	private static final Map<String, OutputLock> LOCKS = new HashMap<String, OutputLock>();
+
+	/**
+	 * The locks held.
+	 */
+	private final List<OutputLock> heldLocks;
+
+	/**
+	 * Constructor.
+	 */
+	private OutputLocks() {
+		this.heldLocks = new ArrayList<OutputLock>();
+	}
+
+	/**
+	 * Lock the outputs given, waiting for the generations owning them.
+	 * 
+	 * @param outputs
+	 *            the output directories and files, <code>null</code> ones
+	 *            are ignored.
+	 * @return the locks held, to unlock when the generation ends.
+	 * @throws IOException
+	 *             if the path of an output can not be resolved.
+	 */
+	public static OutputLocks lock(final File... outputs) throws IOException {
+		final SortedSet<String> paths = new TreeSet<String>();
+		for (final File output : outputs) {
+			if (output != null) {
+				paths.add(output.getCanonicalPath());
+			}
+		}
+		final OutputLocks outputLocks = new OutputLocks();
+		for (final String path : paths) {
+			final OutputLock outputLock;
+			synchronized (LOCKS) {
+				OutputLock existingLock = LOCKS.get(path);
+				if (existingLock == null) {
+					existingLock = new OutputLock(path);
+					LOCKS.put(path, existingLock);
+				}
+				existingLock.users++;
+				outputLock = existingLock;
+			}
+			outputLock.lock.lock();
+			outputLocks.heldLocks.add(outputLock);
+		}
+		return outputLocks;
+	}
+
+	/**
+	 * Unlock the outputs, in the reverse order.
+	 */
+	public void unlock() {
+		for (int i = this.heldLocks.size() - 1; i >= 0; i--) {
+			final OutputLock outputLock = this.heldLocks.get(i);
+			outputLock.lock.unlock();
+			synchronized (LOCKS) {
+				outputLock.users--;
+				if (outputLock.users == 0) {
+					LOCKS.remove(outputLock.path);
+				}
+			}
+		}
+		this.heldLocks.clear();
+	}
+
+	/**
+	 * Return the number of outputs held or waited for.
+	 * 
+	 * @return the number of locks kept.
+	 */
+	static int size() {
+		synchronized (LOCKS) {
+			return LOCKS.size();
+		}
+	}
+
+	/**
+	 * The lock of an output.
+	 */
+	private static final class OutputLock {
+
+		/**
+		 * The canonical path of the output.
+		 */
+		private final String path;
+
+		/**
+		 * The lock.
+		 */
+		private final ReentrantLock lock;
+
+		/**
+		 * The number of generations holding or waiting for the lock, guarded
+		 * by {@link OutputLocks#LOCKS}.
+		 */
+		private int users;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param path
+		 *            the canonical path of the output.
+		 */
+		private OutputLock(final String path) {
+			this.path = path;
+			this.lock = new ReentrantLock();
+		}
+	}
+}
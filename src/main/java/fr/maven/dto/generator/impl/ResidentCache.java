@@ -0,0 +1,101 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache kept by the JVM between the builds, for the JVMs running several
+ * builds such as a Maven daemon. The cache holds a bounded number of values
+ * and evicts the least recently used ones.
+ * 
+ * The keys are fingerprints of the files or of the classes the values are
+ * computed from, so that a changed file or class is never read from the
+ * cache. The keys and the values must not reference classes : the cache
+ * would keep their class loader, and all the classes of the build, alive.
+ * 
+ * The cache can be used concurrently.
+ * 
+ * @param <K>
+ *            the type of the keys.
+ * @param <V>
+ *            the type of the values.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+class ResidentCache<K, V> {
+
+	/**
+	 * The values by key, from the least recently used.
+	 */
+	private final Map<K, V> values;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacity
+	 *            the maximum number of values kept.
+	 */
+	public ResidentCache(final int capacity) {
+		this.values = new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+			/**
+			 * Serial version.
+			 */
+			private static final long serialVersionUID = 1L;
+
+			/**
+			 * {@inheritDoc}
+			 * 
+			 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+			 */
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+				return this.size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Return the value of a key.
+	 * 
+	 * @param key
+	 *            the key.
+	 * @return the value, <code>null</code> if it is not in the cache.
+	 */
+	public synchronized V get(final K key) {
+		return this.values.get(key);
+	}
+
+	/**
+	 * Keep the value of a key, evicting the least recently used value if the
+	 * cache is full.
+	 * 
+	 * @param key
+	 *            the key.
+	 * @param value
+	 *            the value.
+	 */
+	public synchronized void put(final K key, final V value) {
+		this.values.put(key, value);
+	}
+
+	/**
+	 * Return the number of values kept.
+	 * 
+	 * @return the size of the cache.
+	 */
+	public synchronized int size() {
+		return this.values.size();
+	}
+
+	/**
+	 * Remove all the values.
+	 */
+	public synchronized void clear() {
+		this.values.clear();
+	}
+}
@@ -0,0 +1,650 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent index of the classes found in each classpath element.
+ * 
+ * For each directory or archive, the index records the classes found for
+ * each scan key (the include and exclude patterns and the selection
+ * criteria). An archive is known unchanged when its size and its last
+ * modification date are unchanged, or when the names and CRCs of its central
+ * directory are unchanged. A directory is known unchanged when the names,
+ * sizes and last modification dates of its class files are unchanged. The
+ * packages of the class files of an archive are recorded too, so that an
+ * archive whose packages can not match the patterns is skipped without being
+ * opened.
+ * 
+ * The classes selected by super class or interface depend on the class files
+ * of their super types, which may be in another classpath element : their
+ * scan key then holds the fingerprint of the whole classpath. Only the last
+ * scan keys of an entry are kept, so that an unchanged archive does not
+ * accumulate the scans of every classpath it has been part of.
+ * 
+ * The entries are also kept by the JVM, keyed by the size and last
+ * modification date of the archive or by the fingerprint of the directory :
+ * the modules of a reactor, and the next builds of a Maven daemon, do not
+ * scan again a classpath element another index has already scanned.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ScanIndex {
+
+	/**
+	 * Version of the index file format.
+	 */
+	private static final int FORMAT_VERSION = 3;
+
+	/**
+	 * The maximum number of scan keys recorded by entry.
+	 */
+	private static final int SCAN_KEYS_CAPACITY = 8;
+
+	/**
+	 * The maximum number of entries kept by the JVM.
+	 */
+	private static final int RESIDENT_CAPACITY = 1024;
+
+	/**
+	 * The entries kept by the JVM, by key of the classpath element content.
+	 */
+	private static final ResidentCache<String, Entry> RESIDENT_ENTRIES = new ResidentCache<String, Entry>(
+			RESIDENT_CAPACITY);
+
+	/**
+	 * The index entries by absolute path of the classpath element.
+	 */
+	private final Map<String, Entry> entries;
+
+	/**
+	 * The absolute paths of the classpath elements used since the index has
+	 * been loaded.
+	 */
+	private final Set<String> usedPaths;
+
+	/**
+	 * Constructor of an empty index.
+	 */
+	public ScanIndex() {
+		this.entries = new HashMap<String, Entry>();
+		this.usedPaths = new LinkedHashSet<String>();
+	}
+
+	/**
+	 * Load the index from the file given. A missing, unreadable or corrupted
+	 * file gives an empty index.
+	 * 
+	 * @param indexFile
+	 *            the index file.
+	 * @return the index loaded.
+	 */
+	public static ScanIndex load(final File indexFile) {
+		final ScanIndex scanIndex = new ScanIndex();
+		if (indexFile.isFile()) {
+			try {
+				final DataInputStream input = new DataInputStream(
+						new BufferedInputStream(new FileInputStream(indexFile)));
+				try {
+					scanIndex.read(input, indexFile.length());
+				} finally {
+					input.close();
+				}
+			} catch (final IOException e) {
+				// A corrupted index is only a cache miss.
+				scanIndex.entries.clear();
+			} catch (final RuntimeException e) {
+				// A corrupted index is only a cache miss.
+				scanIndex.entries.clear();
+			}
+		}
+		return scanIndex;
+	}
+
+	/**
+	 * Save the index to the file given. Only the classpath elements used since
+	 * the index has been loaded are saved. The index is written to a
+	 * temporary file renamed at the end, so that an interrupted build never
+	 * leaves a partial index.
+	 * 
+	 * @param indexFile
+	 *            the index file.
+	 * @throws IOException
+	 *             if the index can not be written.
+	 */
+	public synchronized void save(final File indexFile) throws IOException {
+		final File indexDirectory = indexFile.getAbsoluteFile().getParentFile();
+		if (!indexDirectory.mkdirs() && !indexDirectory.isDirectory()) {
+			throw new IOException("The directory " + indexDirectory
+					+ " can not be created.");
+		}
+		// Each save has its own temporary file, as the index file may be
+		// shared by scans running concurrently.
+		final File temporaryFile = File.createTempFile(indexFile.getName(),
+				".tmp", indexDirectory);
+		boolean renamed = false;
+		try {
+			final DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(
+							temporaryFile)));
+			try {
+				this.write(output);
+			} finally {
+				output.close();
+			}
+			renamed = DTOSourceWriter.rename(temporaryFile, indexFile);
+			if (!renamed) {
+				throw new IOException("The index " + indexFile
+						+ " can not be written.");
+			}
+		} finally {
+			if (!renamed) {
+				temporaryFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Return the entry of the classpath element given. If the classpath
+	 * element has changed since its entry was recorded, a new empty entry
+	 * replaces the outdated one. An archive whose content is unchanged but
+	 * whose date has changed keeps its entry.
+	 * 
+	 * @param directoryOrArchive
+	 *            the classpath element.
+	 * @return the entry of the classpath element.
+	 * @throws IOException
+	 *             if the classpath element can not be read.
+	 */
+	public Entry getEntry(final File directoryOrArchive) throws IOException {
+		return this.getEntry(directoryOrArchive, null);
+	}
+
+	/**
+	 * Return the entry of the classpath element given, reading the archive
+	 * already opened if the archive has to be read.
+	 * 
+	 * @param directoryOrArchive
+	 *            the classpath element.
+	 * @param zipArchive
+	 *            the archive opened, <code>null</code> to open it only if
+	 *            needed.
+	 * @return the entry of the classpath element.
+	 * @throws IOException
+	 *             if the classpath element can not be read.
+	 * @see #getEntry(File)
+	 */
+	public Entry getEntry(final File directoryOrArchive,
+			final ZipArchive zipArchive) throws IOException {
+		final String path = directoryOrArchive.getAbsolutePath();
+		final Entry entry;
+		synchronized (this) {
+			entry = this.entries.get(path);
+			this.usedPaths.add(path);
+		}
+		if (entry != null
+				&& this.isUpToDate(entry, directoryOrArchive, zipArchive)) {
+			return entry;
+		}
+		final Entry newEntry = this.getResidentEntry(directoryOrArchive,
+				zipArchive);
+		synchronized (this) {
+			this.entries.put(path, newEntry);
+		}
+		return newEntry;
+	}
+
+	/**
+	 * Check the index knows the archive given by its size and last
+	 * modification date : its entry is then given without reading the
+	 * archive.
+	 * 
+	 * @param archive
+	 *            the archive.
+	 * @return <code>true</code> if the entry of the archive is recorded.
+	 */
+	public boolean isRecorded(final File archive) {
+		final String path = archive.getAbsolutePath();
+		final long length = archive.length();
+		final long lastModified = archive.lastModified();
+		final Entry entry;
+		synchronized (this) {
+			entry = this.entries.get(path);
+		}
+		if (entry != null && entry.archive) {
+			synchronized (entry) {
+				if (entry.length == length && entry.lastModified == lastModified) {
+					return true;
+				}
+			}
+		}
+		return RESIDENT_ENTRIES.get(path + "|" + length + "|" + lastModified) != null;
+	}
+
+	/**
+	 * Check the entry given describes the current content of the classpath
+	 * element.
+	 * 
+	 * @param entry
+	 *            the entry recorded.
+	 * @param directoryOrArchive
+	 *            the classpath element.
+	 * @param zipArchive
+	 *            the archive opened, <code>null</code> to open it only if
+	 *            needed.
+	 * @return <code>true</code> if the entry is up to date.
+	 * @throws IOException
+	 *             if the classpath element can not be read.
+	 */
+	protected boolean isUpToDate(final Entry entry,
+			final File directoryOrArchive, final ZipArchive zipArchive)
+			throws IOException {
+		if (directoryOrArchive.isDirectory()) {
+			return !entry.archive
+					&& entry.fingerprint.equals(this
+							.computeDirectoryFingerprint(directoryOrArchive));
+		}
+		if (!entry.archive) {
+			return false;
+		}
+		final long length = directoryOrArchive.length();
+		final long lastModified = directoryOrArchive.lastModified();
+		synchronized (entry) {
+			if (entry.length == length && entry.lastModified == lastModified) {
+				return true;
+			}
+		}
+		if (entry.fingerprint.equals(this.computeArchiveFingerprint(
+				directoryOrArchive, zipArchive, null))) {
+			synchronized (entry) {
+				entry.length = length;
+				entry.lastModified = lastModified;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Return the entry of the classpath element kept by the JVM, created and
+	 * kept if the JVM has none for the current content of the element.
+	 * 
+	 * @param directoryOrArchive
+	 *            the classpath element.
+	 * @param zipArchive
+	 *            the archive opened, <code>null</code> to open it only if
+	 *            needed.
+	 * @return the entry of the classpath element.
+	 * @throws IOException
+	 *             if the classpath element can not be read.
+	 */
+	protected Entry getResidentEntry(final File directoryOrArchive,
+			final ZipArchive zipArchive) throws IOException {
+		final String residentKey;
+		String directoryFingerprint = null;
+		if (directoryOrArchive.isDirectory()) {
+			directoryFingerprint = this
+					.computeDirectoryFingerprint(directoryOrArchive);
+			residentKey = directoryOrArchive.getAbsolutePath() + "|"
+					+ directoryFingerprint;
+		} else {
+			residentKey = directoryOrArchive.getAbsolutePath() + "|"
+					+ directoryOrArchive.length() + "|"
+					+ directoryOrArchive.lastModified();
+		}
+		Entry entry = RESIDENT_ENTRIES.get(residentKey);
+		if (entry == null) {
+			if (directoryFingerprint != null) {
+				entry = new Entry();
+				entry.fingerprint = directoryFingerprint;
+			} else {
+				entry = this.createEntry(directoryOrArchive, zipArchive);
+			}
+			RESIDENT_ENTRIES.put(residentKey, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Remove the entries kept by the JVM.
+	 */
+	public static void clearResidentEntries() {
+		RESIDENT_ENTRIES.clear();
+	}
+
+	/**
+	 * Create a new entry, without class names, for the classpath element.
+	 * 
+	 * @param directoryOrArchive
+	 *            the classpath element.
+	 * @param zipArchive
+	 *            the archive opened, <code>null</code> to open it.
+	 * @return the entry created.
+	 * @throws IOException
+	 *             if the classpath element can not be read.
+	 */
+	protected Entry createEntry(final File directoryOrArchive,
+			final ZipArchive zipArchive) throws IOException {
+		final Entry entry = new Entry();
+		entry.archive = !directoryOrArchive.isDirectory();
+		if (entry.archive) {
+			entry.length = directoryOrArchive.length();
+			entry.lastModified = directoryOrArchive.lastModified();
+			final Set<String> packages = new LinkedHashSet<String>();
+			entry.fingerprint = this.computeArchiveFingerprint(
+					directoryOrArchive, zipArchive, packages);
+			entry.packages = Collections.unmodifiableSet(packages);
+		} else {
+			entry.fingerprint = this
+					.computeDirectoryFingerprint(directoryOrArchive);
+		}
+		return entry;
+	}
+
+	/**
+	 * Compute the fingerprint of an archive from the names and CRCs of its
+	 * central directory.
+	 * 
+	 * @param archive
+	 *            the archive.
+	 * @param openedArchive
+	 *            the archive opened, <code>null</code> to open it.
+	 * @param packages
+	 *            the set where the packages of the class files are added,
+	 *            <code>null</code> if they are not needed.
+	 * @return the fingerprint.
+	 * @throws IOException
+	 *             if the archive can not be read.
+	 */
+	protected String computeArchiveFingerprint(final File archive,
+			final ZipArchive openedArchive, final Set<String> packages)
+			throws IOException {
+		final Fingerprint fingerprint = new Fingerprint();
+		ZipArchive zipArchive = openedArchive;
+		if (zipArchive == null) {
+			zipArchive = new ZipArchive(archive);
+		}
+		try {
+			for (final ZipArchive.Entry zipEntry : zipArchive.getEntries()) {
+				fingerprint.add(zipEntry.getName()).add(zipEntry.getCrc())
+						.add(zipEntry.getSize());
+				if (packages != null && zipEntry.getName().endsWith(".class")) {
+					packages.add(this.getPackagePath(zipEntry.getName()));
+				}
+			}
+		} finally {
+			if (openedArchive == null) {
+				zipArchive.close();
+			}
+		}
+		return fingerprint.toHexString();
+	}
+
+	/**
+	 * Return the package path of an archive entry.
+	 * 
+	 * @param entryName
+	 *            the entry name, e.g. <code>fr/maven/dto/Bean.class</code>.
+	 * @return the package path, e.g. <code>fr/maven/dto</code>.
+	 */
+	private String getPackagePath(final String entryName) {
+		final int lastSlash = entryName.lastIndexOf('/');
+		if (lastSlash < 0) {
+			return "";
+		}
+		return entryName.substring(0, lastSlash);
+	}
+
+	/**
+	 * Compute the fingerprint of a directory from the paths, sizes and last
+	 * modification dates of its class files.
+	 * 
+	 * @param directory
+	 *            the directory.
+	 * @return the fingerprint.
+	 */
+	protected String computeDirectoryFingerprint(final File directory) {
+		return new Fingerprint().addClassFiles(directory).toHexString();
+	}
+
+	/**
+	 * Read the index.
+	 * 
+	 * @param input
+	 *            the index file content.
+	 * @param length
+	 *            the size of the index file, which bounds the counts read.
+	 * @throws IOException
+	 *             if the content is not a valid index.
+	 */
+	private void read(final DataInputStream input, final long length)
+			throws IOException {
+		if (input.readInt() != FORMAT_VERSION) {
+			return;
+		}
+		final int entriesCount = readCount(input, length);
+		for (int i = 0; i < entriesCount; i++) {
+			final String path = input.readUTF();
+			final Entry entry = new Entry();
+			entry.archive = input.readBoolean();
+			entry.length = input.readLong();
+			entry.lastModified = input.readLong();
+			entry.fingerprint = input.readUTF();
+			if (entry.archive) {
+				final int packagesCount = readCount(input, length);
+				final Set<String> packages = new LinkedHashSet<String>();
+				for (int j = 0; j < packagesCount; j++) {
+					packages.add(input.readUTF());
+				}
+				entry.packages = Collections.unmodifiableSet(packages);
+			}
+			final int keysCount = readCount(input, SCAN_KEYS_CAPACITY);
+			for (int j = 0; j < keysCount; j++) {
+				final String scanKey = input.readUTF();
+				final int classesCount = readCount(input, length);
+				final List<String> classNames = new ArrayList<String>();
+				for (int k = 0; k < classesCount; k++) {
+					classNames.add(input.readUTF());
+				}
+				entry.classNames.put(scanKey,
+						Collections.unmodifiableList(classNames));
+			}
+			this.entries.put(path, entry);
+		}
+	}
+
+	/**
+	 * Read a count of the index. Each element counted takes at least one byte
+	 * of the index file, so that a corrupted count is found before it is
+	 * used.
+	 * 
+	 * @param input
+	 *            the index file content.
+	 * @param maximum
+	 *            the maximum count.
+	 * @return the count read.
+	 * @throws IOException
+	 *             if the count is negative or greater than the maximum.
+	 */
+	private static int readCount(final DataInputStream input,
+			final long maximum) throws IOException {
+		final int count = input.readInt();
+		if (count < 0 || count > maximum) {
+			throw new IOException("The count " + count
+					+ " of the scan index is not valid.");
+		}
+		return count;
+	}
+
+	/**
+	 * Write the entries of the classpath elements used.
+	 * 
+	 * @param output
+	 *            the index file content.
+	 * @throws IOException
+	 *             if the content can not be written.
+	 */
+	private void write(final DataOutputStream output) throws IOException {
+		final List<String> paths = new ArrayList<String>();
+		for (final String path : this.usedPaths) {
+			if (this.entries.containsKey(path)) {
+				paths.add(path);
+			}
+		}
+		output.writeInt(FORMAT_VERSION);
+		output.writeInt(paths.size());
+		for (final String path : paths) {
+			output.writeUTF(path);
+			this.writeEntry(output, this.entries.get(path));
+		}
+	}
+
+	/**
+	 * Write an entry. The entry may be shared with the indexes of other
+	 * generations running concurrently.
+	 * 
+	 * @param output
+	 *            the index file content.
+	 * @param entry
+	 *            the entry.
+	 * @throws IOException
+	 *             if the content can not be written.
+	 */
+	private void writeEntry(final DataOutputStream output, final Entry entry)
+			throws IOException {
+		synchronized (entry) {
+			output.writeBoolean(entry.archive);
+			output.writeLong(entry.length);
+			output.writeLong(entry.lastModified);
+			output.writeUTF(entry.fingerprint);
+			if (entry.archive) {
+				output.writeInt(entry.packages.size());
+				for (final String packagePath : entry.packages) {
+					output.writeUTF(packagePath);
+				}
+			}
+			output.writeInt(entry.classNames.size());
+			for (final Map.Entry<String, List<String>> classNames : entry.classNames
+					.entrySet()) {
+				output.writeUTF(classNames.getKey());
+				output.writeInt(classNames.getValue().size());
+				for (final String className : classNames.getValue()) {
+					output.writeUTF(className);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The index entry of a classpath element. Its fingerprint is computed
+	 * before the classpath element is scanned, so that a change during the
+	 * scan is seen by the next build.
+	 */
+	public static class Entry {
+
+		/**
+		 * <code>true</code> if the classpath element is an archive.
+		 */
+		private boolean archive;
+
+		/**
+		 * The size of the archive.
+		 */
+		private long length;
+
+		/**
+		 * The last modification date of the archive.
+		 */
+		private long lastModified;
+
+		/**
+		 * The fingerprint of the classpath element content.
+		 */
+		private String fingerprint;
+
+		/**
+		 * The packages of the class files of the archive, <code>null</code>
+		 * for a directory.
+		 */
+		private Set<String> packages;
+
+		/**
+		 * The names of the classes found by scan key, the last used last.
+		 */
+		private final Map<String, List<String>> classNames = new LinkedHashMap<String, List<String>>(
+				16, 0.75f, true) {
+
+			/**
+			 * Serial version.
+			 */
+			private static final long serialVersionUID = 1L;
+
+			/**
+			 * {@inheritDoc}
+			 * 
+			 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+			 */
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<String, List<String>> eldest) {
+				return this.size() > SCAN_KEYS_CAPACITY;
+			}
+		};
+
+		/**
+		 * Return the packages of the class files of the archive.
+		 * 
+		 * @return the package paths, e.g. <code>fr/maven/dto</code>,
+		 *         <code>null</code> for a directory.
+		 */
+		public Set<String> getPackages() {
+			return this.packages;
+		}
+
+		/**
+		 * Return the names of the classes recorded for the scan key given.
+		 * 
+		 * @param scanKey
+		 *            the key of the patterns and criteria used to find
+		 *            classes.
+		 * @return the class names recorded, <code>null</code> if the
+		 *         classpath element has to be scanned.
+		 */
+		public synchronized List<String> getClassNames(final String scanKey) {
+			return this.classNames.get(scanKey);
+		}
+
+		/**
+		 * Record the names of the classes found for the scan key given.
+		 * 
+		 * @param scanKey
+		 *            the key of the patterns and criteria used to find
+		 *            classes.
+		 * @param classNamesFound
+		 *            the names of the classes found.
+		 */
+		public synchronized void putClassNames(final String scanKey,
+				final List<String> classNamesFound) {
+			this.classNames.put(scanKey, Collections
+					.unmodifiableList(new ArrayList<String>(classNamesFound)));
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A part of the classes to generate, so that several machines generate the
+ * DTOs of a huge set of classes, each machine its own shard.
+ * 
+ * The classes are partitioned by the hash of their canonical name :
+ * {@link String#hashCode()} is specified by the Java API, so each machine
+ * finds the same partition without any coordination with the others.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class Shard {
+
+	/**
+	 * The number of shards.
+	 */
+	private final int count;
+
+	/**
+	 * The index of the shard, from 0.
+	 */
+	private final int index;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param count
+	 *            the number of shards.
+	 * @param index
+	 *            the index of the shard, from 0 to count - 1.
+	 */
+	public Shard(final int count, final int index) {
+		if (count < 1) {
+			throw new IllegalArgumentException("The shard count " + count
+					+ " is not positive.");
+		}
+		if (index < 0 || index >= count) {
+			throw new IllegalArgumentException("The shard index " + index
+					+ " is not between 0 and " + (count - 1) + ".");
+		}
+		this.count = count;
+		this.index = index;
+	}
+
+	/**
+	 * Return the shard of a class.
+	 * 
+	 * @param className
+	 *            the binary name of the class.
+	 * @param count
+	 *            the number of shards.
+	 * @return the index of the shard the class belongs to.
+	 */
+	public static int getIndex(final String className, final int count) {
+		int hash = className.replace('$', '.').hashCode();
+		// The high bits of the hash also spread the classes.
+		hash ^= hash >>> 16;
+		return (hash & Integer.MAX_VALUE) % count;
+	}
+
+	/**
+	 * Check if a class belongs to the shard.
+	 * 
+	 * @param className
+	 *            the binary name of the class.
+	 * @return <code>true</code> if the DTO of the class is generated by the
+	 *         shard.
+	 */
+	public boolean contains(final String className) {
+		return getIndex(className, this.count) == this.index;
+	}
+
+	/**
+	 * Return the classes of the shard.
+	 * 
+	 * @param classNames
+	 *            the binary names of all the classes to generate.
+	 * @return the class names of the shard, in the same order.
+	 */
+	public List<String> filter(final List<String> classNames) {
+		final List<String> shardClassNames = new ArrayList<String>();
+		for (final String className : classNames) {
+			if (this.contains(className)) {
+				shardClassNames.add(className);
+			}
+		}
+		return shardClassNames;
+	}
+
+	/**
+	 * Return the number of shards.
+	 * 
+	 * @return the count.
+	 */
+	public int getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Return the index of the shard.
+	 * 
+	 * @return the index, from 0.
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+}
@@ -0,0 +1,383 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Manifest of the DTOs generated by a shard, written in the generated
+ * directory of the shard.
+ * 
+ * For each class of the shard, the manifest records the name of its DTO and
+ * its DTO source, and the DTO types its fields got for the classes of the
+ * other shards. It also records a digest of all the classes to generate :
+ * the shards can only be merged if they have found the same classes.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ShardManifest {
+
+	/**
+	 * Name of the manifest file in the generated directory of a shard.
+	 */
+	public static final String FILE_NAME = "dto-shard.bin";
+
+	/**
+	 * Version of the manifest file format.
+	 */
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * The number of shards.
+	 */
+	private final int shardCount;
+
+	/**
+	 * The index of the shard.
+	 */
+	private final int shardIndex;
+
+	/**
+	 * The digest of the names of all the classes to generate.
+	 */
+	private final String classesDigest;
+
+	/**
+	 * The canonical name of the DTO by class name.
+	 */
+	private final Map<String, String> dtoNames;
+
+	/**
+	 * The DTO source generated for each class, relative to the generated
+	 * directory, by class name.
+	 */
+	private final Map<String, String> outputs;
+
+	/**
+	 * The canonical names of the DTOs of the other shards used by the fields
+	 * of each class, by referenced class name, by class name.
+	 */
+	private final Map<String, Map<String, String>> references;
+
+	/**
+	 * Constructor of an empty manifest.
+	 * 
+	 * @param shard
+	 *            the shard.
+	 * @param classNames
+	 *            the binary names of all the classes to generate, in all the
+	 *            shards.
+	 */
+	public ShardManifest(final Shard shard, final Collection<String> classNames) {
+		this(shard.getCount(), shard.getIndex(), getDigest(classNames));
+	}
+
+	/**
+	 * Constructor of an empty manifest.
+	 * 
+	 * @param shardCount
+	 *            the number of shards.
+	 * @param shardIndex
+	 *            the index of the shard.
+	 * @param classesDigest
+	 *            the digest of all the classes to generate.
+	 */
+	private ShardManifest(final int shardCount, final int shardIndex,
+			final String classesDigest) {
+		this.shardCount = shardCount;
+		this.shardIndex = shardIndex;
+		this.classesDigest = classesDigest;
+		this.dtoNames = new TreeMap<String, String>();
+		this.outputs = new TreeMap<String, String>();
+		this.references = new TreeMap<String, Map<String, String>>();
+	}
+
+	/**
+	 * Return the digest of the classes to generate, whatever their order.
+	 * 
+	 * @param classNames
+	 *            the binary names of the classes.
+	 * @return the digest.
+	 */
+	private static String getDigest(final Collection<String> classNames) {
+		final Set<String> sortedClassNames = new TreeSet<String>(classNames);
+		final Fingerprint fingerprint = new Fingerprint();
+		fingerprint.add(sortedClassNames.size());
+		for (final String className : sortedClassNames) {
+			fingerprint.add(className);
+		}
+		return fingerprint.toHexString();
+	}
+
+	/**
+	 * Load the manifest from the file given.
+	 * 
+	 * @param manifestFile
+	 *            the manifest file.
+	 * @return the manifest loaded.
+	 * @throws IOException
+	 *             if the file is missing or is not a valid manifest.
+	 */
+	public static ShardManifest load(final File manifestFile)
+			throws IOException {
+		if (!manifestFile.isFile()) {
+			throw new IOException("The shard manifest " + manifestFile
+					+ " is missing.");
+		}
+		final DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(manifestFile)));
+		try {
+			if (input.readInt() != FORMAT_VERSION) {
+				throw new IOException("The shard manifest " + manifestFile
+						+ " has been written by another version.");
+			}
+			final ShardManifest manifest = new ShardManifest(input.readInt(),
+					input.readInt(), input.readUTF());
+			manifest.read(input);
+			return manifest;
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Save the manifest to the file given. The manifest is written to a
+	 * temporary file renamed at the end, so that an interrupted build never
+	 * leaves a partial manifest.
+	 * 
+	 * @param manifestFile
+	 *            the manifest file.
+	 * @param sync
+	 *            <code>true</code> to force the manifest to the disk before it
+	 *            replaces the previous one.
+	 * @throws IOException
+	 *             if the manifest can not be written.
+	 */
+	public synchronized void save(final File manifestFile, final boolean sync)
+			throws IOException {
+		final File manifestDirectory = manifestFile.getAbsoluteFile()
+				.getParentFile();
+		if (!manifestDirectory.mkdirs() && !manifestDirectory.isDirectory()) {
+			throw new IOException("The directory " + manifestDirectory
+					+ " can not be created.");
+		}
+		final File temporaryFile = File.createTempFile(manifestFile.getName(),
+				".tmp", manifestDirectory);
+		boolean renamed = false;
+		try {
+			final FileOutputStream fileOutput = new FileOutputStream(
+					temporaryFile);
+			final DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(fileOutput));
+			try {
+				this.write(output);
+				if (sync) {
+					output.flush();
+					fileOutput.getFD().sync();
+				}
+			} finally {
+				output.close();
+			}
+			renamed = DTOSourceWriter.rename(temporaryFile, manifestFile);
+			if (!renamed) {
+				throw new IOException("The shard manifest " + manifestFile
+						+ " can not be written.");
+			}
+		} finally {
+			if (!renamed) {
+				temporaryFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Return the number of shards.
+	 * 
+	 * @return the shard count.
+	 */
+	public int getShardCount() {
+		return this.shardCount;
+	}
+
+	/**
+	 * Return the index of the shard.
+	 * 
+	 * @return the shard index.
+	 */
+	public int getShardIndex() {
+		return this.shardIndex;
+	}
+
+	/**
+	 * Return the digest of the names of all the classes to generate.
+	 * 
+	 * @return the digest.
+	 */
+	public String getClassesDigest() {
+		return this.classesDigest;
+	}
+
+	/**
+	 * Record a class of the shard.
+	 * 
+	 * @param className
+	 *            the class name.
+	 * @param dtoName
+	 *            the canonical name of its DTO.
+	 * @param output
+	 *            the path of its DTO source relative to the generated
+	 *            directory, <code>null</code> if the sources are not
+	 *            generated.
+	 */
+	public synchronized void putClass(final String className,
+			final String dtoName, final String output) {
+		this.dtoNames.put(className, dtoName);
+		if (output != null) {
+			this.outputs.put(className, output);
+		}
+	}
+
+	/**
+	 * Record the DTO type a field of a class got for a class of another
+	 * shard.
+	 * 
+	 * @param className
+	 *            the class name.
+	 * @param referencedClassName
+	 *            the name of the class of the other shard.
+	 * @param dtoName
+	 *            the canonical name of the DTO of the referenced class.
+	 */
+	public synchronized void putReference(final String className,
+			final String referencedClassName, final String dtoName) {
+		Map<String, String> referencedDTONames = this.references.get(className);
+		if (referencedDTONames == null) {
+			referencedDTONames = new TreeMap<String, String>();
+			this.references.put(className, referencedDTONames);
+		}
+		referencedDTONames.put(referencedClassName, dtoName);
+	}
+
+	/**
+	 * Return the names of the classes of the shard.
+	 * 
+	 * @return the class names, sorted.
+	 */
+	public synchronized Set<String> getClassNames() {
+		return new TreeSet<String>(this.dtoNames.keySet());
+	}
+
+	/**
+	 * Return the name of the DTO of a class of the shard.
+	 * 
+	 * @param className
+	 *            the class name.
+	 * @return the canonical name of the DTO, <code>null</code> if the class is
+	 *         not in the shard.
+	 */
+	public synchronized String getDTOName(final String className) {
+		return this.dtoNames.get(className);
+	}
+
+	/**
+	 * Return the DTO source of a class of the shard.
+	 * 
+	 * @param className
+	 *            the class name.
+	 * @return the path of the DTO source relative to the generated directory,
+	 *         <code>null</code> if none is recorded.
+	 */
+	public synchronized String getOutput(final String className) {
+		return this.outputs.get(className);
+	}
+
+	/**
+	 * Return the DTOs of the other shards used by the fields of a class.
+	 * 
+	 * @param className
+	 *            the class name.
+	 * @return the canonical names of the DTOs by referenced class name, empty
+	 *         if none is recorded.
+	 */
+	public synchronized Map<String, String> getReferences(
+			final String className) {
+		final Map<String, String> referencedDTONames = this.references
+				.get(className);
+		if (referencedDTONames == null) {
+			return Collections.emptyMap();
+		}
+		return new TreeMap<String, String>(referencedDTONames);
+	}
+
+	/**
+	 * Read the classes of the manifest.
+	 * 
+	 * @param input
+	 *            the manifest file content, after its header.
+	 * @throws IOException
+	 *             if the content is not a valid manifest.
+	 */
+	private void read(final DataInputStream input) throws IOException {
+		final int classesCount = input.readInt();
+		for (int i = 0; i < classesCount; i++) {
+			final String className = input.readUTF();
+			final String dtoName = input.readUTF();
+			final String output = input.readUTF();
+			this.putClass(className, dtoName, output.length() > 0 ? output
+					: null);
+			final int referencesCount = input.readInt();
+			for (int j = 0; j < referencesCount; j++) {
+				this.putReference(className, input.readUTF(), input.readUTF());
+			}
+		}
+	}
+
+	/**
+	 * Write the manifest.
+	 * 
+	 * @param output
+	 *            the manifest file content.
+	 * @throws IOException
+	 *             if the content can not be written.
+	 */
+	private void write(final DataOutputStream output) throws IOException {
+		output.writeInt(FORMAT_VERSION);
+		output.writeInt(this.shardCount);
+		output.writeInt(this.shardIndex);
+		output.writeUTF(this.classesDigest);
+		output.writeInt(this.dtoNames.size());
+		for (final Map.Entry<String, String> dtoName : this.dtoNames
+				.entrySet()) {
+			output.writeUTF(dtoName.getKey());
+			output.writeUTF(dtoName.getValue());
+			String dtoFile = this.outputs.get(dtoName.getKey());
+			if (dtoFile == null) {
+				dtoFile = "";
+			}
+			output.writeUTF(dtoFile);
+			final Map<String, String> referencedDTONames = this
+					.getReferences(dtoName.getKey());
+			output.writeInt(referencedDTONames.size());
+			for (final Map.Entry<String, String> referencedDTOName : referencedDTONames
+					.entrySet()) {
+				output.writeUTF(referencedDTOName.getKey());
+				output.writeUTF(referencedDTOName.getValue());
+			}
+		}
+	}
+}
@@ -0,0 +1,325 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Merger of the DTOs generated by the shards of a generation into one
+ * generated directory.
+ * 
+ * Each shard is the generated directory of a machine, with its
+ * {@link ShardManifest}. Before the merge, the manifests are checked : they
+ * must come from the same generation, cover all the shards once, and the DTO
+ * types a shard gave to the classes of the other shards must be the DTOs the
+ * other shards have generated.
+ * 
+ * The DTOs merged are recorded in the manifest of a single shard, written in
+ * the directory they are merged in : the next merge removes the DTOs no shard
+ * generates anymore.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ShardMerger {
+
+	/**
+	 * Name of the manifest of the DTOs merged, in the directory they are
+	 * merged in.
+	 */
+	public static final String MANIFEST_FILE_NAME = "dto-merged.bin";
+
+	/**
+	 * The manifests by directory of the shards, in the order added.
+	 */
+	private final Map<File, ShardManifest> shards;
+
+	/**
+	 * Constructor.
+	 */
+	public ShardMerger() {
+		this.shards = new LinkedHashMap<File, ShardManifest>();
+	}
+
+	/**
+	 * Add a shard to merge.
+	 * 
+	 * @param shardDirectory
+	 *            the generated directory of the shard.
+	 * @return the manifest of the shard.
+	 * @throws IOException
+	 *             if the manifest of the shard can not be read.
+	 */
+	public ShardManifest addShard(final File shardDirectory)
+			throws IOException {
+		final ShardManifest manifest = ShardManifest.load(new File(
+				shardDirectory, ShardManifest.FILE_NAME));
+		this.shards.put(shardDirectory, manifest);
+		return manifest;
+	}
+
+	/**
+	 * Check the shards can be merged.
+	 * 
+	 * @return the inconsistencies found, empty if the shards can be merged.
+	 */
+	public List<String> check() {
+		final List<String> inconsistencies = new ArrayList<String>();
+		if (this.shards.isEmpty()) {
+			inconsistencies.add("There is no shard to merge.");
+			return inconsistencies;
+		}
+		final ShardManifest first = this.shards.values().iterator().next();
+		final Map<Integer, File> directoriesByIndex = new TreeMap<Integer, File>();
+		for (final Map.Entry<File, ShardManifest> shard : this.shards
+				.entrySet()) {
+			final ShardManifest manifest = shard.getValue();
+			if (manifest.getShardCount() != first.getShardCount()) {
+				inconsistencies.add("The shard " + shard.getKey() + " is one of "
+						+ manifest.getShardCount() + " shards, not "
+						+ first.getShardCount() + ".");
+			} else if (!manifest.getClassesDigest().equals(
+					first.getClassesDigest())) {
+				inconsistencies.add("The shard " + shard.getKey()
+						+ " has not found the same classes to generate.");
+			}
+			final File previousDirectory = directoriesByIndex.put(
+					manifest.getShardIndex(), shard.getKey());
+			if (previousDirectory != null) {
+				inconsistencies.add("The shards " + previousDirectory + " and "
+						+ shard.getKey() + " have the same index "
+						+ manifest.getShardIndex() + ".");
+			}
+		}
+		for (int i = 0; i < first.getShardCount(); i++) {
+			if (!directoriesByIndex.containsKey(i)) {
+				inconsistencies.add("The shard " + i + " is missing.");
+			}
+		}
+		if (inconsistencies.isEmpty()) {
+			this.checkClasses(inconsistencies);
+		}
+		return inconsistencies;
+	}
+
+	/**
+	 * Check each class is generated by its shard, each DTO source by one
+	 * shard, and the DTO types used for the classes of another shard.
+	 * 
+	 * @param inconsistencies
+	 *            the inconsistencies found.
+	 */
+	private void checkClasses(final List<String> inconsistencies) {
+		final Map<String, String> dtoNames = new HashMap<String, String>();
+		final Map<String, String> classNamesByOutput = new HashMap<String, String>();
+		for (final ShardManifest manifest : this.shards.values()) {
+			for (final String className : manifest.getClassNames()) {
+				if (Shard.getIndex(className, manifest.getShardCount()) != manifest
+						.getShardIndex()) {
+					inconsistencies.add("The class " + className
+							+ " does not belong to the shard "
+							+ manifest.getShardIndex() + ".");
+				}
+				dtoNames.put(className, manifest.getDTOName(className));
+				final String output = manifest.getOutput(className);
+				if (output != null) {
+					final String previousClassName = classNamesByOutput.put(
+							output, className);
+					if (previousClassName != null) {
+						inconsistencies.add("The classes " + previousClassName
+								+ " and " + className
+								+ " have the same DTO source " + output + ".");
+					}
+				}
+			}
+		}
+		for (final ShardManifest manifest : this.shards.values()) {
+			for (final String className : manifest.getClassNames()) {
+				for (final Map.Entry<String, String> reference : manifest
+						.getReferences(className).entrySet()) {
+					final String dtoName = dtoNames.get(reference.getKey());
+					if (dtoName == null) {
+						inconsistencies.add("The DTO of " + className
+								+ " uses " + reference.getValue() + " for "
+								+ reference.getKey()
+								+ ", but no shard has generated it.");
+					} else if (!reference.getValue().equals(dtoName)) {
+						inconsistencies.add("The DTO of " + className
+								+ " uses " + reference.getValue() + " for "
+								+ reference.getKey()
+								+ ", but the DTO generated for it is "
+								+ dtoName + ".");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copy the DTO sources of the shards to the generated directory, once the
+	 * shards are checked. A DTO source is only written if its content has
+	 * changed, so that an unchanged DTO is not compiled again. The DTO sources
+	 * of the previous merge no shard has generated are removed.
+	 * 
+	 * @param generatedDirectory
+	 *            the directory the DTOs are merged in.
+	 * @param sync
+	 *            <code>true</code> to force the DTO sources to the disk.
+	 * @return the number of DTO sources written.
+	 * @throws IOException
+	 *             if the shards can not be merged, or a DTO source of a shard
+	 *             is missing or can not be copied.
+	 * @see #check()
+	 */
+	public int merge(final File generatedDirectory, final boolean sync)
+			throws IOException {
+		final List<String> inconsistencies = this.check();
+		if (!inconsistencies.isEmpty()) {
+			final StringBuilder message = new StringBuilder(
+					"The shards can not be merged :");
+			for (final String inconsistency : inconsistencies) {
+				message.append(' ').append(inconsistency);
+			}
+			throw new IOException(message.toString());
+		}
+		final OutputLocks outputLocks = OutputLocks.lock(generatedDirectory);
+		try {
+			final File manifestFile = new File(generatedDirectory,
+					MANIFEST_FILE_NAME);
+			final ShardManifest mergedManifest = new ShardManifest(new Shard(
+					1, 0), this.getClassNames());
+			final DTOPackageDirectories packageDirectories = new DTOPackageDirectories(
+					generatedDirectory);
+			// The sources are copied as bytes, whatever their encoding.
+			final DTOSourceWriter writer = new DTOSourceWriter(
+					Charset.defaultCharset(), sync);
+			int writtenCount = 0;
+			for (final Map.Entry<File, ShardManifest> shard : this.shards
+					.entrySet()) {
+				final ShardManifest manifest = shard.getValue();
+				for (final String className : manifest.getClassNames()) {
+					final String output = manifest.getOutput(className);
+					final String dtoName = manifest.getDTOName(className);
+					if (output != null) {
+						final File directory = packageDirectories
+								.makeDirectory(dtoName.substring(0,
+										dtoName.lastIndexOf('.')));
+						if (writer.write(new File(directory, output
+								.substring(output.lastIndexOf('/') + 1)), this
+								.read(new File(shard.getKey(), output)))) {
+							writtenCount++;
+						}
+					}
+					mergedManifest.putClass(className, dtoName, output);
+				}
+			}
+			this.removeStaleDTOs(generatedDirectory, manifestFile,
+					mergedManifest);
+			mergedManifest.save(manifestFile, sync);
+			return writtenCount;
+		} finally {
+			outputLocks.unlock();
+		}
+	}
+
+	/**
+	 * Return the names of the classes of all the shards.
+	 * 
+	 * @return the class names.
+	 */
+	private Set<String> getClassNames() {
+		final Set<String> classNames = new HashSet<String>();
+		for (final ShardManifest manifest : this.shards.values()) {
+			classNames.addAll(manifest.getClassNames());
+		}
+		return classNames;
+	}
+
+	/**
+	 * Remove the DTO sources of the previous merge that are not merged
+	 * anymore, and their directories left empty.
+	 * 
+	 * @param generatedDirectory
+	 *            the directory the DTOs are merged in.
+	 * @param manifestFile
+	 *            the manifest of the previous merge.
+	 * @param mergedManifest
+	 *            the manifest of this merge.
+	 * @throws IOException
+	 *             if a DTO source can not be removed.
+	 */
+	private void removeStaleDTOs(final File generatedDirectory,
+			final File manifestFile, final ShardManifest mergedManifest)
+			throws IOException {
+		if (!manifestFile.isFile()) {
+			return;
+		}
+		final Set<String> outputs = new HashSet<String>();
+		for (final String className : mergedManifest.getClassNames()) {
+			outputs.add(mergedManifest.getOutput(className));
+		}
+		final ShardManifest previousManifest = ShardManifest
+				.load(manifestFile);
+		final File root = generatedDirectory.getAbsoluteFile();
+		for (final String className : previousManifest.getClassNames()) {
+			final String output = previousManifest.getOutput(className);
+			if (output != null && !outputs.contains(output)) {
+				final File staleFile = new File(root, output);
+				if (staleFile.isFile() && !staleFile.delete()) {
+					throw new IOException("The DTO " + staleFile
+							+ " can not be deleted.");
+				}
+				File emptyDirectory = staleFile.getParentFile();
+				while (emptyDirectory != null && !emptyDirectory.equals(root)
+						&& emptyDirectory.delete()) {
+					emptyDirectory = emptyDirectory.getParentFile();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read a DTO source of a shard.
+	 * 
+	 * @param sourceFile
+	 *            the DTO source.
+	 * @return the content of the source.
+	 * @throws IOException
+	 *             if the source is missing or can not be read.
+	 */
+	private byte[] read(final File sourceFile) throws IOException {
+		if (!sourceFile.isFile()) {
+			throw new IOException("The DTO " + sourceFile + " is missing.");
+		}
+		final InputStream input = new FileInputStream(sourceFile);
+		try {
+			final byte[] content = new byte[(int) sourceFile.length()];
+			int offset = 0;
+			while (offset < content.length) {
+				final int length = input.read(content, offset, content.length
+						- offset);
+				if (length < 0) {
+					throw new IOException("The DTO " + sourceFile
+							+ " has been truncated.");
+				}
+				offset += length;
+			}
+			return content;
+		} finally {
+			input.close();
+		}
+	}
+}
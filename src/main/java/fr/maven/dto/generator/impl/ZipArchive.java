@@ -0,0 +1,714 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read only view of a zip archive.
+ * 
+ * Only the central directory is read when the archive is opened : the
+ * entries are listed without reading their content, and the content of an
+ * entry is read at its offset when it is needed, without opening the archive
+ * again. ZIP64 archives are supported.
+ * 
+ * An archive can be read by several threads at the same time : each read
+ * seeks and reads its own handle of the file, taken from a small pool of
+ * handles opened when the threads need them, so that the classes of a jar are
+ * not loaded one at a time. The handles are {@link RandomAccessFile}s rather
+ * than a shared channel : a reading thread being interrupted does not close
+ * the archive. The archive holds no resource once closed.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ZipArchive implements Closeable {
+
+	/**
+	 * Signature of the end of central directory record.
+	 */
+	private static final int END_SIGNATURE = 0x06054b50;
+
+	/**
+	 * Signature of the ZIP64 end of central directory locator.
+	 */
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+	/**
+	 * Signature of the ZIP64 end of central directory record.
+	 */
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+	/**
+	 * Signature of a central directory file header.
+	 */
+	private static final int CENTRAL_SIGNATURE = 0x02014b50;
+
+	/**
+	 * Signature of a local file header.
+	 */
+	private static final int LOCAL_SIGNATURE = 0x04034b50;
+
+	/**
+	 * Size of the end of central directory record without comment.
+	 */
+	private static final int END_SIZE = 22;
+
+	/**
+	 * Size of a central directory file header without name, extra field and
+	 * comment.
+	 */
+	private static final int CENTRAL_SIZE = 46;
+
+	/**
+	 * Size of a local file header without name and extra field.
+	 */
+	private static final int LOCAL_SIZE = 30;
+
+	/**
+	 * Size of the ZIP64 end of central directory locator.
+	 */
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+
+	/**
+	 * Size of the ZIP64 end of central directory record without extensible
+	 * data.
+	 */
+	private static final int ZIP64_END_SIZE = 56;
+
+	/**
+	 * Maximum size of the archive comment.
+	 */
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+	/**
+	 * Identifier of the ZIP64 extra field.
+	 */
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+
+	/**
+	 * Value of 32 bits fields whose value is in the ZIP64 extra field.
+	 */
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	/**
+	 * Maximum number of handles of the archive file opened at the same time.
+	 */
+	private static final int MAX_OPENED_FILES = 4;
+
+	/**
+	 * Compression method of stored entries.
+	 */
+	public static final int STORED = 0;
+
+	/**
+	 * Compression method of deflated entries.
+	 */
+	public static final int DEFLATED = 8;
+
+	/**
+	 * The archive file.
+	 */
+	private final File file;
+
+	/**
+	 * The length of the archive file when it has been opened.
+	 */
+	private final long length;
+
+	/**
+	 * The handles of the archive file opened and not being read, also the
+	 * lock of the handles.
+	 */
+	private final LinkedList<RandomAccessFile> idleFiles;
+
+	/**
+	 * The number of handles of the archive file opened, idle or being read.
+	 */
+	private int openedFilesCount;
+
+	/**
+	 * <code>true</code> once the archive is closed.
+	 */
+	private boolean closed;
+
+	/**
+	 * The entries of the central directory, in the central directory order.
+	 */
+	private final List<Entry> entries;
+
+	/**
+	 * The entries by name, built the first time an entry is looked up.
+	 */
+	private Map<String, Entry> entriesByName;
+
+	/**
+	 * Open the archive given and read its central directory.
+	 * 
+	 * @param file
+	 *            the archive file.
+	 * @throws IOException
+	 *             if the file can not be read or is not a valid archive.
+	 */
+	public ZipArchive(final File file) throws IOException {
+		this.file = file;
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file,
+				"r");
+		this.idleFiles = new LinkedList<RandomAccessFile>();
+		this.idleFiles.add(randomAccessFile);
+		this.openedFilesCount = 1;
+		try {
+			this.length = randomAccessFile.length();
+			this.entries = Collections.unmodifiableList(this
+					.readCentralDirectory());
+		} catch (final IOException e) {
+			randomAccessFile.close();
+			throw e;
+		} catch (final RuntimeException e) {
+			randomAccessFile.close();
+			throw this.invalidArchive(e);
+		}
+	}
+
+	/**
+	 * Return the archive file.
+	 * 
+	 * @return the archive file.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Return the entries of the archive, in the central directory order.
+	 * 
+	 * @return the entries.
+	 */
+	public List<Entry> getEntries() {
+		return this.entries;
+	}
+
+	/**
+	 * Return the entry of the name given.
+	 * 
+	 * @param name
+	 *            the entry name, e.g. <code>fr/maven/dto/Bean.class</code>.
+	 * @return the entry, <code>null</code> if the archive does not contain
+	 *         it.
+	 */
+	public synchronized Entry getEntry(final String name) {
+		if (this.entriesByName == null) {
+			this.entriesByName = new HashMap<String, Entry>(
+					this.entries.size() * 2);
+			for (final Entry entry : this.entries) {
+				if (!this.entriesByName.containsKey(entry.getName())) {
+					this.entriesByName.put(entry.getName(), entry);
+				}
+			}
+		}
+		return this.entriesByName.get(name);
+	}
+
+	/**
+	 * Read the content of an entry.
+	 * 
+	 * @param entry
+	 *            the entry of this archive.
+	 * @return the uncompressed content.
+	 * @throws IOException
+	 *             if the entry can not be read.
+	 */
+	public byte[] readEntry(final Entry entry) throws IOException {
+		try {
+			final ByteBuffer localHeader = this.read(entry.localHeaderOffset,
+					LOCAL_SIZE);
+			if (localHeader.getInt(0) != LOCAL_SIGNATURE) {
+				throw new IOException("The entry " + entry.getName() + " of "
+						+ this.file + " has no local header.");
+			}
+			final long dataOffset = entry.localHeaderOffset + LOCAL_SIZE
+					+ this.getUnsignedShort(localHeader, 26)
+					+ this.getUnsignedShort(localHeader, 28);
+			final byte[] compressed = this.read(dataOffset,
+					this.toInt(entry.compressedSize)).array();
+			if (entry.method == STORED) {
+				return compressed;
+			} else if (entry.method == DEFLATED) {
+				return this.inflate(entry, compressed);
+			}
+			throw new IOException("The compression method " + entry.method
+					+ " of the entry " + entry.getName() + " of " + this.file
+					+ " is not supported.");
+		} catch (final RuntimeException e) {
+			throw this.invalidArchive(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this.idleFiles) {
+			this.closed = true;
+			// The handles being read are closed when they are released.
+			while (!this.idleFiles.isEmpty()) {
+				this.idleFiles.removeFirst().close();
+				this.openedFilesCount--;
+			}
+			this.idleFiles.notifyAll();
+		}
+	}
+
+	/**
+	 * Take a handle of the archive file not being read, opening one if there
+	 * is none and the maximum number of handles is not reached, waiting for
+	 * one otherwise.
+	 * 
+	 * @return the handle of the archive file.
+	 * @throws IOException
+	 *             if the archive is closed or can not be opened again.
+	 */
+	private RandomAccessFile acquireFile() throws IOException {
+		boolean interrupted = false;
+		try {
+			synchronized (this.idleFiles) {
+				while (true) {
+					if (this.closed) {
+						throw new IOException("The archive " + this.file
+								+ " is closed.");
+					}
+					if (!this.idleFiles.isEmpty()) {
+						return this.idleFiles.removeFirst();
+					}
+					if (this.openedFilesCount < MAX_OPENED_FILES) {
+						this.openedFilesCount++;
+						break;
+					}
+					try {
+						this.idleFiles.wait();
+					} catch (final InterruptedException e) {
+						// The interruption is left to the reading thread.
+						interrupted = true;
+					}
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		boolean opened = false;
+		try {
+			final RandomAccessFile randomAccessFile = new RandomAccessFile(
+					this.file, "r");
+			opened = true;
+			return randomAccessFile;
+		} finally {
+			if (!opened) {
+				synchronized (this.idleFiles) {
+					this.openedFilesCount--;
+					this.idleFiles.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Give back a handle of the archive file once read, closing it if the
+	 * archive is closed.
+	 * 
+	 * @param randomAccessFile
+	 *            the handle of the archive file.
+	 * @throws IOException
+	 *             if the handle can not be closed.
+	 */
+	private void releaseFile(final RandomAccessFile randomAccessFile)
+			throws IOException {
+		synchronized (this.idleFiles) {
+			if (this.closed) {
+				this.openedFilesCount--;
+				randomAccessFile.close();
+			} else {
+				this.idleFiles.addFirst(randomAccessFile);
+				this.idleFiles.notify();
+			}
+		}
+	}
+
+	/**
+	 * Read a part of the archive.
+	 * 
+	 * @param position
+	 *            the offset of the part in the archive.
+	 * @param length
+	 *            the length of the part.
+	 * @return the part read, in little endian order.
+	 * @throws IOException
+	 *             if the part is out of the archive or can not be read.
+	 */
+	private ByteBuffer read(final long position, final int length)
+			throws IOException {
+		if (position < 0 || position + length > this.length) {
+			throw new IOException("The archive " + this.file
+					+ " is not valid.");
+		}
+		final byte[] bytes = new byte[length];
+		final RandomAccessFile randomAccessFile = this.acquireFile();
+		try {
+			randomAccessFile.seek(position);
+			randomAccessFile.readFully(bytes);
+		} finally {
+			this.releaseFile(randomAccessFile);
+		}
+		return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Inflate the content of a deflated entry.
+	 * 
+	 * @param entry
+	 *            the entry.
+	 * @param compressed
+	 *            the compressed content.
+	 * @return the uncompressed content.
+	 * @throws IOException
+	 *             if the content is not valid.
+	 */
+	private byte[] inflate(final Entry entry, final byte[] compressed)
+			throws IOException {
+		final byte[] uncompressed = new byte[this.toInt(entry.size)];
+		final Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(compressed);
+			int length = 0;
+			while (length < uncompressed.length) {
+				final int inflated = inflater.inflate(uncompressed, length,
+						uncompressed.length - length);
+				if (inflated == 0
+						&& (inflater.finished() || inflater.needsInput() || inflater
+								.needsDictionary())) {
+					break;
+				}
+				length += inflated;
+			}
+			if (length != uncompressed.length) {
+				throw new IOException("The entry " + entry.getName() + " of "
+						+ this.file + " is truncated.");
+			}
+			return uncompressed;
+		} catch (final DataFormatException e) {
+			final IOException invalid = new IOException("The entry "
+					+ entry.getName() + " of " + this.file + " is not valid.");
+			invalid.initCause(e);
+			throw invalid;
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Read the central directory.
+	 * 
+	 * @return the entries.
+	 * @throws IOException
+	 *             if the central directory is not valid.
+	 */
+	private List<Entry> readCentralDirectory() throws IOException {
+		final long size = this.length;
+		final int tailLength = (int) Math.min(size, ZIP64_LOCATOR_SIZE
+				+ MAX_COMMENT_SIZE + END_SIZE);
+		final ByteBuffer tail = this.read(size - tailLength, tailLength);
+		final int endOffset = this.findEndOfCentralDirectory(tail);
+		long entriesCount = this.getUnsignedShort(tail, endOffset + 10);
+		long directorySize = this.getUnsignedInt(tail, endOffset + 12);
+		long directoryOffset = this.getUnsignedInt(tail, endOffset + 16);
+		final int locatorOffset = endOffset - ZIP64_LOCATOR_SIZE;
+		if (locatorOffset >= 0
+				&& tail.getInt(locatorOffset) == ZIP64_LOCATOR_SIGNATURE) {
+			final ByteBuffer zip64End = this.read(
+					tail.getLong(locatorOffset + 8), ZIP64_END_SIZE);
+			if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+				throw new IOException("The ZIP64 end of central directory of "
+						+ this.file + " is not valid.");
+			}
+			entriesCount = zip64End.getLong(32);
+			directorySize = zip64End.getLong(40);
+			directoryOffset = zip64End.getLong(48);
+		}
+		final ByteBuffer buffer = this.read(directoryOffset,
+				this.toInt(directorySize));
+		final List<Entry> centralEntries = new ArrayList<Entry>(
+				this.toInt(entriesCount));
+		int offset = 0;
+		for (long i = 0; i < entriesCount; i++) {
+			if (buffer.getInt(offset) != CENTRAL_SIGNATURE) {
+				throw new IOException("The central directory of " + this.file
+						+ " is not valid.");
+			}
+			final int nameLength = this.getUnsignedShort(buffer, offset + 28);
+			final int extraLength = this.getUnsignedShort(buffer, offset + 30);
+			final int commentLength = this
+					.getUnsignedShort(buffer, offset + 32);
+			final Entry entry = new Entry(this.getString(buffer, offset
+					+ CENTRAL_SIZE, nameLength), this.getUnsignedShort(buffer,
+					offset + 10), this.getUnsignedInt(buffer, offset + 16));
+			entry.compressedSize = this.getUnsignedInt(buffer, offset + 20);
+			entry.size = this.getUnsignedInt(buffer, offset + 24);
+			entry.localHeaderOffset = this.getUnsignedInt(buffer, offset + 42);
+			this.readZip64Extra(buffer, offset + CENTRAL_SIZE + nameLength,
+					extraLength, entry);
+			centralEntries.add(entry);
+			offset += CENTRAL_SIZE + nameLength + extraLength + commentLength;
+		}
+		return centralEntries;
+	}
+
+	/**
+	 * Read the ZIP64 sizes and offset of an entry from its extra field.
+	 * 
+	 * @param buffer
+	 *            the part of the archive read.
+	 * @param extraOffset
+	 *            the offset of the extra field.
+	 * @param extraLength
+	 *            the length of the extra field.
+	 * @param entry
+	 *            the entry whose 32 bits values are replaced.
+	 */
+	private void readZip64Extra(final ByteBuffer buffer,
+			final int extraOffset, final int extraLength, final Entry entry) {
+		int offset = extraOffset;
+		final int end = extraOffset + extraLength;
+		while (offset + 4 <= end) {
+			final int id = this.getUnsignedShort(buffer, offset);
+			final int length = this.getUnsignedShort(buffer, offset + 2);
+			if (id == ZIP64_EXTRA_ID) {
+				int valueOffset = offset + 4;
+				if (entry.size == ZIP64_MAGIC) {
+					entry.size = buffer.getLong(valueOffset);
+					valueOffset += 8;
+				}
+				if (entry.compressedSize == ZIP64_MAGIC) {
+					entry.compressedSize = buffer.getLong(valueOffset);
+					valueOffset += 8;
+				}
+				if (entry.localHeaderOffset == ZIP64_MAGIC) {
+					entry.localHeaderOffset = buffer.getLong(valueOffset);
+				}
+				return;
+			}
+			offset += 4 + length;
+		}
+	}
+
+	/**
+	 * Find the end of central directory record, which may be followed by a
+	 * comment.
+	 * 
+	 * @param tail
+	 *            the end of the archive.
+	 * @return the offset of the record in the end of the archive.
+	 * @throws IOException
+	 *             if the record is not found.
+	 */
+	private int findEndOfCentralDirectory(final ByteBuffer tail)
+			throws IOException {
+		final int last = tail.limit() - END_SIZE;
+		final int first = Math.max(0, last - MAX_COMMENT_SIZE);
+		for (int offset = last; offset >= first; offset--) {
+			if (tail.getInt(offset) == END_SIGNATURE) {
+				return offset;
+			}
+		}
+		throw new IOException("The file " + this.file
+				+ " is not a zip archive.");
+	}
+
+	/**
+	 * Read an unsigned short.
+	 * 
+	 * @param buffer
+	 *            the part of the archive read.
+	 * @param offset
+	 *            the offset of the value.
+	 * @return the value.
+	 */
+	private int getUnsignedShort(final ByteBuffer buffer, final int offset) {
+		return buffer.getShort(offset) & 0xFFFF;
+	}
+
+	/**
+	 * Read an unsigned int.
+	 * 
+	 * @param buffer
+	 *            the part of the archive read.
+	 * @param offset
+	 *            the offset of the value.
+	 * @return the value.
+	 */
+	private long getUnsignedInt(final ByteBuffer buffer, final int offset) {
+		return buffer.getInt(offset) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Read an entry name.
+	 * 
+	 * @param buffer
+	 *            the part of the archive read.
+	 * @param offset
+	 *            the offset of the name.
+	 * @param length
+	 *            the length of the name.
+	 * @return the name.
+	 */
+	private String getString(final ByteBuffer buffer, final int offset,
+			final int length) {
+		final byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(offset + i);
+		}
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (final UnsupportedEncodingException e) {
+			throw new IllegalStateException("UTF-8 is not supported.", e);
+		}
+	}
+
+	/**
+	 * Convert a size to an int.
+	 * 
+	 * @param value
+	 *            the size.
+	 * @return the value.
+	 * @throws IOException
+	 *             if the value can not be a size read in memory.
+	 */
+	private int toInt(final long value) throws IOException {
+		if (value < 0 || value > Integer.MAX_VALUE) {
+			throw new IOException("The archive " + this.file
+					+ " is not valid.");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Create the exception thrown when the archive content is out of the
+	 * bounds expected.
+	 * 
+	 * @param cause
+	 *            the error reading the content.
+	 * @return the exception.
+	 */
+	private IOException invalidArchive(final RuntimeException cause) {
+		final IOException invalid = new IOException("The archive " + this.file
+				+ " is not valid.");
+		invalid.initCause(cause);
+		return invalid;
+	}
+
+	/**
+	 * An entry of the central directory.
+	 */
+	public static final class Entry {
+
+		/**
+		 * The entry name.
+		 */
+		private final String name;
+
+		/**
+		 * The compression method.
+		 */
+		private final int method;
+
+		/**
+		 * The CRC of the uncompressed content.
+		 */
+		private final long crc;
+
+		/**
+		 * The size of the compressed content.
+		 */
+		private long compressedSize;
+
+		/**
+		 * The size of the uncompressed content.
+		 */
+		private long size;
+
+		/**
+		 * The offset of the local file header.
+		 */
+		private long localHeaderOffset;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name
+		 *            the entry name.
+		 * @param method
+		 *            the compression method.
+		 * @param crc
+		 *            the CRC of the uncompressed content.
+		 */
+		Entry(final String name, final int method, final long crc) {
+			this.name = name;
+			this.method = method;
+			this.crc = crc;
+		}
+
+		/**
+		 * Return the entry name.
+		 * 
+		 * @return the name, e.g. <code>fr/maven/dto/Bean.class</code>.
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Return the CRC of the uncompressed content.
+		 * 
+		 * @return the CRC.
+		 */
+		public long getCrc() {
+			return this.crc;
+		}
+
+		/**
+		 * Return the size of the uncompressed content.
+		 * 
+		 * @return the size.
+		 */
+		public long getSize() {
+			return this.size;
+		}
+
+		/**
+		 * Check the entry is a directory.
+		 * 
+		 * @return <code>true</code> if the entry is a directory.
+		 */
+		public boolean isDirectory() {
+			return this.name.endsWith("/");
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ * 
+ */
+package fr.maven.dto;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.AccessController;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.maven.dto.generator.impl.ClassFinderImpl;
+import fr.maven.dto.generator.impl.ClassLoaderCache;
+import fr.maven.dto.generator.impl.ClassLoaderProviderImpl;
+import fr.maven.dto.generator.impl.DTOGeneratorImpl;
+
+/**
+ * Tests on {@link DTOLauncher}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class DTOLauncherTest {
+
+	private static final int EXECUTIONS = 12;
+
+	private static final List<List<String>> INCLUDES = Arrays.asList(
+			Arrays.asList("**.Bean", "**.Bean2"),
+			Arrays.asList("**.AnotherBean", "fr.maven.dto.test.*"),
+			Arrays.asList("**.Bean*"));
+
+	private File workDirectory;
+
+	private URL[] urls;
+
+	private List<File> baseDirectories;
+
+	private ClassLoaderCache classLoaderCache;
+
+	@Before
+	public void setUp() throws Exception {
+		this.workDirectory = new File("target/dto-launcher");
+		final File testClasses = new File("target/test-classes");
+		final File beansJar = new File(testClasses, "beans.jar");
+		this.urls = new URL[] { testClasses.toURI().toURL(),
+				beansJar.toURI().toURL() };
+		this.baseDirectories = Arrays.asList(testClasses, beansJar);
+		this.classLoaderCache = new ClassLoaderCache();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.classLoaderCache.close();
+		this.delete(this.workDirectory);
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.DTOLauncher#execute(ClassLoader, List, List, List, File)}
+	 * : executions running concurrently, sharing class loaders, generated
+	 * directories and scan indexes, generate the DTOs of a sequential build.
+	 */
+	@Test
+	public void testConcurrentExecutions() throws Exception {
+		final File sequentialDirectory = new File(this.workDirectory,
+				"sequential");
+		for (int i = 0; i < EXECUTIONS; i++) {
+			this.execute(sequentialDirectory, i);
+		}
+
+		final File parallelDirectory = new File(this.workDirectory, "parallel");
+		final CountDownLatch start = new CountDownLatch(1);
+		final ExecutorService executor = Executors
+				.newFixedThreadPool(EXECUTIONS);
+		try {
+			final List<Future<Void>> executions = new ArrayList<Future<Void>>();
+			for (int i = 0; i < EXECUTIONS; i++) {
+				final int execution = i;
+				executions.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						start.await();
+						DTOLauncherTest.this.execute(parallelDirectory,
+								execution);
+						return null;
+					}
+				}));
+			}
+			start.countDown();
+			for (final Future<Void> execution : executions) {
+				execution.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		for (int i = 0; i < INCLUDES.size(); i++) {
+			final Map<String, String> sequentialDTOs = this.readDTOs(new File(
+					sequentialDirectory, "generated" + i));
+			Assert.assertFalse(sequentialDTOs.isEmpty());
+			Assert.assertEquals(sequentialDTOs, this.readDTOs(new File(
+					parallelDirectory, "generated" + i)));
+		}
+		for (final File file : parallelDirectory.listFiles()) {
+			Assert.assertFalse("No temporary file is left : " + file, file
+					.getName().endsWith(".tmp"));
+		}
+	}
+
+	private void execute(final File directory, final int execution)
+			throws IOException {
+		final int output = execution % INCLUDES.size();
+		final ClassFinderImpl classFinder = new ClassFinderImpl();
+		classFinder.setScanIndexFile(new File(directory, "scan-index"
+				+ (execution % 2) + ".bin"));
+		final DTOGeneratorImpl dtoGenerator = new DTOGeneratorImpl();
+		dtoGenerator.setStateFile(new File(directory, "generation-state"
+				+ execution + ".bin"));
+		dtoGenerator.setGenerationThreads(1 + execution % 2);
+		final ClassLoaderProviderImpl classLoaderProvider = new ClassLoaderProviderImpl(
+				this.urls, this.classLoaderCache);
+		AccessController.doPrivileged(classLoaderProvider);
+		try {
+			new DTOLauncher(classFinder, dtoGenerator).execute(
+					classLoaderProvider.getClassLoader(), this.baseDirectories,
+					INCLUDES.get(output), new ArrayList<String>(), new File(
+							directory, "generated" + output));
+		} finally {
+			classLoaderProvider.close();
+		}
+	}
+
+	private Map<String, String> readDTOs(final File directory)
+			throws IOException {
+		final Map<String, String> dtos = new TreeMap<String, String>();
+		this.readDTOs(directory, "", dtos);
+		return dtos;
+	}
+
+	private void readDTOs(final File directory, final String path,
+			final Map<String, String> dtos) throws IOException {
+		final File[] children = directory.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (final File child : children) {
+			if (child.isDirectory()) {
+				this.readDTOs(child, path + child.getName() + "/", dtos);
+			} else {
+				dtos.put(path + child.getName(), this.read(child));
+			}
+		}
+	}
+
+	private String read(final File file) throws IOException {
+		final InputStream input = new FileInputStream(file);
+		try {
+			final byte[] content = new byte[(int) file.length()];
+			int offset = 0;
+			while (offset < content.length) {
+				final int length = input.read(content, offset, content.length
+						- offset);
+				if (length < 0) {
+					break;
+				}
+				offset += length;
+			}
+			return new String(content, "UTF-8");
+		} finally {
+			input.close();
+		}
+	}
+
+	private void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				this.delete(child);
+			}
+		}
+		file.delete();
+	}
+}
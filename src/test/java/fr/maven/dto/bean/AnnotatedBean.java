@@ -0,0 +1,31 @@
+package fr.maven.dto.bean;
+
+/**
+ * Bean to test class selection.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+@BeanAnnotation("annotated")
+public class AnnotatedBean extends Bean implements BeanInterface {
+
+	private static final long serialVersionUID = 1L;
+
+	private String name;
+
+	/**
+	 * @return the name
+	 */
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @param name
+	 *            the name to set
+	 */
+	public void setName(final String name) {
+		this.name = name;
+	}
+}
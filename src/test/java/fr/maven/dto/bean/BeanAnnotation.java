@@ -0,0 +1,19 @@
+package fr.maven.dto.bean;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to test class selection. It is kept in class files only.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+@Target(ElementType.TYPE)
+public @interface BeanAnnotation {
+
+	/**
+	 * @return the value
+	 */
+	String value() default "";
+}
@@ -0,0 +1,17 @@
+package fr.maven.dto.bean;
+
+import java.io.Serializable;
+
+/**
+ * Interface to test class selection.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public interface BeanInterface extends Serializable {
+
+	/**
+	 * @return the name
+	 */
+	String getName();
+}
@@ -0,0 +1,168 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests on {@link BuildStamp}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class BuildStampTest {
+
+	private File workDirectory;
+
+	private File classesDirectory;
+
+	private File stampFile;
+
+	@Before
+	public void setUp() throws Exception {
+		this.workDirectory = new File("target/build-stamp");
+		this.classesDirectory = new File(this.workDirectory, "classes");
+		this.stampFile = new File(this.workDirectory, "build-stamp.bin");
+		Assert.assertTrue(new File(this.classesDirectory, "fr/maven").mkdirs());
+		this.write(new File(this.classesDirectory, "fr/maven/Bean.class"), 10);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.delete(this.workDirectory);
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.BuildStamp#record(File, boolean)} and
+	 * {@link fr.maven.dto.generator.impl.BuildStamp#isRecorded(File)} .
+	 */
+	@Test
+	public void testRecord() throws IOException {
+		Assert.assertFalse(this.createStamp("**.*Bean").isRecorded(
+				this.stampFile));
+		this.createStamp("**.*Bean").record(this.stampFile, true);
+		Assert.assertFalse(new File(this.workDirectory, "build-stamp.bin.tmp")
+				.exists());
+		Assert.assertTrue(this.createStamp("**.*Bean").isRecorded(
+				this.stampFile));
+		Assert.assertFalse(this.createStamp("**.*Bean2").isRecorded(
+				this.stampFile));
+		BuildStamp.clear(this.stampFile);
+		Assert.assertFalse(this.createStamp("**.*Bean").isRecorded(
+				this.stampFile));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.BuildStamp#addClasspathElement(File)}
+	 * : only the class files of a directory are part of the stamp.
+	 */
+	@Test
+	public void testAddClasspathElement() throws IOException {
+		final String stamp = this.createStamp("**.*Bean").getValue();
+		this.write(new File(this.classesDirectory, "fr/maven/readme.txt"), 10);
+		Assert.assertEquals(stamp, this.createStamp("**.*Bean").getValue());
+		this.write(new File(this.classesDirectory, "fr/maven/Bean.class"), 20);
+		Assert.assertFalse(stamp.equals(this.createStamp("**.*Bean")
+				.getValue()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.BuildStamp#excludeClasses(java.util.Collection)}
+	 * : the class files of the DTOs, and of their nested classes, written
+	 * after the stamp is computed are not part of the stamp.
+	 */
+	@Test
+	public void testExcludeClasses() throws IOException {
+		final List<String> dtoClasses = Arrays.asList("fr/maven/dto/BeanDTO");
+		final String stamp = new BuildStamp().excludeClasses(dtoClasses)
+				.addClasspathElement(this.classesDirectory).getValue();
+		Assert.assertTrue(new File(this.classesDirectory, "fr/maven/dto")
+				.mkdirs());
+		this.write(new File(this.classesDirectory, "fr/maven/dto/BeanDTO.class"),
+				10);
+		this.write(new File(this.classesDirectory,
+				"fr/maven/dto/BeanDTO$Nested.class"), 10);
+		Assert.assertEquals(stamp, new BuildStamp().excludeClasses(dtoClasses)
+				.addClasspathElement(this.classesDirectory).getValue());
+		this.write(new File(this.classesDirectory,
+				"fr/maven/dto/BeanDTOHelper.class"), 10);
+		Assert.assertFalse(stamp.equals(new BuildStamp()
+				.excludeClasses(dtoClasses)
+				.addClasspathElement(this.classesDirectory).getValue()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.BuildStamp#BuildStamp(String)} : a
+	 * stamp recorded by another version of the generator is not recorded for
+	 * this one.
+	 */
+	@Test
+	public void testBuildStampVersion() throws IOException {
+		this.createStamp("**.*Bean").record(this.stampFile, false);
+		Assert.assertTrue(this.createStamp(DTOGeneratorImpl.GENERATOR_VERSION,
+				"**.*Bean").isRecorded(this.stampFile));
+		Assert.assertFalse(this.createStamp(
+				DTOGeneratorImpl.GENERATOR_VERSION + ".1", "**.*Bean")
+				.isRecorded(this.stampFile));
+	}
+
+	/**
+	 * Test method for {@link fr.maven.dto.generator.impl.BuildStamp#getValue()}
+	 * : no value can be added once the stamp is computed.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testGetValue() {
+		final BuildStamp buildStamp = this.createStamp("**.*Bean");
+		buildStamp.getValue();
+		buildStamp.addParameter("encoding", "UTF-8");
+	}
+
+	private BuildStamp createStamp(final String include) {
+		return this.createStamp(DTOGeneratorImpl.GENERATOR_VERSION, include);
+	}
+
+	private BuildStamp createStamp(final String generatorVersion,
+			final String include) {
+		return new BuildStamp(generatorVersion)
+				.addParameter("includes", Arrays.asList(include))
+				.addParameter("excludes", null)
+				.addParameter("generatedDirectory",
+						new File(this.workDirectory, "generated"))
+				.addClasspathElement(this.classesDirectory)
+				.addClasspathElement(new File("target/test-classes/beans.jar"));
+	}
+
+	private void write(final File file, final int length) throws IOException {
+		final OutputStream output = new FileOutputStream(file);
+		try {
+			output.write(new byte[length]);
+		} finally {
+			output.close();
+		}
+	}
+
+	private void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				this.delete(child);
+			}
+		}
+		file.delete();
+	}
+}
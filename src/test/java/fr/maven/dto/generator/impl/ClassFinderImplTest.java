@@ -4,10 +4,13 @@
 package fr.maven.dto.generator.impl;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Assert;
@@ -63,9 +66,181 @@ public class ClassFinderImplTest {
 					classBean2Found);
 		} catch (final ClassNotFoundException e) {
 			Assert.fail("testGetClassesToGenerateWithValidPattern failed, classes not found with valid pattern.");
+		} catch (final IOException e) {
+			Assert.fail("testGetClassesToGenerateWithValidPattern failed, classes could not be read.");
 		}
 	}
 
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#getClassesToGenerate(List, String[], String[])
+	 * .
+	 */
+	@Test
+	public void testGetClassesToGenerateSkipsInterfacesAndAnnotations()
+			throws ClassNotFoundException, IOException {
+		final List<String> includes = new ArrayList<String>();
+		includes.add("fr.maven.dto.bean.*");
+		final List<File> baseDirectories = new ArrayList<File>();
+		baseDirectories.add(new File("target/test-classes"));
+		final List<Class<?>> classesFound = this.classFinder
+				.getClassesToGenerate(this.getClass().getClassLoader(),
+						baseDirectories, includes, new ArrayList<String>());
+		boolean classBeanFound = false;
+		for (final Class<?> clazz : classesFound) {
+			Assert.assertFalse(clazz.getName() + " should not be found.",
+					clazz.isInterface() || clazz.isAnnotation());
+			if ("fr.maven.dto.bean.Bean".equals(clazz.getName())) {
+				classBeanFound = true;
+			}
+		}
+		Assert.assertTrue("Class Bean has not been found.", classBeanFound);
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#getClassesToGenerate(List, String[], String[])
+	 * .
+	 */
+	@Test
+	public void testGetClassesToGenerateWithoutExcludes()
+			throws ClassNotFoundException, IOException {
+		final List<String> includes = new ArrayList<String>();
+		includes.add("fr.maven.dto.**");
+		final List<File> baseDirectories = new ArrayList<File>();
+		baseDirectories.add(new File("target/test-classes"));
+		final List<Class<?>> classesFound = this.classFinder
+				.getClassesToGenerate(this.getClass().getClassLoader(),
+						baseDirectories, includes, null);
+		final List<String> classNamesFound = new ArrayList<String>();
+		for (final Class<?> clazz : classesFound) {
+			classNamesFound.add(clazz.getName());
+		}
+		Assert.assertTrue("Classes of sub packages must be found.",
+				classNamesFound.contains("fr.maven.dto.bean.Bean"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#getClassesToGenerate(List, String[], String[])
+	 * .
+	 */
+	@Test
+	public void testGetClassesToGenerateWithAnnotation()
+			throws ClassNotFoundException, IOException {
+		final List<String> includes = new ArrayList<String>();
+		includes.add("**.*");
+		final List<String> annotations = new ArrayList<String>();
+		annotations.add("fr.maven.dto.bean.BeanAnnotation");
+		this.classFinder.setAnnotations(annotations);
+		final List<File> baseDirectories = new ArrayList<File>();
+		baseDirectories.add(new File("target/test-classes"));
+		final List<Class<?>> classesFound = this.classFinder
+				.getClassesToGenerate(this.getClass().getClassLoader(),
+						baseDirectories, includes, new ArrayList<String>());
+		Assert.assertEquals(1, classesFound.size());
+		Assert.assertEquals("fr.maven.dto.bean.AnnotatedBean", classesFound
+				.get(0).getName());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#getScanKey(ClassNameMatcher, ClassLoader)}
+	 * : the classes selected by super class depend on the whole classpath.
+	 */
+	@Test
+	public void testGetScanKey() throws IOException {
+		final File directory = new File("target/scan-key-test");
+		final File classFile = new File(directory, "Super.class");
+		Assert.assertTrue(directory.mkdirs() || directory.isDirectory());
+		classFile.delete();
+		try {
+			final ClassNameMatcher classNameMatcher = new ClassNameMatcher(
+					Arrays.asList("**.*"), null);
+			final URLClassLoader urlClassLoader = new URLClassLoader(
+					new URL[] { directory.toURI().toURL() }, null);
+			final String scanKey = this.classFinder.getScanKey(
+					classNameMatcher, urlClassLoader);
+			this.classFinder.setSuperClasses(Arrays.asList("Super"));
+			final String superClassScanKey = this.classFinder.getScanKey(
+					classNameMatcher, urlClassLoader);
+			Assert.assertFalse(scanKey.equals(superClassScanKey));
+
+			final FileOutputStream output = new FileOutputStream(classFile);
+			output.write(new byte[10]);
+			output.close();
+			Assert.assertFalse(superClassScanKey.equals(this.classFinder
+					.getScanKey(classNameMatcher, urlClassLoader)));
+			this.classFinder.setSuperClasses(null);
+			Assert.assertEquals(scanKey, this.classFinder.getScanKey(
+					classNameMatcher, urlClassLoader));
+		} finally {
+			classFile.delete();
+			directory.delete();
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#scanInParallel(ClassLoader, ClassSelector, List, ClassNameMatcher, String, ScanIndex)
+	 * .
+	 */
+	@Test
+	public void testGetClassesToGenerateInParallel()
+			throws ClassNotFoundException, IOException {
+		final List<String> includes = new ArrayList<String>();
+		includes.add("**.*");
+		final List<File> baseDirectories = new ArrayList<File>();
+		baseDirectories.add(new File("target/test-classes/beans.jar"));
+		baseDirectories.add(new File("target/test-classes"));
+		baseDirectories.add(new File("target/classes"));
+		final URLClassLoader urlClassLoader = new URLClassLoader(
+				new URL[] { new File("target/test-classes/beans.jar").toURI()
+						.toURL() }, this.getClass().getClassLoader());
+		final List<Class<?>> sequentialClasses = this.classFinder
+				.getClassesToGenerate(urlClassLoader, baseDirectories,
+						includes, new ArrayList<String>());
+		this.classFinder.setScanThreads(4);
+		final List<Class<?>> parallelClasses = this.classFinder
+				.getClassesToGenerate(urlClassLoader, baseDirectories,
+						includes, new ArrayList<String>());
+		Assert.assertEquals(
+				"BeanInAJar must be the first class, as beans.jar is the first element scanned.",
+				"fr.maven.dto.test.BeanInAJar", parallelClasses.get(0)
+						.getName());
+		Assert.assertEquals(
+				"The parallel scan must return the classes of the sequential scan in the same order.",
+				sequentialClasses, parallelClasses);
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#getClassesToGenerate(List, String[], String[])
+	 * .
+	 */
+	@Test
+	public void testGetClassesToGenerateWithScanIndex()
+			throws ClassNotFoundException, IOException {
+		final File scanIndexFile = new File("target/scan-index-test.bin");
+		scanIndexFile.delete();
+		this.classFinder.setScanIndexFile(scanIndexFile);
+		final List<String> includes = new ArrayList<String>();
+		includes.add("**.Bean");
+		final List<File> baseDirectories = new ArrayList<File>();
+		baseDirectories.add(new File("target/test-classes"));
+		final List<Class<?>> classesScanned = this.classFinder
+				.getClassesToGenerate(this.getClass().getClassLoader(),
+						baseDirectories, includes, new ArrayList<String>());
+		Assert.assertTrue("The scan index has not been written.",
+				scanIndexFile.isFile());
+		final List<Class<?>> classesIndexed = this.classFinder
+				.getClassesToGenerate(this.getClass().getClassLoader(),
+						baseDirectories, includes, new ArrayList<String>());
+		Assert.assertEquals(classesScanned, classesIndexed);
+		Assert.assertEquals(1, classesIndexed.size());
+		scanIndexFile.delete();
+	}
+
 	/**
 	 * Test method for
 	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#getClassesToGenerate(List, String[], String[])
@@ -115,59 +290,14 @@ public class ClassFinderImplTest {
 					classBeanInAJarFound);
 		} catch (final ClassNotFoundException e) {
 			Assert.fail("testGetClassesToGenerateWithValidPatternAndJarInClasspath failed, classes not found with valid pattern and jar in classpath.");
+		} catch (final IOException e) {
+			Assert.fail("testGetClassesToGenerateWithValidPatternAndJarInClasspath failed, classes could not be read.");
 		}
 	}
 
 	/**
 	 * Test method for
-	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#convertClassPatternsToPathPatterns(List)
-	 * .
-	 */
-	@Test
-	public void testConvertClassPatternsToPathPatterns() {
-		final List<String> classPatterns = new ArrayList<String>();
-		final String firstClassPattern = "fr.maven.**.*";
-		classPatterns.add(firstClassPattern);
-		final String secondClassPattern = "**.*";
-		classPatterns.add(secondClassPattern);
-		final String[] pathPatterns = this.classFinder
-				.convertClassPatternsToPathPatterns(classPatterns);
-
-		boolean firstPatternIsValid = false;
-		boolean secondPatternIsValid = false;
-
-		final String firstPathPattern = "fr" + File.separator + "maven"
-				+ File.separator + "**" + File.separator + "*.class";
-		final String secondPathPattern = "**" + File.separator + "*.class";
-		for (final String pathPattern : pathPatterns) {
-			if (firstPathPattern.equals(pathPattern)) {
-				firstPatternIsValid = true;
-			} else if (secondPathPattern.equals(pathPattern)) {
-				secondPatternIsValid = true;
-			}
-		}
-		Assert.assertTrue("fr.maven.**.* conversion is wrong",
-				firstPatternIsValid);
-		Assert.assertTrue("**.* conversion is wrong", secondPatternIsValid);
-	}
-
-	/**
-	 * Test method for
-	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#convertPathToCanonicalClassName(String)
-	 * .
-	 */
-	@Test
-	public void testConvertPathToCanonicalClass() {
-		final String path = "fr/maven/dto/Bean";
-		Assert.assertEquals(
-				"fr/maven/dto/Bean conversion to class canonical name is wrong.",
-				"fr.maven.dto.Bean",
-				this.classFinder.convertPathToCanonicalClassName(path));
-	}
-
-	/**
-	 * Test method for
-	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#scanArchive(ClassLoader, File, String[], String[])
+	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#scanArchive(ClassLoader, ClassSelector, File, ClassNameMatcher)
 	 * .
 	 */
 	@Test
@@ -180,10 +310,11 @@ public class ClassFinderImplTest {
 			final URLClassLoader urlClassLoader = new URLClassLoader(
 					urls.toArray(new URL[0]));
 			final List<String> includes = new ArrayList<String>();
-			includes.add("**/BeanInAJar.class");
+			includes.add("**.BeanInAJar");
 			final List<Class<?>> classesFound = this.classFinder.scanArchive(
-					urlClassLoader, archive, includes.toArray(new String[0]),
-					new String[0]);
+					urlClassLoader,
+					this.classFinder.createClassSelector(urlClassLoader),
+					archive, new ClassNameMatcher(includes, null));
 			boolean classBeanInAJarFound = false;
 			for (final Class<?> clazz : classesFound) {
 				if ("fr.maven.dto.test.BeanInAJar".equals(clazz
@@ -198,25 +329,29 @@ public class ClassFinderImplTest {
 		} catch (final MalformedURLException e1) {
 			// Should not happened because urls are created from valid files.
 			e1.printStackTrace();
+		} catch (final IOException e) {
+			Assert.fail("testScanArchive failed, archive could not be read.");
 		}
 	}
 
 	/**
 	 * Test method for
-	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#scanDirectory(ClassLoader, File, String[], String[])
+	 * {@link fr.maven.dto.generator.impl.ClassFinderImpl#scanDirectory(ClassLoader, ClassSelector, File, ClassNameMatcher)
 	 * .
 	 */
 	@Test
 	public void testScanDirectory() {
 		final List<String> includes = new ArrayList<String>();
-		includes.add("**/Bean2.class");
-		includes.add("**/Bean.class");
+		includes.add("**.Bean2");
+		includes.add("**.Bean");
 		try {
 			final List<Class<?>> classesFound = this.classFinder.scanDirectory(
 					this.getClass().getClassLoader(),
+					this.classFinder.createClassSelector(this.getClass()
+							.getClassLoader()),
 					new File("target" + File.separator + "test-classes"
-							+ File.separator), includes.toArray(new String[0]),
-					new String[0]);
+							+ File.separator), new ClassNameMatcher(includes,
+							null));
 			boolean classBeanFound = false;
 			boolean classBean2Found = false;
 			for (final Class<?> clazz : classesFound) {
@@ -232,6 +367,8 @@ public class ClassFinderImplTest {
 					classBean2Found);
 		} catch (final ClassNotFoundException e) {
 			Assert.fail("testGetClassesToGenerateWithValidPattern failed, classes not found with valid pattern.");
+		} catch (final IOException e) {
+			Assert.fail("testScanDirectory failed, classes could not be read.");
 		}
 	}
 }
@@ -0,0 +1,114 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.RetentionPolicy;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.maven.dto.bean.AnnotatedBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.BeanAnnotation;
+import fr.maven.dto.bean.BeanInterface;
+
+/**
+ * Tests on {@link ClassHeaderReader}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ClassHeaderReaderTest {
+
+	private ClassHeaderReader classHeaderReader;
+
+	@Before
+	public void setUp() throws Exception {
+		this.classHeaderReader = new ClassHeaderReader();
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassHeaderReader#read(InputStream)}
+	 * .
+	 */
+	@Test
+	public void testReadBean() throws IOException {
+		final ClassHeader header = this.readHeader(Bean.class);
+		Assert.assertEquals("fr.maven.dto.bean.Bean", header.getClassName());
+		Assert.assertEquals("java.lang.Object", header.getSuperClassName());
+		Assert.assertTrue(header.getInterfaceNames().isEmpty());
+		Assert.assertTrue(header.getAnnotationNames().isEmpty());
+		Assert.assertFalse(header.isInterface());
+		Assert.assertFalse(header.isEnum());
+		Assert.assertFalse(header.isAnonymous());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassHeaderReader#read(InputStream)}
+	 * .
+	 */
+	@Test
+	public void testReadAnnotatedBean() throws IOException {
+		final ClassHeader header = this.readHeader(AnnotatedBean.class);
+		Assert.assertEquals("fr.maven.dto.bean.Bean",
+				header.getSuperClassName());
+		Assert.assertEquals(1, header.getInterfaceNames().size());
+		Assert.assertEquals(BeanInterface.class.getName(), header
+				.getInterfaceNames().get(0));
+		Assert.assertEquals(1, header.getAnnotationNames().size());
+		Assert.assertEquals(BeanAnnotation.class.getName(), header
+				.getAnnotationNames().get(0));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassHeaderReader#read(InputStream)}
+	 * .
+	 */
+	@Test
+	public void testReadKinds() throws IOException {
+		Assert.assertTrue(this.readHeader(BeanInterface.class).isInterface());
+		Assert.assertTrue(this.readHeader(BeanAnnotation.class)
+				.isAnnotation());
+		Assert.assertTrue(this.readHeader(RetentionPolicy.class).isEnum());
+		final Object anonymous = new Object() {
+		};
+		Assert.assertTrue(this.readHeader(anonymous.getClass()).isAnonymous());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassHeaderReader#read(byte[])} .
+	 */
+	@Test(expected = IOException.class)
+	public void testReadInvalidClassFile() throws IOException {
+		this.classHeaderReader.read(new byte[] { 1, 2, 3, 4, 5, 6 });
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassHeaderReader#read(byte[])} .
+	 */
+	@Test(expected = IOException.class)
+	public void testReadTruncatedClassFile() throws IOException {
+		this.classHeaderReader.read(new byte[] { (byte) 0xCA, (byte) 0xFE,
+				(byte) 0xBA, (byte) 0xBE, 0, 0, 0, 50, 0, 10 });
+	}
+
+	private ClassHeader readHeader(final Class<?> clazz) throws IOException {
+		final InputStream classFile = ClassLoader
+				.getSystemResourceAsStream(clazz.getName().replace('.', '/')
+						+ ".class");
+		try {
+			return this.classHeaderReader.read(classFile);
+		} finally {
+			classFile.close();
+		}
+	}
+}
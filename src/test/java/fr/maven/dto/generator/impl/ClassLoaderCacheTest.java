@@ -0,0 +1,103 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.net.URL;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests on {@link ClassLoaderCache}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ClassLoaderCacheTest {
+
+	private File beansJar;
+
+	private URL[] urls;
+
+	private ClassLoaderCache classLoaderCache;
+
+	@Before
+	public void setUp() throws Exception {
+		this.beansJar = new File("target/test-classes/beans.jar");
+		this.urls = new URL[] { this.beansJar.toURI().toURL() };
+		this.classLoaderCache = new ClassLoaderCache();
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassLoaderCache#acquire(URL[])} : the
+	 * class loader of the same archives is created once.
+	 */
+	@Test
+	public void testAcquire() throws Exception {
+		final IndexedClassLoader classLoader = this.classLoaderCache
+				.acquire(this.urls);
+		Assert.assertSame(classLoader, this.classLoaderCache.acquire(this.urls));
+		final IndexedClassLoader otherClassLoader = this.classLoaderCache
+				.acquire(new URL[0]);
+		Assert.assertNotSame(classLoader, otherClassLoader);
+		Assert.assertEquals(2, this.classLoaderCache.size());
+		this.classLoaderCache.release(classLoader);
+		Assert.assertSame(classLoader, this.classLoaderCache.acquire(this.urls));
+		Assert.assertNotNull(classLoader.getArchive(this.beansJar));
+		this.classLoaderCache.release(classLoader);
+		this.classLoaderCache.release(classLoader);
+		this.classLoaderCache.release(otherClassLoader);
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassLoaderCache#release(IndexedClassLoader)}
+	 * : a class loader is closed when its last user releases it, so that the
+	 * cache keeps no class loader once the generations have ended.
+	 */
+	@Test
+	public void testRelease() throws Exception {
+		final IndexedClassLoader classLoader = this.classLoaderCache
+				.acquire(this.urls);
+		Assert.assertSame(classLoader,
+				this.classLoaderCache.acquire(new URL[] { this.beansJar
+						.getAbsoluteFile().toURI().toURL() }));
+		this.classLoaderCache.release(classLoader);
+		Assert.assertNotNull(classLoader.getArchive(this.beansJar));
+		this.classLoaderCache.release(classLoader);
+		Assert.assertNull(classLoader.getArchive(this.beansJar));
+		Assert.assertEquals(0, this.classLoaderCache.size());
+		final IndexedClassLoader newClassLoader = this.classLoaderCache
+				.acquire(this.urls);
+		Assert.assertNotSame(classLoader, newClassLoader);
+		Assert.assertNotNull(newClassLoader.getArchive(this.beansJar));
+		this.classLoaderCache.release(newClassLoader);
+		Assert.assertEquals(0, this.classLoaderCache.size());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassLoaderCache#close()} : the class
+	 * loaders still used are not given anymore, and are closed once released.
+	 */
+	@Test
+	public void testClose() throws Exception {
+		final IndexedClassLoader usedClassLoader = this.classLoaderCache
+				.acquire(this.urls);
+		this.classLoaderCache.close();
+		Assert.assertNotNull(usedClassLoader.getArchive(this.beansJar));
+		final IndexedClassLoader newClassLoader = this.classLoaderCache
+				.acquire(this.urls);
+		Assert.assertNotSame(usedClassLoader, newClassLoader);
+		this.classLoaderCache.release(usedClassLoader);
+		Assert.assertNull(usedClassLoader.getArchive(this.beansJar));
+		Assert.assertNotNull(newClassLoader.getArchive(this.beansJar));
+		this.classLoaderCache.release(newClassLoader);
+		Assert.assertNull(newClassLoader.getArchive(this.beansJar));
+		Assert.assertEquals(0, this.classLoaderCache.size());
+	}
+}
@@ -68,4 +68,59 @@ public class ClassLoaderProviderImplTest {
 		}
 	}
 
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassLoaderProviderImpl#getClassLoader()}
+	 * : the class loader of the archives is shared through the cache.
+	 */
+	@Test
+	public void testGetSharedClassLoader() throws Exception {
+		final ClassLoaderCache classLoaderCache = new ClassLoaderCache();
+		final URL[] urls = new URL[] {
+				new File("target/test-classes").toURI().toURL(),
+				this.beansJarURL };
+		this.classLoaderProvider = new ClassLoaderProviderImpl(urls,
+				classLoaderCache);
+		AccessController.doPrivileged(this.classLoaderProvider);
+		final ClassLoaderProviderImpl otherProvider = new ClassLoaderProviderImpl(
+				urls, classLoaderCache);
+		AccessController.doPrivileged(otherProvider);
+		final ClassLoader classLoader = this.classLoaderProvider
+				.getClassLoader();
+		final ClassLoader otherClassLoader = otherProvider.getClassLoader();
+		Assert.assertNotSame(classLoader, otherClassLoader);
+		final Class<?> beanInAJar = classLoader
+				.loadClass("fr.maven.dto.test.BeanInAJar");
+		Assert.assertSame(beanInAJar,
+				otherClassLoader.loadClass("fr.maven.dto.test.BeanInAJar"));
+		Assert.assertNotSame(
+				classLoader.loadClass(AnotherBean.class.getName()),
+				otherClassLoader.loadClass(AnotherBean.class.getName()));
+		final IndexedClassLoader indexedClassLoader = (IndexedClassLoader) classLoader;
+		final File beansJar = new File("target/test-classes/beans.jar");
+		Assert.assertNotNull(indexedClassLoader.getArchive(beansJar));
+		this.classLoaderProvider.close();
+		Assert.assertNotNull(((IndexedClassLoader) beanInAJar.getClassLoader())
+				.getArchive(beansJar));
+		otherProvider.close();
+		Assert.assertNull(((IndexedClassLoader) beanInAJar.getClassLoader())
+				.getArchive(beansJar));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassLoaderProviderImpl#getClasspath()}
+	 * .
+	 */
+	@Test
+	public void testGetClasspath() {
+		this.classLoaderProvider = new ClassLoaderProviderImpl(
+				this.classURLs.toArray(new URL[0]));
+		final List<File> classpath = this.classLoaderProvider.getClasspath();
+		Assert.assertEquals(2, classpath.size());
+		Assert.assertEquals(
+				new File("target/test-classes/beans.jar").getAbsoluteFile(),
+				classpath.get(1));
+	}
+
 }
@@ -0,0 +1,123 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests on {@link ClassNameMatcher}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ClassNameMatcherTest {
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassNameMatcher#matches(String)} .
+	 */
+	@Test
+	public void testMatchesAnyPackage() {
+		final ClassNameMatcher matcher = this.createMatcher(
+				Arrays.asList("**.Bean"), null);
+		Assert.assertTrue(matcher.matches("Bean.class"));
+		Assert.assertTrue(matcher.matches("fr/maven/dto/bean/Bean.class"));
+		Assert.assertFalse(matcher.matches("fr/maven/dto/bean/Bean2.class"));
+		Assert.assertFalse(matcher.matches("fr/maven/dto/bean/Bean$1.class"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassNameMatcher#matches(String)} .
+	 */
+	@Test
+	public void testMatchesWildcards() {
+		final ClassNameMatcher matcher = this.createMatcher(
+				Arrays.asList("fr.maven.**.*Bean?", "fr.*.dto.Another*"), null);
+		Assert.assertTrue(matcher.matches("fr/maven/Bean2.class"));
+		Assert.assertTrue(matcher.matches("fr/maven/dto/bean/MyBean2.class"));
+		Assert.assertFalse(matcher.matches("fr/maven/dto/bean/Bean.class"));
+		Assert.assertTrue(matcher.matches("fr/maven/dto/AnotherBean.class"));
+		Assert.assertFalse(matcher.matches("fr/maven/dto/bean/AnotherBean.class"));
+		Assert.assertFalse(matcher.matches("com/acme/Bean2.class"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassNameMatcher#matches(String)} .
+	 */
+	@Test
+	public void testMatchesSubPackages() {
+		final ClassNameMatcher matcher = this.createMatcher(
+				Arrays.asList("fr.maven.**"),
+				Arrays.asList("fr.maven.dto.generator.**", "**.*Test"));
+		Assert.assertTrue(matcher.matches("fr/maven/Bean.class"));
+		Assert.assertTrue(matcher.matches("fr/maven/dto/bean/Bean.class"));
+		Assert.assertFalse(matcher.matches("fr/Bean.class"));
+		Assert.assertFalse(matcher
+				.matches("fr/maven/dto/generator/impl/ClassFinderImpl.class"));
+		Assert.assertFalse(matcher.matches("fr/maven/dto/BeanTest.class"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassNameMatcher#canMatchPackage(String)}
+	 * .
+	 */
+	@Test
+	public void testCanMatchPackage() {
+		final ClassNameMatcher matcher = this.createMatcher(
+				Arrays.asList("com.acme.**", "org.*.model.Bean"),
+				Arrays.asList("com.acme.internal.**"));
+		Assert.assertTrue(matcher.canMatchPackage(""));
+		Assert.assertTrue(matcher.canMatchPackage("com"));
+		Assert.assertTrue(matcher.canMatchPackage("com/acme"));
+		Assert.assertTrue(matcher.canMatchPackage("com/acme/bean"));
+		Assert.assertFalse(matcher.canMatchPackage("com/acme/internal"));
+		Assert.assertFalse(matcher.canMatchPackage("com/acme/internal/impl"));
+		Assert.assertFalse(matcher.canMatchPackage("com/other"));
+		Assert.assertTrue(matcher.canMatchPackage("org/apache"));
+		Assert.assertTrue(matcher.canMatchPackage("org/apache/model"));
+		Assert.assertFalse(matcher.canMatchPackage("org/apache/model/sub"));
+		Assert.assertFalse(matcher.canMatchPackage("net"));
+		Assert.assertFalse(matcher.canMatchAnyPackage(Arrays.asList(
+				"net/sf", "com/acme/internal")));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassNameMatcher#getLiteralPrefixes()}
+	 * .
+	 */
+	@Test
+	public void testGetLiteralPrefixes() {
+		Assert.assertEquals(Arrays.asList("com/acme/", "org/"), this
+				.createMatcher(Arrays.asList("com.acme.**", "org.*.Bean"),
+						null).getLiteralPrefixes());
+		Assert.assertEquals(Collections.emptyList(),
+				this.createMatcher(Arrays.asList("com.acme.**", "**.Bean"),
+						null).getLiteralPrefixes());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassNameMatcher#toClassName(String)}
+	 * .
+	 */
+	@Test
+	public void testToClassName() {
+		Assert.assertEquals("fr.maven.dto.Bean", this.createMatcher(null, null)
+				.toClassName("fr/maven/dto/Bean.class"));
+	}
+
+	private ClassNameMatcher createMatcher(final List<String> includes,
+			final List<String> excludes) {
+		return new ClassNameMatcher(includes, excludes);
+	}
+}
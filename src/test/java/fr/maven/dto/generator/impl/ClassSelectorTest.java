@@ -0,0 +1,110 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.maven.dto.bean.AnnotatedBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.BeanAnnotation;
+import fr.maven.dto.bean.BeanInterface;
+
+/**
+ * Tests on {@link ClassSelector}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ClassSelectorTest {
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassSelector#isSelected(ClassHeader)}
+	 * .
+	 */
+	@Test
+	public void testIsSelectedWithoutRestriction() throws IOException {
+		final ClassSelector classSelector = this.createSelector(null, null,
+				null);
+		Assert.assertTrue(classSelector.isSelected(this.readHeader(Bean.class)));
+		Assert.assertTrue(classSelector.isSelected(this
+				.readHeader(AnnotatedBean.class)));
+		Assert.assertFalse(classSelector.isSelected(this
+				.readHeader(BeanInterface.class)));
+		Assert.assertFalse(classSelector.isSelected(this
+				.readHeader(BeanAnnotation.class)));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassSelector#isSelected(ClassHeader)}
+	 * .
+	 */
+	@Test
+	public void testIsSelectedWithAnnotation() throws IOException {
+		final ClassSelector classSelector = this.createSelector(
+				Collections.singletonList(BeanAnnotation.class.getName()),
+				null, null);
+		Assert.assertFalse(classSelector.isSelected(this.readHeader(Bean.class)));
+		Assert.assertTrue(classSelector.isSelected(this
+				.readHeader(AnnotatedBean.class)));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassSelector#isSelected(ClassHeader)}
+	 * .
+	 */
+	@Test
+	public void testIsSelectedWithSuperClass() throws IOException {
+		final ClassSelector classSelector = this.createSelector(null,
+				Collections.singletonList(Bean.class.getName()), null);
+		Assert.assertFalse(classSelector.isSelected(this.readHeader(Bean.class)));
+		Assert.assertTrue(classSelector.isSelected(this
+				.readHeader(AnnotatedBean.class)));
+
+		final ClassSelector objectSelector = this.createSelector(null,
+				Collections.singletonList(Object.class.getName()), null);
+		Assert.assertTrue("Super classes must be searched in the hierarchy.",
+				objectSelector.isSelected(this.readHeader(AnnotatedBean.class)));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ClassSelector#isSelected(ClassHeader)}
+	 * .
+	 */
+	@Test
+	public void testIsSelectedWithInterface() throws IOException {
+		final ClassSelector classSelector = this.createSelector(null, null,
+				Collections.singletonList(java.io.Serializable.class.getName()));
+		Assert.assertFalse(classSelector.isSelected(this.readHeader(Bean.class)));
+		Assert.assertTrue(
+				"Interfaces must be searched in the hierarchy.",
+				classSelector.isSelected(this.readHeader(AnnotatedBean.class)));
+	}
+
+	private ClassSelector createSelector(final List<String> annotations,
+			final List<String> superClasses, final List<String> interfaces) {
+		return new ClassSelector(this.getClass().getClassLoader(),
+				annotations, superClasses, interfaces);
+	}
+
+	private ClassHeader readHeader(final Class<?> clazz) throws IOException {
+		final InputStream classFile = this.getClass().getClassLoader()
+				.getResourceAsStream(clazz.getName().replace('.', '/')
+						+ ".class");
+		try {
+			return new ClassHeaderReader().read(classFile);
+		} finally {
+			classFile.close();
+		}
+	}
+}
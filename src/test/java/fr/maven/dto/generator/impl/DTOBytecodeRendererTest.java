@@ -0,0 +1,76 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests on {@link DTOBytecodeRenderer}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class DTOBytecodeRendererTest {
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOBytecodeRenderer#renderClass(DTOModel)}
+	 * .
+	 */
+	@Test
+	public void testRenderClass() throws Exception {
+		final DTOModel model = new DTOModel("fr.maven.dto.bean.Bean",
+				"fr.maven.dto.bean.dto", "BeanDTO",
+				Collections.singletonList("java.io.Serializable"),
+				Arrays.asList(new DTOFieldModel("a", "String", "String",
+						"Ljava/lang/String;", null, "getA", "setA"),
+						new DTOFieldModel("b", "boolean", "boolean", "Z", null,
+								"isB", "setB"), new DTOFieldModel("strings",
+								"List", "List<String>", "Ljava/util/List;",
+								"Ljava/util/List<Ljava/lang/String;>;",
+								"getStrings", "setStrings")));
+		final byte[] bytecode = new DTOBytecodeRenderer().renderClass(model);
+		final Class<?> dtoClass = new BytecodeClassLoader().define(
+				"fr.maven.dto.bean.dto.BeanDTO", bytecode);
+		Assert.assertTrue(Serializable.class.isAssignableFrom(dtoClass));
+		final Field serialVersionUID = dtoClass
+				.getDeclaredField("serialVersionUID");
+		Assert.assertTrue(Modifier.isStatic(serialVersionUID.getModifiers()));
+		serialVersionUID.setAccessible(true);
+		Assert.assertEquals(Long.valueOf(1L), serialVersionUID.get(null));
+		Assert.assertEquals("java.util.List<java.lang.String>", dtoClass
+				.getMethod("getStrings").getGenericReturnType().toString());
+
+		final Object dto = dtoClass.newInstance();
+		dtoClass.getMethod("setA", String.class).invoke(dto, "a");
+		dtoClass.getMethod("setB", boolean.class).invoke(dto, Boolean.TRUE);
+		final List<String> strings = Collections.singletonList("s");
+		dtoClass.getMethod("setStrings", List.class).invoke(dto, strings);
+		Assert.assertEquals("a", dtoClass.getMethod("getA").invoke(dto));
+		Assert.assertEquals(Boolean.TRUE, dtoClass.getMethod("isB").invoke(dto));
+		Assert.assertSame(strings, dtoClass.getMethod("getStrings").invoke(dto));
+	}
+
+	/**
+	 * Class loader of the class emitted.
+	 */
+	private static final class BytecodeClassLoader extends ClassLoader {
+
+		private BytecodeClassLoader() {
+			super(BytecodeClassLoader.class.getClassLoader());
+		}
+
+		private Class<?> define(final String name, final byte[] bytecode) {
+			return this.defineClass(name, bytecode, 0, bytecode.length);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+
+/**
+ * Tests on {@link DTOCompilerImpl}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class DTOCompilerImplTest {
+
+	private File workDirectory;
+
+	private File generatedDirectory;
+
+	private File classesDirectory;
+
+	private DTOGeneratorImpl dtoGenerator;
+
+	private DTOCompilerImpl dtoCompiler;
+
+	@Before
+	public void setUp() throws Exception {
+		this.workDirectory = new File("target/dto-compiler");
+		this.generatedDirectory = new File(this.workDirectory, "generated");
+		this.classesDirectory = new File(this.workDirectory, "classes");
+		this.dtoGenerator = new DTOGeneratorImpl();
+		this.dtoGenerator.setGeneratedDirectory(this.generatedDirectory);
+		this.dtoCompiler = new DTOCompilerImpl();
+		this.dtoCompiler.setSourceDirectory(this.generatedDirectory);
+		this.dtoCompiler.setClassesDirectory(this.classesDirectory);
+		this.dtoCompiler.setClasspath(Collections.singletonList(new File(
+				"target/test-classes")));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.dtoCompiler.close();
+		this.delete(this.workDirectory);
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOCompilerImpl#compile(List)} : only
+	 * the DTOs changed are compiled.
+	 */
+	@Test
+	public void testCompile() throws Exception {
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.add(Bean.class);
+		classes.add(Bean2.class);
+		classes.add(AnotherBean.class);
+		this.dtoGenerator.generateDTOs(classes);
+		final List<File> sourceFiles = this.dtoGenerator.getDTOSourceFiles();
+		Assert.assertEquals(3, sourceFiles.size());
+		Assert.assertEquals(3, this.dtoCompiler.compile(sourceFiles));
+		final URLClassLoader classLoader = new URLClassLoader(
+				new URL[] { this.classesDirectory.toURI().toURL() });
+		final Class<?> bean2DTO = classLoader
+				.loadClass("fr.maven.dto.bean.dto.Bean2DTO");
+		Assert.assertEquals("fr.maven.dto.bean.dto.BeanDTO", bean2DTO
+				.getMethod("getBean").getReturnType().getName());
+
+		Assert.assertEquals(0, this.dtoCompiler.compile(sourceFiles));
+		final File beanClass = this.dtoCompiler.getClassFile(sourceFiles
+				.get(0));
+		Assert.assertTrue(beanClass.setLastModified(sourceFiles.get(0)
+				.lastModified() - 10000));
+		Assert.assertEquals(1, this.dtoCompiler.compile(sourceFiles));
+		Assert.assertEquals(0, this.dtoCompiler.compile(sourceFiles));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOCompilerImpl#removeClasses(List)}
+	 * : the classes of a bean removed between two compilations are removed,
+	 * with their nested classes.
+	 */
+	@Test
+	public void testRemoveClasses() throws Exception {
+		this.dtoGenerator.setStateFile(new File(this.workDirectory,
+				"state.bin"));
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.add(Bean.class);
+		classes.add(Bean2.class);
+		classes.add(AnotherBean.class);
+		this.dtoGenerator.generateDTOs(classes);
+		Assert.assertEquals(3,
+				this.dtoCompiler.compile(this.dtoGenerator.getDTOSourceFiles()));
+		final File packageDirectory = new File(this.classesDirectory,
+				"fr/maven/dto/bean/dto");
+		final File bean2Class = new File(packageDirectory, "Bean2DTO.class");
+		final File nestedClass = new File(packageDirectory,
+				"Bean2DTO$Nested.class");
+		Assert.assertTrue(bean2Class.isFile());
+		Assert.assertTrue(nestedClass.createNewFile());
+
+		classes.remove(Bean2.class);
+		this.dtoGenerator.generateDTOs(classes);
+		final List<File> removedSourceFiles = this.dtoGenerator
+				.getRemovedDTOSourceFiles();
+		Assert.assertEquals(1, removedSourceFiles.size());
+		Assert.assertFalse(removedSourceFiles.get(0).exists());
+		Assert.assertEquals(2,
+				this.dtoCompiler.removeClasses(removedSourceFiles));
+		Assert.assertEquals(0,
+				this.dtoCompiler.compile(this.dtoGenerator.getDTOSourceFiles()));
+		Assert.assertFalse(bean2Class.exists());
+		Assert.assertFalse(nestedClass.exists());
+		Assert.assertTrue(new File(packageDirectory, "BeanDTO.class").isFile());
+		Assert.assertTrue(new File(packageDirectory, "AnotherBeanDTO.class")
+				.isFile());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOCompilerImpl#compile(List)} : the
+	 * compilation errors are reported.
+	 */
+	@Test
+	public void testCompileErrors() throws IOException {
+		final File packageDirectory = new File(this.generatedDirectory,
+				"fr/maven/dto/bean/dto");
+		Assert.assertTrue(packageDirectory.mkdirs());
+		final File sourceFile = new File(packageDirectory, "BeanDTO.java");
+		final DTOSourceWriter writer = new DTOSourceWriter(
+				java.nio.charset.Charset.defaultCharset());
+		writer.open(sourceFile);
+		writer.write("package fr.maven.dto.bean.dto;\npublic class BeanDTO {\n\tprivate Missing missing;\n}");
+		writer.close();
+		try {
+			this.dtoCompiler.compile(Collections.singletonList(sourceFile));
+			Assert.fail("Missing can not be found.");
+		} catch (final IOException e) {
+			Assert.assertTrue(e.getMessage().contains("Missing"));
+		}
+		Assert.assertFalse(new File(this.classesDirectory,
+				"fr/maven/dto/bean/dto/BeanDTO.class").exists());
+	}
+
+	private void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				this.delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -6,11 +6,18 @@ package fr.maven.dto.generator.impl;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
 import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -20,6 +27,7 @@ import org.junit.Test;
 import fr.maven.dto.bean.AnotherBean;
 import fr.maven.dto.bean.Bean;
 import fr.maven.dto.bean.Bean2;
+import fr.maven.dto.generator.DTOGenerationException;
 
 /**
  * Tests on {@link DTOGeneratorImpl}.
@@ -281,6 +289,25 @@ public class DTOGeneratorImplTest {
 		}
 	}
 
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#getDTOType(java.lang.Class, java.lang.reflect.Type)}
+	 * : a type is rendered once, until the classes to generate change.
+	 */
+	@Test
+	public void testGetDTOTypeIsMemoized() throws NoSuchFieldException {
+		final Type type = Bean2.class.getDeclaredField("beans")
+				.getGenericType();
+		final String dtoType = dtoGeneratorImpl.getDTOType(Bean2.class, type);
+		Assert.assertSame(dtoType,
+				dtoGeneratorImpl.getDTOType(Bean2.class, type));
+		dtoGeneratorImpl.classesToGenerate.add(Bean.class);
+		Assert.assertEquals("java.util.List<BeanDTO>",
+				dtoGeneratorImpl.getDTOType(Bean2.class, type));
+		Assert.assertEquals("java.util.List<fr.maven.dto.bean.dto.BeanDTO>",
+				dtoGeneratorImpl.getDTOType(DTOGeneratorImplTest.class, type));
+	}
+
 	/**
 	 * Test method for
 	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#getDTOType(java.lang.Class, java.lang.reflect.Tyoe)}
@@ -295,6 +322,9 @@ public class DTOGeneratorImplTest {
 			Assert.assertEquals(
 					"getFieldType does not return fr.maven.dto.bean.Bean[] for beanArray field",
 					"fr.maven.dto.bean.Bean[]", dtoType);
+			dtoGeneratorImpl.classesToGenerate.add(Bean.class);
+			Assert.assertEquals("BeanDTO[]", dtoGeneratorImpl.getDTOType(
+					Bean.class, field.getGenericType()));
 		} catch (final SecurityException e) {
 			Assert.fail("Field attribut1 not accessible.");
 		} catch (final NoSuchFieldException e) {
@@ -329,27 +359,199 @@ public class DTOGeneratorImplTest {
 	 * .
 	 */
 	@Test
-	public void testGetDTOClassFileWriter() {
+	public void testGetDTOClassFileWriter() throws IOException {
+		dtoGeneratorImpl.makeDTOPackage(Bean.class);
+		final Writer beanFileWriter = dtoGeneratorImpl
+				.getDTOClassFileWriter(Bean.class);
+		Assert.assertSame(beanFileWriter,
+				dtoGeneratorImpl.getDTOClassFileWriter(Bean.class));
 		try {
-			final FileWriter beanFileWriter = new FileWriter(new File(""));
-			final FileWriter bean2FileWriter = new FileWriter(new File(""));
-			dtoGeneratorImpl.fileWriters.put(Bean.class, beanFileWriter);
-			dtoGeneratorImpl.fileWriters.put(Bean2.class, bean2FileWriter);
-			Assert.assertEquals(beanFileWriter,
-					dtoGeneratorImpl.getDTOClassFileWriter(Bean.class));
+			dtoGeneratorImpl.getDTOClassFileWriter(Bean2.class);
+			Assert.fail("Only one DTO is written at a time.");
 		} catch (final IOException e) {
-			// Should not happened as the file is not created and we do not
-			// write in.
+			// The DTO of Bean is not closed.
 		}
+		beanFileWriter.close();
+		Assert.assertTrue(dtoGeneratorImpl.getDTOFile(Bean.class).isFile());
+		dtoGeneratorImpl.getDTOClassFileWriter(Bean2.class).close();
+		Assert.assertTrue(dtoGeneratorImpl.getDTOFile(Bean2.class).isFile());
+	}
 
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#generateDTOs(java.util.List)}
+	 * : the generator keeps no reference to the classes generated.
+	 */
+	@Test
+	public void testGenerateDTOsReleasesClasses() throws IOException {
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.add(Bean.class);
+		classes.add(Bean2.class);
+		dtoGeneratorImpl.generateDTOs(classes);
+		Assert.assertTrue(dtoGeneratorImpl.classesToGenerate.isEmpty());
+		Assert.assertFalse(dtoGeneratorImpl.isClassToGenerate(Bean.class));
+		final Writer writer = dtoGeneratorImpl
+				.getDTOClassFileWriter(AnotherBean.class);
+		writer.close();
 	}
 
 	/**
 	 * Test method for
-	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#makeDTOPackage(java.lang.Class)}
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#createDTOModel(java.lang.Class)}
 	 * .
 	 */
 	@Test
+	public void testCreateDTOModel() {
+		dtoGeneratorImpl.classesToGenerate.add(Bean.class);
+		final DTOModel model = dtoGeneratorImpl.createDTOModel(Bean.class);
+		Assert.assertEquals("fr.maven.dto.bean.Bean",
+				model.getSourceClassName());
+		Assert.assertEquals("fr.maven.dto.bean.dto", model.getDTOPackage());
+		Assert.assertEquals("BeanDTO", model.getDTOSimpleName());
+		Assert.assertEquals(3, model.getFields().size());
+		final DTOFieldModel attribut2 = model.getFields().get(1);
+		Assert.assertEquals("attribut2", attribut2.getName());
+		Assert.assertEquals("boolean", attribut2.getDTOType());
+		Assert.assertEquals("isAttribut2", attribut2.getGetterName());
+		Assert.assertEquals("setAttribut2", attribut2.getSetterName());
+		final DTOFieldModel a = model.getFields().get(2);
+		Assert.assertEquals("getA", a.getGetterName());
+		Assert.assertEquals("String", a.getSourceTypeSimpleName());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#getDTOModel(java.lang.Class)}
+	 * : the model is built again only when the DTO types of its fields change.
+	 */
+	@Test
+	public void testGetDTOModel() {
+		dtoGeneratorImpl.classesToGenerate.add(Bean2.class);
+		final DTOModel model = dtoGeneratorImpl.getDTOModel(Bean2.class);
+		Assert.assertSame(model, dtoGeneratorImpl.getDTOModel(Bean2.class));
+		dtoGeneratorImpl.classesToGenerate.add(Bean.class);
+		final DTOModel beanModel = dtoGeneratorImpl.getDTOModel(Bean2.class);
+		Assert.assertNotSame(model, beanModel);
+		final DTOFieldModel bean = beanModel.getFields().get(0);
+		Assert.assertEquals("bean", bean.getName());
+		Assert.assertEquals("BeanDTO", bean.getDTOType());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#getDTOModelScope()}
+	 * : the models kept by the JVM are not shared with a generator overriding
+	 * the DTO packages.
+	 */
+	@Test
+	public void testGetDTOModelScope() {
+		final DTOGeneratorImpl customGenerator = new DTOGeneratorImpl() {
+
+			@Override
+			protected String getDTOPackage(final Class<?> clazz) {
+				return "fr.maven.dto.custom";
+			}
+		};
+		dtoGeneratorImpl.classesToGenerate.add(Bean.class);
+		customGenerator.classesToGenerate.add(Bean.class);
+		Assert.assertEquals("fr.maven.dto.bean.dto", dtoGeneratorImpl
+				.getDTOModel(Bean.class).getDTOPackage());
+		Assert.assertEquals("fr.maven.dto.custom", customGenerator
+				.getDTOModel(Bean.class).getDTOPackage());
+		Assert.assertFalse(dtoGeneratorImpl.getDTOModelKey(Bean.class).equals(
+				customGenerator.getDTOModelKey(Bean.class)));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#generateIfOutdated(Class, GenerationState, GenerationState, Set)}
+	 * : the fingerprint and the referenced classes of a class are computed
+	 * once, whatever the outputs of its DTO.
+	 */
+	@Test
+	public void testGenerateIfOutdatedAnalyzesClassesOnce() throws IOException {
+		final List<String> analyses = new ArrayList<String>();
+		final DTOGeneratorImpl countingGenerator = new DTOGeneratorImpl() {
+			@Override
+			protected String computeFingerprint(final Class<?> clazz) {
+				analyses.add("fingerprint " + clazz.getName());
+				return super.computeFingerprint(clazz);
+			}
+
+			@Override
+			protected Set<Class<?>> getReferencedClasses(final Class<?> clazz) {
+				analyses.add("references " + clazz.getName());
+				return super.getReferencedClasses(clazz);
+			}
+		};
+		final File classesDirectory = new File("target" + File.separator
+				+ "analyzed-classes");
+		countingGenerator.setGeneratedDirectory(generatedDirectory);
+		countingGenerator.setClassesDirectory(classesDirectory);
+		countingGenerator.setShard(1, 0);
+		try {
+			countingGenerator.generateDTOs(Collections
+					.<Class<?>> singletonList(Bean2.class));
+			Assert.assertEquals(Arrays.asList("fingerprint "
+					+ Bean2.class.getName(), "references "
+					+ Bean2.class.getName()), analyses);
+		} finally {
+			deleteFiles(classesDirectory);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#setShard(int, int)}
+	 * : only the DTOs of the shard are generated, with the DTO types of the
+	 * classes of the other shards.
+	 */
+	@Test
+	public void testSetShard() throws IOException {
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.add(Bean.class);
+		classes.add(Bean2.class);
+		classes.add(AnotherBean.class);
+		dtoGeneratorImpl.setShard(2, Shard.getIndex(Bean2.class.getName(), 2));
+		dtoGeneratorImpl.generateDTOs(classes);
+		final File dtoDirectory = new File(generatedDirectory,
+				"fr/maven/dto/bean/dto");
+		Assert.assertTrue(new File(dtoDirectory, "Bean2DTO.java").isFile());
+		Assert.assertFalse(new File(dtoDirectory, "BeanDTO.java").exists());
+		final BufferedReader bf = new BufferedReader(new FileReader(new File(
+				dtoDirectory, "Bean2DTO.java")));
+		boolean beanDTOField = false;
+		String line;
+		while ((line = bf.readLine()) != null) {
+			if ("\tprivate BeanDTO bean;".equals(line)) {
+				beanDTOField = true;
+			}
+		}
+		bf.close();
+		Assert.assertTrue("The DTO type of another shard is not used",
+				beanDTOField);
+
+		final File manifestFile = new File(generatedDirectory,
+				ShardManifest.FILE_NAME);
+		final ShardManifest manifest = ShardManifest.load(manifestFile);
+		Assert.assertTrue(manifest.getClassNames().contains(
+				Bean2.class.getName()));
+		Assert.assertFalse(manifest.getClassNames().contains(
+				Bean.class.getName()));
+		Assert.assertEquals("fr.maven.dto.bean.dto.BeanDTO", manifest
+				.getReferences(Bean2.class.getName()).get(Bean.class.getName()));
+
+		dtoGeneratorImpl.setShard(1, 0);
+		dtoGeneratorImpl.generateDTOs(classes);
+		Assert.assertTrue(new File(dtoDirectory, "BeanDTO.java").isFile());
+		Assert.assertFalse(manifestFile.exists());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#makeDTOPackage(java.lang.Class)}
+	 * .
+	@Test
 	public void testMakeDTOPackage() {
 		try {
 			dtoGeneratorImpl.makeDTOPackage(Bean.class);
@@ -467,7 +669,6 @@ public class DTOGeneratorImplTest {
 			dtoGeneratorImpl.makeDTOPackage(Bean2.class);
 			dtoGeneratorImpl.makeDTOField(Bean2.class,
 					Bean2.class.getDeclaredField("bean"));
-			dtoGeneratorImpl.getDTOClassFileWriter(Bean.class).close();
 			final File file = new File(generatedDirectory.getAbsolutePath()
 					+ File.separator + "fr" + File.separator + "maven"
 					+ File.separator + "dto" + File.separator + "bean"
@@ -506,7 +707,6 @@ public class DTOGeneratorImplTest {
 			dtoGeneratorImpl.makeDTOPackage(Bean2.class);
 			dtoGeneratorImpl.makeDTOField(Bean2.class,
 					Bean2.class.getDeclaredField("beansMap"));
-			dtoGeneratorImpl.getDTOClassFileWriter(Bean.class).close();
 			final File file = new File(generatedDirectory.getAbsolutePath()
 					+ File.separator + "fr" + File.separator + "maven"
 					+ File.separator + "dto" + File.separator + "bean"
@@ -545,7 +745,6 @@ public class DTOGeneratorImplTest {
 			dtoGeneratorImpl.makeDTOPackage(Bean2.class);
 			dtoGeneratorImpl.makeDTOFieldGetter(Bean2.class,
 					Bean2.class.getDeclaredField("bean"));
-			dtoGeneratorImpl.getDTOClassFileWriter(Bean.class).close();
 			final File file = new File(generatedDirectory.getAbsolutePath()
 					+ File.separator + "fr" + File.separator + "maven"
 					+ File.separator + "dto" + File.separator + "bean"
@@ -622,7 +821,6 @@ public class DTOGeneratorImplTest {
 			dtoGeneratorImpl.makeDTOPackage(Bean2.class);
 			dtoGeneratorImpl.makeDTOFieldSetter(Bean2.class,
 					Bean2.class.getDeclaredField("bean"));
-			dtoGeneratorImpl.getDTOClassFileWriter(Bean.class).close();
 			final File file = new File(generatedDirectory.getAbsolutePath()
 					+ File.separator + "fr" + File.separator + "maven"
 					+ File.separator + "dto" + File.separator + "bean"
@@ -687,6 +885,385 @@ public class DTOGeneratorImplTest {
 		}
 	}
 
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#generateDTOs(java.util.List)}
+	 * with a state file : the DTOs of the classes unchanged are not written
+	 * again.
+	 */
+	@Test
+	public void testGenerateDTOsWithStateFile() throws IOException {
+		final File stateFile = new File(generatedDirectory, "state.bin");
+		dtoGeneratorImpl.setStateFile(stateFile);
+		final List<Class<?>> classesToGenerate = new ArrayList<Class<?>>();
+		classesToGenerate.add(Bean.class);
+		classesToGenerate.add(Bean2.class);
+		dtoGeneratorImpl.generateDTOs(classesToGenerate);
+		Assert.assertTrue(stateFile.isFile());
+		final File file = dtoGeneratorImpl.getDTOFile(Bean.class);
+		final long lastModified = file.lastModified() - 10000;
+		Assert.assertTrue(file.setLastModified(lastModified));
+
+		final DTOGeneratorImpl nextGenerator = new DTOGeneratorImpl();
+		nextGenerator.setGeneratedDirectory(generatedDirectory);
+		nextGenerator.setStateFile(stateFile);
+		nextGenerator.generateDTOs(classesToGenerate);
+		Assert.assertEquals(lastModified, file.lastModified());
+
+		final DTOGeneratorImpl fullGenerator = new DTOGeneratorImpl();
+		fullGenerator.setGeneratedDirectory(generatedDirectory);
+		fullGenerator.generateDTOs(classesToGenerate);
+		Assert.assertEquals("The DTO content is unchanged", lastModified,
+				file.lastModified());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#generateDTOs(java.util.List)}
+	 * with a state file : the DTOs are written again when their encoding
+	 * changes.
+	 */
+	@Test
+	public void testGenerateDTOsWithStateFileAndNewEncoding()
+			throws IOException {
+		final File stateFile = new File(generatedDirectory, "state.bin");
+		dtoGeneratorImpl.setStateFile(stateFile);
+		dtoGeneratorImpl.setEncoding("UTF-8");
+		final List<Class<?>> classesToGenerate = new ArrayList<Class<?>>();
+		classesToGenerate.add(Bean.class);
+		dtoGeneratorImpl.generateDTOs(classesToGenerate);
+		final File file = dtoGeneratorImpl.getDTOFile(Bean.class);
+		final long length = file.length();
+
+		final DTOGeneratorImpl nextGenerator = new DTOGeneratorImpl();
+		nextGenerator.setGeneratedDirectory(generatedDirectory);
+		nextGenerator.setStateFile(stateFile);
+		nextGenerator.setEncoding("UTF-16");
+		nextGenerator.generateDTOs(classesToGenerate);
+		Assert.assertTrue("The DTO is written in UTF-16",
+				file.length() > length);
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#computeFingerprint(java.lang.Class)}
+	 * .
+	 */
+	@Test
+	public void testComputeFingerprint() {
+		final String beanFingerprint = dtoGeneratorImpl
+				.computeFingerprint(Bean.class);
+		Assert.assertEquals(beanFingerprint,
+				dtoGeneratorImpl.computeFingerprint(Bean.class));
+		Assert.assertFalse(beanFingerprint.equals(dtoGeneratorImpl
+				.computeFingerprint(Bean2.class)));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#getReferencedClassNames(java.lang.Class)}
+	 * .
+	 */
+	@Test
+	public void testGetReferencedClassNames() {
+		final Set<String> referencedClassNames = dtoGeneratorImpl
+				.getReferencedClassNames(Bean2.class);
+		Assert.assertTrue(referencedClassNames.contains(Bean.class.getName()));
+		Assert.assertTrue(referencedClassNames.contains(AnotherBean.class
+				.getName()));
+		Assert.assertTrue(referencedClassNames.contains(List.class.getName()));
+		Assert.assertFalse(referencedClassNames.contains(Bean2.class
+				.getName()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#isOutdated(Class, GenerationState, GenerationState, Set)}
+	 * : the DTOs referencing a class entering or leaving the classes to
+	 * generate are outdated, and only them.
+	 */
+	@Test
+	public void testIsOutdated() throws IOException {
+		final List<Class<?>> previousClasses = new ArrayList<Class<?>>();
+		previousClasses.add(Bean.class);
+		previousClasses.add(Bean2.class);
+		final GenerationState previousState = this.createState(previousClasses);
+		dtoGeneratorImpl.generateDTOs(previousClasses);
+
+		Assert.assertTrue(this.getOutdatedClasses(previousClasses,
+				previousState, this.createState(previousClasses)).isEmpty());
+
+		final List<Class<?>> classes = new ArrayList<Class<?>>(previousClasses);
+		classes.add(AnotherBean.class);
+		final List<Class<?>> outdatedClasses = this.getOutdatedClasses(
+				classes, previousState, this.createState(classes));
+		Assert.assertEquals(2, outdatedClasses.size());
+		Assert.assertTrue("Bean2 references AnotherBean",
+				outdatedClasses.contains(Bean2.class));
+		Assert.assertTrue(outdatedClasses.contains(AnotherBean.class));
+
+		final List<Class<?>> remainingClasses = new ArrayList<Class<?>>();
+		remainingClasses.add(Bean2.class);
+		Assert.assertEquals(remainingClasses, this.getOutdatedClasses(
+				remainingClasses, previousState,
+				this.createState(remainingClasses)));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#removeStaleDTOs(GenerationState, GenerationState)}
+	 * .
+	 */
+	@Test
+	public void testGenerateDTOsRemovesStaleDTOs() throws IOException {
+		final File stateFile = new File(generatedDirectory, "state.bin");
+		dtoGeneratorImpl.setStateFile(stateFile);
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.add(Bean.class);
+		classes.add(Bean2.class);
+		dtoGeneratorImpl.generateDTOs(classes);
+		final File beanFile = dtoGeneratorImpl.getDTOFile(Bean.class);
+		final File bean2File = dtoGeneratorImpl.getDTOFile(Bean2.class);
+		Assert.assertTrue(beanFile.isFile());
+
+		classes.remove(Bean.class);
+		final DTOGeneratorImpl nextGenerator = new DTOGeneratorImpl();
+		nextGenerator.setGeneratedDirectory(generatedDirectory);
+		nextGenerator.setStateFile(stateFile);
+		nextGenerator.generateDTOs(classes);
+		Assert.assertFalse(beanFile.exists());
+		Assert.assertTrue(bean2File.isFile());
+
+		classes.remove(Bean2.class);
+		final DTOGeneratorImpl lastGenerator = new DTOGeneratorImpl();
+		lastGenerator.setGeneratedDirectory(generatedDirectory);
+		lastGenerator.setStateFile(stateFile);
+		lastGenerator.generateDTOs(classes);
+		Assert.assertFalse(bean2File.exists());
+		Assert.assertFalse("The empty package directory is removed", new File(
+				generatedDirectory, "fr").exists());
+		Assert.assertTrue(generatedDirectory.isDirectory());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#setGenerationThreads(int)}
+	 * : the DTOs are the same as the DTOs generated by one thread.
+	 */
+	@Test
+	public void testGenerateDTOsInParallel() throws IOException {
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.add(Bean.class);
+		classes.add(Bean2.class);
+		classes.add(AnotherBean.class);
+		dtoGeneratorImpl.generateDTOs(classes);
+		final List<String> sequentialDTOs = new ArrayList<String>();
+		for (final Class<?> clazz : classes) {
+			sequentialDTOs.add(this.read(dtoGeneratorImpl.getDTOFile(clazz)));
+		}
+		deleteFiles(generatedDirectory);
+
+		final DTOGeneratorImpl parallelGenerator = new DTOGeneratorImpl();
+		parallelGenerator.setGeneratedDirectory(generatedDirectory);
+		parallelGenerator.setGenerationThreads(3);
+		parallelGenerator.setSyncOutput(true);
+		parallelGenerator.generateDTOs(classes);
+		for (int i = 0; i < classes.size(); i++) {
+			Assert.assertEquals(sequentialDTOs.get(i), this
+					.read(parallelGenerator.getDTOFile(classes.get(i))));
+		}
+		for (final File dtoFile : parallelGenerator.getDTOFile(Bean.class)
+				.getParentFile().listFiles()) {
+			Assert.assertTrue("No temporary file is left", dtoFile.getName()
+					.endsWith("DTO.java"));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#generateDTOs(java.util.List)}
+	 * : the failure of a class does not stop the generation of the others.
+	 */
+	@Test
+	public void testGenerateDTOsCollectsErrors() {
+		final DTOGeneratorImpl failingGenerator = new DTOGeneratorImpl() {
+			@Override
+			protected void makeDTOClass(final Class<?> clazz)
+					throws IOException {
+				if (Bean.class.equals(clazz)) {
+					throw new IOException("Bean can not be generated.");
+				}
+				super.makeDTOClass(clazz);
+			}
+		};
+		failingGenerator.setGeneratedDirectory(generatedDirectory);
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.add(Bean.class);
+		classes.add(Bean2.class);
+		classes.add(AnotherBean.class);
+		for (final int threads : new int[] { 1, 2 }) {
+			failingGenerator.setGenerationThreads(threads);
+			try {
+				failingGenerator.generateDTOs(classes);
+				Assert.fail("The generation of Bean has failed.");
+			} catch (final DTOGenerationException e) {
+				Assert.assertEquals(
+						Collections.singleton(Bean.class.getName()), e
+								.getErrors().keySet());
+			} catch (final IOException e) {
+				Assert.fail("The errors are collected.");
+			}
+			Assert.assertFalse(failingGenerator.getDTOFile(Bean.class)
+					.exists());
+			Assert.assertTrue(failingGenerator.getDTOFile(Bean2.class)
+					.isFile());
+			Assert.assertTrue(failingGenerator.getDTOFile(AnotherBean.class)
+					.isFile());
+			deleteFiles(generatedDirectory);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#generateDTOs(ClassLoader, java.util.List)}
+	 * : the classes are loaded while the DTOs are generated, through a
+	 * bounded queue, and a class that can not be loaded is reported.
+	 */
+	@Test
+	public void testGenerateDTOsFromClassNames() throws IOException {
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.add(Bean.class);
+		classes.add(Bean2.class);
+		classes.add(AnotherBean.class);
+		dtoGeneratorImpl.generateDTOs(classes);
+		final List<String> expectedDTOs = new ArrayList<String>();
+		for (final Class<?> clazz : classes) {
+			expectedDTOs.add(this.read(dtoGeneratorImpl.getDTOFile(clazz)));
+		}
+		final List<String> classNames = new ArrayList<String>();
+		classNames.add(Bean.class.getName());
+		classNames.add("fr.maven.dto.bean.MissingBean");
+		classNames.add(Bean2.class.getName());
+		classNames.add(AnotherBean.class.getName());
+		classNames.add(Bean.class.getName());
+
+		final DTOGeneratorImpl streamingGenerator = new DTOGeneratorImpl();
+		streamingGenerator.setGeneratedDirectory(generatedDirectory);
+		streamingGenerator.setQueueSize(1);
+		for (final int threads : new int[] { 1, 3 }) {
+			deleteFiles(generatedDirectory);
+			streamingGenerator.setGenerationThreads(threads);
+			try {
+				streamingGenerator.generateDTOs(this.getClass()
+						.getClassLoader(), classNames);
+				Assert.fail("MissingBean can not be loaded.");
+			} catch (final DTOGenerationException e) {
+				Assert.assertEquals(
+						Collections.singleton("fr.maven.dto.bean.MissingBean"),
+						e.getErrors().keySet());
+				Assert.assertTrue(e.getErrors().get(
+						"fr.maven.dto.bean.MissingBean") instanceof ClassNotFoundException);
+			}
+			for (int i = 0; i < classes.size(); i++) {
+				Assert.assertEquals(expectedDTOs.get(i), this
+						.read(streamingGenerator.getDTOFile(classes.get(i))));
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOGeneratorImpl#setClassesDirectory(File)}
+	 * : the DTOs are emitted as class files, with their generic types.
+	 */
+	@Test
+	public void testGenerateDTOClasses() throws Exception {
+		final File classesDirectory = new File("target" + File.separator
+				+ "generated-classes");
+		dtoGeneratorImpl.setClassesDirectory(classesDirectory);
+		dtoGeneratorImpl.setGenerateSources(false);
+		dtoGeneratorImpl.setStateFile(new File(classesDirectory, "state.bin"));
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		classes.add(Bean.class);
+		classes.add(Bean2.class);
+		classes.add(AnotherBean.class);
+		try {
+			dtoGeneratorImpl.generateDTOs(classes);
+			Assert.assertFalse(dtoGeneratorImpl.getDTOFile(Bean.class).exists());
+			final URLClassLoader classLoader = new URLClassLoader(
+					new URL[] { classesDirectory.toURI().toURL() });
+			final Class<?> beanDTO = classLoader
+					.loadClass("fr.maven.dto.bean.dto.BeanDTO");
+			final Class<?> bean2DTO = classLoader
+					.loadClass("fr.maven.dto.bean.dto.Bean2DTO");
+			Assert.assertTrue(Serializable.class.isAssignableFrom(bean2DTO));
+			Assert.assertEquals("List<BeanDTO>", this.getSimpleName(bean2DTO
+					.getMethod("getBeans").getGenericReturnType()));
+			Assert.assertEquals("Map<BeanDTO, AnotherBeanDTO>",
+					this.getSimpleName(bean2DTO.getDeclaredField("beansMap")
+							.getGenericType()));
+			Assert.assertSame(beanDTO, bean2DTO.getMethod("getBeanArray")
+					.getReturnType().getComponentType());
+			final Object dto = beanDTO.newInstance();
+			beanDTO.getMethod("setAttribut2", boolean.class).invoke(dto,
+					Boolean.TRUE);
+			Assert.assertEquals(Boolean.TRUE, beanDTO
+					.getMethod("isAttribut2").invoke(dto));
+
+			classes.remove(Bean.class);
+			dtoGeneratorImpl.generateDTOs(classes);
+			Assert.assertFalse("The class file of a stale DTO is removed",
+					dtoGeneratorImpl.getDTOClassFile(Bean.class).exists());
+			Assert.assertTrue(dtoGeneratorImpl.getDTOClassFile(Bean2.class)
+					.isFile());
+		} finally {
+			deleteFiles(classesDirectory);
+		}
+	}
+
+	private String getSimpleName(final Type type) {
+		return type.toString().replaceAll("[a-z0-9]+\\.", "");
+	}
+
+	private String read(final File file) throws IOException {
+		final StringBuilder content = new StringBuilder();
+		final BufferedReader bf = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = bf.readLine()) != null) {
+				content.append(line).append('\n');
+			}
+		} finally {
+			bf.close();
+		}
+		return content.toString();
+	}
+
+	private GenerationState createState(final List<Class<?>> classes) {
+		final GenerationState state = new GenerationState();
+		for (final Class<?> clazz : classes) {
+			state.putFingerprint(clazz.getName(),
+					dtoGeneratorImpl.computeFingerprint(clazz));
+			state.putReferences(clazz.getName(),
+					dtoGeneratorImpl.getReferencedClassNames(clazz));
+		}
+		return state;
+	}
+
+	private List<Class<?>> getOutdatedClasses(final List<Class<?>> classes,
+			final GenerationState previousState, final GenerationState state) {
+		final Set<String> changedClassNames = dtoGeneratorImpl
+				.getChangedClassNames(previousState, state.getClassNames());
+		final List<Class<?>> outdatedClasses = new ArrayList<Class<?>>();
+		for (final Class<?> clazz : classes) {
+			if (dtoGeneratorImpl.isOutdated(clazz, previousState, state,
+					changedClassNames)) {
+				outdatedClasses.add(clazz);
+			}
+		}
+		return outdatedClasses;
+	}
+
 	private void deleteFiles(final File file) {
 		if (file != null && file.exists()) {
 			if (file.isDirectory()) {
@@ -0,0 +1,79 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests on {@link DTOPackageDirectories}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class DTOPackageDirectoriesTest {
+
+	private File generatedDirectory;
+
+	private DTOPackageDirectories directories;
+
+	@Before
+	public void setUp() throws Exception {
+		this.generatedDirectory = new File("target/dto-package-directories");
+		this.directories = new DTOPackageDirectories(this.generatedDirectory);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.delete(this.generatedDirectory);
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOPackageDirectories#getDirectory(String)}
+	 * .
+	 */
+	@Test
+	public void testGetDirectory() {
+		final File directory = this.directories.getDirectory("fr.maven.dto");
+		Assert.assertEquals(new File(this.generatedDirectory.getAbsoluteFile(),
+				"fr" + File.separator + "maven" + File.separator + "dto"),
+				directory);
+		Assert.assertSame(directory,
+				this.directories.getDirectory("fr.maven.dto"));
+		Assert.assertFalse(directory.exists());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOPackageDirectories#makeDirectory(String)}
+	 * : the directory is created once.
+	 */
+	@Test
+	public void testMakeDirectory() throws IOException {
+		final File directory = this.directories.makeDirectory("fr.maven.dto");
+		Assert.assertTrue(directory.isDirectory());
+		Assert.assertTrue(directory.delete());
+		Assert.assertSame(directory,
+				this.directories.makeDirectory("fr.maven.dto"));
+		Assert.assertFalse(directory.exists());
+		Assert.assertTrue(new DTOPackageDirectories(this.generatedDirectory)
+				.makeDirectory("fr.maven.dto").isDirectory());
+	}
+
+	private void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				this.delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests on {@link DTOSourceRenderer}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class DTOSourceRendererTest {
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOSourceRenderer#renderClass(java.io.Writer, DTOModel)}
+	 * .
+	 */
+	@Test
+	public void testRenderClass() throws IOException {
+		final DTOModel model = new DTOModel("fr.maven.dto.bean.Bean",
+				"fr.maven.dto.bean.dto", "BeanDTO",
+				Collections.singletonList("java.io.Serializable"),
+				Collections.singletonList(new DTOFieldModel("a", "String",
+						"String", "Ljava/lang/String;", null, "getA", "setA")));
+		final StringWriter writer = new StringWriter();
+		new DTOSourceRenderer().renderClass(writer, model);
+		Assert.assertEquals("package fr.maven.dto.bean.dto;\n\n"
+				+ "import java.io.Serializable;\n\n"
+				+ "/**\n"
+				+ " * This class was generated by the DTO Maven Plugin.\n"
+				+ " */\n"
+				+ "public class BeanDTO implements Serializable {\n\n"
+				+ "\tprivate static final long serialVersionUID = 1L;\n\n"
+				+ "\t/**\n\t * @see fr.maven.dto.bean.Bean#a\n\t */\n"
+				+ "\tprivate String a;\n\n"
+				+ "\t/**\n\t * @see fr.maven.dto.bean.Bean#getA()\n\t */\n"
+				+ "\tpublic String getA() {\n\t\treturn this.a;\n\t}\n\n"
+				+ "\t/**\n\t * @see fr.maven.dto.bean.Bean#setA(String)\n\t */\n"
+				+ "\tpublic void setA(String a) {\n\t\tthis.a = a;\n\t}\n\n"
+				+ "}", writer.toString());
+	}
+}
@@ -0,0 +1,189 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests on {@link DTOSourceWriter}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class DTOSourceWriterTest {
+
+	private File workDirectory;
+
+	private DTOSourceWriter writer;
+
+	@Before
+	public void setUp() throws Exception {
+		this.workDirectory = new File("target/dto-source-writer");
+		this.workDirectory.mkdirs();
+		this.writer = new DTOSourceWriter(Charset.forName("UTF-8"));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (final File file : this.workDirectory.listFiles()) {
+			file.delete();
+		}
+		this.workDirectory.delete();
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOSourceWriter#close()} .
+	 */
+	@Test
+	public void testClose() throws IOException {
+		final File file = new File(this.workDirectory, "BeanDTO.java");
+		this.writer.open(file);
+		Assert.assertTrue(this.writer.isOpen());
+		this.writer.write("class BeanDTO {");
+		this.writer.write('\n');
+		this.writer.write("\tprivate String caf\u00e9;\n}");
+		Assert.assertFalse("The file is written when closed", file.exists());
+		this.writer.close();
+		Assert.assertFalse(this.writer.isOpen());
+		Assert.assertTrue(Arrays.equals(
+				"class BeanDTO {\n\tprivate String caf\u00e9;\n}"
+						.getBytes("UTF-8"), this.read(file)));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOSourceWriter#close()} : an
+	 * unchanged file is not written again.
+	 */
+	@Test
+	public void testCloseUnchanged() throws IOException {
+		final File file = new File(this.workDirectory, "BeanDTO.java");
+		this.writer.open(file);
+		this.writer.write("class BeanDTO {}");
+		this.writer.close();
+		final long lastModified = file.lastModified() - 10000;
+		Assert.assertTrue(file.setLastModified(lastModified));
+
+		this.writer.open(file);
+		this.writer.write("class BeanDTO {}");
+		this.writer.close();
+		Assert.assertEquals(lastModified, file.lastModified());
+
+		this.writer.open(file);
+		this.writer.write("class BeanDTO {int a;}");
+		this.writer.close();
+		Assert.assertFalse(lastModified == file.lastModified());
+		Assert.assertEquals("class BeanDTO {int a;}", new String(
+				this.read(file), "UTF-8"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOSourceWriter#close()} : the DTO
+	 * is replaced through a temporary file, forced to the disk if asked.
+	 */
+	@Test
+	public void testCloseReplacesFile() throws IOException {
+		final File file = new File(this.workDirectory, "BeanDTO.java");
+		this.writer.open(file);
+		this.writer.write("class BeanDTO {}");
+		this.writer.close();
+
+		final DTOSourceWriter syncWriter = new DTOSourceWriter(
+				Charset.forName("UTF-8"), true);
+		syncWriter.open(file);
+		syncWriter.write("class BeanDTO {int a;}");
+		syncWriter.close();
+		Assert.assertEquals("class BeanDTO {int a;}", new String(
+				this.read(file), "UTF-8"));
+		Assert.assertEquals("No temporary file is left", 1,
+				this.workDirectory.listFiles().length);
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOSourceWriter#close()} : a source
+	 * that can not be encoded fails, the file keeps its previous content.
+	 */
+	@Test
+	public void testCloseUnmappable() throws IOException {
+		final File file = new File(this.workDirectory, "BeanDTO.java");
+		final DTOSourceWriter asciiWriter = new DTOSourceWriter(
+				Charset.forName("US-ASCII"));
+		asciiWriter.open(file);
+		asciiWriter.write("class BeanDTO {}");
+		asciiWriter.close();
+
+		asciiWriter.open(file);
+		asciiWriter.write("class BeanDTO {String caf\u00e9;}");
+		try {
+			asciiWriter.close();
+			Assert.fail("The source can not be encoded in US-ASCII.");
+		} catch (final IOException e) {
+			Assert.assertTrue(e.getMessage().contains("BeanDTO.java"));
+		}
+		Assert.assertFalse(asciiWriter.isOpen());
+		Assert.assertEquals("class BeanDTO {}", new String(this.read(file),
+				"US-ASCII"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOSourceWriter#rename(File, File)} :
+	 * a file that can not be replaced is never deleted.
+	 */
+	@Test
+	public void testRename() throws IOException {
+		final File temporaryFile = new File(this.workDirectory, "BeanDTO.tmp");
+		Assert.assertTrue(temporaryFile.createNewFile());
+		final File targetDirectory = new File(this.workDirectory, "BeanDTO");
+		Assert.assertTrue(targetDirectory.mkdir());
+		final File targetChild = new File(targetDirectory, "BeanDTO.java");
+		Assert.assertTrue(targetChild.createNewFile());
+		Assert.assertFalse(DTOSourceWriter.rename(temporaryFile,
+				targetDirectory));
+		Assert.assertTrue(targetChild.isFile());
+		Assert.assertTrue(targetChild.delete());
+
+		final File targetFile = new File(this.workDirectory, "BeanDTO.java");
+		Assert.assertTrue(targetFile.createNewFile());
+		Assert.assertTrue(DTOSourceWriter.rename(temporaryFile, targetFile));
+		Assert.assertFalse(temporaryFile.exists());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOSourceWriter#write(String)} on
+	 * a closed writer.
+	 */
+	@Test(expected = IOException.class)
+	public void testWriteClosed() throws IOException {
+		this.writer.write("class BeanDTO {}");
+	}
+
+	private byte[] read(final File file) throws IOException {
+		final byte[] content = new byte[(int) file.length()];
+		final InputStream input = new FileInputStream(file);
+		try {
+			int offset = 0;
+			while (offset < content.length) {
+				offset += input.read(content, offset, content.length - offset);
+			}
+		} finally {
+			input.close();
+		}
+		return content;
+	}
+}
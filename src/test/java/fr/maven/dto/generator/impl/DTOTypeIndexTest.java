@@ -0,0 +1,57 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+
+/**
+ * Tests on {@link DTOTypeIndex}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class DTOTypeIndexTest {
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOTypeIndex#getDTOSimpleName(Class)}
+	 * .
+	 */
+	@Test
+	public void testGetDTOSimpleName() {
+		final DTOTypeIndex index = new DTOTypeIndex(Arrays.asList(Bean.class
+				.getName()));
+		Assert.assertTrue(index.contains(Bean.class));
+		Assert.assertFalse(index.contains(Bean2.class));
+		Assert.assertEquals("BeanDTO", index.getDTOSimpleName(Bean.class));
+		Assert.assertNull(index.getDTOSimpleName(Bean2.class));
+		Assert.assertFalse(index.isEmpty());
+		Assert.assertTrue(new DTOTypeIndex().isEmpty());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.DTOTypeIndex#getDTOType(String, java.lang.reflect.Type)}
+	 * .
+	 */
+	@Test
+	public void testGetDTOType() {
+		final DTOTypeIndex index = new DTOTypeIndex();
+		Assert.assertNull(index.getDTOType("fr.maven.dto.bean", Bean.class));
+		index.putDTOType("fr.maven.dto.bean", Bean.class,
+				"fr.maven.dto.bean.Bean");
+		Assert.assertEquals("fr.maven.dto.bean.Bean",
+				index.getDTOType("fr.maven.dto.bean", Bean.class));
+		Assert.assertNull(index.getDTOType("fr.maven.dto", Bean.class));
+		index.add(Bean.class);
+		Assert.assertNull("The types rendered are forgotten",
+				index.getDTOType("fr.maven.dto.bean", Bean.class));
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests on {@link GenerationState}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class GenerationStateTest {
+
+	private File workDirectory;
+
+	private File stateFile;
+
+	@Before
+	public void setUp() throws Exception {
+		this.workDirectory = new File("target/generation-state");
+		this.stateFile = new File(this.workDirectory, "state.bin");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.stateFile.delete();
+		this.workDirectory.delete();
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.GenerationState#save(File)} and
+	 * {@link fr.maven.dto.generator.impl.GenerationState#load(File)} .
+	 */
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		final GenerationState state = new GenerationState();
+		state.setSettings("charset=UTF-8");
+		state.putFingerprint("fr.maven.dto.bean.Bean", "fingerprint");
+		state.putReferences("fr.maven.dto.bean.Bean",
+				Collections.singleton("fr.maven.dto.bean.AnotherBean"));
+		state.putOutput("fr.maven.dto.bean.Bean",
+				"fr/maven/dto/bean/dto/BeanDTO.java");
+		state.save(this.stateFile);
+		Assert.assertFalse(new File(this.workDirectory, "state.bin.tmp")
+				.exists());
+		final GenerationState loadedState = GenerationState
+				.load(this.stateFile);
+		Assert.assertEquals("charset=UTF-8", loadedState.getSettings());
+		Assert.assertEquals("fingerprint",
+				loadedState.getFingerprint("fr.maven.dto.bean.Bean"));
+		Assert.assertNull(loadedState.getFingerprint("fr.maven.dto.bean.Bean2"));
+		Assert.assertEquals("fr/maven/dto/bean/dto/BeanDTO.java",
+				loadedState.getOutput("fr.maven.dto.bean.Bean"));
+		Assert.assertEquals(
+				Collections.singleton("fr.maven.dto.bean.AnotherBean"),
+				loadedState.getReferences("fr.maven.dto.bean.Bean"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.GenerationState#putReferences(String, java.util.Collection)}
+	 * .
+	 */
+	@Test
+	public void testPutReferences() {
+		final GenerationState state = new GenerationState();
+		state.putReferences("fr.maven.dto.bean.Bean2",
+				Arrays.asList("fr.maven.dto.bean.Bean", "java.util.List"));
+		Assert.assertEquals(
+				Arrays.asList("fr.maven.dto.bean.Bean", "java.util.List"),
+				new ArrayList<String>(state
+						.getReferences("fr.maven.dto.bean.Bean2")));
+		state.putReferences("fr.maven.dto.bean.Bean2",
+				Collections.singleton("java.util.List"));
+		Assert.assertEquals(Collections.singleton("java.util.List"),
+				state.getReferences("fr.maven.dto.bean.Bean2"));
+		Assert.assertTrue(state.getReferences("fr.maven.dto.bean.Bean")
+				.isEmpty());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.GenerationState#getClassNames()} :
+	 * the classes are sorted, whatever the order they have been recorded in.
+	 */
+	@Test
+	public void testGetClassNames() throws IOException {
+		final GenerationState state = new GenerationState();
+		state.putFingerprint("fr.maven.dto.bean.Bean2", "fingerprint2");
+		state.putFingerprint("fr.maven.dto.bean.AnotherBean", "fingerprint");
+		state.putFingerprint("fr.maven.dto.bean.Bean", "fingerprint1");
+		final List<String> classNames = Arrays.asList(
+				"fr.maven.dto.bean.AnotherBean", "fr.maven.dto.bean.Bean",
+				"fr.maven.dto.bean.Bean2");
+		Assert.assertEquals(classNames,
+				new ArrayList<String>(state.getClassNames()));
+		state.save(this.stateFile);
+		Assert.assertEquals(classNames, new ArrayList<String>(GenerationState
+				.load(this.stateFile).getClassNames()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.GenerationState#load(File)} with a
+	 * missing or corrupted file.
+	 */
+	@Test
+	public void testLoadInvalidState() throws IOException {
+		Assert.assertNull(GenerationState.load(null).getFingerprint(
+				"fr.maven.dto.bean.Bean"));
+		Assert.assertNull(GenerationState.load(this.stateFile).getFingerprint(
+				"fr.maven.dto.bean.Bean"));
+		this.workDirectory.mkdirs();
+		final OutputStream output = new FileOutputStream(this.stateFile);
+		try {
+			output.write(new byte[] { 0, 0, 0, 1, 0, 0, 0, 5, 0 });
+		} finally {
+			output.close();
+		}
+		Assert.assertNull(GenerationState.load(this.stateFile).getFingerprint(
+				"fr.maven.dto.bean.Bean"));
+	}
+}
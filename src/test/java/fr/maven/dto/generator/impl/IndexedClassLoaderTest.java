@@ -0,0 +1,143 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests on {@link IndexedClassLoader}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class IndexedClassLoaderTest {
+
+	private File beansJar;
+
+	private IndexedClassLoader classLoader;
+
+	@Before
+	public void setUp() throws Exception {
+		this.beansJar = new File("target/test-classes/beans.jar");
+		this.classLoader = new IndexedClassLoader(new URL[] {
+				new File("target/test-classes").toURI().toURL(),
+				this.beansJar.toURI().toURL() }, null);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.classLoader.close();
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.IndexedClassLoader#findClass(String)}
+	 * .
+	 */
+	@Test
+	public void testLoadClass() throws ClassNotFoundException {
+		final Class<?> beanInAJar = this.classLoader
+				.loadClass("fr.maven.dto.test.BeanInAJar");
+		Assert.assertSame(this.classLoader, beanInAJar.getClassLoader());
+		Assert.assertEquals("fr.maven.dto.test", beanInAJar.getPackage()
+				.getName());
+		final Class<?> bean = this.classLoader
+				.loadClass("fr.maven.dto.bean.Bean");
+		Assert.assertSame(this.classLoader, bean.getClassLoader());
+		Assert.assertSame(bean,
+				this.classLoader.loadClass("fr.maven.dto.bean.Bean"));
+		Assert.assertSame(String.class,
+				this.classLoader.loadClass("java.lang.String"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.IndexedClassLoader#loadClass(String, boolean)}
+	 * : a class loader created parent last looks up its own classpath first,
+	 * then its parent.
+	 */
+	@Test
+	public void testLoadClassParentLast() throws Exception {
+		final URL[] directoryURLs = new URL[] { new File("target/test-classes")
+				.toURI().toURL() };
+		final IndexedClassLoader parentFirstLoader = new IndexedClassLoader(
+				directoryURLs, this.classLoader);
+		final IndexedClassLoader parentLastLoader = new IndexedClassLoader(
+				directoryURLs, this.classLoader, true);
+		try {
+			Assert.assertSame(this.classLoader, parentFirstLoader
+					.loadClass("fr.maven.dto.bean.Bean").getClassLoader());
+			final Class<?> bean = parentLastLoader
+					.loadClass("fr.maven.dto.bean.Bean");
+			Assert.assertSame(parentLastLoader, bean.getClassLoader());
+			Assert.assertSame(bean,
+					parentLastLoader.loadClass("fr.maven.dto.bean.Bean"));
+			Assert.assertSame(this.classLoader, parentLastLoader.loadClass(
+					"fr.maven.dto.test.BeanInAJar").getClassLoader());
+			Assert.assertSame(String.class,
+					parentLastLoader.loadClass("java.lang.String"));
+		} finally {
+			parentFirstLoader.close();
+			parentLastLoader.close();
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.IndexedClassLoader#findClass(String)}
+	 * .
+	 */
+	@Test(expected = ClassNotFoundException.class)
+	public void testLoadMissingClass() throws ClassNotFoundException {
+		this.classLoader.loadClass("fr.maven.dto.bean.MissingBean");
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.IndexedClassLoader#findResource(String)}
+	 * .
+	 */
+	@Test
+	public void testGetResourceAsStream() throws IOException {
+		final InputStream classFile = this.classLoader
+				.getResourceAsStream("fr/maven/dto/test/BeanInAJar.class");
+		Assert.assertNotNull(classFile);
+		try {
+			Assert.assertEquals("fr.maven.dto.test.BeanInAJar",
+					new ClassHeaderReader().read(classFile).getClassName());
+		} finally {
+			classFile.close();
+		}
+		Assert.assertNotNull(this.classLoader
+				.getResource("fr/maven/dto/bean/Bean.class"));
+		Assert.assertNull(this.classLoader
+				.getResource("fr/maven/dto/bean/Missing.class"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.IndexedClassLoader#getArchive(File)}
+	 * and {@link fr.maven.dto.generator.impl.IndexedClassLoader#close()} .
+	 */
+	@Test
+	public void testClose() throws IOException {
+		Assert.assertNotNull(this.classLoader.getArchive(this.beansJar));
+		this.classLoader.close();
+		Assert.assertNull(this.classLoader.getArchive(this.beansJar));
+		try {
+			this.classLoader.loadClass("fr.maven.dto.test.BeanInAJar");
+			Assert.fail("No class can be found once the class loader is closed.");
+		} catch (final ClassNotFoundException e) {
+			// The class loader is closed.
+		}
+	}
+}
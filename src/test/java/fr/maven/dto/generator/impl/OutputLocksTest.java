@@ -0,0 +1,75 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.maven.dto.bean.Bean;
+
+/**
+ * Tests on {@link OutputLocks}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class OutputLocksTest {
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.OutputLocks#lock(File...)} and
+	 * {@link fr.maven.dto.generator.impl.OutputLocks#unlock()} : a generation
+	 * waits for the outputs held by another one, and no lock is kept once
+	 * they are released.
+	 */
+	@Test
+	public void testLock() throws Exception {
+		final File output = new File("target/output-locks");
+		final OutputLocks outputLocks = OutputLocks.lock(output, null);
+		Assert.assertEquals(1, OutputLocks.size());
+		final CountDownLatch locked = new CountDownLatch(1);
+		final Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					final OutputLocks otherLocks = OutputLocks.lock(output);
+					locked.countDown();
+					otherLocks.unlock();
+				} catch (final IOException e) {
+					return;
+				}
+			}
+		};
+		thread.start();
+		Assert.assertFalse(locked.await(100, TimeUnit.MILLISECONDS));
+		outputLocks.unlock();
+		Assert.assertTrue(locked.await(10, TimeUnit.SECONDS));
+		thread.join();
+		Assert.assertEquals(0, OutputLocks.size());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.OutputLocks#unlock()} : a generation
+	 * failing before it has started releases its outputs.
+	 */
+	@Test
+	public void testUnlockOnFailure() throws IOException {
+		final DTOGeneratorImpl dtoGenerator = new DTOGeneratorImpl();
+		dtoGenerator.setStateFile(new File(
+				"target/output-locks/generation-state.bin"));
+		try {
+			dtoGenerator.generateDTOs(Arrays.<Class<?>> asList(Bean.class));
+			Assert.fail("The generation has no generated directory.");
+		} catch (final NullPointerException e) {
+			Assert.assertEquals(0, OutputLocks.size());
+		}
+	}
+}
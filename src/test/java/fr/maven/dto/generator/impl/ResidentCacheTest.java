@@ -0,0 +1,37 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests on {@link ResidentCache}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ResidentCacheTest {
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ResidentCache#put(Object, Object)} :
+	 * the least recently used value is evicted.
+	 */
+	@Test
+	public void testPut() {
+		final ResidentCache<String, String> cache = new ResidentCache<String, String>(
+				2);
+		cache.put("a", "A");
+		cache.put("b", "B");
+		Assert.assertEquals("A", cache.get("a"));
+		cache.put("c", "C");
+		Assert.assertEquals(2, cache.size());
+		Assert.assertNull(cache.get("b"));
+		Assert.assertEquals("A", cache.get("a"));
+		Assert.assertEquals("C", cache.get("c"));
+		cache.clear();
+		Assert.assertNull(cache.get("a"));
+	}
+}
@@ -0,0 +1,256 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests on {@link ScanIndex}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ScanIndexTest {
+
+	private static final String SCAN_KEY = "includes=[**/Bean.class]";
+
+	private File workDirectory;
+
+	private File indexFile;
+
+	private List<String> classNames;
+
+	@Before
+	public void setUp() throws Exception {
+		this.workDirectory = new File("target/scan-index");
+		this.workDirectory.mkdirs();
+		this.indexFile = new File(this.workDirectory, "index.bin");
+		this.classNames = new ArrayList<String>();
+		this.classNames.add("fr.maven.dto.bean.Bean");
+		ScanIndex.clearResidentEntries();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.deleteFiles(this.workDirectory);
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ScanIndex#getEntry(File)} .
+	 */
+	@Test
+	public void testArchiveUnchanged() throws IOException {
+		final File archive = new File(this.workDirectory, "beans.jar");
+		this.writeArchive(archive, "content");
+		this.recordAndSave(archive);
+
+		Assert.assertEquals(this.classNames, ScanIndex.load(this.indexFile)
+				.getEntry(archive).getClassNames(SCAN_KEY));
+		Assert.assertNull("Another scan key must not be found.", ScanIndex
+				.load(this.indexFile).getEntry(archive)
+				.getClassNames("includes=[**/*.class]"));
+		Assert.assertEquals("The packages of the archive must be recorded.",
+				Collections.singleton("fr"), ScanIndex.load(this.indexFile)
+						.getEntry(archive).getPackages());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ScanIndex#getEntry(File)} .
+	 */
+	@Test
+	public void testArchiveRebuiltWithSameContent() throws IOException {
+		final File archive = new File(this.workDirectory, "beans.jar");
+		this.writeArchive(archive, "content");
+		this.recordAndSave(archive);
+		this.writeArchive(archive, "content");
+		archive.setLastModified(archive.lastModified() - 10000);
+
+		Assert.assertEquals(
+				"An archive with the same entries CRCs must not be scanned again.",
+				this.classNames, ScanIndex.load(this.indexFile)
+						.getEntry(archive).getClassNames(SCAN_KEY));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ScanIndex#getEntry(File)} .
+	 */
+	@Test
+	public void testArchiveChanged() throws IOException {
+		final File archive = new File(this.workDirectory, "beans.jar");
+		this.writeArchive(archive, "content");
+		this.recordAndSave(archive);
+		this.writeArchive(archive, "another content");
+		archive.setLastModified(archive.lastModified() - 10000);
+
+		Assert.assertNull("A changed archive must be scanned again.",
+				ScanIndex.load(this.indexFile).getEntry(archive)
+						.getClassNames(SCAN_KEY));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ScanIndex#getEntry(File)} .
+	 */
+	@Test
+	public void testDirectoryChanged() throws IOException {
+		final File directory = new File(this.workDirectory, "classes");
+		final File classFile = new File(directory, "fr/Bean.class");
+		classFile.getParentFile().mkdirs();
+		this.writeFile(classFile, "content");
+		this.recordAndSave(directory);
+
+		Assert.assertEquals(this.classNames, ScanIndex.load(this.indexFile)
+				.getEntry(directory).getClassNames(SCAN_KEY));
+
+		this.writeFile(classFile, "another content");
+		Assert.assertNull("A changed directory must be scanned again.",
+				ScanIndex.load(this.indexFile).getEntry(directory)
+						.getClassNames(SCAN_KEY));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ScanIndex#load(File)} .
+	 */
+	@Test
+	public void testLoadCorruptedIndex() throws IOException {
+		this.writeFile(this.indexFile, "not an index");
+		final File archive = new File(this.workDirectory, "beans.jar");
+		this.writeArchive(archive, "content");
+		Assert.assertNull(ScanIndex.load(this.indexFile).getEntry(archive)
+				.getClassNames(SCAN_KEY));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ScanIndex#load(File)} : an index
+	 * whose counts are corrupted is an empty index.
+	 */
+	@Test
+	public void testLoadCorruptedCount() throws IOException {
+		final File archive = new File(this.workDirectory, "beans.jar");
+		this.writeArchive(archive, "content");
+		this.recordAndSave(archive);
+		final byte[] content = this.readFile(this.indexFile);
+		// The count of the class names, before the last class name.
+		final int countOffset = content.length - 2
+				- this.classNames.get(0).length() - 4;
+		for (final int count : new int[] { -1, Integer.MAX_VALUE }) {
+			content[countOffset] = (byte) (count >>> 24);
+			content[countOffset + 1] = (byte) (count >>> 16);
+			content[countOffset + 2] = (byte) (count >>> 8);
+			content[countOffset + 3] = (byte) count;
+			final OutputStream output = new FileOutputStream(this.indexFile);
+			try {
+				output.write(content);
+			} finally {
+				output.close();
+			}
+			ScanIndex.clearResidentEntries();
+			Assert.assertNull(ScanIndex.load(this.indexFile).getEntry(archive)
+					.getClassNames(SCAN_KEY));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ScanIndex#getEntry(File)} : the
+	 * entries are shared by the indexes of the JVM.
+	 */
+	@Test
+	public void testResidentEntry() throws IOException {
+		final File archive = new File(this.workDirectory, "beans.jar");
+		this.writeArchive(archive, "content");
+		new ScanIndex().getEntry(archive).putClassNames(SCAN_KEY,
+				this.classNames);
+		Assert.assertEquals(this.classNames, new ScanIndex().getEntry(archive)
+				.getClassNames(SCAN_KEY));
+
+		this.writeArchive(archive, "changed content");
+		Assert.assertNull("A changed archive must be scanned again.",
+				new ScanIndex().getEntry(archive).getClassNames(SCAN_KEY));
+		ScanIndex.clearResidentEntries();
+		Assert.assertNull(new ScanIndex().getEntry(archive).getClassNames(
+				SCAN_KEY));
+	}
+
+	private void recordAndSave(final File directoryOrArchive)
+			throws IOException {
+		final ScanIndex scanIndex = ScanIndex.load(this.indexFile);
+		scanIndex.getEntry(directoryOrArchive).putClassNames(SCAN_KEY,
+				this.classNames);
+		scanIndex.save(this.indexFile);
+	}
+
+	private void writeArchive(final File archive, final String content)
+			throws IOException {
+		final ZipOutputStream output = new ZipOutputStream(
+				new FileOutputStream(archive));
+		try {
+			output.putNextEntry(new ZipEntry("fr/Bean.class"));
+			output.write(content.getBytes("UTF-8"));
+			output.closeEntry();
+		} finally {
+			output.close();
+		}
+	}
+
+	private byte[] readFile(final File file) throws IOException {
+		final InputStream input = new FileInputStream(file);
+		try {
+			final byte[] content = new byte[(int) file.length()];
+			int offset = 0;
+			while (offset < content.length) {
+				final int length = input.read(content, offset, content.length
+						- offset);
+				if (length < 0) {
+					break;
+				}
+				offset += length;
+			}
+			return content;
+		} finally {
+			input.close();
+		}
+	}
+
+	private void writeFile(final File file, final String content)
+			throws IOException {
+		final OutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+	}
+
+	private void deleteFiles(final File file) {
+		if (file != null && file.exists()) {
+			if (file.isDirectory()) {
+				for (final File fileChild : file.listFiles()) {
+					deleteFiles(fileChild);
+				}
+			}
+			file.delete();
+		}
+	}
+}
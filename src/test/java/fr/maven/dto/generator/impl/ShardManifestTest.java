@@ -0,0 +1,108 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests on {@link ShardManifest}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ShardManifestTest {
+
+	private File workDirectory;
+
+	private File manifestFile;
+
+	@Before
+	public void setUp() throws Exception {
+		this.workDirectory = new File("target/shard-manifest");
+		this.manifestFile = new File(this.workDirectory,
+				ShardManifest.FILE_NAME);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.manifestFile.delete();
+		this.workDirectory.delete();
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ShardManifest#save(File, boolean)}
+	 * and {@link fr.maven.dto.generator.impl.ShardManifest#load(File)} .
+	 */
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		final ShardManifest manifest = new ShardManifest(new Shard(2, 0),
+				Arrays.asList("fr.maven.dto.bean.Bean2",
+						"fr.maven.dto.bean.Bean"));
+		manifest.putClass("fr.maven.dto.bean.Bean2",
+				"fr.maven.dto.bean.dto.Bean2DTO",
+				"fr/maven/dto/bean/dto/Bean2DTO.java");
+		manifest.putClass("fr.maven.dto.bean.AnotherBean",
+				"fr.maven.dto.bean.dto.AnotherBeanDTO", null);
+		manifest.putReference("fr.maven.dto.bean.Bean2",
+				"fr.maven.dto.bean.Bean", "fr.maven.dto.bean.dto.BeanDTO");
+		manifest.save(this.manifestFile, true);
+		Assert.assertEquals(1, this.workDirectory.list().length);
+
+		final ShardManifest loadedManifest = ShardManifest
+				.load(this.manifestFile);
+		Assert.assertEquals(2, loadedManifest.getShardCount());
+		Assert.assertEquals(0, loadedManifest.getShardIndex());
+		Assert.assertEquals(manifest.getClassesDigest(),
+				loadedManifest.getClassesDigest());
+		Assert.assertEquals(manifest.getClassNames(),
+				loadedManifest.getClassNames());
+		Assert.assertEquals("fr.maven.dto.bean.dto.Bean2DTO",
+				loadedManifest.getDTOName("fr.maven.dto.bean.Bean2"));
+		Assert.assertEquals("fr/maven/dto/bean/dto/Bean2DTO.java",
+				loadedManifest.getOutput("fr.maven.dto.bean.Bean2"));
+		Assert.assertNull(loadedManifest
+				.getOutput("fr.maven.dto.bean.AnotherBean"));
+		Assert.assertEquals(Collections.singletonMap("fr.maven.dto.bean.Bean",
+				"fr.maven.dto.bean.dto.BeanDTO"), loadedManifest
+				.getReferences("fr.maven.dto.bean.Bean2"));
+		Assert.assertTrue(loadedManifest.getReferences(
+				"fr.maven.dto.bean.AnotherBean").isEmpty());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ShardManifest#getClassesDigest()} :
+	 * the digest does not depend on the order the classes are found in.
+	 */
+	@Test
+	public void testGetClassesDigest() {
+		final String digest = new ShardManifest(new Shard(2, 0), Arrays.asList(
+				"fr.maven.dto.bean.Bean", "fr.maven.dto.bean.Bean2"))
+				.getClassesDigest();
+		Assert.assertEquals(digest, new ShardManifest(new Shard(2, 1),
+				Arrays.asList("fr.maven.dto.bean.Bean2",
+						"fr.maven.dto.bean.Bean")).getClassesDigest());
+		Assert.assertFalse(digest.equals(new ShardManifest(new Shard(2, 0),
+				Arrays.asList("fr.maven.dto.bean.Bean")).getClassesDigest()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ShardManifest#load(File)} : a shard
+	 * without manifest can not be merged.
+	 */
+	@Test(expected = IOException.class)
+	public void testLoadMissing() throws IOException {
+		ShardManifest.load(this.manifestFile);
+	}
+}
@@ -0,0 +1,265 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.maven.dto.bean.AnotherBean;
+import fr.maven.dto.bean.Bean;
+import fr.maven.dto.bean.Bean2;
+
+/**
+ * Tests on {@link ShardMerger}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ShardMergerTest {
+
+	private static final int SHARD_COUNT = 2;
+
+	private static final List<Class<?>> CLASSES = Arrays.<Class<?>> asList(
+			Bean.class, Bean2.class, AnotherBean.class);
+
+	private static final List<String> CLASS_NAMES = Arrays.asList(
+			Bean.class.getName(), Bean2.class.getName(),
+			AnotherBean.class.getName());
+
+	private File workDirectory;
+
+	@Before
+	public void setUp() throws Exception {
+		this.workDirectory = new File("target/shard-merger");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.delete(this.workDirectory);
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ShardMerger#merge(File, boolean)} :
+	 * the shards merged give the DTOs of a generation without shards.
+	 */
+	@Test
+	public void testMerge() throws IOException {
+		final File directory = new File(this.workDirectory, "generated");
+		this.generate(directory, 1, 0);
+		final ShardMerger shardMerger = new ShardMerger();
+		for (int i = 0; i < SHARD_COUNT; i++) {
+			final File shardDirectory = new File(this.workDirectory, "shard"
+					+ i);
+			this.generate(shardDirectory, SHARD_COUNT, i);
+			Assert.assertTrue(new File(shardDirectory, ShardManifest.FILE_NAME)
+					.isFile());
+			shardMerger.addShard(shardDirectory);
+		}
+		Assert.assertEquals(new ArrayList<String>(), shardMerger.check());
+
+		final File mergedDirectory = new File(this.workDirectory, "merged");
+		Assert.assertEquals(CLASSES.size(),
+				shardMerger.merge(mergedDirectory, false));
+		Assert.assertEquals(this.readDTOs(directory),
+				this.readDTOs(mergedDirectory));
+		Assert.assertEquals(0, shardMerger.merge(mergedDirectory, false));
+		Assert.assertTrue(new File(mergedDirectory,
+				ShardMerger.MANIFEST_FILE_NAME).isFile());
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ShardMerger#merge(File, boolean)} :
+	 * the DTOs of the previous merge no shard generates anymore are removed.
+	 */
+	@Test
+	public void testMergeRemovedDTOs() throws IOException {
+		final File mergedDirectory = new File(this.workDirectory, "merged");
+		this.mergeShards(CLASSES, mergedDirectory);
+		final File bean2DTO = new File(mergedDirectory,
+				"fr/maven/dto/bean/dto/Bean2DTO.java");
+		Assert.assertTrue(bean2DTO.isFile());
+
+		final List<Class<?>> classes = Arrays.<Class<?>> asList(Bean.class,
+				AnotherBean.class);
+		final File directory = new File(this.workDirectory, "generated");
+		this.generate(directory, classes, 1, 0);
+		Assert.assertEquals(0, this.mergeShards(classes, mergedDirectory));
+		Assert.assertFalse(bean2DTO.exists());
+		Assert.assertEquals(this.readDTOs(directory),
+				this.readDTOs(mergedDirectory));
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ShardMerger#merge(File, boolean)} :
+	 * the shards are checked before they are merged.
+	 */
+	@Test
+	public void testMergeInconsistentShards() throws IOException {
+		final ShardMerger shardMerger = new ShardMerger();
+		this.addShard(shardMerger, "shard0", new ShardManifest(new Shard(
+				SHARD_COUNT, 0), CLASS_NAMES));
+		final File mergedDirectory = new File(this.workDirectory, "merged");
+		try {
+			shardMerger.merge(mergedDirectory, false);
+			Assert.fail("The shard 1 is missing.");
+		} catch (final IOException e) {
+			Assert.assertTrue(e.getMessage().endsWith(
+					"The shard 1 is missing."));
+		}
+		Assert.assertFalse(mergedDirectory.exists());
+	}
+
+	/**
+	 * Test method for {@link fr.maven.dto.generator.impl.ShardMerger#check()} :
+	 * all the shards of the same generation are merged.
+	 */
+	@Test
+	public void testCheckShards() throws IOException {
+		final ShardMerger shardMerger = new ShardMerger();
+		Assert.assertEquals(1, shardMerger.check().size());
+		this.addShard(shardMerger, "shard0", new ShardManifest(new Shard(
+				SHARD_COUNT, 0), CLASS_NAMES));
+		Assert.assertEquals(
+				Arrays.asList("The shard 1 is missing."),
+				shardMerger.check());
+		this.addShard(shardMerger, "shard1", new ShardManifest(new Shard(
+				SHARD_COUNT, 1), Arrays.asList(Bean.class.getName())));
+		Assert.assertEquals(1, shardMerger.check().size());
+		Assert.assertTrue(shardMerger.check().get(0)
+				.endsWith("has not found the same classes to generate."));
+	}
+
+	/**
+	 * Test method for {@link fr.maven.dto.generator.impl.ShardMerger#check()} :
+	 * the DTO types given to the classes of another shard are the DTOs it has
+	 * generated.
+	 */
+	@Test
+	public void testCheckReferences() throws IOException {
+		final ShardManifest manifest0 = new ShardManifest(new Shard(
+				SHARD_COUNT, 0), CLASS_NAMES);
+		manifest0.putClass(Bean2.class.getName(),
+				"fr.maven.dto.bean.dto.Bean2DTO", null);
+		manifest0.putReference(Bean2.class.getName(), Bean.class.getName(),
+				"fr.maven.dto.bean.dto.BeanDTO");
+		final ShardManifest manifest1 = new ShardManifest(new Shard(
+				SHARD_COUNT, 1), CLASS_NAMES);
+		final ShardMerger shardMerger = new ShardMerger();
+		this.addShard(shardMerger, "shard0", manifest0);
+		this.addShard(shardMerger, "shard1", manifest1);
+		Assert.assertEquals(1, shardMerger.check().size());
+		Assert.assertTrue(shardMerger.check().get(0)
+				.endsWith("but no shard has generated it."));
+
+		manifest1.putClass(Bean.class.getName(),
+				"fr.maven.dto.bean.dto.OtherBeanDTO", null);
+		this.addShard(shardMerger, "shard1", manifest1);
+		Assert.assertEquals(1, shardMerger.check().size());
+		Assert.assertTrue(shardMerger.check().get(0)
+				.endsWith("is fr.maven.dto.bean.dto.OtherBeanDTO."));
+
+		manifest1.putClass(Bean.class.getName(),
+				"fr.maven.dto.bean.dto.BeanDTO", null);
+		this.addShard(shardMerger, "shard1", manifest1);
+		Assert.assertEquals(new ArrayList<String>(), shardMerger.check());
+	}
+
+	private int mergeShards(final List<Class<?>> classes,
+			final File mergedDirectory) throws IOException {
+		final ShardMerger shardMerger = new ShardMerger();
+		for (int i = 0; i < SHARD_COUNT; i++) {
+			final File shardDirectory = new File(this.workDirectory, "shard"
+					+ i);
+			this.generate(shardDirectory, classes, SHARD_COUNT, i);
+			shardMerger.addShard(shardDirectory);
+		}
+		return shardMerger.merge(mergedDirectory, false);
+	}
+
+	private void generate(final File directory, final int shardCount,
+			final int shardIndex) throws IOException {
+		this.generate(directory, CLASSES, shardCount, shardIndex);
+	}
+
+	private void generate(final File directory, final List<Class<?>> classes,
+			final int shardCount, final int shardIndex) throws IOException {
+		final DTOGeneratorImpl dtoGenerator = new DTOGeneratorImpl();
+		dtoGenerator.setGeneratedDirectory(directory);
+		dtoGenerator.setShard(shardCount, shardIndex);
+		dtoGenerator.generateDTOs(classes);
+	}
+
+	private void addShard(final ShardMerger shardMerger, final String name,
+			final ShardManifest manifest) throws IOException {
+		final File shardDirectory = new File(this.workDirectory, name);
+		manifest.save(new File(shardDirectory, ShardManifest.FILE_NAME), false);
+		shardMerger.addShard(shardDirectory);
+	}
+
+	private Map<String, String> readDTOs(final File directory)
+			throws IOException {
+		final Map<String, String> dtos = new TreeMap<String, String>();
+		this.readDTOs(directory, "", dtos);
+		return dtos;
+	}
+
+	private void readDTOs(final File directory, final String path,
+			final Map<String, String> dtos) throws IOException {
+		final File[] children = directory.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (final File child : children) {
+			if (child.isDirectory()) {
+				this.readDTOs(child, path + child.getName() + "/", dtos);
+			} else if (child.getName().endsWith(".java")) {
+				dtos.put(path + child.getName(), this.read(child));
+			}
+		}
+	}
+
+	private String read(final File file) throws IOException {
+		final InputStream input = new FileInputStream(file);
+		try {
+			final byte[] content = new byte[(int) file.length()];
+			int offset = 0;
+			while (offset < content.length) {
+				final int length = input.read(content, offset, content.length
+						- offset);
+				if (length < 0) {
+					break;
+				}
+				offset += length;
+			}
+			return new String(content, "UTF-8");
+		} finally {
+			input.close();
+		}
+	}
+
+	private void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				this.delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests on {@link Shard}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ShardTest {
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.Shard#getIndex(String, int)} : the
+	 * shard of a class never changes, and depends on its canonical name.
+	 */
+	@Test
+	public void testGetIndex() {
+		Assert.assertEquals(1, Shard.getIndex("fr.maven.dto.bean.Bean", 2));
+		Assert.assertEquals(0, Shard.getIndex("fr.maven.dto.bean.Bean2", 2));
+		Assert.assertEquals(0,
+				Shard.getIndex("fr.maven.dto.bean.AnotherBean", 2));
+		Assert.assertEquals(2, Shard.getIndex("fr.maven.dto.bean.Bean2", 4));
+		for (int count = 1; count < 10; count++) {
+			Assert.assertEquals(Shard.getIndex("fr.maven.Outer.Inner", count),
+					Shard.getIndex("fr.maven.Outer$Inner", count));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.Shard#filter(java.util.List)} : the
+	 * shards partition the classes.
+	 */
+	@Test
+	public void testFilter() {
+		final List<String> classNames = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			classNames.add("fr.maven.dto.bean.Bean" + i);
+		}
+		final Set<String> shardedClassNames = new HashSet<String>();
+		for (int index = 0; index < 3; index++) {
+			final Shard shard = new Shard(3, index);
+			final List<String> shardClassNames = shard.filter(classNames);
+			Assert.assertFalse(shardClassNames.isEmpty());
+			for (final String className : shardClassNames) {
+				Assert.assertTrue(shard.contains(className));
+				Assert.assertTrue(shardedClassNames.add(className));
+			}
+			final List<String> orderedClassNames = new ArrayList<String>(
+					classNames);
+			orderedClassNames.retainAll(shardClassNames);
+			Assert.assertEquals(orderedClassNames, shardClassNames);
+		}
+		Assert.assertEquals(new HashSet<String>(classNames), shardedClassNames);
+		Assert.assertEquals(classNames, new Shard(1, 0).filter(classNames));
+		Assert.assertEquals(Arrays.asList("fr.maven.dto.bean.Bean"), new Shard(
+				2, 1).filter(Arrays.asList("fr.maven.dto.bean.Bean",
+				"fr.maven.dto.bean.Bean2")));
+	}
+
+	/**
+	 * Test method for {@link fr.maven.dto.generator.impl.Shard#Shard(int, int)}
+	 * : the index must be one of the shards.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testShard() {
+		new Shard(2, 2);
+	}
+}
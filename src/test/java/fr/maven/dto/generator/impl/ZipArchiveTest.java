@@ -0,0 +1,235 @@
+/**
+ * 
+ */
+package fr.maven.dto.generator.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests on {@link ZipArchive}.
+ * 
+ * @author Wilfried Petit
+ * 
+ */
+public class ZipArchiveTest {
+
+	private File archiveFile;
+
+	@Before
+	public void setUp() throws Exception {
+		this.archiveFile = File.createTempFile("zip-archive", ".jar");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.archiveFile.delete();
+	}
+
+	/**
+	 * Test method for {@link fr.maven.dto.generator.impl.ZipArchive#getEntries()}
+	 * and {@link fr.maven.dto.generator.impl.ZipArchive#readEntry(ZipArchive.Entry)}
+	 * .
+	 */
+	@Test
+	public void testReadBeansJar() throws IOException {
+		final File beansJar = new File("target/test-classes/beans.jar");
+		final List<String> expectedNames = new ArrayList<String>();
+		final ZipFile zipFile = new ZipFile(beansJar);
+		final ZipArchive zipArchive = new ZipArchive(beansJar);
+		try {
+			final Enumeration<? extends ZipEntry> zipEntries = zipFile
+					.entries();
+			while (zipEntries.hasMoreElements()) {
+				final ZipEntry zipEntry = zipEntries.nextElement();
+				expectedNames.add(zipEntry.getName());
+				final ZipArchive.Entry entry = zipArchive.getEntry(zipEntry
+						.getName());
+				Assert.assertNotNull(entry);
+				Assert.assertEquals(zipEntry.getCrc(), entry.getCrc());
+				Assert.assertTrue(Arrays.equals(
+						this.read(zipFile.getInputStream(zipEntry)),
+						zipArchive.readEntry(entry)));
+			}
+			final List<String> names = new ArrayList<String>();
+			for (final ZipArchive.Entry entry : zipArchive.getEntries()) {
+				names.add(entry.getName());
+			}
+			Assert.assertEquals(expectedNames, names);
+			Assert.assertNotNull(zipArchive
+					.getEntry("fr/maven/dto/test/BeanInAJar.class"));
+		} finally {
+			zipArchive.close();
+			zipFile.close();
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ZipArchive#readEntry(ZipArchive.Entry)}
+	 * .
+	 */
+	@Test
+	public void testReadStoredAndDeflatedEntries() throws IOException {
+		final byte[] content = "stored content".getBytes("UTF-8");
+		final ZipOutputStream output = new ZipOutputStream(
+				new FileOutputStream(this.archiveFile));
+		try {
+			final ZipEntry stored = new ZipEntry("stored.txt");
+			stored.setMethod(ZipEntry.STORED);
+			stored.setSize(content.length);
+			final CRC32 crc = new CRC32();
+			crc.update(content);
+			stored.setCrc(crc.getValue());
+			output.putNextEntry(stored);
+			output.write(content);
+			output.closeEntry();
+			output.putNextEntry(new ZipEntry("dir/deflated.txt"));
+			output.write(content);
+			output.write(content);
+			output.closeEntry();
+			output.setComment("An archive comment.");
+		} finally {
+			output.close();
+		}
+		final ZipArchive zipArchive = new ZipArchive(this.archiveFile);
+		try {
+			Assert.assertEquals(2, zipArchive.getEntries().size());
+			Assert.assertEquals("stored content", new String(
+					zipArchive.readEntry(zipArchive.getEntry("stored.txt")),
+					"UTF-8"));
+			Assert.assertEquals("stored contentstored content", new String(
+					zipArchive.readEntry(zipArchive
+							.getEntry("dir/deflated.txt")), "UTF-8"));
+			Assert.assertNull(zipArchive.getEntry("missing.txt"));
+		} finally {
+			zipArchive.close();
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ZipArchive#readEntry(ZipArchive.Entry)}
+	 * : several threads read the entries of the same archive at the same time.
+	 */
+	@Test
+	public void testReadEntryConcurrently() throws Exception {
+		final ZipArchive zipArchive = new ZipArchive(new File(
+				"target/test-classes/beans.jar"));
+		final int readersCount = 8;
+		final CountDownLatch start = new CountDownLatch(1);
+		final ExecutorService executor = Executors
+				.newFixedThreadPool(readersCount);
+		try {
+			final List<byte[]> contents = new ArrayList<byte[]>();
+			for (final ZipArchive.Entry entry : zipArchive.getEntries()) {
+				contents.add(zipArchive.readEntry(entry));
+			}
+			final List<Future<List<byte[]>>> readers = new ArrayList<Future<List<byte[]>>>();
+			for (int i = 0; i < readersCount; i++) {
+				readers.add(executor.submit(new Callable<List<byte[]>>() {
+					@Override
+					public List<byte[]> call() throws Exception {
+						start.await();
+						final List<byte[]> readContents = new ArrayList<byte[]>();
+						for (final ZipArchive.Entry entry : zipArchive
+								.getEntries()) {
+							readContents.add(zipArchive.readEntry(entry));
+						}
+						return readContents;
+					}
+				}));
+			}
+			start.countDown();
+			for (final Future<List<byte[]>> reader : readers) {
+				final List<byte[]> readContents = reader.get();
+				Assert.assertEquals(contents.size(), readContents.size());
+				for (int i = 0; i < contents.size(); i++) {
+					Assert.assertTrue(Arrays.equals(contents.get(i),
+							readContents.get(i)));
+				}
+			}
+		} finally {
+			executor.shutdown();
+			zipArchive.close();
+		}
+	}
+
+	/**
+	 * Test method for {@link fr.maven.dto.generator.impl.ZipArchive#close()} :
+	 * an interrupted reader does not close the archive, and nothing can be
+	 * read once it is closed.
+	 */
+	@Test
+	public void testClose() throws IOException {
+		final ZipArchive zipArchive = new ZipArchive(new File(
+				"target/test-classes/beans.jar"));
+		final ZipArchive.Entry entry = zipArchive
+				.getEntry("fr/maven/dto/test/BeanInAJar.class");
+		Thread.currentThread().interrupt();
+		try {
+			Assert.assertTrue(zipArchive.readEntry(entry).length > 0);
+		} finally {
+			Assert.assertTrue(Thread.interrupted());
+		}
+		Assert.assertTrue(zipArchive.readEntry(entry).length > 0);
+		zipArchive.close();
+		try {
+			zipArchive.readEntry(entry);
+			Assert.fail("A closed archive can not be read.");
+		} catch (final IOException e) {
+			Assert.assertNotNull(e.getMessage());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link fr.maven.dto.generator.impl.ZipArchive#ZipArchive(File)} .
+	 */
+	@Test(expected = IOException.class)
+	public void testOpenInvalidArchive() throws IOException {
+		final FileOutputStream output = new FileOutputStream(this.archiveFile);
+		try {
+			output.write("not an archive".getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+		new ZipArchive(this.archiveFile).close();
+	}
+
+	private byte[] read(final InputStream input) throws IOException {
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			int length = input.read(buffer);
+			while (length >= 0) {
+				bytes.write(buffer, 0, length);
+				length = input.read(buffer);
+			}
+			return bytes.toByteArray();
+		} finally {
+			input.close();
+		}
+	}
+}